@@ -35,7 +35,7 @@ public class DefaultKeyAssigner implements KeyAssigner<Long> {
      * 实现步骤：
      *   1) 从keyConf中获取本站点的对称密钥key
      *   2) 将key用接受到的公钥进行加密
-     *   3) 构建AssignKeyProtocol实例类型AKP
+     *   3) 构建AssignKeyProtocol实例类型AKP，声明本站点支持压缩协议内容
      *   4) 返回AKP实例
      * @param publicKey 要分发的公钥
      * @return AssignKeyProtocol 分发密钥的协议
@@ -46,7 +46,8 @@ public class DefaultKeyAssigner implements KeyAssigner<Long> {
         byte[] key = encoder.encode(new EncodeEntity(Constant.Code.RSA,
                 publicKey.key(), keyConf.symmetricKey()));
         AssignKeyProtocol akp =
-                new AssignKeyProtocol(Constant.KeyType.SYMMETRIC_KEY, serverConfig.siteName(), key);
+                new AssignKeyProtocol(Constant.KeyType.SYMMETRIC_KEY, serverConfig.siteName(), key,
+                        Constant.Compression.SUPPORTED);
         return akp;
     }
 
@@ -55,14 +56,15 @@ public class DefaultKeyAssigner implements KeyAssigner<Long> {
      * 说明：该方法用于分发当前站点的公钥给连接站点
      * 实现步骤：
      *   1) 从keyConf获取本站点的公钥key
-     *   2) 将key信息封装为AssignKeyProtocol实例AKP
+     *   2) 将key信息封装为AssignKeyProtocol实例AKP，声明本站点支持压缩协议内容
      *   3) 将AKP对象返回
      * @return AssignKeyProtocol 分发密钥的协议
      * @since 0.0.0
      */
     @Override
     public AssignKeyProtocol assignPublicKey() throws Exception {
-        return new AssignKeyProtocol(Constant.KeyType.PUBLIC_KEY, serverConfig.siteName(), keyConf.publicKey());
+        return new AssignKeyProtocol(Constant.KeyType.PUBLIC_KEY, serverConfig.siteName(), keyConf.publicKey(),
+                Constant.Compression.SUPPORTED);
     }
 }
 
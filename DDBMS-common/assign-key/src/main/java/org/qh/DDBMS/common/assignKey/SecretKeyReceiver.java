@@ -85,7 +85,10 @@ public class SecretKeyReceiver implements DDBMSReceiver<BaseTransportProtocol, C
      *   1) 判定协议类型不是密钥分发协议，返回
      *   2) 构建AssignKeyProtocol实例
      *   3) 保存socket和站点名的映射关系。
-     *   4) 根据密钥类型分别执行handleSymmetricKey或者handlePublicKey方法
+     *   4) 判定对方声明了支持压缩协议内容，标记该socket压缩协议内容
+     *     1. 本站点在分发的密钥中总是声明支持压缩，因此双方都支持时才会标记
+     *     2. 对方是未升级的站点时不标记，协议内容不带压缩方式标记
+     *   5) 根据密钥类型分别执行handleSymmetricKey或者handlePublicKey方法
      * </pre>
      *
      * @param protocol 接收到的传输协议
@@ -98,6 +101,7 @@ public class SecretKeyReceiver implements DDBMSReceiver<BaseTransportProtocol, C
         if (protocol.type() != Constant.Protocol.ASSIGN_KEY_PROTOCOL_TYPE) throw new ProtocolResolveException();
         AssignKeyProtocol akp = new AssignKeyProtocol(protocol.data());
         socketManager.register(ctx, akp.siteName());
+        if ((akp.capabilities() & Constant.Compression.SUPPORTED) != 0) socketManager.enableCompression(ctx);
         if (akp.keyType() == Constant.KeyType.SYMMETRIC_KEY) {
             handleSymmetricKey(new DefaultSymmetricKey(akp.siteName(), akp.key()), ctx);
         } else if (akp.keyType() == Constant.KeyType.PUBLIC_KEY) {
@@ -19,6 +19,8 @@ public interface Constant {
     interface ObjectProtocolDataUse {
         byte SYNC_INFO_PROTOCOL = 0;
         byte REQUEST_SYNC_INFO_PROTOCOL = SYNC_INFO_PROTOCOL + 1;
+        byte SNAPSHOT_PROTOCOL = REQUEST_SYNC_INFO_PROTOCOL + 1;
+        byte REQUEST_SNAPSHOT_PROTOCOL = SNAPSHOT_PROTOCOL + 1;
     }
 
     interface ACKType {
@@ -55,6 +57,12 @@ public interface Constant {
 
         // 通知客户端连接准备完成
         short READY = DBTRANSACTION_FAILURE + 1;
+
+        // 辅站点向GDBMS汇报已应用事务数和复制状态的ackType
+        short SLAVE_PROGRESS = READY + 1;
+
+        // GDBMS通知站点可以删除的同步信息位置的ackType
+        short SYNC_CHECKPOINT = SLAVE_PROGRESS + 1;
     }
 
     interface KeyType {
@@ -68,17 +76,88 @@ public interface Constant {
         String AES = "AES";  // AES加密算法名称
     }
 
+    interface Compression {
+        // 加密前的协议内容达到该字节数才进行压缩
+        int THRESHOLD = 512;
+
+        // Deflate压缩级别，1最快，9压缩率最高
+        int LEVEL = 6;
+
+        // 加密内容首字节，表示协议内容未压缩
+        byte NONE = 0;
+
+        // 加密内容首字节，表示协议内容使用Deflate压缩
+        byte DEFLATE = 1;
+
+        // 密钥分发协议中的能力标记，表示站点支持压缩协议内容
+        byte SUPPORTED = 1;
+
+        // 解压后协议内容的最大字节数
+        int MAX_LENGTH = 64 * 1024 * 1024;
+
+        // Deflate的最大压缩比，原始长度超过压缩数据长度乘以该值时数据无效
+        int MAX_RATIO = 1032;
+    }
+
     interface Sync {
         String SYNC_INFO_TABLE_PREFIX = "sync_info_";
 
         // 同步信息中sql语句之间的分割符。
         String SQL_STATEMENT_SEPARATOR = "\nSQL_STATEMENT_SEPARATOR\n";
 
-        // 发送同步信息给到从站点的间隔,单位ms
-        long DISPATCH_SYNC_INFO_INTERVAL = 1000;
+        // 补全同步信息时，一页最多包含的同步信息数
+        int SYNC_PAGE_ENTRIES = 512;
+
+        // 补全同步信息时，一页同步信息的sql语句和参数最多占用的字节数，至少包含一条同步信息
+        int SYNC_PAGE_BYTES = 4 * 1024 * 1024;
+
+        // 快照传输时，一个协议最多包含的行数
+        int SNAPSHOT_CHUNK_ROWS = 1000;
+
+        // 快照传输时，一个协议中的行最多占用的字节数，至少包含一行
+        int SNAPSHOT_CHUNK_BYTES = 4 * 1024 * 1024;
+
+        // 快照会话空闲超过该时间后被关闭，单位ms
+        long SNAPSHOT_SESSION_TIMEOUT = 60 * 1000;
+
+        // 获取连续的同步信息id失败时，重新开启快照的最大次数
+        int SNAPSHOT_RETRY_TIMES = 50;
+
+        // GDBMS计算并下发同步信息检查点的间隔，单位ms
+        long CHECKPOINT_INTERVAL = 60 * 1000;
+
+        // 同步信息表至少保留的最新同步信息数
+        long SYNC_INFO_RETAIN_ENTRIES = 10000;
+
+        // 同步信息表最多保留的同步信息数，落后更多的从站点通过快照补全
+        long SYNC_INFO_MAX_RETAIN_ENTRIES = 1000000;
+
+        // 删除同步信息时，一条delete语句最多删除的行数
+        int SYNC_INFO_DELETE_BATCH = 10000;
+
+        // GDBMS保存同步信息时，一次合并写入最多包含的提交数
+        int SAVE_COMBINE_REQUESTS = 256;
+
+        // 辅站点定时向GDBMS汇报复制状态的间隔，单位ms
+        long PROGRESS_REPORT_INTERVAL = 5000;
+
+        // 计算应用速率的最小时间窗口，单位ms
+        long APPLY_RATE_WINDOW = 1000;
 
     }
 
+    interface SyncLog {
+
+        // GDBMS同步日志的默认根目录，每个数据库一个子目录
+        String DIRECTORY = "sync_log";
+
+        // 同步日志段文件的后缀
+        String SEGMENT_SUFFIX = ".log";
+
+        // 一个同步日志段文件的最大字节数，超过后新建段文件
+        long SEGMENT_BYTES = 64 * 1024 * 1024;
+    }
+
     interface ServerAndClient {
         // netty 中的工作线程数
         int WORK_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
@@ -117,4 +196,43 @@ public interface Constant {
         // 写SQL类型
         byte WRITE_TYPE = 2;
     }
+
+    interface Commit {
+
+        // 执行SQL后持有数据库连接，直到GDBMS确认后再提交
+        byte HOLD_CONNECTION_MODE = 0;
+
+        // 试执行后立即归还连接，GDBMS确认后再真正执行并提交
+        byte DEFERRED_EXECUTION_MODE = 1;
+    }
+
+    interface RowChange {
+
+        // 插入或更新一行，同步为该行修改后的完整行数据
+        byte UPSERT = 0;
+
+        // 删除一行，同步为该行的主键
+        byte DELETE = 1;
+
+        // 一条查询行数据的语句最多包含的主键个数
+        int SELECT_CHUNK_KEYS = 1000;
+    }
+
+    interface SlaveSelection {
+
+        // 响应延迟EWMA中新样本的权重
+        double LATENCY_EWMA_ALPHA = 0.2;
+
+        // 没有延迟样本的辅站点使用的响应延迟，单位ns
+        long DEFAULT_LATENCY_NANOS = 1_000_000;
+
+        // 辅站点每落后该数量的同步信息，其评分翻倍
+        long LAG_PENALTY_ENTRIES = 64;
+
+        // 发送给辅站点的请求超过该时间没有回调，视为完成并以该时间记录延迟，单位ms
+        long REQUEST_TIMEOUT = 30_000;
+
+        // 检查超时请求的间隔，单位ms
+        long REQUEST_SWEEP_INTERVAL = 1_000;
+    }
 }
@@ -0,0 +1,161 @@
+package org.qh.DDBMS.common.db;
+
+import lombok.Setter;
+import org.qh.tools.exception.ExceptionUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/06
+ * @Version: 0.0.0
+ * @Description: StatementCache接口的默认实现类
+ */
+@Setter
+public class DefaultStatementCache implements StatementCache {
+
+    /**
+     * <pre>
+     * 说明：每个连接最多缓存的PreparedStatement个数
+     * </pre>
+     */
+    private int cacheSize = 256;
+
+    /**
+     * <pre>
+     * 说明：最多缓存语句的物理连接个数
+     * 注意事项：
+     *   1. 应不小于连接池的最大连接数，否则正在使用的连接的语句可能被淘汰并关闭
+     * </pre>
+     */
+    private int connectionSize = 128;
+
+    /**
+     * <pre>
+     * 说明：物理连接和其语句缓存的映射关系，按访问顺序排列，由自身同步
+     * 注意事项：
+     *   1. 语句通过getConnection()强引用其连接，不能使用WeakHashMap，否则连接永远不会被回收
+     *   2. 出现新的物理连接时清除已关闭的连接，连接数超过connectionSize时关闭并淘汰最久未使用的连接的语句
+     * </pre>
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> caches =
+            new LinkedHashMap<Connection, Map<String, PreparedStatement>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Connection, Map<String, PreparedStatement>> eldest) {
+                    if (size() <= connectionSize) return false;
+                    close(eldest.getValue());
+                    return true;
+                }
+            };
+
+    /**
+     * <pre>
+     * 说明：获取连接上模板对应的PreparedStatement，不存在时预编译并缓存
+     * 注意事项：
+     *   1. 连接池借出的是代理连接，缓存以其底层物理连接为key，使语句可以跨越借用复用
+     *   2. 同一个物理连接同一时刻只会被一个线程借用，因此单个连接的缓存无需同步
+     * 实现步骤：
+     *   1) 获取底层物理连接及其缓存，见cache()
+     *   2) 缓存中存在未关闭的语句，清除参数和批量语句后返回
+     *   3) 否则在物理连接上预编译该模板，放入缓存后返回
+     *     1. 缓存超过cacheSize时关闭并淘汰最久未使用的语句
+     * </pre>
+     * @param connection 数据库连接
+     * @param template 带有占位符的sql模板
+     * @return 模板对应的PreparedStatement
+     * @since 0.0.0
+     */
+    @Override
+    public PreparedStatement prepare(Connection connection, String template) throws SQLException {
+        Connection physical = physical(connection);
+        Map<String, PreparedStatement> cache = cache(physical);
+        PreparedStatement ps = cache.get(template);
+        if (ps != null && !ps.isClosed()) {
+            ps.clearParameters();
+            ps.clearBatch();
+            return ps;
+        }
+        ps = physical.prepareStatement(template);
+        cache.put(template, ps);
+        return ps;
+    }
+
+    /**
+     * <pre>
+     * 说明：获取物理连接的语句缓存，不存在时创建
+     * 实现步骤：
+     *   1) 缓存存在时直接返回
+     *   2) 清除所有已关闭的连接的缓存，连接关闭时其语句已经关闭
+     *   3) 创建并放入该连接的缓存，连接数超过connectionSize时淘汰最久未使用的连接
+     * </pre>
+     * @param physical 物理连接
+     * @return 语句缓存
+     * @since 0.0.0
+     */
+    private Map<String, PreparedStatement> cache(Connection physical) throws SQLException {
+        synchronized (caches) {
+            Map<String, PreparedStatement> cache = caches.get(physical);
+            if (cache != null) return cache;
+            Iterator<Connection> it = caches.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().isClosed()) it.remove();
+            }
+            cache = newCache();
+            caches.put(physical, cache);
+            return cache;
+        }
+    }
+
+    /**
+     * 说明：关闭一个连接缓存的所有语句
+     * @param cache 语句缓存
+     * @since 0.0.0
+     */
+    private static void close(Map<String, PreparedStatement> cache) {
+        for (PreparedStatement ps : cache.values()) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                ExceptionUtils.printStackTrace(e);
+            }
+        }
+    }
+
+    /**
+     * 说明：获取连接池代理连接的底层物理连接
+     * @param connection 数据库连接
+     * @return 物理连接，无法获取时返回connection本身
+     * @since 0.0.0
+     */
+    private Connection physical(Connection connection) throws SQLException {
+        if (connection.isWrapperFor(Connection.class)) {
+            Connection physical = connection.unwrap(Connection.class);
+            if (physical != null) return physical;
+        }
+        return connection;
+    }
+
+    /**
+     * 说明：构建一个按访问顺序淘汰的语句缓存
+     * @return 语句缓存
+     * @since 0.0.0
+     */
+    private Map<String, PreparedStatement> newCache() {
+        return new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= cacheSize) return false;
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException e) {
+                    ExceptionUtils.printStackTrace(e);
+                }
+                return true;
+            }
+        };
+    }
+}
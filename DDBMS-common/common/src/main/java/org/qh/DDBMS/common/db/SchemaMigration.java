@@ -0,0 +1,58 @@
+package org.qh.DDBMS.common.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 启动时升级系统表结构的工具类
+ * @Specification:
+ *   1. 同步信息表sync_info_dbName和sql_bank的最后一列为绑定参数：`parameters` LONGBLOB NULL
+ *   2. 旧版本的表缺少该列时，启动时执行 ALTER TABLE `table` ADD COLUMN `parameters` LONGBLOB NULL;
+ */
+public class SchemaMigration {
+
+    private SchemaMigration() {
+    }
+
+    /**
+     * <pre>
+     * 说明：表中不存在指定列时，在表的最后添加该列
+     * 实现步骤：
+     *   1) 通过JDBC元数据查询该列，存在时返回false
+     *   2) 执行ALTER TABLE ADD COLUMN，返回true
+     * </pre>
+     * @param connection 数据库连接
+     * @param table 表名
+     * @param column 列名
+     * @param definition 列定义，如LONGBLOB NULL
+     * @return 是否添加了该列
+     * @since 0.0.0
+     */
+    public static boolean addColumnIfAbsent(Connection connection, String table, String column,
+                                            String definition) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (rs.next()) return false;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE `" + table + "` ADD COLUMN `" + column + "` " + definition + ";");
+        }
+        return true;
+    }
+
+    /**
+     * 说明：为同步信息表或sql_bank添加绑定参数列
+     * @param connection 数据库连接
+     * @param table 表名
+     * @return 是否添加了该列
+     * @since 0.0.0
+     */
+    public static boolean addParametersColumn(Connection connection, String table) throws SQLException {
+        return addColumnIfAbsent(connection, table, "parameters", "LONGBLOB NULL");
+    }
+}
@@ -0,0 +1,44 @@
+package org.qh.DDBMS.common.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/06
+ * @Version: 0.0.0
+ * @Description: 以sql模板为key，按连接缓存PreparedStatement的接口
+ */
+public interface StatementCache {
+
+    /**
+     * <pre>
+     * 说明：获取连接上模板对应的PreparedStatement，不存在时预编译并缓存
+     * 注意事项：
+     *   1. 返回的PreparedStatement属于缓存，调用方不可关闭它
+     *   2. 返回前已清除上次使用留下的参数和批量语句
+     * </pre>
+     * @param connection 数据库连接
+     * @param template 带有占位符的sql模板
+     * @return 模板对应的PreparedStatement
+     * @since 0.0.0
+     */
+    PreparedStatement prepare(Connection connection, String template) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：按顺序为PreparedStatement绑定参数
+     * </pre>
+     * @param ps 预编译的语句
+     * @param parameters 绑定参数，可以为null
+     * @since 0.0.0
+     */
+    static void bind(PreparedStatement ps, Object[] parameters) throws SQLException {
+        if (parameters == null) return;
+        for (int i = 0; i < parameters.length; i++) {
+            ps.setObject(i + 1, parameters[i]);
+        }
+    }
+}
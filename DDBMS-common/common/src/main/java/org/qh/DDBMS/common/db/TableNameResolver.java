@@ -0,0 +1,141 @@
+package org.qh.DDBMS.common.db;
+
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: 从sql语句中解析其读写的表名
+ */
+public final class TableNameResolver {
+
+    /**
+     * <pre>
+     * 说明：其后跟随表名的关键字
+     * </pre>
+     */
+    private static final Set<String> TABLE_KEYWORDS =
+            new HashSet<>(Arrays.asList("from", "join", "straight_join", "into", "update", "table"));
+
+    /**
+     * <pre>
+     * 说明：不能作为表别名的关键字
+     * </pre>
+     */
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "where", "set", "on", "using", "join", "left", "right", "inner", "outer", "cross",
+            "natural", "straight_join", "values", "value", "select", "group", "order", "limit",
+            "having", "union", "partition", "force", "use", "ignore", "lock", "for", "window", "as"));
+
+    private TableNameResolver() {
+    }
+
+    /**
+     * <pre>
+     * 说明：解析sql语句读写的所有表名
+     * 注意事项：
+     *   1. 表名统一转换为小写，并去掉库名前缀和反引号
+     *   2. 解析是保守的：可能多解析出表名，调用方应将空结果视为无法确定
+     * 实现步骤：
+     *   1) 将语句拆分为单词、带反引号的标识符和标点，跳过字符串和注释
+     *   2) 在FROM、JOIN、STRAIGHT_JOIN、INTO、UPDATE、TABLE之后读取表名
+     *     0. ON DUPLICATE KEY UPDATE之后是列名，跳过
+     *     1. 跳过库名前缀和别名
+     *     2. 遇到逗号则继续读取下一个表名
+     * </pre>
+     * @param statement sql语句
+     * @return 表名集合
+     * @since 0.0.0
+     */
+    public static Set<String> tables(String statement) {
+        Set<String> res = new HashSet<>();
+        if (statement == null) return res;
+        List<String> tokens = tokenize(statement);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!TABLE_KEYWORDS.contains(tokens.get(i))) continue;
+            if ("update".equals(tokens.get(i)) && i > 0 && "key".equals(tokens.get(i - 1))) continue;
+            int j = i + 1;
+            while (j < tokens.size()) {
+                String name = tokens.get(j);
+                if (!isName(name)) break;
+                if (j + 2 < tokens.size() && ".".equals(tokens.get(j + 1)) && isName(tokens.get(j + 2))) {
+                    name = tokens.get(j + 2);
+                    j += 2;
+                }
+                res.add(unquote(name));
+                j++;
+                if (j < tokens.size() && "as".equals(tokens.get(j))) j += 2;
+                else if (j < tokens.size() && isName(tokens.get(j)) && !RESERVED.contains(tokens.get(j))) j++;
+                if (j < tokens.size() && ",".equals(tokens.get(j))) j++;
+                else break;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * <pre>
+     * 说明：将sql语句拆分为小写的单词、带反引号的标识符和单个字符的标点，字符串和注释被跳过
+     * 注意事项：
+     *   1. 以/*!开头的注释会被MySQL执行，只跳过其开头，其中的内容正常拆分
+     * </pre>
+     * @param statement sql语句
+     * @return 单词列表
+     * @since 0.0.0
+     */
+    private static List<String> tokenize(String statement) {
+        List<String> tokens = new ArrayList<>();
+        int n = statement.length();
+        int i = 0;
+        while (i < n) {
+            char c = statement.charAt(i);
+            if (c == '/' && i + 1 < n && statement.charAt(i + 1) == '*') {
+                if (i + 2 < n && statement.charAt(i + 2) == '!') {
+                    i += 3;
+                    while (i < n && Character.isDigit(statement.charAt(i))) i++; // 版本号
+                    continue;
+                }
+                int end = statement.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '#' || (c == '-' && statement.startsWith("--", i) &&
+                    (i + 2 == n || Character.isWhitespace(statement.charAt(i + 2))))) {
+                int end = statement.indexOf('\n', i);
+                i = end < 0 ? n : end + 1;
+            } else if (c == '\'' || c == '"') {
+                i++;
+                while (i < n && statement.charAt(i) != c) {
+                    if (statement.charAt(i) == '\\') i++;
+                    i++;
+                }
+                i++;
+            } else if (c == '`') {
+                int end = statement.indexOf('`', i + 1);
+                if (end < 0) end = n - 1;
+                tokens.add(statement.substring(i, end + 1).toLowerCase());
+                i = end + 1;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                int end = i;
+                while (end < n && (Character.isLetterOrDigit(statement.charAt(end)) ||
+                        statement.charAt(end) == '_' || statement.charAt(end) == '$')) end++;
+                tokens.add(statement.substring(i, end).toLowerCase());
+                i = end;
+            } else {
+                if (!Character.isWhitespace(c)) tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isName(String token) {
+        char c = token.charAt(0);
+        return c == '`' || Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2 && name.charAt(0) == '`') return name.substring(1, name.length() - 1);
+        return name;
+    }
+}
@@ -0,0 +1,94 @@
+package org.qh.DDBMS.common.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 一个辅站点的复制状态实例类
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReplicationStatus implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * <pre>
+     * 说明：辅站点名称
+     * </pre>
+     */
+    private String siteName;
+
+    /**
+     * <pre>
+     * 说明：辅站点代表的数据库名称
+     * </pre>
+     */
+    private String dbName;
+
+    /**
+     * <pre>
+     * 说明：辅站点已经应用的同步信息id，即其提交事务数
+     * </pre>
+     */
+    private long appliedSyncId;
+
+    /**
+     * <pre>
+     * 说明：主站点的同步信息id
+     * 注意事项：
+     *   1. 辅站点汇报时是其收到的最大同步信息id，GDBMS收到后替换为数据库提交事务数
+     * </pre>
+     */
+    private long masterSyncId;
+
+    /**
+     * <pre>
+     * 说明：落后的同步信息数，即masterSyncId - appliedSyncId
+     * </pre>
+     */
+    private long lagEntries;
+
+    /**
+     * <pre>
+     * 说明：落后的时间，即最早收到但尚未应用的同步信息已经等待的时间，单位ms
+     * </pre>
+     */
+    private long lagMillis;
+
+    /**
+     * <pre>
+     * 说明：最近一个时间窗口内每秒应用的同步信息数
+     * </pre>
+     */
+    private double applyRate;
+
+    /**
+     * <pre>
+     * 说明：辅站点启动以来请求补全同步信息的次数
+     * </pre>
+     */
+    private long catchUpRequests;
+
+    /**
+     * <pre>
+     * 说明：辅站点启动以来发现同步信息缺失的次数
+     * </pre>
+     */
+    private long gapsDetected;
+
+    /**
+     * <pre>
+     * 说明：生成该状态的时间戳，单位ms
+     * </pre>
+     */
+    private long time;
+}
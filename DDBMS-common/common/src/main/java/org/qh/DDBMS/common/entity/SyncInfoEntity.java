@@ -6,7 +6,9 @@ import lombok.NoArgsConstructor;
 import org.qh.DDBMS.common.Validator;
 import org.qh.DDBMS.common.db.DBResource;
 import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.tools.parse.ObjectByteParseUtils;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 
@@ -44,6 +46,21 @@ public class SyncInfoEntity implements Validator<SyncInfoEntity, String>, Serial
      */
     private String sqlStatement;
 
+    /**
+     * <pre>
+     * 说明：序列化后的绑定参数，为null表示所有语句都不带参数
+     * 规范：
+     *   1) 反序列化后为Object[][][] p，p[i]是sqlStatement中第i条语句的参数
+     *   2) p[i]为null表示第i条语句不带参数，直接执行一次
+     *   3) p[i][j]是第i条语句第j次执行时绑定的参数
+     * </pre>
+     */
+    private byte[] parameters;
+
+    public SyncInfoEntity(Long id, DBTransaction transaction, String sqlStatement) {
+        this(id, transaction, sqlStatement, null);
+    }
+
     /**
      * <pre>
      * 说明：该类的全参构造器
@@ -55,12 +72,14 @@ public class SyncInfoEntity implements Validator<SyncInfoEntity, String>, Serial
      *
      * @param transaction 最近一个事务
      * @param sqlStatement 修改数据库的SQL语句
+     * @param parameters 序列化后的绑定参数
      * @since 0.0.0
      */
-    public SyncInfoEntity(Long id, DBTransaction transaction, String sqlStatement) {
+    public SyncInfoEntity(Long id, DBTransaction transaction, String sqlStatement, byte[] parameters) {
         this.id = id;
         this.transaction = transaction;
         this.sqlStatement = sqlStatement;
+        this.parameters = parameters;
 
         String validationMessage = validate(this);
         if (validationMessage != null) {
@@ -97,5 +116,28 @@ public class SyncInfoEntity implements Validator<SyncInfoEntity, String>, Serial
         return null;
     }
 
-}
+    /**
+     * 说明：序列化绑定参数
+     * @param parameters 每条语句的绑定参数
+     * @return 序列化后的字节，所有语句都不带参数时返回null
+     * @since 0.0.0
+     */
+    public static byte[] encodeParameters(Object[][][] parameters) throws IOException {
+        if (parameters == null) return null;
+        for (Object[][] p : parameters) {
+            if (p != null) return ObjectByteParseUtils.parseObjectToByte(parameters);
+        }
+        return null;
+    }
 
+    /**
+     * 说明：反序列化绑定参数
+     * @param parameters 序列化后的绑定参数
+     * @return 每条语句的绑定参数，parameters为空时返回null
+     * @since 0.0.0
+     */
+    public static Object[][][] decodeParameters(byte[] parameters) throws IOException {
+        if (parameters == null || parameters.length == 0) return null;
+        return (Object[][][]) ObjectByteParseUtils.parseByteToObject(parameters);
+    }
+}
@@ -16,6 +16,11 @@ public class FailedTransactionException extends RuntimeException {
         this.transaction = transaction;
     }
 
+    public FailedTransactionException(DBTransaction transaction, Throwable cause) {
+        super(cause);
+        this.transaction = transaction;
+    }
+
     public DBTransaction getTransaction() {
         return transaction;
     }
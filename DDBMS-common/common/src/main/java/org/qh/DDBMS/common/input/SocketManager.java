@@ -51,6 +51,27 @@ public interface SocketManager {
      */
     ChannelHandlerContext get(String siteName);
 
+    /**
+     * <pre>
+     * 说明：标记该socket的双方在密钥分发时都声明了支持压缩协议内容
+     * 规范：
+     *   1) 只有标记了的socket，加密的协议内容才带有压缩方式标记，未升级的站点不受影响
+     * </pre>
+     * @param ctx ChannelHandlerContext 传入的上下文
+     * @since 0.0.0
+     */
+    void enableCompression(ChannelHandlerContext ctx);
+
+    /**
+     * <pre>
+     * 说明：判断该socket是否压缩协议内容
+     * </pre>
+     * @param ctx ChannelHandlerContext 传入的上下文
+     * @return boolean 是否压缩协议内容
+     * @since 0.0.0
+     */
+    boolean compression(ChannelHandlerContext ctx);
+
     /**
      * <pre>
      * 说明：传入一个ChannelHandlerContext实例，获取其对应的站点名称
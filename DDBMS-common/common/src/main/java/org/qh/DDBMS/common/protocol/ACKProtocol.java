@@ -144,6 +144,18 @@ public class ACKProtocol extends AbstractTransferProtocol<ByteBuffer> implements
         switch (ackProtocol.ackType) {
             case Constant.ACKType.COMMIT_TYPE:
             case Constant.ACKType.RESPONSE_COMMIT_TYPE:
+            case Constant.ACKType.EXCEPTION:
+            case Constant.ACKType.CANCEL_DBTRANSACTION:
+            case Constant.ACKType.METHOD_CALLBACK:
+            case Constant.ACKType.ASSIGN_MASTER_INFO:
+            case Constant.ACKType.SITE_INFO:
+            case Constant.ACKType.REQUEST_SITE_INFO:
+            case Constant.ACKType.LACK_COMMITED_TRANSACTION:
+            case Constant.ACKType.DBTRANSACTION_SUCCESS:
+            case Constant.ACKType.DBTRANSACTION_FAILURE:
+            case Constant.ACKType.READY:
+            case Constant.ACKType.SLAVE_PROGRESS:
+            case Constant.ACKType.SYNC_CHECKPOINT:
                 break;
             default:
                 return "The ackType is " + ackProtocol.ackType + "(invalid).";
@@ -26,6 +26,7 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
 
     private String siteName; // 密钥所属的站点名
     private byte[] key;   // 密钥
+    private byte capabilities; // 站点支持的能力标记，旧版本站点的协议中没有该字段，视为0
 
     /**
      * <pre>
@@ -41,12 +42,29 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
      * @since 0.0.0
      */
     public AssignKeyProtocol(byte keyType, String siteName, byte[] key) {
+        this(keyType, siteName, key, (byte) 0);
+    }
+
+    /**
+     * <pre>
+     * 说明：携带能力标记的全参构造器
+     * 注意事项：
+     *   1. 能力标记位于协议末尾，旧版本站点解析时会忽略
+     * </pre>
+     * @param keyType 密钥类型
+     * @param key 密钥
+     * @param capabilities 能力标记，例如Constant.Compression.SUPPORTED
+     * @throws ClassFieldException 如果验证失败
+     * @since 0.0.0
+     */
+    public AssignKeyProtocol(byte keyType, String siteName, byte[] key, byte capabilities) {
         super(Constant.Protocol.ASSIGN_KEY_PROTOCOL_TYPE);
         this.keyType = keyType;
         this.siteName = siteName;
         this.key = key;
+        this.capabilities = capabilities;
         setContentLength(Byte.BYTES + Integer.BYTES + siteName.getBytes().length
-                + Integer.BYTES + key.length);
+                + Integer.BYTES + key.length + Byte.BYTES);
 
         String validationError = validate(this);
         if (validationError != null) {
@@ -66,7 +84,8 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
      *   6) 取出siteName
      *   7) 取出keyLength
      *   8) 根据keyLength取出key
-     *   9) 将当前实例作为参数调用validate(),
+     *   9) 协议中还有内容则取出capabilities
+     *   10) 将当前实例作为参数调用validate(),
      *     1. validate返回非null，抛出字段异常
      * @param data 输入的字节数组
      * @throws ClassFieldException 如果验证失败
@@ -86,6 +105,9 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
         int keyLength = buffer.getInt();
         this.key = new byte[keyLength];
         buffer.get(this.key);
+        if (buffer.hasRemaining() && buffer.position() < Byte.BYTES + Long.BYTES + contentLength()) {
+            this.capabilities = buffer.get();
+        }
 
         String validationError = validate(this);
         if (validationError != null) {
@@ -117,6 +139,16 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
         return key;
     }
 
+    /**
+     * <pre>
+     * 说明：获取站点支持的能力标记
+     * @return capabilities 能力标记
+     * @since 0.0.0
+     */
+    public byte capabilities() {
+        return capabilities;
+    }
+
     /**
      * <pre>
      * 说明：验证传入参数的属性是否合规
@@ -156,6 +188,7 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
      *   7) buf装入siteName
      *   8) buf装入keyLength
      *   9) buf装入key
+     *   10) buf装入capabilities
      * @return ByteBuffer 协议的字节数据
      * @since 0.0.0
      */
@@ -170,6 +203,7 @@ public class AssignKeyProtocol extends AbstractTransferProtocol<ByteBuffer> impl
         buf.put(keyType); // buf装入keyType
         buf.putInt(key.length); // buf装入keyLength
         buf.put(key); // buf装入key
+        buf.put(capabilities); // buf装入capabilities
         return buf;
     }
 
@@ -0,0 +1,49 @@
+package org.qh.DDBMS.common.protocol;
+
+import org.qh.DDBMS.common.Constant;
+
+import java.io.Serializable;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 从站点向主站点请求数据库快照的协议
+ * @Specification:
+ *   1) dataUse: REQUEST_SNAPSHOT_PROTOCOL
+ *   2) data:
+ *     1. String dbName
+ *     2. String siteName，请求者站点名
+ *     3. Boolean start，true表示开启新的快照，false表示获取当前快照的下一块
+ *     4. Long session，请求者的快照会话id，获取下一块时与当前快照的会话id不一致则忽略
+ */
+public class RequestSnapshotProtocol extends ObjectTransportProtocol implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Class<?>[] DATA_TYPES = new Class[]{String.class, String.class, Boolean.class, Long.class};
+
+    public RequestSnapshotProtocol(String dbName, String siteName, boolean start, long session) {
+        super(Constant.Protocol.SYNC_INFO_PROTOCOL_TYPE, Constant.ObjectProtocolDataUse.REQUEST_SNAPSHOT_PROTOCOL,
+                dbName, siteName, start, session);
+    }
+
+    public RequestSnapshotProtocol(byte[] bytes) {
+        super(bytes);
+    }
+
+    @Override
+    public String validate(ObjectTransportProtocol protocol) {
+        if (protocol.getDataUse() != Constant.ObjectProtocolDataUse.REQUEST_SNAPSHOT_PROTOCOL) {
+            return "The dataUse field is " + protocol.getDataUse() + "(invalid).";
+        }
+        Object[] data = protocol.getData();
+        if (data == null || data.length != DATA_TYPES.length) return "The data field is not valid.";
+        for (int i = 0; i < DATA_TYPES.length; i++) {
+            if (data[i] == null) return "There is null in data.";
+            if (!DATA_TYPES[i].isInstance(data[i])) return "The content of the data is not valid.";
+        }
+        return null;
+    }
+}
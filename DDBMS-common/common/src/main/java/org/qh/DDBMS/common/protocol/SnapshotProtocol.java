@@ -0,0 +1,85 @@
+package org.qh.DDBMS.common.protocol;
+
+import org.qh.DDBMS.common.Constant;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 主站点向从站点发送一块数据库快照的协议
+ * @Specification:
+ *   1) dataUse: SNAPSHOT_PROTOCOL
+ *   2) data:
+ *     1. Long syncId，快照包含的最大同步信息id，不大于该id的同步信息都已包含在快照中
+ *     2. String table，本块数据所属的表；为空串时，rows中每一行是一条需要依次执行的语句，
+ *        用于在所有表之后重建存储过程、函数、视图和触发器
+ *     3. String ddl，表的建表语句，只在一张表的第一块中非空
+ *     4. String[] columns，rows中每一列对应的列名
+ *     5. ArrayList<Object[]> rows，表中的行
+ *     6. Boolean done，true表示快照结束，此时table为同步信息表，rows中为id等于syncId的同步信息
+ *     7. Long session，请求者开启快照时的会话id，请求者丢弃不属于当前会话的块
+ */
+public class SnapshotProtocol extends ObjectTransportProtocol implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Class<?>[] DATA_TYPES = new Class[]{Long.class, String.class, String.class,
+            String[].class, ArrayList.class, Boolean.class, Long.class};
+
+    public SnapshotProtocol(long syncId, String table, String ddl, String[] columns,
+                            ArrayList<Object[]> rows, boolean done, long session) {
+        super(Constant.Protocol.SYNC_INFO_PROTOCOL_TYPE, Constant.ObjectProtocolDataUse.SNAPSHOT_PROTOCOL,
+                syncId, table, ddl, columns, rows, done, session);
+    }
+
+    public SnapshotProtocol(byte[] bytes) {
+        super(bytes);
+    }
+
+    @Override
+    public String validate(ObjectTransportProtocol protocol) {
+        if (protocol.getDataUse() != Constant.ObjectProtocolDataUse.SNAPSHOT_PROTOCOL) {
+            return "The dataUse field is " + protocol.getDataUse() + "(invalid).";
+        }
+        Object[] data = protocol.getData();
+        if (data == null || data.length != DATA_TYPES.length) return "The data field is not valid.";
+        for (int i = 0; i < DATA_TYPES.length; i++) {
+            if (data[i] == null) return "There is null in data.";
+            if (!DATA_TYPES[i].isInstance(data[i])) return "The content of the data is not valid.";
+        }
+        return null;
+    }
+
+    public long syncId() {
+        return (Long) getData()[0];
+    }
+
+    public String table() {
+        return (String) getData()[1];
+    }
+
+    public String ddl() {
+        return (String) getData()[2];
+    }
+
+    public String[] columns() {
+        return (String[]) getData()[3];
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<Object[]> rows() {
+        return (ArrayList<Object[]>) getData()[4];
+    }
+
+    public boolean done() {
+        return (Boolean) getData()[5];
+    }
+
+    public long session() {
+        return (Long) getData()[6];
+    }
+}
@@ -11,6 +11,7 @@ package org.qh.DDBMS.common.protocol;
  *     1. 0表示该协议实例中包含要求"从站点"进行同步的事务信息
  *   2) data；
  *     1. SyncInfoEntity[]
+ *     2. Boolean，可选，true表示发送方还有后续的同步信息，接收方提交本页后需要继续请求
  */
 
 import org.qh.DDBMS.common.Constant;
@@ -55,6 +56,23 @@ public class SyncInfoProtocol extends ObjectTransportProtocol implements Seriali
                 list);
     }
 
+    /**
+     * <pre>
+     * 说明：构造器，用于分页发送同步信息
+     * 实现步骤：
+     *   1) 调用父类的构造器
+     *      1. dataUse = 0
+     * </pre>
+     *
+     * @param list 一页SyncInfoEntity集合
+     * @param hasMore 发送方是否还有后续的同步信息
+     * @since 0.0.0
+     */
+    public SyncInfoProtocol(List<SyncInfoEntity> list, boolean hasMore) {
+        super(Constant.Protocol.SYNC_INFO_PROTOCOL_TYPE, Constant.ObjectProtocolDataUse.SYNC_INFO_PROTOCOL,
+                list, hasMore);
+    }
+
     /**
      * <pre>
      * 说明：根据二级协议的字节形式转化为该协议实例
@@ -105,6 +123,16 @@ public class SyncInfoProtocol extends ObjectTransportProtocol implements Seriali
         return null;
     }
 
+    /**
+     * 说明：发送方是否还有后续的同步信息
+     * @return 协议中没有该标记时返回false
+     * @since 0.0.0
+     */
+    public boolean hasMore() {
+        Object[] data = getData();
+        return data.length > 1 && Boolean.TRUE.equals(data[1]);
+    }
+
     /**
      * <pre>
      * 说明：将当前协议转化为ByteBuffer形式
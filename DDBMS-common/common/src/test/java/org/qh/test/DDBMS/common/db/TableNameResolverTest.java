@@ -0,0 +1,67 @@
+package org.qh.test.DDBMS.common.db;
+
+import org.junit.Test;
+import org.qh.DDBMS.common.db.TableNameResolver;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试TableNameResolver对sql语句中表名的解析
+ */
+public class TableNameResolverTest {
+
+    @Test
+    public void selectAndJoins() {
+        assertTables("select * from t", "t");
+        assertTables("SELECT a.x FROM `db`.`T` AS a JOIN u b ON a.id = b.id", "t", "u");
+        assertTables("select * from t, u x, v where t.id = x.id", "t", "u", "v");
+        assertTables("select * from t straight_join u on t.id = u.id", "t", "u");
+        assertTables("select * from t where id in (select id from u)", "t", "u");
+    }
+
+    @Test
+    public void writes() {
+        assertTables("insert into t (id) values (1) on duplicate key update a = 2", "t");
+        assertTables("update t set a = 1 where id = 2", "t");
+        assertTables("delete from t where id = 2", "t");
+        assertTables("truncate table t", "t");
+    }
+
+    @Test
+    public void stringsAreSkipped() {
+        assertTables("select * from t where a = 'from u' and b = \"join v\" and c = 'it\\'s from w'", "t");
+    }
+
+    /**
+     * 说明：注释中的表名被跳过，紧跟注释的表名仍然被解析
+     */
+    @Test
+    public void commentsAreSkipped() {
+        assertTables("select * FROM/*x*/t", "t");
+        assertTables("select * from t /* join u */ where id = 1", "t");
+        assertTables("select * from t -- join u\n join v on t.id = v.id", "t", "v");
+        assertTables("select * from t # join u\n where id = 1", "t");
+        assertTables("select 5--1 from t", "t");
+        assertTables("select * from t /*!50000 join u on t.id = u.id */", "t", "u");
+    }
+
+    @Test
+    public void unresolved() {
+        assertTrue(TableNameResolver.tables("call proc()").isEmpty());
+        assertTrue(TableNameResolver.tables("select 1").isEmpty());
+        assertTrue(TableNameResolver.tables(null).isEmpty());
+    }
+
+    private static void assertTables(String statement, String... expected) {
+        Set<String> tables = TableNameResolver.tables(statement);
+        assertEquals(new HashSet<>(Arrays.asList(expected)), tables);
+    }
+}
@@ -68,7 +68,9 @@ public class DDBMSProtocolEncoder extends MessageToByteEncoder<TransportProtocol
      * 实现步骤：
      *   1) 判定该协议实例不用进行加密，直接输出协议实例
      *   2) out装入协议的类型
-     *   3) 获取密钥，并对整个协议内容进行加密得到密文
+     *   3) 判定该socket双方都支持压缩，则压缩协议内容，获取密钥，并对压缩后的内容进行加密得到密文
+     *     1. 内容小于Constant.Compression.THRESHOLD时不压缩，仅加上压缩方式标记
+     *     2. 不支持压缩时直接加密协议内容，与未升级的站点保持兼容
      *   4) 将ciphertext的长度以long的形式装入out
      *   5) 将ciphertext装入out
      * </pre>
@@ -83,7 +85,8 @@ public class DDBMSProtocolEncoder extends MessageToByteEncoder<TransportProtocol
         if (ignoredType.contains(p[0])) out.writeBytes(p);
         else {
             out.writeByte(p[0]);
-            byte[] encode = encoder.encode(new EncodeEntity(Constant.Code.AES, keyManager.getKey(socketManager.get(ctx)), p));
+            byte[] encode = encoder.encode(new EncodeEntity(Constant.Code.AES, keyManager.getKey(socketManager.get(ctx)),
+                    socketManager.compression(ctx) ? PayloadCompression.compress(p) : p));
             out.writeLong(encode.length);
             out.writeBytes(encode);
         }
@@ -0,0 +1,146 @@
+package org.qh.DDBMS.common.input;
+
+import com.qh.protocol.exception.ProtocolResolveException;
+import org.qh.DDBMS.common.Constant;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 在加密前压缩协议内容，在解密后解压协议内容
+ * @Specification:
+ *   0) 只有在密钥分发时双方都声明了Constant.Compression.SUPPORTED的socket才使用以下格式
+ *   1) 压缩后的格式：
+ *     1. 1字节压缩方式，Constant.Compression.NONE或DEFLATE
+ *     2. NONE：原始协议内容
+ *     3. DEFLATE：4字节原始长度 + 使用预置字典的Deflate数据
+ */
+public final class PayloadCompression {
+
+    /**
+     * <pre>
+     * 说明：Deflate预置字典，包含同步信息中反复出现的类名和sql片段
+     * 注意事项：
+     *   1. 收发双方必须使用相同的字典，修改字典需要所有站点同时升级
+     *   2. 越常见的内容越靠后
+     * </pre>
+     */
+    private static final byte[] DICTIONARY = ("java.lang.Integerjava.lang.Bytejava.lang.Boolean" +
+            "java.math.BigDecimaljava.sql.Timestampjava.lang.Number" +
+            "org.qh.DDBMS.common.db.DBTransaction[[[Ljava.lang.Object;" +
+            "java.util.HashMapjava.util.ArrayListjava.lang.Long" +
+            "org.qh.DDBMS.common.entity.SyncInfoEntityjava.lang.String" +
+            " REPLACE INTO `DELETE FROM ` WHERE `UPDATE ` SET `INSERT INTO ` (`, `) VALUES (?, ?);" +
+            Constant.Sync.SQL_STATEMENT_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+
+    private PayloadCompression() {
+    }
+
+    /**
+     * <pre>
+     * 说明：压缩协议内容
+     * 实现步骤：
+     *   1) 判定内容小于THRESHOLD，返回NONE格式
+     *   2) 使用预置字典进行Deflate压缩
+     *   3) 判定压缩后没有变小，返回NONE格式
+     *   4) 返回DEFLATE格式
+     * </pre>
+     * @param content 协议内容
+     * @return 压缩后的内容
+     * @since 0.0.0
+     */
+    public static byte[] compress(byte[] content) {
+        if (content.length < Constant.Compression.THRESHOLD) return raw(content);
+        Deflater deflater = new Deflater(Constant.Compression.LEVEL);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 16);
+            out.write(Constant.Compression.DEFLATE);
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(content.length).array(), 0, Integer.BYTES);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+                if (out.size() > content.length) return raw(content);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：解压协议内容
+     * 实现步骤：
+     *   1) 判定压缩方式为NONE，返回去掉首字节的内容
+     *   2) 判定压缩方式为DEFLATE，使用预置字典解压，并校验原始长度
+     *     1. 原始长度为负数、超过MAX_LENGTH或超过压缩数据长度的MAX_RATIO倍时抛出协议解析异常，不分配内存
+     *   3) 其他压缩方式抛出协议解析异常
+     * </pre>
+     * @param content 压缩后的内容
+     * @return 协议内容
+     * @since 0.0.0
+     */
+    public static byte[] decompress(byte[] content) {
+        if (content.length == 0) throw new ProtocolResolveException("The payload is empty.");
+        if (content[0] == Constant.Compression.NONE) {
+            byte[] res = new byte[content.length - 1];
+            System.arraycopy(content, 1, res, 0, res.length);
+            return res;
+        }
+        if (content[0] != Constant.Compression.DEFLATE) {
+            throw new ProtocolResolveException("The compression is " + content[0] + "(invalid).");
+        }
+        int offset = 1 + Integer.BYTES;
+        if (content.length < offset) throw new ProtocolResolveException("The payload is truncated.");
+        int length = ByteBuffer.wrap(content, 1, Integer.BYTES).getInt();
+        if (length < 0 || length > Constant.Compression.MAX_LENGTH ||
+                length > (long) (content.length - offset) * Constant.Compression.MAX_RATIO) {
+            throw new ProtocolResolveException("The payload length is " + length + "(invalid).");
+        }
+        byte[] res = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content, offset, content.length - offset);
+            int n = 0;
+            while (n < length) {
+                int read = inflater.inflate(res, n, length - n);
+                if (read == 0) {
+                    if (!inflater.needsDictionary()) break;
+                    inflater.setDictionary(DICTIONARY);
+                }
+                n += read;
+            }
+            if (n != length) throw new ProtocolResolveException("The payload is truncated.");
+            return res;
+        } catch (DataFormatException e) {
+            throw new ProtocolResolveException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 说明：构建NONE格式的内容
+     * @param content 协议内容
+     * @return 首字节为NONE的内容
+     * @since 0.0.0
+     */
+    private static byte[] raw(byte[] content) {
+        byte[] res = new byte[content.length + 1];
+        res[0] = Constant.Compression.NONE;
+        System.arraycopy(content, 0, res, 1, content.length);
+        return res;
+    }
+}
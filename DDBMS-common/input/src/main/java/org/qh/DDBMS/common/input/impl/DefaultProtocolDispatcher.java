@@ -9,6 +9,7 @@ import org.qh.DDBMS.common.decoder.Decoder;
 import org.qh.DDBMS.common.decoder.DecoderEntity;
 import org.qh.DDBMS.common.input.DDBMSProtocolDispatcher;
 import org.qh.DDBMS.common.input.DDBMSReceiver;
+import org.qh.DDBMS.common.input.PayloadCompression;
 import org.qh.DDBMS.common.input.SocketManager;
 import org.qh.DDBMS.common.msk.SymmetricKeyManager;
 import org.qh.DDBMS.common.protocol.ACKProtocol;
@@ -73,7 +74,7 @@ public class DefaultProtocolDispatcher implements DDBMSProtocolDispatcher {
      * 说明：分发协议实例给到真正的处理器
      * 实现步骤：
      *   1) 获取协议类型对应的receiver
-     *   2) 将加密后的协议实例进行解密得到明文的协议实例
+     *   2) 将加密后的协议实例进行解密，判定该socket双方都支持压缩，则解压得到明文的协议实例
      *   3) 执行receiver的receive方法，并获取其返回值res
      *   4) res不为null，则将其发送出去。
      *   5) 出现异常则将异常封装为一个ACK将异常信息返回。
@@ -87,9 +88,10 @@ public class DefaultProtocolDispatcher implements DDBMSProtocolDispatcher {
     public TransportProtocol doDispatch(BaseTransportProtocol protocol, ChannelHandlerContext ctx) {
         byte protocolType = protocol.data()[0];
         if (!ignoredType.contains(protocolType)) {
-            protocol = new BaseTransportProtocol(decoder.decode(new DecoderEntity(Constant.Code.AES,
+            byte[] plain = decoder.decode(new DecoderEntity(Constant.Code.AES,
                     symmetricKeyManager.getKey(socketManager.get(ctx)),
-                    Arrays.copyOfRange(protocol.data(), Byte.BYTES + Long.BYTES, protocol.data().length))));
+                    Arrays.copyOfRange(protocol.data(), Byte.BYTES + Long.BYTES, protocol.data().length)));
+            protocol = new BaseTransportProtocol(socketManager.compression(ctx) ? PayloadCompression.decompress(plain) : plain);
         }
 
         DDBMSReceiver ddbmsReceiver = protocolReceiver.get(protocolType);
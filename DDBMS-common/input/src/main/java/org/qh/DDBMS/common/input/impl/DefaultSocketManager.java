@@ -12,6 +12,7 @@ import org.qh.tools.pool.DefinedElementPoolImpl;
 
 import javax.annotation.Resource;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -39,6 +40,13 @@ public class DefaultSocketManager implements SocketManager {
      */
     private Map<String, DefinedElementPool<Channel>> siteSocket = new ConcurrentHashMap<>();
 
+    /**
+     * <pre>
+     * 说明：双方都支持压缩协议内容的socket
+     * </pre>
+     */
+    private Set<Channel> compressed = ConcurrentHashMap.newKeySet();
+
     /**
      * <pre>
      * 说明：用于删除无连接的站点
@@ -116,6 +124,7 @@ public class DefaultSocketManager implements SocketManager {
      *   3) 将站点名和socket的关系从sitesocket中删除
      *   4) 2)和3)要么同时成功要么同时失败，失败则抛出异常信息
      *   5) 删除后池子是空的则将池子本身删除和站点信息删除
+     *   6) 删除该socket的压缩标记
      * </pre>
      *
      * @param ctx socket上下文
@@ -124,6 +133,7 @@ public class DefaultSocketManager implements SocketManager {
     @Override
     public void remove(ChannelHandlerContext ctx) throws Exception {
         ctx.close();
+        compressed.remove(ctx.pipeline().channel());
         if (!socketSite.containsKey(ctx.pipeline().channel())) return;
         String site = null;
         site = socketSite.remove(ctx.pipeline().channel());
@@ -225,6 +235,16 @@ public class DefaultSocketManager implements SocketManager {
     public String get(ChannelHandlerContext ctx) {
         return socketSite.get(ctx.pipeline().channel());
     }
+
+    @Override
+    public void enableCompression(ChannelHandlerContext ctx) {
+        compressed.add(ctx.pipeline().channel());
+    }
+
+    @Override
+    public boolean compression(ChannelHandlerContext ctx) {
+        return compressed.contains(ctx.pipeline().channel());
+    }
 }
 
 
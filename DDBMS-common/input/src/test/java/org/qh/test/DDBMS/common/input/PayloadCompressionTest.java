@@ -0,0 +1,140 @@
+package org.qh.test.DDBMS.common.input;
+
+import com.qh.protocol.exception.ProtocolResolveException;
+import org.junit.Test;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.input.PayloadCompression;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试PayloadCompression的压缩格式，以及解压时对非法内容的校验
+ */
+public class PayloadCompressionTest {
+
+    /**
+     * 说明：小于THRESHOLD的内容不压缩
+     */
+    @Test
+    public void smallPayloadIsRaw() {
+        byte[] content = "UPDATE `t` SET `a` = 1 WHERE `id` = 1;".getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = PayloadCompression.compress(content);
+        assertEquals(Constant.Compression.NONE, compressed[0]);
+        assertEquals(content.length + 1, compressed.length);
+        assertArrayEquals(content, PayloadCompression.decompress(compressed));
+
+        assertArrayEquals(new byte[0], PayloadCompression.decompress(PayloadCompression.compress(new byte[0])));
+    }
+
+    /**
+     * 说明：重复的sql语句使用DEFLATE压缩，解压后与原始内容相同
+     */
+    @Test
+    public void repetitivePayloadRoundTrips() {
+        byte[] content = statements(200);
+        byte[] compressed = PayloadCompression.compress(content);
+        assertEquals(Constant.Compression.DEFLATE, compressed[0]);
+        assertEquals(content.length, ByteBuffer.wrap(compressed, 1, Integer.BYTES).getInt());
+        assertTrue(compressed.length < content.length / 4);
+        assertArrayEquals(content, PayloadCompression.decompress(compressed));
+    }
+
+    /**
+     * 说明：压缩后没有变小的内容不压缩
+     */
+    @Test
+    public void incompressiblePayloadIsRaw() {
+        byte[] content = new byte[4096];
+        new Random(1).nextBytes(content);
+        byte[] compressed = PayloadCompression.compress(content);
+        assertEquals(Constant.Compression.NONE, compressed[0]);
+        assertEquals(content.length + 1, compressed.length);
+        assertArrayEquals(content, PayloadCompression.decompress(compressed));
+    }
+
+    @Test(expected = ProtocolResolveException.class)
+    public void emptyPayloadFails() {
+        PayloadCompression.decompress(new byte[0]);
+    }
+
+    @Test(expected = ProtocolResolveException.class)
+    public void unknownCompressionFails() {
+        PayloadCompression.decompress(new byte[]{2, 1, 2, 3});
+    }
+
+    @Test(expected = ProtocolResolveException.class)
+    public void truncatedHeaderFails() {
+        PayloadCompression.decompress(new byte[]{Constant.Compression.DEFLATE, 0, 0});
+    }
+
+    @Test(expected = ProtocolResolveException.class)
+    public void negativeLengthFails() {
+        PayloadCompression.decompress(deflate(-1, new byte[16]));
+    }
+
+    @Test(expected = ProtocolResolveException.class)
+    public void lengthOverMaxFails() {
+        PayloadCompression.decompress(deflate(Constant.Compression.MAX_LENGTH + 1, new byte[1 << 20]));
+    }
+
+    /**
+     * 说明：原始长度超过压缩数据长度的MAX_RATIO倍时，在分配内存前失败
+     */
+    @Test(expected = ProtocolResolveException.class)
+    public void lengthOverRatioFails() {
+        PayloadCompression.decompress(deflate(16 * Constant.Compression.MAX_RATIO + 1, new byte[16]));
+    }
+
+    /**
+     * 说明：压缩数据不完整或原始长度与压缩数据不一致时失败
+     */
+    @Test
+    public void truncatedDataFails() {
+        byte[] compressed = PayloadCompression.compress(statements(200));
+        assertFails(Arrays.copyOf(compressed, compressed.length / 2));
+
+        ByteBuffer.wrap(compressed, 1, Integer.BYTES).putInt(statements(200).length + 1);
+        assertFails(compressed);
+    }
+
+    /**
+     * 说明：压缩数据损坏时失败
+     */
+    @Test
+    public void corruptedDataFails() {
+        byte[] compressed = PayloadCompression.compress(statements(200));
+        for (int i = 1 + Integer.BYTES; i < compressed.length; i++) compressed[i] = (byte) 0xff;
+        assertFails(compressed);
+    }
+
+    private static byte[] statements(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(Constant.Sync.SQL_STATEMENT_SEPARATOR);
+            sb.append("UPDATE `account` SET `balance` = `balance` - 1 WHERE `id` = ").append(i).append(';');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(int length, byte[] data) {
+        return ByteBuffer.allocate(1 + Integer.BYTES + data.length)
+                .put(Constant.Compression.DEFLATE).putInt(length).put(data).array();
+    }
+
+    private static void assertFails(byte[] content) {
+        try {
+            PayloadCompression.decompress(content);
+            fail("decompressed an invalid payload");
+        } catch (ProtocolResolveException ignored) {
+        }
+    }
+}
@@ -36,5 +36,22 @@ public interface IDDBMethod {
      * @since 0.0.0
      */
     void readOnly(String dbName, long callbackKey, String uri, DDBMSReceiver receiver, Object... args) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：执行参数指定数据库上的只读方法，且保证能读取到client此前提交的修改
+     * 规范：
+     *   1) minSyncId是client最近一次提交事务时，DBTRANSACTION_SUCCESS附带的该数据库同步信息id
+     *   2) 只路由到提交事务数不小于minSyncId的从站点，没有则路由到主站点
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param minSyncId long 目标站点至少需要提交的同步信息id
+     * @param callbackKey 本次调用的回调key
+     * @param uri String 方法uri
+     * @param receiver 处理结果的接收者
+     * @param args Object... 可变参数，方法执行所需的参数
+     * @since 0.0.0
+     */
+    void readOnly(String dbName, long minSyncId, long callbackKey, String uri, DDBMSReceiver receiver, Object... args) throws Exception;
 }
 
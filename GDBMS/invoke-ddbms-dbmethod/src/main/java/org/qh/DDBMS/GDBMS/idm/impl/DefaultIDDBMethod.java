@@ -3,11 +3,19 @@ package org.qh.DDBMS.GDBMS.idm.impl;
 import com.qh.protocol.net.AbstractCallbackProtocol;
 import org.qh.DDBMS.GDBMS.idm.IDDBMethod;
 import org.qh.DDBMS.GDBMS.msm.MasterSlaveManager;
+import org.qh.DDBMS.GDBMS.msm.SlaveSelector;
+import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.input.DDBMSReceiver;
 import org.qh.DDBMS.common.output.DDBMSSender;
 import org.qh.DDBMS.common.protocol.CallMethodProtocol;
+import org.qh.tools.thread.ThreadUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -35,6 +43,34 @@ public class DefaultIDDBMethod implements IDDBMethod {
     @Resource
     private MasterSlaveManager manager;
 
+    /**
+     * <pre>
+     * 说明：记录辅站点处理中的请求数和响应延迟
+     * </pre>
+     */
+    @Resource
+    private SlaveSelector selector;
+
+    /**
+     * <pre>
+     * 说明：发送给辅站点、还没有收到回调的请求
+     * 注意事项：
+     *   1. 发送失败或回调丢失时请求不会完成，由超时检查将其完成，避免辅站点的处理中请求数只增不减
+     * </pre>
+     */
+    private final Set<PendingRequest> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * <pre>
+     * 说明：定期完成超时的辅站点请求
+     * </pre>
+     */
+    @PostConstruct
+    public void init() {
+        ThreadUtils.scheduleWithFixedDelay(this::sweep, Constant.SlaveSelection.REQUEST_SWEEP_INTERVAL,
+                Constant.SlaveSelection.REQUEST_SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * <pre>
      * 说明：执行参数指定数据库上的方法
@@ -63,7 +99,7 @@ public class DefaultIDDBMethod implements IDDBMethod {
      * 实现步骤：
      *   1) 解析得到数据库的辅站点
      *   2) 将回调key和uri和目标方法所需要的参数封装为一个CallMethodProtocol实例protocol
-     *   3) 通过sender将protocol发送出去
+     *   3) 通过sender将protocol发送出去，并记录辅站点的响应延迟
      * </pre>
      *
      * @param dbName 数据库
@@ -75,11 +111,113 @@ public class DefaultIDDBMethod implements IDDBMethod {
      */
     @Override
     public void readOnly(String dbName, long callbackKey, String uri, DDBMSReceiver receiver, Object... params) throws Exception {
-        send(manager.slaveSite(dbName), new CallMethodProtocol(callbackKey, uri, params), receiver);
+        sendToSlave(manager.slaveSite(dbName), new CallMethodProtocol(callbackKey, uri, params), receiver);
+    }
+
+    /**
+     * <pre>
+     * 说明：执行参数指定数据库上的只读方法，且保证能读取到client此前提交的修改
+     * 实现步骤：
+     *   1) 获取提交事务数不小于minSyncId的辅站点
+     *   2) 没有满足条件的辅站点，将protocol发送给数据库的主站点
+     *   3) 将回调key和uri和目标方法所需要的参数封装为一个CallMethodProtocol实例protocol
+     *   4) 通过sender将protocol发送出去，并记录辅站点的响应延迟
+     * </pre>
+     *
+     * @param dbName 数据库
+     * @param minSyncId 目标站点至少需要提交的同步信息id
+     * @param callbackKey 本次调用的回调key
+     * @param uri 方法uri
+     * @param receiver 接收者
+     * @param params 方法参数
+     * @since 0.0.0
+     */
+    @Override
+    public void readOnly(String dbName, long minSyncId, long callbackKey, String uri, DDBMSReceiver receiver, Object... params) throws Exception {
+        String site = manager.slaveSite(dbName, minSyncId);
+        CallMethodProtocol protocol = new CallMethodProtocol(callbackKey, uri, params);
+        if (site == null) send(manager.masterSite(dbName), protocol, receiver);
+        else sendToSlave(site, protocol, receiver);
+    }
+
+    /**
+     * <pre>
+     * 说明：将协议发送给辅站点，并记录其响应延迟
+     * 注意事项：
+     *   1. receiver为null时不会收到回调，无法记录延迟，直接发送
+     * 实现步骤：
+     *   1) 记录辅站点开始处理一个请求，并登记到pending中
+     *   2) 包装receiver：收到回调时完成请求并记录响应延迟，再交给原receiver处理
+     *   3) 发送协议，发送失败时完成请求并抛出异常
+     * </pre>
+     * @param site 辅站点
+     * @param protocol 调用方法协议
+     * @param receiver 接收者
+     * @since 0.0.0
+     */
+    @SuppressWarnings("unchecked")
+    private void sendToSlave(String site, CallMethodProtocol protocol, DDBMSReceiver receiver) {
+        if (receiver == null) {
+            send(site, protocol, null);
+            return;
+        }
+        PendingRequest request = new PendingRequest(site);
+        selector.requestStarted(site);
+        pending.add(request);
+        try {
+            send(site, protocol, (p, obj) -> {
+                complete(request, System.nanoTime() - request.start);
+                return receiver.receive(p, obj);
+            });
+        } catch (RuntimeException e) {
+            complete(request, System.nanoTime() - request.start);
+            throw e;
+        }
+    }
+
+    /**
+     * 说明：完成一个辅站点请求，每个请求只记录一次
+     * @param request 请求
+     * @param latencyNanos 响应延迟，单位ns
+     * @since 0.0.0
+     */
+    private void complete(PendingRequest request, long latencyNanos) {
+        if (!request.completed.compareAndSet(false, true)) return;
+        pending.remove(request);
+        selector.requestCompleted(request.site, latencyNanos);
+    }
+
+    /**
+     * <pre>
+     * 说明：完成超过REQUEST_TIMEOUT没有回调的请求
+     * 注意事项：
+     *   1. 以超时时间记录延迟，使没有响应的辅站点被选中的概率降低
+     * </pre>
+     * @since 0.0.0
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(Constant.SlaveSelection.REQUEST_TIMEOUT);
+        for (PendingRequest request : pending) {
+            if (now - request.start >= timeout) complete(request, now - request.start);
+        }
     }
 
     private void send(String site, CallMethodProtocol protocol, DDBMSReceiver receiver) {
         sender.send(site, protocol, receiver, false);
     }
+
+    /**
+     * 说明：一个发送给辅站点的请求
+     */
+    private static class PendingRequest {
+        private final String site; // 辅站点名称
+        private final long start = System.nanoTime(); // 发送时间，单位ns
+        private final AtomicBoolean completed = new AtomicBoolean(); // 是否已经完成
+
+        private PendingRequest(String site) {
+            this.site = site;
+        }
+    }
 }
 
@@ -2,6 +2,7 @@ package org.qh.DDBMS.GDBMS.msm;
 
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.ack.AckHandler;
+import org.qh.DDBMS.common.entity.ReplicationStatus;
 import org.qh.DDBMS.common.entity.SiteInfo;
 import org.qh.DDBMS.common.output.DDBMSSender;
 import org.qh.DDBMS.common.protocol.ACKProtocol;
@@ -63,6 +64,28 @@ public class MSACKHandler {
         SiteInfo masterInfo = msManager.getMasterInfo(dbName);
         sender.send(siteName, new ACKProtocol(Constant.ACKType.ASSIGN_MASTER_INFO, masterInfo), null, false);
     }
+
+    /**
+     * <pre>
+     * 说明：处理辅站点汇报提交事务数和复制状态协议
+     * 规范：
+     *   1) 注解：@AckHandler(SLAVE_PROGRESS)
+     *   2) data[]: dbName, siteName, transactionCount, ReplicationStatus
+     * 实现步骤：
+     *   1) 调用msManager.updateProgress()
+     *   2) 调用msManager.updateStatus()
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @param siteName 辅站点名称
+     * @param transactionCount 辅站点提交的事务数
+     * @param status 辅站点的复制状态
+     */
+    @AckHandler(Constant.ACKType.SLAVE_PROGRESS)
+    public void handleSlaveProgress(String dbName, String siteName, Long transactionCount, ReplicationStatus status) {
+        msManager.updateProgress(dbName, siteName, transactionCount);
+        msManager.updateStatus(status);
+    }
 }
 
 
@@ -1,8 +1,12 @@
 package org.qh.DDBMS.GDBMS.msm;
 
+import org.qh.DDBMS.common.entity.ReplicationStatus;
 import org.qh.DDBMS.common.entity.SiteInfo;
 import org.qh.DDBMS.common.msm.SiteManager;
 
+import java.util.Map;
+import java.util.Set;
+
 
 /**
  *
@@ -33,6 +37,75 @@ public interface MasterSlaveManager extends SiteManager {
      */
     String slaveSite(String dbName) throws Exception;
 
+    /**
+     * <pre>
+     * 说明：获取传入数据库中已经提交到指定同步信息的从站点
+     * 规范：
+     *   1) 返回的从站点提交事务数不小于minSyncId
+     *   2) 没有满足条件的从站点时返回null，调用方应将请求交给主站点
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param minSyncId long 从站点至少需要提交的同步信息id
+     * @return String 从站点地址或null
+     * @since 0.0.0
+     */
+    String slaveSite(String dbName, long minSyncId) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：更新从站点的提交事务数
+     * 规范：
+     *   1) 提交事务数只增不减，较小的值被忽略
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param siteName String 从站点名称
+     * @param transactionCount long 从站点提交的事务数
+     * @since 0.0.0
+     */
+    void updateProgress(String dbName, String siteName, long transactionCount);
+
+    /**
+     * <pre>
+     * 说明：更新从站点汇报的复制状态
+     * 规范：
+     *   1) 不是数据库从站点的状态被忽略
+     *   2) 以数据库提交事务数作为主站点的同步信息id，重新计算落后的同步信息数
+     * </pre>
+     * @param status ReplicationStatus 从站点的复制状态
+     * @since 0.0.0
+     */
+    void updateStatus(ReplicationStatus status);
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有从站点最近汇报的复制状态
+     * </pre>
+     * @param dbName String 数据库名称
+     * @return Map<String, ReplicationStatus> 从站点名称和其复制状态的映射关系
+     * @since 0.0.0
+     */
+    Map<String, ReplicationStatus> replicationStatus(String dbName);
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有从站点中最小的提交事务数
+     * </pre>
+     * @param dbName String 数据库名称
+     * @return long 最小的提交事务数，没有从站点时返回Long.MAX_VALUE
+     * @since 0.0.0
+     */
+    long minProgress(String dbName);
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有的站点，包括主站点和从站点
+     * </pre>
+     * @param dbName String 数据库名称
+     * @return Set<String> 站点名称集合
+     * @since 0.0.0
+     */
+    Set<String> sites(String dbName);
+
 
     /**
      * <pre>
@@ -0,0 +1,98 @@
+package org.qh.DDBMS.GDBMS.msm;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 为读请求选择辅站点的接口，根据辅站点的负载、响应延迟和复制进度进行选择
+ */
+public interface SlaveSelector {
+
+    /**
+     * <pre>
+     * 说明：添加一个辅站点
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param siteName String 辅站点名称
+     * @param transactionCount long 辅站点提交的事务数
+     * @since 0.0.0
+     */
+    void add(String dbName, String siteName, long transactionCount);
+
+    /**
+     * <pre>
+     * 说明：删除一个辅站点
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param siteName String 辅站点名称
+     * @since 0.0.0
+     */
+    void remove(String dbName, String siteName);
+
+    /**
+     * <pre>
+     * 说明：选择一个辅站点
+     * 规范：
+     *   1) 只选择提交事务数不小于minSyncId的辅站点
+     *   2) 负载较高、响应较慢或复制落后较多的辅站点被选中的概率较低
+     *   3) 方法不能阻塞
+     * </pre>
+     * @param dbName String 数据库名称
+     * @param minSyncId long 辅站点至少需要提交的同步信息id
+     * @return String 辅站点名称，没有满足条件的辅站点时返回null
+     * @since 0.0.0
+     */
+    String select(String dbName, long minSyncId);
+
+    /**
+     * <pre>
+     * 说明：更新辅站点的提交事务数
+     * 规范：
+     *   1) 提交事务数只增不减，较小的值被忽略
+     * </pre>
+     * @param siteName String 辅站点名称
+     * @param transactionCount long 辅站点提交的事务数
+     * @since 0.0.0
+     */
+    void updateProgress(String siteName, long transactionCount);
+
+    /**
+     * <pre>
+     * 说明：获取辅站点的提交事务数
+     * </pre>
+     * @param siteName String 辅站点名称
+     * @return long 提交的事务数，站点不存在时返回-1
+     * @since 0.0.0
+     */
+    long progress(String siteName);
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有辅站点中最小的提交事务数
+     * </pre>
+     * @param dbName String 数据库名称
+     * @return long 最小的提交事务数，数据库没有辅站点时返回Long.MAX_VALUE
+     * @since 0.0.0
+     */
+    long minProgress(String dbName);
+
+    /**
+     * <pre>
+     * 说明：记录发送给辅站点的请求
+     * </pre>
+     * @param siteName String 辅站点名称
+     * @since 0.0.0
+     */
+    void requestStarted(String siteName);
+
+    /**
+     * <pre>
+     * 说明：记录辅站点完成的请求
+     * </pre>
+     * @param siteName String 辅站点名称
+     * @param latencyNanos long 请求的响应延迟，单位ns
+     * @since 0.0.0
+     */
+    void requestCompleted(String siteName, long latencyNanos);
+}
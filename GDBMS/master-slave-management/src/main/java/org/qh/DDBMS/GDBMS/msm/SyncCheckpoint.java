@@ -0,0 +1,35 @@
+package org.qh.DDBMS.GDBMS.msm;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 计算数据库同步信息检查点，并通知各站点删除检查点之前同步信息的接口
+ */
+public interface SyncCheckpoint {
+
+    /**
+     * <pre>
+     * 说明：计算数据库的同步信息检查点
+     * 规范：
+     *   1) 检查点之前(包括检查点)的同步信息不再被任何从站点需要，可以删除
+     *   2) 数据库不需要删除同步信息时返回0
+     * </pre>
+     * @param dbName String 数据库名称
+     * @return long 检查点
+     * @since 0.0.0
+     */
+    long checkpoint(String dbName);
+
+    /**
+     * <pre>
+     * 说明：对所有数据库执行一次检查点
+     * 规范：
+     *   1) 删除本站点检查点之前的同步信息
+     *   2) 通知数据库所有站点删除检查点之前的同步信息
+     * </pre>
+     * @since 0.0.0
+     */
+    void doCheckpoint();
+}
@@ -1,18 +1,20 @@
 package org.qh.DDBMS.GDBMS.msm.impl;
 
-import org.apache.commons.pool2.ObjectPool;
 import org.qh.DDBMS.GDBMS.msm.MasterSlaveManager;
+import org.qh.DDBMS.GDBMS.msm.SlaveSelector;
 import org.qh.DDBMS.GDBMS.sync.Sync;
 import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.entity.ReplicationStatus;
 import org.qh.DDBMS.common.entity.SiteInfo;
 import org.qh.DDBMS.common.input.ServerConfig;
 import org.qh.DDBMS.common.output.DDBMSSender;
 import org.qh.DDBMS.common.protocol.ACKProtocol;
-import org.qh.tools.pool.DefinedElementPool;
-import org.qh.tools.pool.DefinedElementPoolImpl;
 
 import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -40,10 +42,18 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
 
     /**
      * <pre>
-     * 说明：数据库和辅站点池的映射关系
+     * 说明：辅站点和其最近汇报的复制状态的映射关系
      * </pre>
      */
-    private Map<String, DefinedElementPool<String>> slavePool = new ConcurrentHashMap<>();
+    private Map<String, ReplicationStatus> replicationStatus = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：为读请求选择辅站点，并记录辅站点的提交事务数
+     * </pre>
+     */
+    @Resource
+    private SlaveSelector selector;
 
     /**
      * <pre>
@@ -88,27 +98,116 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
      * <pre>
      * 说明：获取传入数据库的从站点
      * 实现步骤：
-     *   1) 从slavePool借出一个辅站点，siteName
-     *   2) 将siteName还回去pool
-     *   3) 返回siteName
+     *   1) 通过selector选择一个辅站点
+     *   2) 数据库没有辅站点则抛出异常
      * </pre>
      *
      * @param databaseName 数据库名称
      * @return 从站点名称
      */
     public String slaveSite(String databaseName) throws Exception {
-        ObjectPool<String> pool = slavePool.get(databaseName);
-        if (pool == null) throw new RuntimeException("The slave site of the database '" + databaseName + "' does not exist.");
-        String site = null;
-        synchronized (pool) {
-            try {
-                site = pool.borrowObject();
-            } finally {
-                pool.returnObject(site);
-            }
+        String site = selector.select(databaseName, Long.MIN_VALUE);
+        if (site == null) throw new RuntimeException("The slave site of the database '" + databaseName + "' does not exist.");
+        return site;
+    }
+
+    /**
+     * <pre>
+     * 说明：获取传入数据库中已经提交到指定同步信息的从站点
+     * 实现步骤：
+     *   1) 通过selector在提交事务数不小于minSyncId的辅站点中选择一个，没有则返回null
+     * </pre>
+     *
+     * @param databaseName 数据库名称
+     * @param minSyncId 从站点至少需要提交的同步信息id
+     * @return 从站点名称或null
+     */
+    public String slaveSite(String databaseName, long minSyncId) throws Exception {
+        return selector.select(databaseName, minSyncId);
+    }
+
+    /**
+     * <pre>
+     * 说明：更新从站点的提交事务数
+     * 实现步骤：
+     *   1) 判定该站点不是数据库的辅站点，忽略
+     *   2) 通过selector更新该站点的提交事务数
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @param siteName 从站点名称
+     * @param transactionCount 从站点提交的事务数
+     */
+    public void updateProgress(String dbName, String siteName, long transactionCount) {
+        Map<String, SiteInfo> slaves = slaveSite.get(dbName);
+        if (slaves == null || !slaves.containsKey(siteName)) return;
+        selector.updateProgress(siteName, transactionCount);
+    }
+
+    /**
+     * <pre>
+     * 说明：更新从站点汇报的复制状态
+     * 实现步骤：
+     *   1) 判定status为null或该站点不是数据库的辅站点，忽略
+     *   2) 以数据库提交事务数作为masterSyncId，重新计算lagEntries
+     *   3) 保存该站点的复制状态
+     * </pre>
+     *
+     * @param status 从站点的复制状态
+     */
+    public void updateStatus(ReplicationStatus status) {
+        if (status == null) return;
+        Map<String, SiteInfo> slaves = slaveSite.get(status.getDbName());
+        if (slaves == null || !slaves.containsKey(status.getSiteName())) return;
+        long master = Math.max(sync.transactionCount(status.getDbName()), status.getAppliedSyncId());
+        status.setMasterSyncId(master);
+        status.setLagEntries(master - status.getAppliedSyncId());
+        replicationStatus.put(status.getSiteName(), status);
+    }
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有从站点最近汇报的复制状态
+     * 实现步骤：
+     *   1) 遍历数据库的辅站点，加入已经汇报过复制状态的站点
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @return 从站点名称和其复制状态的映射关系
+     */
+    public Map<String, ReplicationStatus> replicationStatus(String dbName) {
+        Map<String, ReplicationStatus> res = new HashMap<>();
+        Map<String, SiteInfo> slaves = slaveSite.get(dbName);
+        if (slaves == null) return res;
+        for (String site : slaves.keySet()) {
+            ReplicationStatus status = replicationStatus.get(site);
+            if (status != null) res.put(site, status);
         }
+        return res;
+    }
 
-        return site;
+    public long minProgress(String dbName) {
+        return selector.minProgress(dbName);
+    }
+
+    /**
+     * <pre>
+     * 说明：获取数据库所有的站点
+     * 实现步骤：
+     *   1) 加入数据库的主站点
+     *   2) 加入数据库所有的辅站点
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @return 站点名称集合
+     */
+    public Set<String> sites(String dbName) {
+        Set<String> res = new HashSet<>();
+        SiteInfo master = masterSite.get(dbName);
+        if (master != null) res.add(master.getName());
+        Map<String, SiteInfo> slaves = slaveSite.get(dbName);
+        if (slaves != null) res.addAll(slaves.keySet());
+        return res;
     }
 
     /**
@@ -157,7 +256,7 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
      *   1. 判定该站点已经存在于当前数据库的辅站点集合，则忽略添加该站点信息
      *   2. 判定该站点不存在于当前数据库的辅站点集合中
      *     2.1. 将该站点信息加入到slaveSite中
-     *     2.1. 将该站点名加入到slavePool中
+     *     2.2. 将该站点加入到selector中
      *   3. 判定当前站点存在主站点
      *     3.1. 得到主站点信息，并构建分发主站点信息的ACK协议
      *     3.2. 将协议分发给该站点，
@@ -169,13 +268,12 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
         String dbName = siteInfo.getDbName();
         if (slaveSite.get(dbName) == null) {
             slaveSite.put(dbName, new ConcurrentHashMap<>());
-            slavePool.put(dbName, new DefinedElementPoolImpl<>());
         }
 
         String siteName = siteInfo.getName();
         if (!slaveSite.get(dbName).containsKey(siteName)) {
             slaveSite.get(dbName).put(siteName, siteInfo);
-            slavePool.get(dbName).addObject(siteName);
+            selector.add(dbName, siteName, siteInfo.getTransactionCount());
         }
 
         if (!masterSite.containsKey(dbName)) return;
@@ -200,7 +298,7 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
         String siteName = siteInfo.getName();
         if (slaveSite.get(dbName) != null && slaveSite.get(dbName).containsKey(siteName)) {
             slaveSite.get(dbName).remove(siteName);
-            slavePool.get(dbName).removeObject(siteName);
+            selector.remove(dbName, siteName);
         }
         masterSite.put(dbName, siteInfo);
 
@@ -240,7 +338,7 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
      *     2.1. 从masterSite中删除该数据库
      *     2.2. 返回数据库名
      *   3. 不是主站点
-     *     3.1. 从slavePool中删除该站点返回null
+     *     3.1. 从slaveSite和selector中删除该站点返回null
      * @param site 需要删除的站点名
      * @return null表示删除的是一个辅站点，非null，表示删除主站点的数据库名
      * @since 0.0.0
@@ -252,7 +350,8 @@ public class DefaultMasterSlaveManager implements MasterSlaveManager {
             return dbName;
         } else if ((dbName = siteIsSlave(site)) != null) {
             slaveSite.get(dbName).remove(site);
-            slavePool.get(dbName).removeObject(site);
+            selector.remove(dbName, site);
+            replicationStatus.remove(site);
         }
         return null;
 
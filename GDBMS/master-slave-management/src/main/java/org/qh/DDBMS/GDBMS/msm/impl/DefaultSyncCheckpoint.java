@@ -0,0 +1,111 @@
+package org.qh.DDBMS.GDBMS.msm.impl;
+
+import org.qh.DDBMS.GDBMS.msm.MasterSlaveManager;
+import org.qh.DDBMS.GDBMS.msm.SyncCheckpoint;
+import org.qh.DDBMS.GDBMS.sync.Sync;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.output.DDBMSSender;
+import org.qh.DDBMS.common.protocol.ACKProtocol;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: SyncCheckpoint的默认实现类，定时删除所有从站点都已提交的同步信息
+ */
+public class DefaultSyncCheckpoint implements SyncCheckpoint {
+
+    /**
+     * <pre>
+     * 说明：数据库和其上一次下发的检查点的映射关系
+     * </pre>
+     */
+    private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：获取从站点的提交事务数和数据库的所有站点
+     * </pre>
+     */
+    @Resource
+    private MasterSlaveManager msManager;
+
+    /**
+     * <pre>
+     * 说明：获取数据库提交事务数，删除本站点的同步信息
+     * </pre>
+     */
+    @Resource
+    private Sync sync;
+
+    /**
+     * <pre>
+     * 说明：将检查点发送给站点的发送器
+     * </pre>
+     */
+    @Resource
+    private DDBMSSender<String> sender;
+
+    @PostConstruct
+    public void start() {
+        ThreadUtils.scheduleWithFixedDelay(this::doCheckpoint, Constant.Sync.CHECKPOINT_INTERVAL,
+                Constant.Sync.CHECKPOINT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <pre>
+     * 说明：计算数据库的同步信息检查点
+     * 实现步骤：
+     *   1) 检查点不超过所有从站点中最小的提交事务数，并至少保留SYNC_INFO_RETAIN_ENTRIES个同步信息
+     *   2) 最多保留SYNC_INFO_MAX_RETAIN_ENTRIES个同步信息，落后更多的从站点通过快照补全
+     *   3) 检查点小于0时返回0
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @return 检查点
+     */
+    @Override
+    public long checkpoint(String dbName) {
+        long count = sync.transactionCount(dbName);
+        long cp = Math.min(msManager.minProgress(dbName), count - Constant.Sync.SYNC_INFO_RETAIN_ENTRIES);
+        cp = Math.max(cp, count - Constant.Sync.SYNC_INFO_MAX_RETAIN_ENTRIES);
+        return Math.max(cp, 0);
+    }
+
+    /**
+     * <pre>
+     * 说明：对所有数据库执行一次检查点
+     * 实现步骤：
+     *   1) 遍历所有的数据库
+     *     1. 计算检查点，判定检查点不大于上一次下发的检查点，跳过
+     *     2. 删除本站点检查点之前的同步信息
+     *     3. 将检查点发送给数据库的所有站点
+     *   2) 一个数据库执行失败不影响其他数据库
+     * </pre>
+     */
+    @Override
+    public void doCheckpoint() {
+        for (String dbName : sync.databases()) {
+            try {
+                long cp = checkpoint(dbName);
+                if (cp <= checkpoints.getOrDefault(dbName, 0L)) continue;
+                sync.truncate(dbName, cp);
+                checkpoints.put(dbName, cp);
+
+                ACKProtocol protocol = new ACKProtocol(Constant.ACKType.SYNC_CHECKPOINT, dbName, cp);
+                for (String site : msManager.sites(dbName)) sender.send(site, protocol, null, false);
+            } catch (Exception e) {
+                ExceptionUtils.printStackTrace(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.qh.DDBMS.GDBMS.msm.impl;
+
+import org.qh.DDBMS.GDBMS.msm.SlaveSelector;
+import org.qh.DDBMS.GDBMS.sync.Sync;
+import org.qh.DDBMS.common.Constant;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 使用power-of-two-choices选择辅站点的SlaveSelector实现类
+ */
+public class PowerOfTwoSlaveSelector implements SlaveSelector {
+
+    /**
+     * <pre>
+     * 说明：数据库和其辅站点数组的映射关系
+     * 注意事项：
+     *   1. 数组不会被修改，添加或删除辅站点时替换为新数组，select()可以不加锁地读取
+     * </pre>
+     */
+    private final Map<String, Slave[]> slaves = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：辅站点名称和其统计信息的映射关系
+     * </pre>
+     */
+    private final Map<String, Slave> sites = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：获取数据库提交事务数，用于计算辅站点复制落后的数量
+     * </pre>
+     */
+    @Resource
+    private Sync sync;
+
+    /**
+     * <pre>
+     * 说明：添加一个辅站点
+     * 实现步骤：
+     *   1) 构建辅站点的统计信息
+     *   2) 替换数据库的辅站点数组，已存在的同名站点被替换
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @param siteName 辅站点名称
+     * @param transactionCount 辅站点提交的事务数
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized void add(String dbName, String siteName, long transactionCount) {
+        Slave slave = new Slave(siteName, transactionCount);
+        sites.put(siteName, slave);
+        Slave[] old = without(slaves.get(dbName), siteName);
+        Slave[] arr = Arrays.copyOf(old, old.length + 1);
+        arr[old.length] = slave;
+        slaves.put(dbName, arr);
+    }
+
+    @Override
+    public synchronized void remove(String dbName, String siteName) {
+        sites.remove(siteName);
+        Slave[] arr = without(slaves.get(dbName), siteName);
+        if (arr.length == 0) slaves.remove(dbName);
+        else slaves.put(dbName, arr);
+    }
+
+    /**
+     * 说明：返回去掉指定站点后的辅站点数组
+     * @param arr 辅站点数组，可以为null
+     * @param siteName 辅站点名称
+     * @return 新的辅站点数组
+     * @since 0.0.0
+     */
+    private static Slave[] without(Slave[] arr, String siteName) {
+        if (arr == null) return new Slave[0];
+        return Arrays.stream(arr).filter(s -> !s.name.equals(siteName)).toArray(Slave[]::new);
+    }
+
+    /**
+     * <pre>
+     * 说明：选择一个辅站点
+     * 实现步骤：
+     *   1) 统计提交事务数不小于minSyncId的辅站点数量n
+     *     1. n为0返回null，n为1返回该站点
+     *   2) 随机选出两个不同的满足条件的辅站点
+     *   3) 返回评分较低的辅站点
+     * </pre>
+     *
+     * @param dbName 数据库名称
+     * @param minSyncId 辅站点至少需要提交的同步信息id
+     * @return 辅站点名称，没有满足条件的辅站点时返回null
+     * @since 0.0.0
+     */
+    @Override
+    public String select(String dbName, long minSyncId) {
+        Slave[] arr = slaves.get(dbName);
+        if (arr == null) return null;
+        int n = 0;
+        Slave only = null;
+        for (Slave slave : arr) {
+            if (slave.progress.get() < minSyncId) continue;
+            n++;
+            only = slave;
+        }
+        if (n == 0) return null;
+        if (n == 1) return only.name;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a) b++;
+        Slave first = eligible(arr, minSyncId, a);
+        Slave second = eligible(arr, minSyncId, b);
+        long masterCount = masterCount(dbName);
+        return score(first, masterCount) <= score(second, masterCount) ? first.name : second.name;
+    }
+
+    /**
+     * 说明：获取第index个提交事务数不小于minSyncId的辅站点
+     * @param arr 辅站点数组
+     * @param minSyncId 辅站点至少需要提交的同步信息id
+     * @param index 满足条件的辅站点中的下标
+     * @return 辅站点
+     * @since 0.0.0
+     */
+    private static Slave eligible(Slave[] arr, long minSyncId, int index) {
+        Slave last = null;
+        for (Slave slave : arr) {
+            if (slave.progress.get() < minSyncId) continue;
+            last = slave;
+            if (index-- == 0) break;
+        }
+        return last;
+    }
+
+    /**
+     * 说明：获取数据库提交事务数，数据库不存在时返回0
+     * @param dbName 数据库名称
+     * @return 数据库提交事务数
+     * @since 0.0.0
+     */
+    private long masterCount(String dbName) {
+        try {
+            return sync.transactionCount(dbName);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：计算辅站点的评分，评分越低越优先
+     * 实现步骤：
+     *   1) 评分 = 响应延迟EWMA * (处理中的请求数 + 1)
+     *   2) 辅站点每落后LAG_PENALTY_ENTRIES个同步信息，评分再乘以一倍
+     * </pre>
+     *
+     * @param slave 辅站点
+     * @param masterCount 数据库提交事务数
+     * @return 评分
+     * @since 0.0.0
+     */
+    private static double score(Slave slave, long masterCount) {
+        double latency = Double.longBitsToDouble(slave.latency.get());
+        if (latency <= 0) latency = Constant.SlaveSelection.DEFAULT_LATENCY_NANOS;
+        long lag = Math.max(0, masterCount - slave.progress.get());
+        return latency * (slave.inFlight.get() + 1) *
+                (1 + (double) lag / Constant.SlaveSelection.LAG_PENALTY_ENTRIES);
+    }
+
+    @Override
+    public void updateProgress(String siteName, long transactionCount) {
+        Slave slave = sites.get(siteName);
+        if (slave != null) slave.progress.accumulateAndGet(transactionCount, Math::max);
+    }
+
+    @Override
+    public long progress(String siteName) {
+        Slave slave = sites.get(siteName);
+        return slave == null ? -1 : slave.progress.get();
+    }
+
+    @Override
+    public long minProgress(String dbName) {
+        Slave[] arr = slaves.get(dbName);
+        long min = Long.MAX_VALUE;
+        if (arr == null) return min;
+        for (Slave slave : arr) min = Math.min(min, slave.progress.get());
+        return min;
+    }
+
+    @Override
+    public void requestStarted(String siteName) {
+        Slave slave = sites.get(siteName);
+        if (slave != null) slave.inFlight.incrementAndGet();
+    }
+
+    /**
+     * <pre>
+     * 说明：记录辅站点完成的请求
+     * 实现步骤：
+     *   1) 处理中的请求数减1，不小于0
+     *   2) 使用CAS将latencyNanos合并到响应延迟EWMA中
+     * </pre>
+     *
+     * @param siteName 辅站点名称
+     * @param latencyNanos 请求的响应延迟，单位ns
+     * @since 0.0.0
+     */
+    @Override
+    public void requestCompleted(String siteName, long latencyNanos) {
+        Slave slave = sites.get(siteName);
+        if (slave == null) return;
+        slave.inFlight.updateAndGet(v -> v > 0 ? v - 1 : 0);
+        double alpha = Constant.SlaveSelection.LATENCY_EWMA_ALPHA;
+        slave.latency.updateAndGet(bits -> {
+            double old = Double.longBitsToDouble(bits);
+            double ewma = old <= 0 ? latencyNanos : old + alpha * (latencyNanos - old);
+            return Double.doubleToLongBits(ewma);
+        });
+    }
+
+    /**
+     * 说明：一个辅站点的统计信息
+     */
+    private static class Slave {
+        private final String name; // 辅站点名称
+        private final AtomicLong progress; // 提交事务数
+        private final AtomicLong inFlight = new AtomicLong(); // 处理中的请求数
+        private final AtomicLong latency = new AtomicLong(); // 响应延迟EWMA的double位表示，单位ns
+
+        private Slave(String name, long progress) {
+            this.name = name;
+            this.progress = new AtomicLong(progress);
+        }
+    }
+}
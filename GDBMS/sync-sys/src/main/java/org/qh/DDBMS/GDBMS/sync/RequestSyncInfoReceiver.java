@@ -14,6 +14,7 @@ import org.qh.DDBMS.common.protocol.SyncInfoProtocol;
 import javax.annotation.Resource;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -56,8 +57,11 @@ public class RequestSyncInfoReceiver implements DDBMSReceiver<BaseTransportProto
      *   1) 判定BaseTransportProtocol不是RequestSyncInfoProtocol，则抛出解析异常
      *   2) 将协议转化为RequestSyncInfoProtocol实例
      *   3) 解析得到数据库名和最后提交事务同步信息id
-     *   4) 调用Sync的retrieve()，并得到result
+     *   4) 调用Sync的retrieve()，并得到一页result
+     *     1. result为null且最小同步信息id大于last+1，说明请求者缺失的同步信息已经不存在，发送空的SyncInfoProtocol
+     *     2. result为null且请求者没有落后，返回null
      *   5) 将result封装为SyncInfoProtocol返回
+     *     1. result最后一个同步信息的id小于数据库执行事务数，则标记还有后续的同步信息
      * </pre>
      *
      * @param protocol 用户协议
@@ -74,12 +78,23 @@ public class RequestSyncInfoReceiver implements DDBMSReceiver<BaseTransportProto
         }
         RequestSyncInfoProtocol p = new RequestSyncInfoProtocol(bytes);
 
+        String dbName = (String) p.getData()[0];
+        long last = (Long) p.getData()[1];
         List<SyncInfoEntity> res = null;
         try {
-            res = sync.retrieve((String) p.getData()[0], (Long) p.getData()[1]);
+            res = sync.retrieve(dbName, last);
+            if (res == null) {
+                if (sync.firstSyncId(dbName) > last + 1) {
+                    sender.send((String) p.getData()[2], new SyncInfoProtocol(new ArrayList<>(), false), null, false);
+                }
+                return null;
+            }
         } catch (SQLException e) {
+            return null;
         }
-        sender.send((String) p.getData()[2], new SyncInfoProtocol(res), null, false);
+        boolean hasMore = !res.isEmpty() &&
+                res.get(res.size() - 1).getId() < sync.transactionCount(dbName);
+        sender.send((String) p.getData()[2], new SyncInfoProtocol(res, hasMore), null, false);
         return null;
 
     }
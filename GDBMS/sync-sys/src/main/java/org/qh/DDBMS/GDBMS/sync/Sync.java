@@ -4,6 +4,7 @@ import org.qh.DDBMS.common.entity.SyncInfoEntity;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 
 /**
@@ -27,7 +28,9 @@ public interface Sync {
 
     /**
      * <pre>
-     * 说明：检索database中last后所有已经提交的事务
+     * 说明：检索database中last后已经提交的事务
+     * 规范：
+     *   1) 最多返回一页同步信息，调用方根据结果中最后一个同步信息的id继续检索
      * </pre>
      * @param last 数据库中最后提交事务的序号
      * @param database 数据库
@@ -36,6 +39,39 @@ public interface Sync {
      */
     List<SyncInfoEntity> retrieve(String database, Long last) throws SQLException;
 
+    /**
+     * <pre>
+     * 说明：得到database中保留的最小同步信息id
+     * 规范：
+     *   1) 小于该id的同步信息已经不存在，落后更多的站点无法通过retrieve()补全
+     * </pre>
+     * @param database 数据库
+     * @return 最小同步信息id，没有同步信息时返回0
+     * @since 0.0.0
+     */
+    long firstSyncId(String database) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：删除database中id不大于checkpoint的同步信息
+     * 规范：
+     *   1) checkpoint应小于执行事务数，同步信息表中至少保留最新的同步信息
+     * </pre>
+     * @param database 数据库
+     * @param checkpoint 检查点
+     * @since 0.0.0
+     */
+    void truncate(String database, long checkpoint) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：得到所有数据库名
+     * </pre>
+     * @return Set<String> 数据库名集合
+     * @since 0.0.0
+     */
+    Set<String> databases();
+
     /**
      * <pre>
      * 说明：得到一个数据库中执行事务数
@@ -2,6 +2,7 @@ package org.qh.DDBMS.GDBMS.sync.dao;
 
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.db.SchemaMigration;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
 
 import javax.annotation.Resource;
@@ -9,7 +10,9 @@ import javax.sql.DataSource;
 import javax.swing.text.Style;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,7 +42,7 @@ public class SyncDao {
      * @since 0.0.0
      */
     private List<String> selectSyncInfoTables() throws SQLException {
-        String sql = "shows tables;";
+        String sql = "show tables;";
         ArrayList<String> res = new ArrayList<>();
 
         try (Connection conn = dataSource.getConnection();
@@ -107,6 +110,24 @@ public class SyncDao {
         return sb.toString();
     }
 
+    /**
+     * <pre>
+     * 说明：为缺少绑定参数列的同步信息表添加该列
+     * 注意事项：
+     *   1. 同步信息表的insert语句按位置绑定5个字段，旧版本的表需要先升级
+     * </pre>
+     * @param dbNames 数据库名
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public void migrateSyncInfoTables(Collection<String> dbNames) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            for (String dbName : dbNames) {
+                SchemaMigration.addParametersColumn(conn, Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName);
+            }
+        }
+    }
+
     /**
      * 说明：将传入的同步信息插入到数据库中
      * 实现步骤：
@@ -118,65 +139,119 @@ public class SyncDao {
      */
     public void insertSyncInfo(Map<String, SyncInfoEntity> syncInfoMap) throws SQLException {
 
-        try (Connection conn = dataSource.getConnection();
-             Statement ps = prepareInsertSyncInfoStatement(syncInfoMap, conn)) {
+        try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
-            ps.executeBatch();
+            for (Map.Entry<String, SyncInfoEntity> entry : syncInfoMap.entrySet()) {
+                insertSyncInfo(conn, entry.getKey(), entry.getValue());
+            }
             conn.commit();
         }
     }
 
     /**
-     * 说明：将传入的同步信息插入到数据库中
+     * <pre>
+     * 说明：在一个事务中插入多次提交的同步信息
      * 实现步骤：
-     *   1. 构建执行sql语句的PreparedStatement
-     *   2. 返回ps
-     * @param syncInfoMap 需要插入的同步信息
+     *   1. 按数据库分组同步信息，保持提交的顺序
+     *   2. 每个同步信息表使用一个预编译语句批量插入
+     *   3. 提交事务，失败时回滚
+     * </pre>
+     * @param syncInfoMaps 多次提交的同步信息
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public void insertSyncInfo(List<Map<String, SyncInfoEntity>> syncInfoMaps) throws SQLException {
+        Map<String, List<SyncInfoEntity>> tables = new LinkedHashMap<>();
+        for (Map<String, SyncInfoEntity> syncInfoMap : syncInfoMaps) {
+            for (Map.Entry<String, SyncInfoEntity> entry : syncInfoMap.entrySet()) {
+                tables.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<SyncInfoEntity>> entry : tables.entrySet()) {
+                    String insertSql = "INSERT INTO `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + entry.getKey() +
+                            "` VALUES(?, ?, ?, ?, ?);";
+                    try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                        for (SyncInfoEntity value : entry.getValue()) {
+                            ps.setLong(1, value.getId());
+                            ps.setLong(2, value.getTransaction().getId());
+                            ps.setInt(3, value.getTransaction().getType());
+                            ps.setString(4, value.getSqlStatement());
+                            ps.setBytes(5, value.getParameters());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 说明：将一个数据库的同步信息插入到其同步信息表中
+     * 实现步骤：
+     *   1. 构建同步信息表的insert sql
+     *   2. 绑定同步信息的各个字段并执行
      * @param conn 数据库连接
+     * @param dbName 数据库名
+     * @param value 同步信息
      * @throws SQLException
      * @since 0.0.0
      */
-    private Statement prepareInsertSyncInfoStatement(
-            Map<String, SyncInfoEntity> syncInfoMap, Connection conn) throws SQLException {
-        String insertSql = "INSERT INTO `%s` VALUES(%d, %d, %d, '%s');";
-        Statement statement = conn.createStatement();
-
-        for (Map.Entry<String, SyncInfoEntity> entry : syncInfoMap.entrySet()) {
-            SyncInfoEntity value = entry.getValue();
-            statement.addBatch(String.format(insertSql,
-                    entry.getKey(),
-                    value.getId(),
-                    value.getTransaction().getId(),
-                    value.getTransaction().getType(),
-                    value.getSqlStatement()));
+    private void insertSyncInfo(Connection conn, String dbName, SyncInfoEntity value) throws SQLException {
+        String insertSql = "INSERT INTO `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName +
+                "` VALUES(?, ?, ?, ?, ?);";
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            ps.setLong(1, value.getId());
+            ps.setLong(2, value.getTransaction().getId());
+            ps.setInt(3, value.getTransaction().getType());
+            ps.setString(4, value.getSqlStatement());
+            ps.setBytes(5, value.getParameters());
+            ps.executeUpdate();
         }
-        return statement;
     }
 
     /**
-     * 说明：查询所有id大于传入id的row
+     * 说明：分页查询id大于传入id的row
      * 实现步骤：
      *   1. 判定当前id+1不存在则返回null
-     *   2. 查询所有大于当前id的row
+     *   2. 按id顺序流式读取大于当前id的row，最多读取一页
+     *     1. 读取的row数量达到SYNC_PAGE_ENTRIES，或sql语句和参数的字节数达到SYNC_PAGE_BYTES时停止读取
      *   3. 将结果封装为SyncInfoEntity，加入结果集返回
      *   4. 返回结果
+     * 注意事项：
+     *   1. 落后较多的站点需要多次调用该方法补全同步信息，每次调用占用的内存不超过一页
      * @param dbName 数据库名
      * @param id 同步信息id
-     * @return 所有id大于传入id的row
+     * @return id大于传入id的一页row
      * @throws SQLException
      * @since 0.0.0
      */
     public List<SyncInfoEntity> selectSyncInfoGT(String dbName, long id) throws SQLException {
         String syncInfoTable = Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName;
         List<SyncInfoEntity> res = null;
-        String stat = "select `id` from `" + syncInfoTable  + "` where `id` = " + (id + 1) + ";";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(stat);
-             ResultSet resultSet = ps.executeQuery()) {
-            if (!resultSet.next()) return res;
+        String stat = "select `id` from `" + syncInfoTable + "` where `id` = " + (id + 1) + ";";
+        String page = "select * from `" + syncInfoTable + "` where `id` > ? order by `id` limit ?;";
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(stat);
+                 ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) return res;
+            }
 
-            try (ResultSet rSet = ps.executeQuery("select * from `" + syncInfoTable + "` where `id` > " + id + ";")) {
-                resolveSyncInfo(rSet, res = new ArrayList<>());
+            try (PreparedStatement ps = conn.prepareStatement(page)) {
+                ps.setLong(1, id);
+                ps.setInt(2, Constant.Sync.SYNC_PAGE_ENTRIES);
+                ps.setFetchSize(Constant.Sync.SYNC_PAGE_ENTRIES);
+                try (ResultSet rSet = ps.executeQuery()) {
+                    resolveSyncInfo(rSet, res = new ArrayList<>());
+                }
             }
         }
 
@@ -184,16 +259,66 @@ public class SyncDao {
     }
 
     /**
-     * 说明：从结果集中解析出所有的syncInfo实例
+     * <pre>
+     * 说明：删除id不大于传入id的同步信息
+     * 实现步骤：
+     *   1. 按id顺序分批删除，每批最多SYNC_INFO_DELETE_BATCH行，避免长时间持有锁
+     *   2. 删除的行数不足一批时结束
+     * </pre>
+     * @param dbName 数据库名
+     * @param id 同步信息id
+     * @return 删除的行数
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public long deleteSyncInfoLE(String dbName, long id) throws SQLException {
+        String stat = "delete from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName +
+                "` where `id` <= ? order by `id` limit ?;";
+        long res = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat)) {
+            ps.setLong(1, id);
+            ps.setInt(2, Constant.Sync.SYNC_INFO_DELETE_BATCH);
+            int n;
+            do {
+                n = ps.executeUpdate();
+                res += n;
+            } while (n >= Constant.Sync.SYNC_INFO_DELETE_BATCH);
+        }
+        return res;
+    }
+
+    /**
+     * 说明：查询同步信息表中最小的id
+     * @param dbName 数据库名
+     * @return 最小的id，表为空时返回0
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public long selectMinSyncInfoId(String dbName) throws SQLException {
+        String stat = "select ifnull(min(`id`), 0) from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName + "`;";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat);
+             ResultSet resultSet = ps.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 说明：从结果集中解析出syncInfo实例，sql语句和参数的字节数达到SYNC_PAGE_BYTES时停止解析
      * @param rSet 数据库查询结果集
      * @param res 实例结果集
      * @since 0.0.0
      */
     private void resolveSyncInfo(ResultSet rSet, List<SyncInfoEntity> res) throws SQLException {
-        while (rSet.next()) {
+        long bytes = 0;
+        while (bytes < Constant.Sync.SYNC_PAGE_BYTES && rSet.next()) {
+            String sqlStatement = rSet.getString(4);
+            byte[] parameters = rSet.getBytes(5);
             res.add(new SyncInfoEntity(rSet.getLong(1),
                     new DBTransaction(rSet.getLong(2), rSet.getInt(3), (byte) 0),
-                    rSet.getString(4)));
+                    sqlStatement, parameters));
+            bytes += sqlStatement.length() + (parameters == null ? 0 : parameters.length);
         }
     }
 }
@@ -0,0 +1,696 @@
+package org.qh.DDBMS.GDBMS.sync.dao;
+
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 一个数据库的同步日志，由多个只追加的段文件组成，代替同步信息表保存同步信息
+ * @Specification:
+ *   1. 段文件：目录/数据库名/段中第一个同步信息id(20位).log，段中同步信息id连续递增
+ *   2. 记录格式：int 长度, long id, int 事务类型, long 事务id, short 参与数据库数,
+ *      [UTF 数据库名, long 同步信息id]..., int sql字节数, sql, int 参数字节数(-1表示null), 参数, int CRC32
+ *   3. 长度不包括长度字段本身，CRC32校验id到参数的所有字节
+ *   4. 只涉及一个数据库的同步信息，参与数据库数为0
+ */
+public class SyncLog implements Closeable {
+
+    /**
+     * <pre>
+     * 说明：数据库名
+     * </pre>
+     */
+    private final String name;
+
+    /**
+     * <pre>
+     * 说明：保存段文件的目录
+     * </pre>
+     */
+    private final File dir;
+
+    /**
+     * <pre>
+     * 说明：段文件的最大字节数，超过后新建段文件
+     * </pre>
+     */
+    private final long segmentBytes;
+
+    /**
+     * <pre>
+     * 说明：按第一个同步信息id排序的段，最后一个为当前追加的段
+     * 注意事项：
+     *   1. 数组不会被修改，新建或删除段时替换为新数组，读取时可以不加锁
+     * </pre>
+     */
+    private volatile Segment[] segments;
+
+    /**
+     * <pre>
+     * 说明：追加同步信息时持有的锁
+     * </pre>
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * <pre>
+     * 说明：最后分配的同步信息id，由lock保护
+     * </pre>
+     */
+    private long lastId;
+
+    /**
+     * <pre>
+     * 说明：稳定的同步信息id，不大于该id的同步信息都已经完成，可以被读取
+     * 注意事项：
+     *   1. 由stableLock保护，读取方通过stableLock与写入offsets的线程建立happens-before关系
+     * </pre>
+     */
+    private long stable;
+
+    /**
+     * <pre>
+     * 说明：已经完成但大于stable+1的同步信息id，由stableLock保护
+     * </pre>
+     */
+    private final TreeSet<Long> completed = new TreeSet<>();
+
+    private final Object stableLock = new Object();
+
+    /**
+     * <pre>
+     * 说明：打开日志时当前段中涉及多个数据库的同步信息，只在恢复时使用
+     * </pre>
+     */
+    private List<Tail> tail = new ArrayList<>();
+
+    private SyncLog(String name, File dir, long segmentBytes) {
+        this.name = name;
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * <pre>
+     * 说明：打开一个数据库的同步日志
+     * 实现步骤：
+     *   1) 创建目录，按第一个同步信息id的顺序读取所有段文件
+     *   2) 逐条读取段中的记录，校验长度、id的连续性和CRC32，记录每条记录的位置
+     *     1. 非最后一个段校验失败，说明日志已损坏，抛出异常
+     *     2. 最后一个段校验失败，说明写入过程中宕机，截断校验失败的记录及其后的数据
+     *   3) 记录最后一个段中涉及多个数据库的同步信息
+     * 注意事项：
+     *   1. 打开后需要根据其他数据库的日志调用discardFrom()丢弃未完成的同步信息，然后调用recovered()
+     * </pre>
+     *
+     * @param root 同步日志的根目录
+     * @param name 数据库名
+     * @param segmentBytes 段文件的最大字节数
+     * @return 同步日志
+     * @since 0.0.0
+     */
+    public static SyncLog open(File root, String name, long segmentBytes) throws IOException {
+        SyncLog log = new SyncLog(name, new File(root, name), segmentBytes);
+        if (!log.dir.isDirectory() && !log.dir.mkdirs()) throw new IOException("Cannot create " + log.dir);
+
+        TreeMap<Long, File> files = new TreeMap<>();
+        File[] list = log.dir.listFiles((d, n) -> n.endsWith(Constant.SyncLog.SEGMENT_SUFFIX));
+        if (list != null) {
+            for (File file : list) {
+                String base = file.getName().substring(0,
+                        file.getName().length() - Constant.SyncLog.SEGMENT_SUFFIX.length());
+                files.put(Long.parseLong(base), file);
+            }
+        }
+
+        List<Segment> res = new ArrayList<>(files.size());
+        for (Map.Entry<Long, File> entry : files.entrySet()) {
+            boolean active = entry.getKey().equals(files.lastKey());
+            res.add(log.scan(new Segment(entry.getKey(), entry.getValue()), active));
+        }
+        log.segments = res.toArray(new Segment[0]);
+        log.lastId = res.isEmpty() ? 0 : res.get(res.size() - 1).lastId();
+        return log;
+    }
+
+    /**
+     * <pre>
+     * 说明：读取段中的所有记录
+     * 实现步骤：
+     *   1) 从头读取记录的长度和内容，长度不足、id不连续或CRC32不一致时停止
+     *   2) 记录每条记录的位置，当前段中涉及多个数据库的记录加入tail
+     *   3) 存在无效数据时，当前段截断，非当前段抛出异常
+     * </pre>
+     *
+     * @param segment 段
+     * @param active 是否为最后一个段
+     * @return 段
+     * @since 0.0.0
+     */
+    private Segment scan(Segment segment, boolean active) throws IOException {
+        FileChannel channel = segment.channel;
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (position + 4 <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length < 8 || position + 4 + length > size) break;
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(channel, body, position + 4);
+            Record record = decode(body.array());
+            if (record == null || record.info.getId() != segment.base + segment.count) break;
+            if (active && record.peers != null) tail.add(new Tail(record.info.getId(), record.peers, record.peerIds));
+            segment.add((int) position);
+            position += 4 + length;
+        }
+        if (position < size) {
+            if (!active) throw new IOException("The sync log segment " + segment.file + " is corrupted.");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        segment.written = segment.forced = position;
+        segment.sealed = !active;
+        return segment;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：恢复完成，不大于lastId的同步信息都可以被读取
+     * </pre>
+     *
+     * @since 0.0.0
+     */
+    public void recovered() {
+        synchronized (stableLock) {
+            stable = lastId;
+            completed.clear();
+        }
+        tail = Collections.emptyList();
+    }
+
+    /**
+     * 说明：获取打开日志时当前段中涉及多个数据库的同步信息
+     * @return 按id递增的同步信息
+     * @since 0.0.0
+     */
+    public List<Tail> tail() {
+        return tail;
+    }
+
+    /**
+     * <pre>
+     * 说明：丢弃id不小于传入id的同步信息，只在恢复时使用
+     * 实现步骤：
+     *   1) 截断当前段中该同步信息及其后的数据
+     *   2) 更新lastId和tail
+     * </pre>
+     *
+     * @param id 第一个丢弃的同步信息id，必须在当前段中
+     * @since 0.0.0
+     */
+    public void discardFrom(long id) throws IOException {
+        Segment segment = segments[segments.length - 1];
+        int index = (int) (id - segment.base);
+        if (index < 0 || index >= segment.count) return;
+        long position = segment.offsets[index];
+        segment.channel.truncate(position);
+        segment.channel.force(true);
+        segment.count = index;
+        segment.written = segment.forced = position;
+        lastId = id - 1;
+        tail.removeIf(t -> t.id >= id);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void lock() {
+        lock.lock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * 说明：获取最后分配的同步信息id，即数据库执行的事务数
+     * @return 最后分配的同步信息id，没有同步信息时返回0
+     * @since 0.0.0
+     */
+    public long lastId() {
+        lock.lock();
+        try {
+            return lastId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 说明：获取保留的最小同步信息id
+     * @return 最小同步信息id，没有同步信息时返回0
+     * @since 0.0.0
+     */
+    public long firstId() {
+        Segment[] arr = segments;
+        for (Segment segment : arr) {
+            if (segment.count > 0) return segment.base;
+        }
+        return 0;
+    }
+
+    /**
+     * <pre>
+     * 说明：追加一条同步信息
+     * 实现步骤：
+     *   1) 将同步信息编码为记录
+     *   2) 当前段已满时新建段
+     *   3) 写入当前段，记录其位置，更新lastId
+     * 规范：
+     *   1) 调用方持有lock，且同步信息的id为lastId+1
+     *   2) 写入的数据不保证落盘，需要调用force()
+     * </pre>
+     *
+     * @param info 同步信息
+     * @param peers 涉及的所有数据库名，只涉及一个数据库时为null
+     * @param peerIds 同步信息在每个数据库中的id，与peers一一对应
+     * @since 0.0.0
+     */
+    public void append(SyncInfoEntity info, String[] peers, long[] peerIds) throws IOException {
+        if (!lock.isHeldByCurrentThread() || info.getId() != lastId + 1) {
+            throw new IllegalStateException("The sync info " + info.getId() + " is out of order in " + name + ".");
+        }
+        ByteBuffer record = ByteBuffer.wrap(encode(info, peers, peerIds));
+        Segment segment = segments.length == 0 ? null : segments[segments.length - 1];
+        if (segment == null || segment.count > 0 && segment.written + record.remaining() > segmentBytes) {
+            segment = roll(segment);
+        }
+        long position = segment.written;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, position + record.position());
+        }
+        segment.add((int) position);
+        segment.written = position + record.limit();
+        lastId = info.getId();
+    }
+
+    /**
+     * <pre>
+     * 说明：新建段文件
+     * 实现步骤：
+     *   1) 当前段落盘，并等待当前段中的同步信息都已完成
+     *   2) 当前段不再写入，标记为已封存
+     *   3) 以lastId+1为第一个id新建段
+     * 注意事项：
+     *   1. 旧段中只有已完成的同步信息，恢复时只需要检查当前段
+     *   2. 等待的同步信息都已经写入，完成时不需要任何日志的lock，等待不会死锁
+     * </pre>
+     *
+     * @param current 当前段，可以为null
+     * @return 新的段
+     * @since 0.0.0
+     */
+    private Segment roll(Segment current) throws IOException {
+        if (current != null) {
+            force(current);
+            awaitStable(lastId);
+            current.sealed = true;
+        }
+        File file = new File(dir, String.format("%020d", lastId + 1) + Constant.SyncLog.SEGMENT_SUFFIX);
+        Segment segment = new Segment(lastId + 1, file);
+        Segment[] arr = Arrays.copyOf(segments, segments.length + 1);
+        arr[segments.length] = segment;
+        segments = arr;
+        return segment;
+    }
+
+    /**
+     * <pre>
+     * 说明：使同步信息落盘
+     * 规范：
+     *   1) 多个线程同时调用时，一次落盘包含所有已写入的数据，其他线程不再重复落盘
+     * </pre>
+     *
+     * @param id 同步信息id
+     * @since 0.0.0
+     */
+    public void force(long id) throws IOException {
+        force(segment(id));
+    }
+
+    private static void force(Segment segment) throws IOException {
+        long end = segment.written;
+        if (segment.forced >= end) return;
+        synchronized (segment.forceLock) {
+            if (segment.forced >= end) return;
+            long target = segment.written;
+            segment.channel.force(false);
+            segment.forced = target;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：标记同步信息已完成，即其涉及的所有日志都已落盘
+     * 实现步骤：
+     *   1) id为stable+1时，推进stable直到下一个未完成的id，唤醒等待的线程
+     *   2) 否则记录到completed中
+     * </pre>
+     *
+     * @param id 同步信息id
+     * @since 0.0.0
+     */
+    public void complete(long id) {
+        synchronized (stableLock) {
+            if (id != stable + 1) {
+                completed.add(id);
+                return;
+            }
+            stable = id;
+            while (completed.remove(stable + 1)) stable++;
+            stableLock.notifyAll();
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：等待不大于id的同步信息都已完成
+     * 注意事项：
+     *   1. 同步信息已经写入，等待过程不响应中断，结束后恢复中断标记
+     * </pre>
+     *
+     * @param id 同步信息id
+     * @since 0.0.0
+     */
+    public void awaitStable(long id) {
+        boolean interrupted = false;
+        synchronized (stableLock) {
+            while (stable < id) {
+                try {
+                    stableLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private long stable() {
+        synchronized (stableLock) {
+            return stable;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：读取从from开始的一页同步信息
+     * 实现步骤：
+     *   1) from已被删除或大于stable时返回null
+     *   2) 按id顺序读取记录，直到stable、maxEntries或sql语句和参数的字节数达到maxBytes
+     *     1. 已封存的段通过内存映射读取，当前段通过文件通道读取
+     * </pre>
+     *
+     * @param from 第一个同步信息id
+     * @param maxEntries 最多读取的同步信息数
+     * @param maxBytes sql语句和参数最多占用的字节数，至少读取一条同步信息
+     * @return 同步信息列表
+     * @since 0.0.0
+     */
+    public List<SyncInfoEntity> read(long from, int maxEntries, long maxBytes) throws IOException {
+        long end = stable();
+        if (from > end || from < firstId() || from <= 0) return null;
+        end = Math.min(end, from + maxEntries - 1);
+        List<SyncInfoEntity> res = new ArrayList<>();
+        long bytes = 0;
+        Segment segment = null;
+        ByteBuffer buffer = null;
+        for (long id = from; id <= end && bytes < maxBytes; id++) {
+            if (segment == null || id - segment.base >= segment.count) {
+                segment = segment(id);
+                buffer = segment.map();
+            }
+            Record record = decode(segment.record(buffer, segment.offsets[(int) (id - segment.base)]));
+            if (record == null) throw new IOException("The sync info " + id + " of " + name + " is corrupted.");
+            SyncInfoEntity info = record.info;
+            res.add(info);
+            bytes += info.getSqlStatement().length() + (info.getParameters() == null ? 0 : info.getParameters().length);
+        }
+        return res;
+    }
+
+    /**
+     * <pre>
+     * 说明：删除所有同步信息id都不大于传入id的段
+     * 注意事项：
+     *   1. 当前段不会被删除
+     * </pre>
+     *
+     * @param id 同步信息id
+     * @return 删除的同步信息数
+     * @since 0.0.0
+     */
+    public long truncate(long id) throws IOException {
+        lock.lock();
+        try {
+            Segment[] arr = segments;
+            int n = 0;
+            long res = 0;
+            while (n < arr.length - 1 && arr[n].lastId() <= id) {
+                res += arr[n].count;
+                arr[n].close();
+                if (!arr[n].file.delete()) throw new IOException("Cannot delete " + arr[n].file);
+                n++;
+            }
+            if (n > 0) segments = Arrays.copyOfRange(arr, n, arr.length);
+            return res;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 说明：查找同步信息所在的段
+     * @param id 同步信息id
+     * @return 段
+     * @since 0.0.0
+     */
+    private Segment segment(long id) throws IOException {
+        Segment[] arr = segments;
+        int low = 0, high = arr.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (arr[mid].base > id) high = mid - 1;
+            else low = mid + 1;
+        }
+        if (high < 0) throw new IOException("The sync info " + id + " of " + name + " is truncated.");
+        return arr[high];
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) segment.close();
+    }
+
+    /**
+     * 说明：将同步信息编码为记录
+     * @param info 同步信息
+     * @param peers 涉及的所有数据库名，可以为null
+     * @param peerIds 同步信息在每个数据库中的id
+     * @return 包含长度字段的记录
+     * @since 0.0.0
+     */
+    private static byte[] encode(SyncInfoEntity info, String[] peers, long[] peerIds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(info.getId());
+        out.writeInt(info.getTransaction().getType());
+        out.writeLong(info.getTransaction().getId());
+        out.writeShort(peers == null ? 0 : peers.length);
+        for (int i = 0; peers != null && i < peers.length; i++) {
+            out.writeUTF(peers[i]);
+            out.writeLong(peerIds[i]);
+        }
+        byte[] sql = info.getSqlStatement().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(sql.length);
+        out.write(sql);
+        byte[] parameters = info.getParameters();
+        out.writeInt(parameters == null ? -1 : parameters.length);
+        if (parameters != null) out.write(parameters);
+        CRC32 crc = new CRC32();
+        byte[] res = bytes.toByteArray();
+        crc.update(res, 4, res.length - 4);
+        out.writeInt((int) crc.getValue());
+        res = bytes.toByteArray();
+        ByteBuffer.wrap(res).putInt(0, res.length - 4);
+        return res;
+    }
+
+    /**
+     * 说明：解码记录
+     * @param body 不包含长度字段的记录
+     * @return 记录，CRC32校验失败或格式错误时返回null
+     * @since 0.0.0
+     */
+    private static Record decode(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(body).getInt(body.length - 4)) return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 0, body.length - 4));
+            long id = in.readLong();
+            int txType = in.readInt();
+            long txId = in.readLong();
+            int n = in.readShort();
+            String[] peers = n == 0 ? null : new String[n];
+            long[] peerIds = n == 0 ? null : new long[n];
+            for (int i = 0; i < n; i++) {
+                peers[i] = in.readUTF();
+                peerIds[i] = in.readLong();
+            }
+            byte[] sql = new byte[in.readInt()];
+            in.readFully(sql);
+            int length = in.readInt();
+            byte[] parameters = length < 0 ? null : new byte[length];
+            if (parameters != null) in.readFully(parameters);
+            SyncInfoEntity info = new SyncInfoEntity(id, new DBTransaction(txId, txType, (byte) 0),
+                    new String(sql, StandardCharsets.UTF_8), parameters);
+            return new Record(info, peers, peerIds);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 说明：打开日志时当前段中涉及多个数据库的同步信息
+     */
+    public static class Tail {
+        public final long id; // 同步信息在当前日志中的id
+        public final String[] peers; // 涉及的所有数据库名
+        public final long[] peerIds; // 同步信息在每个数据库中的id
+
+        private Tail(long id, String[] peers, long[] peerIds) {
+            this.id = id;
+            this.peers = peers;
+            this.peerIds = peerIds;
+        }
+    }
+
+    /**
+     * 说明：解码后的记录
+     */
+    private static class Record {
+        private final SyncInfoEntity info; // 同步信息
+        private final String[] peers; // 涉及的所有数据库名
+        private final long[] peerIds; // 同步信息在每个数据库中的id
+
+        private Record(SyncInfoEntity info, String[] peers, long[] peerIds) {
+            this.info = info;
+            this.peers = peers;
+            this.peerIds = peerIds;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：一个段文件和其记录位置索引
+     * 注意事项：
+     *   1. offsets和count由日志的lock保护，读取方只读取不大于stable的同步信息的位置
+     * </pre>
+     */
+    private static class Segment implements Closeable {
+        private final long base; // 段中第一个同步信息id
+        private final File file; // 段文件
+        private final FileChannel channel; // 段文件通道
+        private final Object forceLock = new Object(); // 落盘时持有的锁
+        private int[] offsets = new int[1024]; // 每条记录在段文件中的位置
+        private volatile int count; // 段中的记录数
+        private volatile long written; // 已写入的字节数
+        private volatile long forced; // 已落盘的字节数
+        private volatile boolean sealed; // 是否已封存，封存后不再写入
+        private MappedByteBuffer mapped; // 只读的内存映射
+
+        private Segment(long base, File file) throws IOException {
+            this.base = base;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void add(int position) {
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+            offsets[count] = position;
+            count++;
+        }
+
+        private long lastId() {
+            return base + count - 1;
+        }
+
+        /**
+         * <pre>
+         * 说明：获取已封存段的内存映射
+         * 注意事项：
+         *   1. 当前段仍在追加，不进行映射，避免随写入反复重新映射
+         * </pre>
+         * @return 内存映射的副本，段未封存时返回null
+         * @since 0.0.0
+         */
+        private synchronized ByteBuffer map() throws IOException {
+            if (!sealed) return null;
+            if (mapped == null) mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, written);
+            return mapped.duplicate();
+        }
+
+        /**
+         * 说明：读取一条记录
+         * @param mapped 段的内存映射，为null时通过文件通道读取
+         * @param position 记录在段文件中的位置
+         * @return 不包含长度字段的记录
+         * @since 0.0.0
+         */
+        private byte[] record(ByteBuffer mapped, int position) throws IOException {
+            if (mapped != null) {
+                byte[] body = new byte[mapped.getInt(position)];
+                mapped.position(position + 4);
+                mapped.get(body);
+                return body;
+            }
+            ByteBuffer header = ByteBuffer.allocate(4);
+            readFully(channel, header, position);
+            ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+            readFully(channel, body, position + 4);
+            return body.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -2,16 +2,19 @@ package org.qh.DDBMS.GDBMS.sync.impl;
 
 import org.qh.DDBMS.GDBMS.sync.Sync;
 import org.qh.DDBMS.GDBMS.sync.dao.SyncDao;
+import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
-import org.qh.tools.common.RandomUtils;
-import org.qh.tools.thread.LockUtils;
+import org.qh.tools.exception.ExceptionUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  *
@@ -22,6 +25,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * @Specification:
  *   1. 同步信息表名：sync_info_dbName
  *   2. 同步信息表中最大值id，就是对应数据库的执行事务数
+ *   3. 同步信息表字段：id, transaction_id, transaction_type, sql_statement, parameters
  */
 public class DefaultSync implements Sync {
 
@@ -35,7 +39,19 @@ public class DefaultSync implements Sync {
     @Resource
     private SyncDao syncDao;
 
-    private static final String LOCK_PREFIX = "DDBMS_GDBMS_sync_";
+    /**
+     * <pre>
+     * 说明：等待保存的提交
+     * </pre>
+     */
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * <pre>
+     * 说明：是否有线程正在作为合并线程保存同步信息
+     * </pre>
+     */
+    private final AtomicBoolean combining = new AtomicBoolean();
 
     /**
      * <pre>
@@ -44,13 +60,15 @@ public class DefaultSync implements Sync {
      *   1) 从数据库中获取所有表的名字
      *   2) 根据同步信息表的命名规范，取得所有数据库名
      *   3) 获取各个同步信息表最大id值
-     *   4) 初始化syncId
+     *   4) 为缺少绑定参数列的同步信息表添加该列
+     *   5) 初始化syncId
      * </pre>
      */
     @PostConstruct
     public void init() throws SQLException {
         syncId = new ConcurrentHashMap<>();
         Map<String, Long> map = syncDao.selectSyncTableIds();
+        syncDao.migrateSyncInfoTables(map.keySet());
         for (Map.Entry<String, Long> entry : map.entrySet()) {
             syncId.put(entry.getKey(), new AtomicLong(entry.getValue()));
         }
@@ -58,88 +76,111 @@ public class DefaultSync implements Sync {
 
     /**
      * <pre>
-     * 说明：保存一次提交交事务的同步信息
+     * 说明：保存一次提交事务的同步信息
      * 实现步骤：
-     *   1) 取得所有涉及的数据库同步锁
-     *   2) 将所有同步信息转化为insert sql
-     *   3) 执行sql
-     *      1. 执行失败,则回退自增的id值，并直接返回false
-     *   4) 释放取得的所有锁
-     *   5) 返回true
+     *   1) 将同步信息加入等待队列
+     *   2) 循环直到同步信息保存完成
+     *     1. 成为合并线程时，执行combine()保存队列中的同步信息，包括自己的同步信息
+     *     2. 否则挂起，等待合并线程保存完成后唤醒
+     *   3) 返回保存结果
+     * 注意事项：
+     *   1. 不使用命名锁和随机休眠，一次提交涉及的所有数据库的id在合并线程中一起分配
      * </pre>
      *
      * @param syncInfoMap 数据库与同步信息的映射
      * @return 是否保存成功
      */
     public boolean save(Map<String, SyncInfoEntity> syncInfoMap) {
-        List<String> dbLocks = new ArrayList<>(syncInfoMap.size());
-        for (String dbName : syncInfoMap.keySet()) dbLocks.add(LOCK_PREFIX + dbName);
-        try {
-            lockDatabases(dbLocks);
-            for (Map.Entry<String, SyncInfoEntity> entry : syncInfoMap.entrySet()){
-                entry.getValue().setId(syncId.get(entry.getKey()).incrementAndGet());
-            }
-            syncDao.insertSyncInfo(syncInfoMap);
-
-        } catch (SQLException e) {
-            for (Map.Entry<String, SyncInfoEntity> entry : syncInfoMap.entrySet()) syncId.get(entry.getKey()).getAndDecrement();
-        } finally {
-            unlockDatabases(dbLocks);
+        Request request = new Request(syncInfoMap);
+        requests.add(request);
+        while (!request.done) {
+            if (combining.compareAndSet(false, true)) combine();
+            else LockSupport.park(this);
         }
-
-        return false;
+        return request.success;
     }
 
     /**
      * <pre>
-     * 说明：取得传入的数据库名形式的db锁资源
+     * 说明：作为合并线程保存等待队列中的同步信息
      * 实现步骤：
-     *   1. 对数据库名进行排序
-     *   2. 进行加锁
-     *   3. 循环地对所有的数据库进行加锁
-     *     3.1. 只要有一个次加锁失败则释放所有锁
-     *     3.2. 休息50ms-147ms后重新开始加锁
-     *   4. 持有所有锁后才可以
+     *   1) 从等待队列取出最多SAVE_COMBINE_REQUESTS个提交
+     *   2) 按队列顺序为每个提交涉及的数据库分配连续的id，在一个事务中插入所有同步信息
+     *     1. 插入失败，逐个提交重新分配id并插入
+     *   3) 标记提交完成并唤醒等待的线程
+     *   4) 释放合并线程标记，唤醒等待队列头部的线程接替合并
+     * 注意事项：
+     *   1. 只有合并线程分配id和插入同步信息，每个数据库的id没有空洞，且按id顺序写入同步信息表
+     *   2. syncId只在插入成功后更新，不需要回退
+     *   3. 释放标记后新加入的提交由其线程自己竞争合并，不会遗漏
      * </pre>
-     * @param dbLocks 需要上的锁
+     *
      * @since 0.0.0
      */
-    private void lockDatabases(List<String> dbLocks) {
-
-        Collections.sort(dbLocks);
-        int i = 0;
-        for (i = 0; i < dbLocks.size(); i++) {
-            if (!LockUtils.lock(dbLocks.get(i))) {
-                i--;
-                while (i >= 0) {
-                    LockUtils.unlock(dbLocks.get(i));
-                    i--;
-                }
-                try {
-                    Thread.sleep(Math.max(50, (RandomUtils.instance().nextInt() % 50) * 3L));
-                } catch (Exception e) {
-
-                }
+    private void combine() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            Request request;
+            while (batch.size() < Constant.Sync.SAVE_COMBINE_REQUESTS && (request = requests.poll()) != null) {
+                batch.add(request);
+            }
+            if (!insert(batch)) {
+                for (Request r : batch) insert(Collections.singletonList(r));
             }
+        } finally {
+            for (Request request : batch) request.finish();
+            combining.set(false);
+            Request head = requests.peek();
+            if (head != null) LockSupport.unpark(head.waiter);
         }
     }
 
     /**
-     * 说明：释放持有的资源
-     * @param dbLocks 数据库锁资源
+     * <pre>
+     * 说明：为多个提交分配id，并在一个事务中插入同步信息
+     * 实现步骤：
+     *   1) 按顺序为每个提交涉及的数据库分配syncId之后的id，数据库不存在时该提交失败
+     *   2) 插入所有同步信息
+     *     1. 插入失败，返回false
+     *   3) 更新syncId，标记插入的提交成功，返回true
+     * </pre>
+     *
+     * @param batch 提交列表
+     * @return 是否插入成功
      * @since 0.0.0
      */
-    private void unlockDatabases(List<String> dbLocks) {
-        for (String dbLock : dbLocks) {
-            LockUtils.unlock(dbLock);
+    private boolean insert(List<Request> batch) {
+        Map<String, Long> next = new HashMap<>();
+        List<Request> included = new ArrayList<>(batch.size());
+        List<Map<String, SyncInfoEntity>> maps = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            if (!syncId.keySet().containsAll(request.syncInfoMap.keySet())) continue;
+            for (Map.Entry<String, SyncInfoEntity> entry : request.syncInfoMap.entrySet()) {
+                long id = next.getOrDefault(entry.getKey(), syncId.get(entry.getKey()).get()) + 1;
+                next.put(entry.getKey(), id);
+                entry.getValue().setId(id);
+            }
+            included.add(request);
+            maps.add(request.syncInfoMap);
         }
+        if (maps.isEmpty()) return true;
+
+        try {
+            syncDao.insertSyncInfo(maps);
+        } catch (SQLException e) {
+            ExceptionUtils.printStackTrace(e);
+            return false;
+        }
+        for (Map.Entry<String, Long> entry : next.entrySet()) syncId.get(entry.getKey()).set(entry.getValue());
+        for (Request request : included) request.success = true;
+        return true;
     }
 
     /**
      * <pre>
-     * 说明：检索database中last后所有已经提交的事务
+     * 说明：检索database中last后已经提交的事务，最多返回一页
      * 实现步骤：
-     *   1) 检索所有大于传入提交事务同步信息id的同步数据
+     *   1) 分页检索大于传入提交事务同步信息id的同步数据
      *   2) 将得到的数据封装为SyncInfoEntity
      *   3) 返回结果
      * </pre>
@@ -152,6 +193,32 @@ public class DefaultSync implements Sync {
         return syncDao.selectSyncInfoGT(database, lastSyncId);
     }
 
+    @Override
+    public long firstSyncId(String database) throws SQLException {
+        return syncDao.selectMinSyncInfoId(database);
+    }
+
+    /**
+     * <pre>
+     * 说明：删除database中id不大于checkpoint的同步信息
+     * 实现步骤：
+     *   1) checkpoint不小于执行事务数时，只删除到执行事务数-1，保留最新的同步信息
+     *   2) 分批删除同步信息
+     * </pre>
+     *
+     * @param database 数据库名
+     * @param checkpoint 检查点
+     */
+    @Override
+    public void truncate(String database, long checkpoint) throws SQLException {
+        syncDao.deleteSyncInfoLE(database, Math.min(checkpoint, transactionCount(database) - 1));
+    }
+
+    @Override
+    public Set<String> databases() {
+        return Collections.unmodifiableSet(syncId.keySet());
+    }
+
 
     /**
      * <pre>
@@ -166,5 +233,23 @@ public class DefaultSync implements Sync {
     public long transactionCount(String database) {
         return syncId.get(database).get();
     }
-}
 
+    /**
+     * 说明：一次提交的保存请求
+     */
+    private static class Request {
+        private final Map<String, SyncInfoEntity> syncInfoMap; // 数据库与同步信息的映射
+        private final Thread waiter = Thread.currentThread(); // 等待保存完成的线程
+        private boolean success; // 是否保存成功，在done之前写入
+        private volatile boolean done; // 是否保存完成
+
+        private Request(Map<String, SyncInfoEntity> syncInfoMap) {
+            this.syncInfoMap = syncInfoMap;
+        }
+
+        private void finish() {
+            done = true;
+            LockSupport.unpark(waiter);
+        }
+    }
+}
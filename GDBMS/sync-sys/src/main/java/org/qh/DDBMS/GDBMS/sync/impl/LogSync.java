@@ -0,0 +1,280 @@
+package org.qh.DDBMS.GDBMS.sync.impl;
+
+import org.qh.DDBMS.GDBMS.sync.Sync;
+import org.qh.DDBMS.GDBMS.sync.dao.SyncLog;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+import org.qh.tools.clz.LauncherUtils;
+import org.qh.tools.exception.ExceptionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 使用本地同步日志保存同步信息的Sync接口实现类，可以代替DefaultSync
+ * @Specification:
+ *   1. 每个数据库一个SyncLog，同步日志中最大的id，就是对应数据库的执行事务数
+ *   2. 一次提交涉及多个数据库时，每个数据库的记录中保存所有数据库名和各自的同步信息id
+ *   3. 同步信息在所有涉及的日志中落盘后才能被retrieve()读取，保证辅站点不会读取到未完成的事务
+ */
+public class LogSync implements Sync {
+
+    /**
+     * <pre>
+     * 说明：数据库名和其同步日志的映射关系
+     * </pre>
+     */
+    private final Map<String, SyncLog> logs = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：同步日志的根目录
+     * </pre>
+     */
+    private String directory = Constant.SyncLog.DIRECTORY;
+
+    /**
+     * <pre>
+     * 说明：段文件的最大字节数
+     * </pre>
+     */
+    private long segmentBytes = Constant.SyncLog.SEGMENT_BYTES;
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public void setSegmentBytes(long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * <pre>
+     * 说明：打开所有数据库的同步日志并恢复
+     * 实现步骤：
+     *   1) 根目录下的每个子目录是一个数据库的同步日志，打开所有同步日志
+     *   2) 检查每个日志当前段中涉及多个数据库的同步信息
+     *     1. 任意一个数据库的日志不包含该同步信息，说明宕机时事务没有完成，丢弃该同步信息及其后的同步信息
+     *     2. 丢弃同步信息可能使其他日志中的同步信息不完整，重复检查直到没有丢弃
+     *   3) 恢复完成，所有同步信息可以被读取
+     * </pre>
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        File root = new File(directory);
+        if (!root.isDirectory() && !root.mkdirs()) throw new IOException("Cannot create " + root);
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs != null) {
+            for (File dir : dirs) logs.put(dir.getName(), SyncLog.open(root, dir.getName(), segmentBytes));
+        }
+
+        boolean discarded;
+        do {
+            discarded = false;
+            for (SyncLog log : logs.values()) {
+                for (SyncLog.Tail tail : log.tail()) {
+                    if (complete(log, tail)) continue;
+                    log.discardFrom(tail.id);
+                    discarded = true;
+                    break;
+                }
+            }
+        } while (discarded);
+        for (SyncLog log : logs.values()) log.recovered();
+    }
+
+    /**
+     * 说明：判断同步信息是否写入了所有涉及的日志
+     * @param log 同步信息所在的日志
+     * @param tail 同步信息
+     * @return 是否写入了所有涉及的日志
+     * @since 0.0.0
+     */
+    private boolean complete(SyncLog log, SyncLog.Tail tail) {
+        for (int i = 0; i < tail.peers.length; i++) {
+            if (tail.peers[i].equals(log.name())) continue;
+            SyncLog peer = logs.get(tail.peers[i]);
+            if (peer == null || peer.lastId() < tail.peerIds[i]) return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (SyncLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                ExceptionUtils.printStackTrace(e);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：获取数据库的同步日志，不存在时创建
+     * </pre>
+     * @param dbName 数据库名
+     * @return 同步日志
+     * @since 0.0.0
+     */
+    private SyncLog log(String dbName) throws IOException {
+        SyncLog log = logs.get(dbName);
+        if (log != null) return log;
+        synchronized (logs) {
+            log = logs.get(dbName);
+            if (log == null) {
+                log = SyncLog.open(new File(directory), dbName, segmentBytes);
+                log.recovered();
+                logs.put(dbName, log);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * <pre>
+     * 说明：保存一次提交事务的同步信息
+     * 实现步骤：
+     *   1) 按数据库名排序，获取所有涉及的同步日志
+     *     1. 获取失败，直接返回false
+     *   2) 按顺序持有所有日志的锁，为每个同步信息分配id并追加到日志中，释放锁
+     *   3) 使所有日志落盘，多个事务的落盘会被合并
+     *   4) 标记同步信息在所有日志中完成，等待所有日志中更早的同步信息也完成
+     *   5) 返回true
+     * 注意事项：
+     *   1. 按数据库名顺序加锁，不会死锁，也不需要DefaultSync的重试等待
+     *   2. 追加或落盘失败时日志状态未知，关闭服务，重启时恢复
+     * </pre>
+     *
+     * @param syncInfoMap 数据库与同步信息的映射
+     * @return 是否保存成功
+     */
+    @Override
+    public boolean save(Map<String, SyncInfoEntity> syncInfoMap) {
+        TreeMap<String, SyncInfoEntity> sorted = new TreeMap<>(syncInfoMap);
+        int n = sorted.size();
+        SyncLog[] arr = new SyncLog[n];
+        SyncInfoEntity[] infos = sorted.values().toArray(new SyncInfoEntity[0]);
+        String[] peers = n > 1 ? sorted.keySet().toArray(new String[0]) : null;
+        long[] ids = new long[n];
+        try {
+            int i = 0;
+            for (String dbName : sorted.keySet()) arr[i++] = log(dbName);
+        } catch (IOException e) {
+            ExceptionUtils.printStackTrace(e);
+            return false;
+        }
+
+        int locked = 0;
+        try {
+            for (; locked < n; locked++) arr[locked].lock();
+            for (int i = 0; i < n; i++) {
+                ids[i] = arr[i].lastId() + 1;
+                infos[i].setId(ids[i]);
+            }
+            for (int i = 0; i < n; i++) arr[i].append(infos[i], peers, ids);
+        } catch (IOException e) {
+            return fatal(e);
+        } finally {
+            while (locked > 0) arr[--locked].unlock();
+        }
+
+        try {
+            for (int i = 0; i < n; i++) arr[i].force(ids[i]);
+        } catch (IOException e) {
+            return fatal(e);
+        }
+        for (int i = 0; i < n; i++) arr[i].complete(ids[i]);
+        for (int i = 0; i < n; i++) arr[i].awaitStable(ids[i]);
+        return true;
+    }
+
+    private static boolean fatal(IOException e) {
+        ExceptionUtils.printStackTrace(e);
+        LauncherUtils.destroy(); // 关闭服务
+        return false;
+    }
+
+    /**
+     * <pre>
+     * 说明：检索database中last后已经提交的事务，最多返回一页
+     * 实现步骤：
+     *   1) 数据库不存在时返回null
+     *   2) 从同步日志中读取last+1开始的一页同步信息
+     *     1. last+1已被删除或未完成时返回null
+     * </pre>
+     *
+     * @param database 数据库名
+     * @param last 上次提交的同步信息id
+     * @return 已提交的事务列表
+     */
+    @Override
+    public List<SyncInfoEntity> retrieve(String database, Long last) throws SQLException {
+        SyncLog log = logs.get(database);
+        if (log == null) return null;
+        try {
+            return log.read(last + 1, Constant.Sync.SYNC_PAGE_ENTRIES, Constant.Sync.SYNC_PAGE_BYTES);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    @Override
+    public long firstSyncId(String database) {
+        SyncLog log = logs.get(database);
+        return log == null ? 0 : log.firstId();
+    }
+
+    /**
+     * <pre>
+     * 说明：删除database中id不大于checkpoint的同步信息
+     * 实现步骤：
+     *   1) checkpoint不小于执行事务数时，只删除到执行事务数-1，保留最新的同步信息
+     *   2) 删除所有同步信息都不大于checkpoint的段文件，部分同步信息不大于checkpoint的段保留
+     * </pre>
+     *
+     * @param database 数据库名
+     * @param checkpoint 检查点
+     */
+    @Override
+    public void truncate(String database, long checkpoint) throws SQLException {
+        SyncLog log = logs.get(database);
+        if (log == null) return;
+        try {
+            log.truncate(Math.min(checkpoint, log.lastId() - 1));
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    @Override
+    public Set<String> databases() {
+        return Collections.unmodifiableSet(logs.keySet());
+    }
+
+    /**
+     * <pre>
+     * 说明：得到一个数据库中执行事务数
+     * 实现步骤：
+     *   1) 返回数据库同步日志中最后分配的id，数据库不存在时返回0
+     * </pre>
+     *
+     * @param database 数据库名
+     * @return 执行事务数
+     */
+    @Override
+    public long transactionCount(String database) {
+        SyncLog log = logs.get(database);
+        return log == null ? 0 : log.lastId();
+    }
+}
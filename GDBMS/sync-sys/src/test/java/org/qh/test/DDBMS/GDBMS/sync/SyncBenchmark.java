@@ -0,0 +1,177 @@
+package org.qh.test.DDBMS.GDBMS.sync;
+
+import org.qh.DDBMS.GDBMS.sync.Sync;
+import org.qh.DDBMS.GDBMS.sync.dao.SyncDao;
+import org.qh.DDBMS.GDBMS.sync.impl.DefaultSync;
+import org.qh.DDBMS.GDBMS.sync.impl.LogSync;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version:
+ * @Description: 比较LogSync和DefaultSync保存与检索同步信息的吞吐量
+ *   参数：同步日志目录 [线程数] [每个线程的事务数] [jdbcUrl 用户名 密码]
+ *   每个事务保存到一个数据库，每10个事务有一个同时涉及两个数据库
+ *   传入jdbcUrl时，在该数据库中创建同步信息表并测试DefaultSync，输出两者保存吞吐量的比值
+ */
+public class SyncBenchmark {
+
+    private static final String[] DATABASES = {"bench_a", "bench_b"};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int transactions = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        LogSync logSync = new LogSync();
+        logSync.setDirectory(args[0]);
+        logSync.init();
+        double logRate = run("LogSync", logSync, threads, transactions);
+        logSync.destroy();
+
+        if (args.length > 5) {
+            DataSource dataSource = new SimpleDataSource(args[3], args[4], args[5]);
+            createTables(dataSource);
+            SyncDao syncDao = new SyncDao();
+            inject(syncDao, "dataSource", dataSource);
+            DefaultSync defaultSync = new DefaultSync();
+            inject(defaultSync, "syncDao", syncDao);
+            defaultSync.init();
+            double defaultRate = run("DefaultSync", defaultSync, threads, transactions);
+            System.out.printf("LogSync/DefaultSync: %.2fx%n", logRate / defaultRate);
+        }
+    }
+
+    private static double run(String name, Sync sync, int threads, int transactions) throws Exception {
+        long[] before = new long[DATABASES.length];
+        for (int i = 0; i < DATABASES.length; i++) before[i] = sync.transactionCount(DATABASES[i]);
+        AtomicLong txId = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    long id = txId.incrementAndGet();
+                    Map<String, SyncInfoEntity> map = new HashMap<>();
+                    map.put(DATABASES[(int) (id % DATABASES.length)], info(id));
+                    if (id % 10 == 0) map.put(DATABASES[(int) ((id + 1) % DATABASES.length)], info(id));
+                    if (!sync.save(map)) failed.incrementAndGet();
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        long saveNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long read = 0;
+        for (int i = 0; i < DATABASES.length; i++) {
+            long last = before[i];
+            List<SyncInfoEntity> page;
+            while ((page = sync.retrieve(DATABASES[i], last)) != null && !page.isEmpty()) {
+                read += page.size();
+                last = page.get(page.size() - 1).getId();
+            }
+        }
+        long retrieveNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: saved %d transactions (%d failed) in %d ms, %.0f tx/s; retrieved %d in %d ms%n",
+                name, txId.get(), failed.get(), saveNanos / 1000000, txId.get() * 1e9 / saveNanos,
+                read, retrieveNanos / 1000000);
+        return txId.get() * 1e9 / saveNanos;
+    }
+
+    private static SyncInfoEntity info(long id) {
+        return new SyncInfoEntity(null, new DBTransaction(id, 0, (byte) 0),
+                "UPDATE `account` SET `balance` = `balance` - 1 WHERE `id` = " + id + ";");
+    }
+
+    private static void createTables(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+            for (String db : DATABASES) {
+                statement.execute("CREATE TABLE IF NOT EXISTS `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + db +
+                        "` (`id` BIGINT PRIMARY KEY, `transaction_id` BIGINT, `transaction_type` INT, " +
+                        "`sql_statement` TEXT, `parameters` BLOB);");
+            }
+        }
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    private static class SimpleDataSource implements DataSource {
+        private final String url;
+        private final String user;
+        private final String password;
+
+        private SimpleDataSource(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(url, user, password);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return DriverManager.getConnection(url, username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("Not a wrapper.");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
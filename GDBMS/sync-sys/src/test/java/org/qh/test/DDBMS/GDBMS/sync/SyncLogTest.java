@@ -0,0 +1,232 @@
+package org.qh.test.DDBMS.GDBMS.sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.GDBMS.sync.dao.SyncLog;
+import org.qh.DDBMS.GDBMS.sync.impl.LogSync;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试SyncLog和LogSync宕机后的恢复，以及跨段读取
+ */
+public class SyncLogTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("sync_log").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    /**
+     * 说明：当前段末尾有不完整的记录时，截断到最后一条完整的记录
+     */
+    @Test
+    public void tornTailIsTruncated() throws IOException {
+        SyncLog log = SyncLog.open(root, "a", 1 << 20);
+        log.recovered();
+        append(log, 1, 2, 3);
+        log.close();
+
+        File segment = segments("a")[0];
+        long size = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(size);
+            file.writeInt(64); // 长度为64的记录只写入了一部分
+            file.write(new byte[10]);
+        }
+
+        log = SyncLog.open(root, "a", 1 << 20);
+        log.recovered();
+        assertEquals(3, log.lastId());
+        assertEquals(size, segment.length());
+        assertIds(log.read(1, 10, Long.MAX_VALUE), 1, 2, 3);
+        append(log, 4);
+        assertIds(log.read(4, 10, Long.MAX_VALUE), 4);
+        log.close();
+    }
+
+    /**
+     * 说明：当前段末尾的记录CRC32不一致时，丢弃该记录
+     */
+    @Test
+    public void corruptedTailIsTruncated() throws IOException {
+        SyncLog log = SyncLog.open(root, "a", 1 << 20);
+        log.recovered();
+        append(log, 1, 2);
+        log.close();
+
+        File segment = segments("a")[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(segment.length() - 1);
+            int b = file.read();
+            file.seek(segment.length() - 1);
+            file.write(b ^ 0xff);
+        }
+
+        log = SyncLog.open(root, "a", 1 << 20);
+        log.recovered();
+        assertEquals(1, log.lastId());
+        assertIds(log.read(1, 10, Long.MAX_VALUE), 1);
+        log.close();
+    }
+
+    /**
+     * 说明：涉及两个数据库的同步信息只写入了一个日志时，恢复时丢弃该同步信息
+     */
+    @Test
+    public void incompleteCommitIsDiscarded() throws Exception {
+        LogSync sync = logSync();
+        sync.save(Collections.singletonMap("a", info(1)));
+        sync.save(Collections.singletonMap("b", info(1)));
+        Map<String, SyncInfoEntity> map = new HashMap<>();
+        map.put("a", info(2));
+        map.put("b", info(2));
+        assertTrue(sync.save(map));
+        assertEquals(2, sync.transactionCount("a"));
+        assertEquals(2, sync.transactionCount("b"));
+        sync.destroy();
+
+        File segment = segments("b")[0];
+        long size = firstRecordSize(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(size); // b的日志丢失了第二条同步信息
+        }
+
+        sync = logSync();
+        assertEquals(1, sync.transactionCount("a"));
+        assertEquals(1, sync.transactionCount("b"));
+        assertIds(sync.retrieve("a", 0L), 1);
+        assertNull(sync.retrieve("a", 1L));
+        sync.destroy();
+    }
+
+    /**
+     * 说明：涉及的数据库的日志不存在时，恢复时丢弃该同步信息
+     */
+    @Test
+    public void missingPeerIsDiscarded() throws Exception {
+        LogSync sync = logSync();
+        sync.save(Collections.singletonMap("a", info(1)));
+        Map<String, SyncInfoEntity> map = new HashMap<>();
+        map.put("a", info(2));
+        map.put("b", info(2));
+        assertTrue(sync.save(map));
+        sync.destroy();
+
+        delete(new File(root, "b"));
+
+        sync = logSync();
+        assertEquals(1, sync.transactionCount("a"));
+        assertEquals(0, sync.transactionCount("b"));
+        assertIds(sync.retrieve("a", 0L), 1);
+        sync.destroy();
+    }
+
+    /**
+     * 说明：段文件写满后新建段，读取可以跨越段，已删除的段不能读取
+     */
+    @Test
+    public void readAcrossSegments() throws IOException {
+        SyncLog log = SyncLog.open(root, "a", 256);
+        log.recovered();
+        long[] ids = new long[20];
+        for (int i = 0; i < ids.length; i++) ids[i] = i + 1;
+        append(log, ids);
+        assertTrue(segments("a").length > 2);
+
+        assertIds(log.read(1, 100, Long.MAX_VALUE), ids);
+        assertIds(log.read(5, 3, Long.MAX_VALUE), 5, 6, 7);
+        assertEquals(1, log.read(5, 3, 1).size());
+        assertNull(log.read(21, 10, Long.MAX_VALUE));
+
+        long removed = log.truncate(10);
+        assertTrue(removed > 0);
+        assertEquals(removed + 1, log.firstId());
+        assertNull(log.read(1, 10, Long.MAX_VALUE));
+        assertEquals(20 - removed, log.read(removed + 1, 100, Long.MAX_VALUE).size());
+        log.close();
+
+        log = SyncLog.open(root, "a", 256);
+        log.recovered();
+        assertEquals(20, log.lastId());
+        assertEquals(removed + 1, log.firstId());
+        assertEquals(20 - removed, log.read(removed + 1, 100, Long.MAX_VALUE).size());
+        log.close();
+    }
+
+    private LogSync logSync() throws IOException {
+        LogSync sync = new LogSync();
+        sync.setDirectory(root.getPath());
+        sync.setSegmentBytes(1 << 20);
+        sync.init();
+        return sync;
+    }
+
+    private static void append(SyncLog log, long... ids) throws IOException {
+        for (long id : ids) {
+            log.lock();
+            try {
+                log.append(info(id), null, null);
+            } finally {
+                log.unlock();
+            }
+            log.force(id);
+            log.complete(id);
+        }
+    }
+
+    private static SyncInfoEntity info(long id) {
+        SyncInfoEntity info = new SyncInfoEntity(null, new DBTransaction(id, 0, (byte) 0),
+                "UPDATE `account` SET `balance` = `balance` - 1 WHERE `id` = " + id + ";");
+        info.setId(id);
+        return info;
+    }
+
+    private static void assertIds(List<SyncInfoEntity> list, long... ids) {
+        assertNotNull(list);
+        long[] res = new long[list.size()];
+        for (int i = 0; i < res.length; i++) res[i] = list.get(i).getId();
+        assertEquals(Arrays.toString(ids), Arrays.toString(res));
+    }
+
+    private File[] segments(String name) {
+        File[] files = new File(root, name).listFiles((d, n) -> n.endsWith(".log"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long firstRecordSize(File segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            return 4 + file.readInt();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+}
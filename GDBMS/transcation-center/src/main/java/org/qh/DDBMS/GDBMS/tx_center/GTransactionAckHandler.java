@@ -45,17 +45,19 @@ public class GTransactionAckHandler {
      * 规范：
      *   1) 注解：@AckHandler(COMMIT_DBTRANSACTION)
      * 实现步骤：
-     *   1) 调用center的commit方法
+     *   1) 空的parameters表示没有绑定参数，转换为null
+     *   2) 调用center的commit方法
      * </pre>
      *
      * @param dbName 数据库名
      * @param transaction 数据库事务
      * @param sqlStatement 执行的sql语句
+     * @param parameters 序列化后的绑定参数
      * @since 0.0.0
      */
     @AckHandler(Constant.ACKType.COMMIT_TYPE)
-    public void commit(String dbName, DBTransaction transaction, String sqlStatement) {
-        center.commit(dbName, transaction, sqlStatement);
+    public void commit(String dbName, DBTransaction transaction, String sqlStatement, byte[] parameters) {
+        center.commit(dbName, transaction, sqlStatement, parameters.length == 0 ? null : parameters);
     }
 }
 
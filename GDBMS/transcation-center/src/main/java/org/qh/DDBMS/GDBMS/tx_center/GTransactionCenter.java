@@ -52,9 +52,10 @@ public interface GTransactionCenter {
      * @param dbName String 数据库名称
      * @param transaction DBTransaction 第一个事务
      * @param sqlStatement String 数据库上执行的sql
+     * @param parameters byte[] 序列化后的绑定参数，可以为null
      * @since 0.0.0
      */
-    void commit(String dbName, DBTransaction transaction, String sqlStatement);
+    void commit(String dbName, DBTransaction transaction, String sqlStatement, byte[] parameters);
 
 }
 
@@ -215,11 +215,12 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * @param dbName 数据库名称
      * @param transaction 事务实例
      * @param sqlState 数据库执行的sql语句
+     * @param parameters 序列化后的绑定参数
      */
-    public void commit(String dbName, DBTransaction transaction, String sqlState) {
+    public void commit(String dbName, DBTransaction transaction, String sqlState, byte[] parameters) {
         if (transaction.getType() != TRANSACTION_TYPE) {
-            commitLTransaction(dbName, transaction, sqlState);
-        } else commitGTransaction(dbName, transaction, sqlState);
+            commitLTransaction(dbName, transaction, sqlState, parameters);
+        } else commitGTransaction(dbName, transaction, sqlState, parameters);
     }
 
     /**
@@ -231,11 +232,13 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * @param dbName 数据库名
      * @param transaction 需要提交的事务
      * @param sqlState 事务在该数据库中执行的所有修改数据库的sql语句
+     * @param parameters 序列化后的绑定参数
      * @since 0.0.0
      */
-    private void commitLTransaction(String dbName, DBTransaction transaction, String sqlState) {
+    private void commitLTransaction(String dbName, DBTransaction transaction,
+                                    String sqlState, byte[] parameters) {
         HashMap<String, SyncInfoEntity> map = new HashMap<>();
-        map.put(dbName, new SyncInfoEntity(null, transaction, sqlState));
+        map.put(dbName, new SyncInfoEntity(null, transaction, sqlState, parameters));
         if (sync.save(map)) success(transaction, map);
         else fail(transaction, Constant.TransactionCenter.FAILURE);
     }
@@ -256,9 +259,11 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * @param dbName 数据库名称
      * @param transaction 事务实例
      * @param sqlState 数据库执行的sql语句
+     * @param parameters 序列化后的绑定参数
      * @since 0.0.0
      */
-    private void commitGTransaction(String dbName, DBTransaction transaction, String sqlState) {
+    private void commitGTransaction(String dbName, DBTransaction transaction,
+                                    String sqlState, byte[] parameters) {
         verifyGTransaction(transaction);
         if (!updatedDB.containsKey(transaction)) return;
         if (!updatedDB.get(transaction).contains(dbName)) return;
@@ -270,7 +275,7 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
             return;
         }
 
-        map.put(dbName, new SyncInfoEntity(null, transaction, sqlState));
+        map.put(dbName, new SyncInfoEntity(null, transaction, sqlState, parameters));
 
         doCommitGTransaction(transaction);
     }
@@ -363,7 +368,7 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
                     TimeUnit.MILLISECONDS);
         } else if (reason == Constant.TransactionCenter.FAILURE) {
             if (transaction.getType() != TRANSACTION_TYPE) return;
-            notifyClient(client.get(transaction), transaction, Constant.ACKType.DBTRANSACTION_FAILURE, true);
+            notifyClient(client.get(transaction), Constant.ACKType.DBTRANSACTION_FAILURE, true, transaction);
             removeTransaction(transaction);
         }
     }
@@ -373,7 +378,7 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * 说明：事务成功执行
      * 实现步骤：
      *   1) 获取事务对应的client
-     *   2) 告知事务执行成功
+     *   2) 告知事务执行成功，并附带各数据库的同步信息id作为一致性令牌
      *   3) 告知LDBMS，事务允许提交
      *   4) 清除事务有关缓存信息
      * </pre>
@@ -381,7 +386,11 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * @param transaction 事务实例
      */
     private void success(DBTransaction transaction, Map<String, SyncInfoEntity> map) {
-        notifyClient(client.get(transaction), transaction, Constant.ACKType.DBTRANSACTION_SUCCESS, false);
+        HashMap<String, Long> token = new HashMap<>();
+        for (Map.Entry<String, SyncInfoEntity> entry : map.entrySet()) {
+            token.put(entry.getKey(), entry.getValue().getId());
+        }
+        notifyClient(client.get(transaction), Constant.ACKType.DBTRANSACTION_SUCCESS, false, transaction, token);
         notifyLDBMS(transaction, map, Constant.ACKType.RESPONSE_COMMIT_TYPE, false);
         removeTransaction(transaction);
     }
@@ -391,14 +400,15 @@ public class DefaultGTransactionCenter implements GTransactionCenter {
      * 实现步骤：
      *   1. client为null，则返回（不是全局事务）
      *   2. 构建通知事务提交成功的ACK协议，并将协议内容发送出去
-     * @param transaction 需要提交的事务
+     * @param ackType ACK协议类型
+     * @param data 协议附带的数据，第一个为事务实例
      *
      * @since 0.0.0
      */
-    private void notifyClient(String clientName, DBTransaction transaction, short ackType, boolean sync) {
+    private void notifyClient(String clientName, short ackType, boolean sync, Object... data) {
         if (clientName == null) return;
         try {
-            sender.send(clientName, new ACKProtocol(ackType, transaction), null, sync);
+            sender.send(clientName, new ACKProtocol(ackType, data), null, sync);
         } catch (Exception e) {
             ExceptionUtils.printStackTrace(e);
         }
@@ -41,7 +41,7 @@ public interface DBLock {
     /**
      * 说明：获取一个事务需要的资源列表
      * @param transaction 需要解锁的事务
-     * @return List<DBResource> 释放的资源列表
+     * @return List<DBResource> 事务登记的资源列表，没有登记时返回空列表
      */
     List<DBResource> resources(DBTransaction transaction);
 
@@ -125,7 +125,7 @@ public class DefaultDBLock implements DBLock {
      *   1) 获取事务对应的List<DBResource>
      *   2) 按先后顺序循环取出DBResource
      *     1. 判定当前DBResource是表资源则调用lockTable方法。
-     *       - 判定条件：rowID == null
+     *       - 判定条件：rowId == 0
      *     2. 判断当前DBResource是行资源则调用lockRow方法
      *       - 判定条件：rowId和tableId均不为null
      *     3. 其他情况抛出异常
@@ -189,7 +189,8 @@ public class DefaultDBLock implements DBLock {
      * 说明：获取一个事务需要的资源列表
      * 实现步骤：
      *   1. 从transactionResourceMap获取事务的资源列表list
-     *   2. 将list封装为不可更改的list，并返回
+     *   2. list不存在，返回空列表
+     *   3. 将list封装为不可更改的list，并返回
      * </pre>
      * @param transaction 需要解锁的事务
      * @return transaction对应的资源列表
@@ -197,7 +198,8 @@ public class DefaultDBLock implements DBLock {
      */
     @Override
     public List<DBResource> resources(DBTransaction transaction) {
-        return Collections.unmodifiableList(transactionResourceMap.get(transaction));
+        List<DBResource> list = transactionResourceMap.get(transaction);
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
     }
 
     /**
@@ -374,7 +376,7 @@ public class DefaultDBLock implements DBLock {
      * 说明：获取等待当前表资源或当前表中行资源的最年老事务
      * 实现步骤：
      *   1) 获取表对应所有等待事务
-     *   2) 返回所有事务中最年老的事务
+     *   2) 返回所有事务中最年老的事务，没有等待事务时返回null
      * </pre>
      * @param table 表资源
      * @return 等待有关该表资源的最年老事务
@@ -382,7 +384,7 @@ public class DefaultDBLock implements DBLock {
      */
     private DBTransaction getOlderWaitTransaction(DBResource table) {
         TreeSet<DBTransaction> tree = tableWaiterMap.get(table.getTableId());
-        return tree.first();
+        return tree == null || tree.isEmpty() ? null : tree.first();
     }
 
     /**
@@ -390,7 +392,7 @@ public class DefaultDBLock implements DBLock {
      * 说明：获取封锁当前表资源或当前表中行资源的最年老事务
      * 实现步骤：
      *   1) 获取所有封锁有关该表资源的事务
-     *   2) 返回所有事务中最年老的事务
+     *   2) 返回所有事务中最年老的事务，没有封锁事务时返回null
      * </pre>
      * @param table table 表资源
      * @return 封锁有关该表资源的最年老事务
@@ -398,7 +400,7 @@ public class DefaultDBLock implements DBLock {
      */
     private DBTransaction getOlderOwnerTransaction(DBResource table) {
         TreeSet<DBTransaction> tree = tableOwnerMap.get(table.getTableId());
-        return tree.first();
+        return tree == null || tree.isEmpty() ? null : tree.first();
     }
 
     /**
@@ -414,7 +416,7 @@ public class DefaultDBLock implements DBLock {
      */
     private void removeWaitTransaction(DBResource table, DBTransaction transaction) {
         TreeSet<DBTransaction> tree = tableWaiterMap.get(table.getTableId());
-        tree.remove(transaction);
+        if (tree != null) tree.remove(transaction);
     }
 
     /**
@@ -430,7 +432,7 @@ public class DefaultDBLock implements DBLock {
      */
     private void removeOwnerTransaction(DBResource table, DBTransaction transaction) {
         TreeSet<DBTransaction> tree = tableOwnerMap.get(table.getTableId());
-        tree.remove(transaction);
+        if (tree != null) tree.remove(transaction);
     }
 
     /**
@@ -501,7 +503,7 @@ public class DefaultDBLock implements DBLock {
      */
     private synchronized boolean lockRow(DBTransaction transaction, DBResource row) {
         boolean waited = false;
-        DBResource table = new DBResource(row.getTableId(), null);
+        DBResource table = new DBResource(row.getTableId(), 0L);
         DBTransaction lockedTransaction = null;
         while (true) {
             lockedTransaction = resourceMap.getOrDefault(row, resourceMap.get(table));
@@ -533,7 +535,7 @@ public class DefaultDBLock implements DBLock {
     private void lockRow0(DBTransaction transaction, DBResource row, boolean waited) {
         if (waited) {
             waiter.remove(row);
-            removeWaitTransaction(new DBResource(row.getTableId(), null), transaction);
+            removeWaitTransaction(new DBResource(row.getTableId(), 0L), transaction);
             transactionThreadMap.remove(transaction);
         }
         resourceMap.put(row, transaction);
@@ -645,7 +647,7 @@ public class DefaultDBLock implements DBLock {
      * @since 0.0.0
      */
     private void unlockRow(DBResource row) {
-        DBResource table = new DBResource(row.getTableId(), null);
+        DBResource table = new DBResource(row.getTableId(), 0L);
         synchronized (this) {
             DBTransaction wt = waiter.getOrDefault(row, waiter.get(table));
             if (wt != null) {
@@ -1,11 +1,14 @@
 package org.qh.DDBMS.LDBMS.ms_sync;
 
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
 import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.ack.AckHandler;
 import org.qh.DDBMS.common.input.ServerConfig;
 import org.qh.DDBMS.common.output.DDBMSSender;
 import org.qh.DDBMS.common.protocol.RequestSyncInfoProtocol;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
 
 import javax.annotation.Resource;
 
@@ -44,6 +47,14 @@ public class MSSyncAckHandler {
     @Resource
     private ServerConfig serverConfig;
 
+    /**
+     * <pre>
+     * 说明：用于删除检查点之前的同步信息
+     * </pre>
+     */
+    @Resource
+    private SyncDao syncDao;
+
     /**
      * <pre>
      * 说明：处理收到缺失事务协议
@@ -64,22 +75,31 @@ public class MSSyncAckHandler {
 
         sender.send(site, protocol, null, false);
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    /**
+     * <pre>
+     * 说明：处理GDBMS下发的同步信息检查点
+     * 注解：AckHandler(SYNC_CHECKPOINT)
+     * 实现步骤：
+     *   1) 判定不是当前站点负责的数据库，忽略
+     *   2) 检查点不超过提交事务数-1，保留最新的同步信息，保证重启后能恢复提交事务数
+     *   3) 异步删除id不大于检查点的同步信息，不阻塞ack处理线程
+     * </pre>
+     * @param dbName 数据库名
+     * @param checkpoint 检查点
+     * @since 0.0.0
+     */
+    @AckHandler(Constant.ACKType.SYNC_CHECKPOINT)
+    public void handleCheckpoint(String dbName, Long checkpoint) {
+        if (!serverConfig.dbName().equals(dbName)) return;
+        long cp = Math.min(checkpoint, txCenter.transactionCount() - 1);
+        if (cp <= 0) return;
+        ThreadUtils.execute(() -> {
+            try {
+                syncDao.deleteSyncInfoLE(dbName, cp);
+            } catch (Exception e) {
+                ExceptionUtils.printStackTrace(e);
+            }
+        });
+    }
+}
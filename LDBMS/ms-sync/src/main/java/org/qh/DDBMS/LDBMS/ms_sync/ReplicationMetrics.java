@@ -0,0 +1,51 @@
+package org.qh.DDBMS.LDBMS.ms_sync;
+
+import org.qh.DDBMS.common.entity.ReplicationStatus;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 统计当前站点作为辅站点时复制状态的接口
+ */
+public interface ReplicationMetrics {
+
+    /**
+     * <pre>
+     * 说明：记录收到的同步信息
+     * </pre>
+     * @param maxSyncId long 收到的同步信息中最大的id
+     * @since 0.0.0
+     */
+    void received(long maxSyncId);
+
+    /**
+     * <pre>
+     * 说明：记录一次补全同步信息的请求
+     * </pre>
+     * @since 0.0.0
+     */
+    void catchUpRequested();
+
+    /**
+     * <pre>
+     * 说明：记录一次新发现的同步信息缺失
+     * 规范：
+     *   1) 同一处缺失持续存在时只记录一次
+     * </pre>
+     * @since 0.0.0
+     */
+    void gapDetected();
+
+    /**
+     * <pre>
+     * 说明：获取当前的复制状态
+     * 规范：
+     *   1) 方法不能阻塞
+     * </pre>
+     * @return ReplicationStatus 复制状态
+     * @since 0.0.0
+     */
+    ReplicationStatus status();
+}
@@ -0,0 +1,60 @@
+package org.qh.DDBMS.LDBMS.ms_sync;
+
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+
+import java.util.function.LongConsumer;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 在辅站点上应用同步信息的接口
+ */
+public interface SyncApplier {
+
+    /**
+     * <pre>
+     * 说明：提交一个需要应用的同步信息
+     * 规范：
+     *   1) 调用方按id连续递增的顺序提交同步信息
+     *   2) 读写的表不相交的同步信息可以并发应用，相交的按id顺序应用
+     *   3) 方法不等待同步信息应用完成
+     * </pre>
+     * @param info SyncInfoEntity 同步信息
+     * @since 0.0.0
+     */
+    void submit(SyncInfoEntity info);
+
+    /**
+     * <pre>
+     * 说明：装载快照后，丢弃重启时恢复的已经提交的同步信息id，重新读取表之间的依赖关系
+     * 规范：
+     *   1) 快照替换了同步信息表，重启时记录的id不再有效，之后收到的同步信息都需要应用
+     *   2) 快照替换了表、视图和触发器，之后的同步信息按快照中的外键和触发器判定冲突
+     * </pre>
+     * @since 0.0.0
+     */
+    void snapshotInstalled();
+
+    /**
+     * <pre>
+     * 说明：获取已经提交但尚未连续应用完成的同步信息数
+     * </pre>
+     * @return int 同步信息数
+     * @since 0.0.0
+     */
+    int pending();
+
+    /**
+     * <pre>
+     * 说明：注册一个水位推进后执行的监听器
+     * 规范：
+     *   1) 水位为连续应用完成的最大同步信息id，只增不减
+     *   2) 监听器不在SyncApplier的锁中执行
+     * </pre>
+     * @param listener LongConsumer 监听器，参数为推进后的水位
+     * @since 0.0.0
+     */
+    void addWatermarkListener(LongConsumer listener);
+}
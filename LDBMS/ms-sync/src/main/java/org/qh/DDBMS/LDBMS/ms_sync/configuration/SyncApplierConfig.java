@@ -0,0 +1,45 @@
+package org.qh.DDBMS.LDBMS.ms_sync.configuration;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 用于获取有关SyncApplier配置信息的接口
+ */
+public interface SyncApplierConfig {
+
+    /**
+     * <pre>
+     * 说明：获取同时应用同步信息的最大线程数
+     * 规范：
+     *   1) 小于等于1时按id顺序逐个应用同步信息
+     * </pre>
+     * @return 最大线程数
+     * @since 0.0.0
+     */
+    int applyThreads();
+
+    /**
+     * <pre>
+     * 说明：获取一个数据库事务最多应用的同步信息数
+     * 规范：
+     *   1) 相邻且可以一起启动的同步信息在一个数据库事务中应用，减少追赶时的提交次数
+     *   2) 小于等于1时每个同步信息单独提交
+     * </pre>
+     * @return 最大同步信息数
+     * @since 0.0.0
+     */
+    int batchEntries();
+
+    /**
+     * <pre>
+     * 说明：获取一个数据库事务最多应用的同步信息字节数，即sql语句和绑定参数的长度之和
+     * 规范：
+     *   1) 第一个同步信息总是被应用，即使其超过该值
+     * </pre>
+     * @return 最大字节数
+     * @since 0.0.0
+     */
+    long batchBytes();
+}
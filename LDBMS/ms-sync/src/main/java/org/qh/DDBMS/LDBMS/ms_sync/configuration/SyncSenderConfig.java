@@ -0,0 +1,32 @@
+package org.qh.DDBMS.LDBMS.ms_sync.configuration;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 用于获取有关SyncSender配置信息的接口
+ */
+public interface SyncSenderConfig {
+
+    /**
+     * <pre>
+     * 说明：获取同步信息合并发送的窗口，单位ms
+     * 规范：
+     *   1) 一个窗口内到达的同步信息合并为一个协议发送给从站点
+     *   2) 小于等于0时每个同步信息到达后立即发送
+     * </pre>
+     * @return 合并发送的窗口
+     * @since 0.0.0
+     */
+    long batchWindow();
+
+    /**
+     * <pre>
+     * 说明：获取一次合并发送的最大同步信息数，达到后不等待窗口结束立即发送
+     * </pre>
+     * @return 最大同步信息数
+     * @since 0.0.0
+     */
+    int batchSize();
+}
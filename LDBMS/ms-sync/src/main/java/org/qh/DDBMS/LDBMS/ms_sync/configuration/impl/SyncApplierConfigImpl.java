@@ -0,0 +1,33 @@
+package org.qh.DDBMS.LDBMS.ms_sync.configuration.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.ms_sync.configuration.SyncApplierConfig;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: SyncApplierConfig实现类
+ */
+@Setter
+public class SyncApplierConfigImpl implements SyncApplierConfig {
+    private int applyThreads = Runtime.getRuntime().availableProcessors(); // 同时应用同步信息的最大线程数
+    private int batchEntries = 64; // 一个数据库事务最多应用的同步信息数
+    private long batchBytes = 1024 * 1024; // 一个数据库事务最多应用的同步信息字节数
+
+    @Override
+    public int applyThreads() {
+        return this.applyThreads;
+    }
+
+    @Override
+    public int batchEntries() {
+        return this.batchEntries;
+    }
+
+    @Override
+    public long batchBytes() {
+        return this.batchBytes;
+    }
+}
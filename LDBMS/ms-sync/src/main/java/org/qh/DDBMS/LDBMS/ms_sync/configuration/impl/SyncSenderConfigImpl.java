@@ -0,0 +1,27 @@
+package org.qh.DDBMS.LDBMS.ms_sync.configuration.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.ms_sync.configuration.SyncSenderConfig;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: SyncSenderConfig实现类
+ */
+@Setter
+public class SyncSenderConfigImpl implements SyncSenderConfig {
+    private long batchWindow = 2; // 同步信息合并发送的窗口，单位ms
+    private int batchSize = 128; // 一次合并发送的最大同步信息数
+
+    @Override
+    public long batchWindow() {
+        return this.batchWindow;
+    }
+
+    @Override
+    public int batchSize() {
+        return this.batchSize;
+    }
+}
@@ -0,0 +1,549 @@
+package org.qh.DDBMS.LDBMS.ms_sync.dao;
+
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.StatementCache;
+import org.qh.DDBMS.common.protocol.SnapshotProtocol;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description:
+ *   1. 生产数据库快照需要的sql语句，按块读取快照，包括表、存储过程、函数、视图和触发器
+ *   2. 在从站点上装载快照
+ */
+public class SnapshotDao {
+
+    /**
+     * <pre>
+     * 说明：一条语句最多可以绑定的参数个数
+     * </pre>
+     */
+    private static final int MAX_PARAMETERS = 65535;
+
+    /**
+     * <pre>
+     * 说明：对象定义中的DEFINER子句，从站点上不一定存在该用户，重建对象时去掉
+     * </pre>
+     */
+    private static final String DEFINER = "\\sDEFINER\\s*=\\s*(`[^`]*`|'[^']*'|\\S+)@(`[^`]*`|'[^']*'|\\S+)";
+
+    /**
+     * <pre>
+     * 说明：获取数据库连接的数据源
+     * </pre>
+     */
+    @Resource
+    private DataSource dataSource;
+
+    /**
+     * <pre>
+     * 说明：开启一个数据库快照
+     * 实现步骤：
+     *   1) 获取连接，使用REPEATABLE READ隔离级别开启一致性快照事务
+     *   2) 在快照中查询同步信息表的最小id、最大id和行数
+     *     1. 行数不等于max-min+1，说明有并发提交的事务尚未提交完成，回滚并稍后重试
+     *     2. 重试SNAPSHOT_RETRY_TIMES次仍然失败，抛出异常
+     *   3) 读取除同步信息表外的所有表名
+     *   4) 返回快照游标
+     * </pre>
+     * @param dbName 数据库名
+     * @param session 请求者的快照会话id，写入该快照的每一块
+     * @return 快照游标
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public Cursor open(String dbName, long session) throws SQLException {
+        String syncInfoTable = Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName;
+        String stat = "select ifnull(min(`id`), 0), ifnull(max(`id`), 0), count(*) from `" + syncInfoTable + "`;";
+        Connection conn = dataSource.getConnection();
+        try {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            for (int i = 0; i < Constant.Sync.SNAPSHOT_RETRY_TIMES; i++) {
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT;");
+                    try (ResultSet rs = statement.executeQuery(stat)) {
+                        rs.next();
+                        long min = rs.getLong(1), max = rs.getLong(2), count = rs.getLong(3);
+                        if (max == 0 || count == max - min + 1) {
+                            return new Cursor(conn, syncInfoTable, session, max, tables(conn));
+                        }
+                    }
+                }
+                conn.rollback();
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+        conn.close();
+        throw new SQLException("The sync info of " + dbName + " is not contiguous.");
+    }
+
+    /**
+     * 说明：读取当前库中除同步信息表外的所有表名
+     * @param conn 数据库连接
+     * @return 按名称排序的表名
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private static Iterator<String> tables(Connection conn) throws SQLException {
+        TreeSet<String> res = new TreeSet<>();
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                if (!table.startsWith(Constant.Sync.SYNC_INFO_TABLE_PREFIX)) res.add(table);
+            }
+        }
+        return res.iterator();
+    }
+
+    /**
+     * <pre>
+     * 说明：开启一次快照装载
+     * 实现步骤：
+     *   1) 获取连接，关闭该连接的外键检查，关闭自动提交
+     *   2) 返回装载器
+     * 注意事项：
+     *   1. 表按名称顺序装载，子表可能先于父表装载，整个装载过程都需要关闭外键检查
+     * </pre>
+     * @return 快照装载器
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public Loader openLoader() throws SQLException {
+        Connection conn = dataSource.getConnection();
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("SET FOREIGN_KEY_CHECKS = 0;");
+            conn.setAutoCommit(false);
+            return new Loader(conn);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：清空从站点的同步信息表
+     * 注意事项：
+     *   1. 在装载快照前执行，装载中断后重启的站点会从0开始请求同步信息，进而重新请求快照
+     * </pre>
+     * @param dbName 数据库名
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public void clearSyncInfo(String dbName) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.executeUpdate("DELETE FROM `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName + "`;");
+        }
+    }
+
+    /**
+     * 说明：使用一条多行insert语句写入rows
+     * @param conn 数据库连接
+     * @param table 表名
+     * @param columns 列名
+     * @param rows 行
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private static void insert(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        StringBuilder row = new StringBuilder("(");
+        StringBuilder sql = new StringBuilder("INSERT INTO `").append(table).append("` (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                row.append(", ");
+            }
+            sql.append('`').append(columns[i]).append('`');
+            row.append('?');
+        }
+        row.append(')');
+        sql.append(") VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(row);
+        }
+        Object[] parameters = new Object[rows.size() * columns.length];
+        for (int i = 0; i < rows.size(); i++) {
+            System.arraycopy(rows.get(i), 0, parameters, i * columns.length, columns.length);
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql.append(';').toString())) {
+            StatementCache.bind(ps, parameters);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 说明：在从站点上装载一次快照，所有块使用同一个关闭了外键检查的连接
+     * 注意事项：
+     *   1. 非线程安全，调用方需要保证同一时刻只有一个线程使用
+     */
+    public static class Loader implements AutoCloseable {
+        private final Connection conn; // 关闭了外键检查的连接
+
+        private Loader(Connection conn) {
+            this.conn = conn;
+        }
+
+        /**
+         * <pre>
+         * 说明：装载一块快照
+         * 实现步骤：
+         *   1) 判定table为空串，rows中每一行是一条语句，依次执行后返回
+         *   2) 判定ddl不为空，删除同名表并使用ddl重新建表
+         *   3) 使用多行insert批量写入rows
+         *   4) 提交
+         * </pre>
+         * @param table 表名，为空串时表示存储过程、函数、视图和触发器的定义
+         * @param ddl 建表语句，可以为空串
+         * @param columns 列名
+         * @param rows 行
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        public void load(String table, String ddl, String[] columns, List<Object[]> rows) throws SQLException {
+            if (table.isEmpty()) {
+                try (Statement statement = conn.createStatement()) {
+                    for (Object[] row : rows) statement.execute((String) row[0]);
+                }
+                conn.commit();
+                return;
+            }
+            if (!ddl.isEmpty()) {
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS `" + table + "`;");
+                    statement.execute(ddl);
+                }
+            }
+            insert(conn, table, columns, rows);
+            conn.commit();
+        }
+
+        /**
+         * <pre>
+         * 说明：写入快照中最后一个同步信息
+         * </pre>
+         * @param dbName 数据库名
+         * @param columns 同步信息表的列名
+         * @param rows id等于快照syncId的同步信息，快照为空时没有行
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        public void installSyncInfo(String dbName, String[] columns, List<Object[]> rows) throws SQLException {
+            insert(conn, Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName, columns, rows);
+            conn.commit();
+        }
+
+        /**
+         * 说明：回滚未提交的块，重新开启外键检查并关闭连接
+         * @since 0.0.0
+         */
+        @Override
+        public void close() throws SQLException {
+            try (Statement statement = conn.createStatement()) {
+                conn.rollback();
+                statement.execute("SET FOREIGN_KEY_CHECKS = 1;");
+            } finally {
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * 说明：一个打开的数据库快照，按块读取各个表
+     * 注意事项：
+     *   1. 非线程安全，调用方需要保证同一时刻只有一个线程使用
+     *   2. 表的行是流式读取的，读取期间连接上不能执行其他语句，一张表读取完成后才读取下一张表的建表语句
+     *   3. 存储过程、函数、视图和触发器在所有表之后作为一块发送，此时它们引用的表都已经装载
+     */
+    public static class Cursor implements AutoCloseable {
+        private final Connection conn; // 开启了一致性快照事务的连接
+        private final String syncInfoTable; // 同步信息表名
+        private final long session; // 请求者的快照会话id
+        private final long syncId; // 快照包含的最大同步信息id
+        private final Iterator<String> tables; // 尚未读取的表
+        private String table; // 正在读取的表
+        private String[] columns; // 正在读取的表的列名
+        private String ddl; // 正在读取的表的建表语句，发送后置为空串
+        private Statement statement; // 正在读取的表的查询语句
+        private ResultSet rs; // 正在读取的表的结果集
+        private boolean exhausted; // 正在读取的表的结果集是否已经读取完
+        private boolean objectsSent; // 存储过程、函数、视图和触发器是否已经发送
+        private volatile long lastAccess = System.currentTimeMillis(); // 最后一次读取的时间
+
+        private Cursor(Connection conn, String syncInfoTable, long session, long syncId, Iterator<String> tables) {
+            this.conn = conn;
+            this.syncInfoTable = syncInfoTable;
+            this.session = session;
+            this.syncId = syncId;
+            this.tables = tables;
+        }
+
+        /**
+         * <pre>
+         * 说明：读取快照的下一块
+         * 实现步骤：
+         *   1) 当前没有正在读取的表
+         *     1. 没有尚未读取的表且对象定义尚未发送，返回对象定义块，没有对象时跳过
+         *     2. 没有尚未读取的表，返回包含id等于syncId的同步信息的结束块
+         *     3. 否则读取下一张表的建表语句，并流式查询该表的所有行
+         *   2) 读取最多SNAPSHOT_CHUNK_ROWS行，且行数*列数不超过MAX_PARAMETERS，行占用的字节数不超过SNAPSHOT_CHUNK_BYTES
+         *     1. 没有读取到行且建表语句已经发送，关闭该表，继续1)
+         *     2. 结果集已经读取完，关闭该表
+         *   3) 返回该块
+         * </pre>
+         * @return 快照块
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        public SnapshotProtocol next() throws SQLException {
+            lastAccess = System.currentTimeMillis();
+            while (true) {
+                if (rs == null) {
+                    if (!tables.hasNext()) {
+                        if (objectsSent) return last();
+                        objectsSent = true;
+                        ArrayList<Object[]> objects = objects();
+                        if (objects.isEmpty()) continue;
+                        return new SnapshotProtocol(syncId, "", "", new String[]{"statement"}, objects, false, session);
+                    }
+                    openTable(tables.next());
+                }
+                int limit = Math.max(1, Math.min(Constant.Sync.SNAPSHOT_CHUNK_ROWS, MAX_PARAMETERS / columns.length));
+                ArrayList<Object[]> rows = readChunk(limit);
+                if (rows.isEmpty() && ddl.isEmpty()) {
+                    closeTable();
+                    continue;
+                }
+                SnapshotProtocol res = new SnapshotProtocol(syncId, table, ddl, columns, rows, false, session);
+                ddl = "";
+                if (exhausted) closeTable();
+                return res;
+            }
+        }
+
+        private SnapshotProtocol last() throws SQLException {
+            try (Statement st = conn.createStatement();
+                 ResultSet resultSet = st.executeQuery("select * from `" + syncInfoTable + "` where `id` = " + syncId + ";")) {
+                String[] cols = columns(resultSet.getMetaData());
+                return new SnapshotProtocol(syncId, syncInfoTable, "", cols, read(resultSet, cols.length, 1), true, session);
+            }
+        }
+
+        private void openTable(String name) throws SQLException {
+            try (Statement st = conn.createStatement();
+                 ResultSet resultSet = st.executeQuery("SHOW CREATE TABLE `" + name + "`;")) {
+                resultSet.next();
+                ddl = resultSet.getString(2);
+            }
+            table = name;
+            statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE); // MySQL驱动只有在fetchSize为Integer.MIN_VALUE时逐行读取结果
+            rs = statement.executeQuery("select * from `" + name + "`;");
+            columns = columns(rs.getMetaData());
+            exhausted = false;
+        }
+
+        /**
+         * <pre>
+         * 说明：读取重建存储过程、函数、视图和触发器的语句，每条语句是一行
+         * 实现步骤：
+         *   1) 存储过程和函数：删除同名对象，使用SHOW CREATE的结果重建
+         *   2) 视图：按引用关系排序，被引用的视图在前，删除同名视图后重建
+         *   3) 触发器：按表和ACTION_ORDER排序，删除同名触发器后重建
+         *   4) 去掉所有定义中的DEFINER子句，由从站点上执行装载的用户作为定义者
+         * </pre>
+         * @return 语句
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        private ArrayList<Object[]> objects() throws SQLException {
+            ArrayList<Object[]> res = new ArrayList<>();
+            for (String[] routine : query("select `ROUTINE_TYPE`, `ROUTINE_NAME` from information_schema.ROUTINES " +
+                    "where `ROUTINE_SCHEMA` = database() order by `ROUTINE_NAME`;")) {
+                String object = routine[0] + " `" + routine[1] + "`";
+                addObject(res, object, "SHOW CREATE " + object + ";", 3);
+            }
+
+            Map<String, String> views = new TreeMap<>();
+            for (String[] view : query("select `TABLE_NAME`, `VIEW_DEFINITION` from information_schema.VIEWS " +
+                    "where `TABLE_SCHEMA` = database();")) {
+                views.put(view[0], view[1] == null ? "" : view[1]);
+            }
+            Set<String> ordered = new LinkedHashSet<>();
+            for (String view : views.keySet()) orderView(view, views, new HashSet<>(), ordered);
+            for (String view : ordered) {
+                addObject(res, "VIEW `" + view + "`", "SHOW CREATE VIEW `" + view + "`;", 2);
+            }
+
+            for (String[] trigger : query("select `TRIGGER_NAME` from information_schema.TRIGGERS " +
+                    "where `TRIGGER_SCHEMA` = database() order by `EVENT_OBJECT_TABLE`, `ACTION_ORDER`;")) {
+                addObject(res, "TRIGGER `" + trigger[0] + "`", "SHOW CREATE TRIGGER `" + trigger[0] + "`;", 3);
+            }
+            return res;
+        }
+
+        /**
+         * 说明：按视图定义中的引用关系深度优先排序，被引用的视图先加入ordered
+         * @param view 视图名
+         * @param views 视图名和其定义
+         * @param visiting 正在访问的视图，用于跳过循环引用
+         * @param ordered 排序后的视图
+         * @since 0.0.0
+         */
+        private static void orderView(String view, Map<String, String> views, Set<String> visiting, Set<String> ordered) {
+            if (ordered.contains(view) || !visiting.add(view)) return;
+            for (String other : views.keySet()) {
+                if (!other.equals(view) && views.get(view).contains("`" + other + "`")) {
+                    orderView(other, views, visiting, ordered);
+                }
+            }
+            ordered.add(view);
+        }
+
+        /**
+         * 说明：添加删除对象和重建对象的语句
+         * @param res 语句
+         * @param object 对象类型和名称，如VIEW `v`
+         * @param show 获取对象定义的语句
+         * @param column 定义在show结果集中的列
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        private void addObject(List<Object[]> res, String object, String show, int column) throws SQLException {
+            try (Statement st = conn.createStatement();
+                 ResultSet resultSet = st.executeQuery(show)) {
+                if (!resultSet.next() || resultSet.getString(column) == null) return;
+                res.add(new Object[]{"DROP " + object.replaceFirst(" ", " IF EXISTS ") + ";"});
+                res.add(new Object[]{resultSet.getString(column).replaceFirst(DEFINER, "")});
+            }
+        }
+
+        private List<String[]> query(String sql) throws SQLException {
+            List<String[]> res = new ArrayList<>();
+            try (Statement st = conn.createStatement();
+                 ResultSet resultSet = st.executeQuery(sql)) {
+                int count = resultSet.getMetaData().getColumnCount();
+                while (resultSet.next()) {
+                    String[] row = new String[count];
+                    for (int i = 0; i < count; i++) row[i] = resultSet.getString(i + 1);
+                    res.add(row);
+                }
+            }
+            return res;
+        }
+
+        private void closeTable() throws SQLException {
+            try {
+                rs.close();
+                statement.close();
+            } finally {
+                rs = null;
+                statement = null;
+            }
+        }
+
+        private static String[] columns(ResultSetMetaData metaData) throws SQLException {
+            String[] res = new String[metaData.getColumnCount()];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = metaData.getColumnLabel(i + 1);
+            }
+            return res;
+        }
+
+        /**
+         * <pre>
+         * 说明：从正在读取的表中读取一块行
+         * 实现步骤：
+         *   1) 读取行直到达到limit行，或行占用的字节数达到SNAPSHOT_CHUNK_BYTES，至少读取一行
+         *   2) 结果集没有更多行时设置exhausted
+         * </pre>
+         * @param limit 最多读取的行数
+         * @return 行
+         * @throws SQLException
+         * @since 0.0.0
+         */
+        private ArrayList<Object[]> readChunk(int limit) throws SQLException {
+            ArrayList<Object[]> rows = new ArrayList<>();
+            long bytes = 0;
+            while (rows.size() < limit && bytes < Constant.Sync.SNAPSHOT_CHUNK_BYTES) {
+                if (!rs.next()) {
+                    exhausted = true;
+                    break;
+                }
+                Object[] row = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                    bytes += size(row[i]);
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        /**
+         * 说明：估算一个值序列化后占用的字节数
+         * @param value 值
+         * @return 字节数
+         * @since 0.0.0
+         */
+        private static long size(Object value) {
+            if (value instanceof byte[]) return ((byte[]) value).length;
+            if (value instanceof String) return ((String) value).length();
+            return 8;
+        }
+
+        private static ArrayList<Object[]> read(ResultSet rs, int columnCount, int limit) throws SQLException {
+            ArrayList<Object[]> rows = new ArrayList<>();
+            while (rows.size() < limit && rs.next()) {
+                Object[] row = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        public long syncId() {
+            return this.syncId;
+        }
+
+        public long session() {
+            return this.session;
+        }
+
+        public long lastAccess() {
+            return this.lastAccess;
+        }
+
+        /**
+         * 说明：结束快照事务并关闭连接
+         * @since 0.0.0
+         */
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (rs != null) closeTable();
+                conn.rollback();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -2,21 +2,29 @@ package org.qh.DDBMS.LDBMS.ms_sync.dao;
 
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.db.SchemaMigration;
+import org.qh.DDBMS.common.db.StatementCache;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
 import org.qh.DDBMS.common.input.ServerConfig;
 import org.qh.tools.clz.LauncherUtils;
 import org.qh.tools.exception.ExceptionUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  *
@@ -45,38 +53,104 @@ public class SyncDao {
     @Resource
     private ServerConfig serverConfig;
 
+    /**
+     * <pre>
+     * 说明：按连接缓存同步语句的PreparedStatement
+     * </pre>
+     */
+    @Resource
+    private StatementCache statementCache;
+
+    /**
+     * <pre>
+     * 说明：同步信息提交到数据库后执行的监听器，参数为同步信息中的sql语句
+     * </pre>
+     */
+    private final List<Consumer<String>> applyListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <pre>
+     * 说明：为缺少绑定参数列的同步信息表添加该列
+     * 注意事项：
+     *   1. 同步信息表的insert语句按位置绑定5个字段，旧版本的表需要先升级
+     * </pre>
+     */
+    @PostConstruct
+    public void init() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            SchemaMigration.addParametersColumn(conn, Constant.Sync.SYNC_INFO_TABLE_PREFIX + serverConfig.dbName());
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：注册一个同步信息提交到数据库后执行的监听器
+     * 注意事项：
+     *   1. 监听器在提交同步信息的线程中执行，不应执行耗时操作
+     * </pre>
+     * @param listener 监听器，参数为同步信息中的sql语句
+     * @since 0.0.0
+     */
+    public void addApplyListener(Consumer<String> listener) {
+        applyListeners.add(listener);
+    }
+
+    /**
+     * <pre>
+     * 说明：通知所有applyListeners一组更新语句已经提交到数据库
+     * 注意事项：
+     *   1. 提交同步信息后自动调用，装载快照等不经过同步信息修改数据库的操作需要自行调用
+     * </pre>
+     * @param sql 已经提交的更新语句，多条语句使用SQL_STATEMENT_SEPARATOR分割
+     * @since 0.0.0
+     */
+    public void notifyApplied(String sql) {
+        for (Consumer<String> listener : applyListeners) {
+            listener.accept(sql);
+        }
+    }
+
 
     /**
      * <pre>
-     * 说明：提交同步信息到数据库
+     * 说明：在一个数据库事务中提交一组同步信息
+     * 注意事项：
+     *   1. 同步信息按传入的顺序应用，调用方应保证其id连续且递增
      * 实现步骤：
-     *   1. 构建写入同步性信息的sql语句
-     *   2. 构建更新数据库的sql语句
-     *   3. 获取连接，执行sql
+     *   1. 构建写入同步性信息的sql语句，将所有同步信息作为一个批次写入
+     *   2. 依次拆分每个同步信息中更新数据库的sql语句，解析其绑定参数并执行
+     *   3. 提交后按顺序通知所有applyListeners
      *   4. 发生异常则，打印异常，并打印无法进行信息，关闭服务
      * </pre>
-     * @param info 同步信息
+     * @param infos 同步信息
      * @since 0.0.0
      */
-    public void commitSyncInfo(SyncInfoEntity info) {
+    public void commitSyncInfo(List<SyncInfoEntity> infos) {
         String insertSyncInfo = "INSERT INTO `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX +
                 serverConfig.dbName() +
-                "` VALUES(?, ?, ?, ?);";
-        String[] updateDB = info.getSqlStatement().split(Constant.Sync.SQL_STATEMENT_SEPARATOR);
+                "` VALUES(?, ?, ?, ?, ?);";
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(insertSyncInfo)) {
+        try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
-            ps.setLong(1, info.getId());
-            ps.setLong(2, info.getTransaction().getId());
-            ps.setInt(3, info.getTransaction().getType());
-            ps.setString(4, info.getSqlStatement());
-            ps.addBatch();
-            for (String sqlStatement : updateDB){
-                ps.addBatch(sqlStatement);
+            try (PreparedStatement ps = conn.prepareStatement(insertSyncInfo)) {
+                for (SyncInfoEntity info : infos) {
+                    ps.setLong(1, info.getId());
+                    ps.setLong(2, info.getTransaction().getId());
+                    ps.setInt(3, info.getTransaction().getType());
+                    ps.setString(4, info.getSqlStatement());
+                    ps.setBytes(5, info.getParameters());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            for (SyncInfoEntity info : infos) {
+                String[] updateDB = info.getSqlStatement().split(Constant.Sync.SQL_STATEMENT_SEPARATOR);
+                applyStatements(conn, updateDB, SyncInfoEntity.decodeParameters(info.getParameters()));
             }
-            ps.executeBatch();
             conn.commit();
+            for (SyncInfoEntity info : infos) {
+                notifyApplied(info.getSqlStatement());
+            }
         } catch (Exception e) {
             ExceptionUtils.printStackTrace(e);
             LauncherUtils.destroy(); // 关闭服务
@@ -84,45 +158,194 @@ public class SyncDao {
 
     }
     /**
-     * 说明：查询所有id大于传入id的row
+     * <pre>
+     * 说明：按顺序执行同步信息中的更新语句
+     * 实现步骤：
+     *   1. 语句带有参数，从statementCache获取预编译语句，将其所有参数组作为一个批次执行
+     *   2. 语句不带参数，使用同一个Statement直接执行
+     * </pre>
+     * @param conn 数据库连接
+     * @param updateDB 更新语句
+     * @param parameters 每条语句的绑定参数，可以为null
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void applyStatements(Connection conn, String[] updateDB, Object[][][] parameters) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            for (int i = 0; i < updateDB.length; i++) {
+                if (parameters == null || parameters[i] == null) {
+                    statement.executeUpdate(updateDB[i]);
+                    continue;
+                }
+                PreparedStatement ps = statementCache.prepare(conn, updateDB[i]);
+                for (Object[] p : parameters[i]) {
+                    StatementCache.bind(ps, p);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * 说明：分页查询id大于传入id的row
      * 实现步骤：
      *   1. 判定当前id+1不存在则返回null
-     *   2. 查询所有大于当前id的row
+     *   2. 按id顺序流式读取大于当前id的row，最多读取一页
+     *     1. 读取的row数量达到SYNC_PAGE_ENTRIES，或sql语句和参数的字节数达到SYNC_PAGE_BYTES时停止读取
      *   3. 将结果封装为SyncInfoEntity，加入结果集返回
      *   4. 返回结果
+     * 注意事项：
+     *   1. 落后较多的站点需要多次调用该方法补全同步信息，每次调用占用的内存不超过一页
      * @param dbName 数据库名
      * @param id 同步信息id
-     * @return 所有id大于传入id的row
+     * @return id大于传入id的一页row
      * @throws SQLException
      * @since 0.0.0
      */
     public List<SyncInfoEntity> selectSyncInfo(String dbName, long id) throws SQLException {
+        String syncInfoTable = Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName;
         List<SyncInfoEntity> res = null;
-        String stat = "select `id` from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName + "` where `id` = " + (id + 1) + ";";
+        String stat = "select `id` from `" + syncInfoTable + "` where `id` = " + (id + 1) + ";";
+        String page = "select * from `" + syncInfoTable + "` where `id` > ? order by `id` limit ?;";
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(stat);
+                 ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) return res;
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(page)) {
+                ps.setLong(1, id);
+                ps.setInt(2, Constant.Sync.SYNC_PAGE_ENTRIES);
+                ps.setFetchSize(Constant.Sync.SYNC_PAGE_ENTRIES);
+                try (ResultSet rSet = ps.executeQuery()) {
+                    resolveSyncInfo(rSet, res = new ArrayList<>());
+                }
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * <pre>
+     * 说明：删除id不大于传入id的同步信息
+     * 实现步骤：
+     *   1. 按id顺序分批删除，每批最多SYNC_INFO_DELETE_BATCH行，避免长时间持有锁
+     *   2. 删除的行数不足一批时结束
+     * </pre>
+     * @param dbName 数据库名
+     * @param id 同步信息id
+     * @return 删除的行数
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public long deleteSyncInfoLE(String dbName, long id) throws SQLException {
+        String stat = "delete from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName +
+                "` where `id` <= ? order by `id` limit ?;";
+        long res = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat)) {
+            ps.setLong(1, id);
+            ps.setInt(2, Constant.Sync.SYNC_INFO_DELETE_BATCH);
+            int n;
+            do {
+                n = ps.executeUpdate();
+                res += n;
+            } while (n >= Constant.Sync.SYNC_INFO_DELETE_BATCH);
+        }
+        return res;
+    }
+
+    /**
+     * 说明：查询同步信息表中最小的id
+     * @param dbName 数据库名
+     * @return 最小的id，表为空时返回0
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public long selectMinSyncInfoId(String dbName) throws SQLException {
+        String stat = "select ifnull(min(`id`), 0) from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + dbName + "`;";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(stat);
              ResultSet resultSet = ps.executeQuery()) {
-            if (!resultSet.next()) return res;
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 说明：查询同步信息表中大于传入id的所有同步信息id
+     * @param id 同步信息id
+     * @return 按id顺序排列的同步信息id
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public List<Long> selectSyncInfoIdsGT(long id) throws SQLException {
+        String stat = "select `id` from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + serverConfig.dbName() +
+                "` where `id` > ? order by `id`;";
+        List<Long> res = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat)) {
+            ps.setLong(1, id);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                while (resultSet.next()) res.add(resultSet.getLong(1));
+            }
+        }
+        return res;
+    }
 
-            try (ResultSet rSet = ps.executeQuery("select * from `" + dbName + "` where `id` > " + id + ";")) {
-                resolveSyncInfo(rSet, res = new ArrayList<>());
+    /**
+     * 说明：查询当前库中所有的外键关系
+     * @return 小写的子表名和父表名
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public List<String[]> selectForeignKeys() throws SQLException {
+        String stat = "select `TABLE_NAME`, `REFERENCED_TABLE_NAME` from information_schema.`KEY_COLUMN_USAGE` " +
+                "where `TABLE_SCHEMA` = database() and `REFERENCED_TABLE_NAME` is not null;";
+        List<String[]> res = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat);
+             ResultSet resultSet = ps.executeQuery()) {
+            while (resultSet.next()) {
+                res.add(new String[]{resultSet.getString(1).toLowerCase(), resultSet.getString(2).toLowerCase()});
             }
         }
+        return res;
+    }
 
+    /**
+     * 说明：查询当前库中定义了触发器的表
+     * @return 小写的表名
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    public Set<String> selectTriggerTables() throws SQLException {
+        String stat = "select `EVENT_OBJECT_TABLE` from information_schema.`TRIGGERS` where `TRIGGER_SCHEMA` = database();";
+        Set<String> res = new HashSet<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(stat);
+             ResultSet resultSet = ps.executeQuery()) {
+            while (resultSet.next()) res.add(resultSet.getString(1).toLowerCase());
+        }
         return res;
     }
 
     /**
-     * 说明：从结果集中解析出所有的syncInfo实例
+     * 说明：从结果集中解析出syncInfo实例，sql语句和参数的字节数达到SYNC_PAGE_BYTES时停止解析
      * @param rSet 数据库查询结果集
      * @param res 实例结果集
      * @since 0.0.0
      */
     private void resolveSyncInfo(ResultSet rSet, List<SyncInfoEntity> res) throws SQLException {
-        while (rSet.next()) {
+        long bytes = 0;
+        while (bytes < Constant.Sync.SYNC_PAGE_BYTES && rSet.next()) {
+            String sqlStatement = rSet.getString(4);
+            byte[] parameters = rSet.getBytes(5);
             res.add(new SyncInfoEntity(rSet.getLong(1),
                     new DBTransaction(rSet.getLong(2), rSet.getByte(3), (byte) 0),
-                    rSet.getString(4)));
+                    sqlStatement, parameters));
+            bytes += sqlStatement.length() + (parameters == null ? 0 : parameters.length);
         }
     }
 }
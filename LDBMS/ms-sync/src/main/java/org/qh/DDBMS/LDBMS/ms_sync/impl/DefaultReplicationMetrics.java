@@ -0,0 +1,129 @@
+package org.qh.DDBMS.LDBMS.ms_sync.impl;
+
+import org.qh.DDBMS.LDBMS.ms_sync.ReplicationMetrics;
+import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.entity.ReplicationStatus;
+import org.qh.DDBMS.common.input.ServerConfig;
+
+import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: ReplicationMetrics的默认实现类
+ */
+public class DefaultReplicationMetrics implements ReplicationMetrics {
+
+    /**
+     * <pre>
+     * 说明：收到的同步信息的最大id和收到的时间，按id递增排列
+     * 注意事项：
+     *   1. 已经应用的记录在status()中移除，队首即为最早收到但尚未应用的同步信息
+     * </pre>
+     */
+    private final ArrayDeque<long[]> arrivals = new ArrayDeque<>();
+
+    /**
+     * <pre>
+     * 说明：收到的最大同步信息id
+     * </pre>
+     */
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong catchUpRequests = new AtomicLong(); // 补全同步信息的请求次数
+
+    private final AtomicLong gaps = new AtomicLong(); // 发现同步信息缺失的次数
+
+    private long rateApplied = -1; // 计算应用速率的窗口开始时的提交事务数
+
+    private long rateTime; // 计算应用速率的窗口开始的时间戳，单位ms
+
+    private double rate; // 最近一个窗口的应用速率
+
+    /**
+     * <pre>
+     * 说明：用于获取提交事务数
+     * </pre>
+     */
+    @Resource
+    private LTransactionCenter txCenter;
+
+    /**
+     * <pre>
+     * 说明：用于获取当前站点名和数据库名
+     * </pre>
+     */
+    @Resource
+    private ServerConfig serverConfig;
+
+    /**
+     * <pre>
+     * 说明：记录收到的同步信息
+     * 实现步骤：
+     *   1) 更新收到的最大同步信息id
+     *   2) maxSyncId大于之前收到的所有同步信息时，记录其收到的时间
+     * </pre>
+     *
+     * @param maxSyncId 收到的同步信息中最大的id
+     */
+    @Override
+    public void received(long maxSyncId) {
+        long now = System.currentTimeMillis();
+        synchronized (arrivals) {
+            if (maxSyncId <= received.get()) return;
+            received.set(maxSyncId);
+            arrivals.addLast(new long[]{maxSyncId, now});
+        }
+    }
+
+    @Override
+    public void catchUpRequested() {
+        catchUpRequests.incrementAndGet();
+    }
+
+    @Override
+    public void gapDetected() {
+        gaps.incrementAndGet();
+    }
+
+    /**
+     * <pre>
+     * 说明：获取当前的复制状态
+     * 实现步骤：
+     *   1) 移除已经应用的收到记录，队首记录的等待时间即为落后的时间
+     *   2) 距上次计算应用速率超过APPLY_RATE_WINDOW时，重新计算应用速率
+     *   3) 构建复制状态
+     * </pre>
+     *
+     * @return 复制状态
+     */
+    @Override
+    public ReplicationStatus status() {
+        long now = System.currentTimeMillis();
+        long applied = txCenter.transactionCount();
+        long lagMillis;
+        double applyRate;
+        synchronized (arrivals) {
+            while (!arrivals.isEmpty() && arrivals.peekFirst()[0] <= applied) arrivals.pollFirst();
+            lagMillis = arrivals.isEmpty() ? 0 : now - arrivals.peekFirst()[1];
+
+            if (rateApplied < 0) {
+                rateApplied = applied;
+                rateTime = now;
+            } else if (now - rateTime >= Constant.Sync.APPLY_RATE_WINDOW) {
+                rate = (applied - rateApplied) * 1000.0 / (now - rateTime);
+                rateApplied = applied;
+                rateTime = now;
+            }
+            applyRate = rate;
+        }
+        long master = Math.max(received.get(), applied);
+        return new ReplicationStatus(serverConfig.siteName(), serverConfig.dbName(), applied, master,
+                master - applied, lagMillis, applyRate, catchUpRequests.get(), gaps.get(), now);
+    }
+}
@@ -0,0 +1,430 @@
+package org.qh.DDBMS.LDBMS.ms_sync.impl;
+
+import org.qh.DDBMS.LDBMS.ms_sync.SyncApplier;
+import org.qh.DDBMS.LDBMS.ms_sync.SyncSender;
+import org.qh.DDBMS.LDBMS.ms_sync.configuration.SyncApplierConfig;
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.TableNameResolver;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 根据同步信息读写的表并发应用同步信息的SyncApplier实现类
+ */
+public class ParallelSyncApplier implements SyncApplier {
+
+    /**
+     * <pre>
+     * 说明：已经提交但尚未连续应用完成的同步信息，按id排序
+     * 注意事项：
+     *   1. 队首的同步信息应用完成后才会从队列中移除，队首的id-1即为水位
+     * </pre>
+     */
+    private final LinkedList<Task> pending = new LinkedList<>();
+
+    /**
+     * <pre>
+     * 说明：正在应用的同步信息组数，即占用的线程数
+     * </pre>
+     */
+    private int running;
+
+    /**
+     * <pre>
+     * 说明：重启前已经提交，但在第一个空缺之后的同步信息id
+     * 注意事项：
+     *   1. 这些同步信息的修改已经提交，再次收到时直接标记完成，不再应用
+     * </pre>
+     */
+    private final Set<Long> applied = new HashSet<>();
+
+    /**
+     * <pre>
+     * 说明：表名和通过外键关联的所有表的映射关系，包括其本身
+     * </pre>
+     */
+    private volatile Map<String, Set<String>> related = Collections.emptyMap();
+
+    /**
+     * <pre>
+     * 说明：定义了触发器的表，触发器读写的表无法确定
+     * </pre>
+     */
+    private volatile Set<String> triggered = Collections.emptySet();
+
+    /**
+     * <pre>
+     * 说明：水位推进后执行的监听器
+     * </pre>
+     */
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <pre>
+     * 说明：将同步信息写入数据库
+     * </pre>
+     */
+    @Resource
+    private SyncDao syncDao;
+
+    /**
+     * <pre>
+     * 说明：局部事务中心，用于推进提交事务数
+     * </pre>
+     */
+    @Resource
+    private LTransactionCenter txCenter;
+
+    /**
+     * <pre>
+     * 说明：将应用完成的同步信息发送给当前站点的从站点
+     * </pre>
+     */
+    @Resource
+    private SyncSender syncSender;
+
+    /**
+     * <pre>
+     * 说明：用于获取最大线程数
+     * </pre>
+     */
+    @Resource
+    private SyncApplierConfig config;
+
+    /**
+     * <pre>
+     * 说明：初始化
+     * 实现步骤：
+     *   1) 读取提交事务数之后已经提交的同步信息id
+     *   2) 读取外键关系和定义了触发器的表
+     *   3) 注册监听器，应用了DDL语句后重新读取外键关系和触发器
+     *     1. DDL语句与所有同步信息冲突，应用时没有其他同步信息在应用，读取完成前不会启动其后的同步信息
+     * </pre>
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    @PostConstruct
+    public void init() throws SQLException {
+        applied.addAll(syncDao.selectSyncInfoIdsGT(txCenter.transactionCount()));
+        refreshDependencies();
+        syncDao.addApplyListener(sql -> {
+            for (String statement : sql.split(Constant.Sync.SQL_STATEMENT_SEPARATOR)) {
+                if (!ddl(statement)) continue;
+                try {
+                    refreshDependencies();
+                } catch (SQLException e) {
+                    ExceptionUtils.printStackTrace(e);
+                }
+                return;
+            }
+        });
+    }
+
+    /**
+     * <pre>
+     * 说明：重新读取外键关系和定义了触发器的表
+     * 实现步骤：
+     *   1) 将外键关联的表合并为一组，组内任意两张表的修改都可能相互影响，例如级联删除
+     *   2) 替换映射关系
+     *   3) 重新计算未启动的同步信息读写的表
+     * </pre>
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void refreshDependencies() throws SQLException {
+        Map<String, Set<String>> groups = new HashMap<>();
+        for (String[] fk : syncDao.selectForeignKeys()) {
+            Set<String> child = groups.computeIfAbsent(fk[0], k -> new HashSet<>(Collections.singleton(k)));
+            Set<String> parent = groups.computeIfAbsent(fk[1], k -> new HashSet<>(Collections.singleton(k)));
+            if (child == parent) continue;
+            child.addAll(parent);
+            for (String table : parent) groups.put(table, child);
+        }
+        this.related = groups;
+        this.triggered = syncDao.selectTriggerTables();
+        synchronized (pending) {
+            for (Task task : pending) {
+                if (!task.running && !task.done) task.tables = footprint(task.info);
+            }
+        }
+    }
+
+    @Override
+    public void submit(SyncInfoEntity info) {
+        Task task = new Task(info, footprint(info));
+        long watermark;
+        synchronized (pending) {
+            task.done = applied.remove(info.getId());
+            pending.add(task);
+            watermark = drain();
+            schedule();
+        }
+        notifyListeners(watermark);
+    }
+
+    /**
+     * <pre>
+     * 说明：解析同步信息读写的所有表
+     * 实现步骤：
+     *   1) 拆分同步信息中的sql语句
+     *   2) 解析每条语句的表名
+     *     1. 存在DDL语句或无法解析出表名的语句，返回null
+     *     2. 表定义了触发器，返回null
+     *   3) 加入通过外键与每张表关联的表
+     *   4) 返回所有表名
+     * </pre>
+     * @param info 同步信息
+     * @return 表名集合，无法确定时返回null，表示与所有同步信息冲突
+     * @since 0.0.0
+     */
+    private Set<String> footprint(SyncInfoEntity info) {
+        Set<String> res = new HashSet<>();
+        Map<String, Set<String>> related = this.related;
+        Set<String> triggered = this.triggered;
+        for (String statement : info.getSqlStatement().split(Constant.Sync.SQL_STATEMENT_SEPARATOR)) {
+            if (ddl(statement)) return null;
+            Set<String> tables = TableNameResolver.tables(statement);
+            if (tables.isEmpty()) return null;
+            for (String table : tables) {
+                if (triggered.contains(table)) return null;
+                res.addAll(related.getOrDefault(table, Collections.singleton(table)));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 说明：判断语句是否是修改表结构的DDL语句
+     * @param statement sql语句
+     * @return 是否是DDL语句
+     * @since 0.0.0
+     */
+    private static boolean ddl(String statement) {
+        String s = statement.trim().toLowerCase();
+        return s.startsWith("create") || s.startsWith("alter") || s.startsWith("drop") || s.startsWith("rename");
+    }
+
+    /**
+     * <pre>
+     * 说明：启动可以应用的同步信息
+     * 注意事项：
+     *   1. 调用方需持有pending的锁
+     * 实现步骤：
+     *   1) 按id顺序遍历未完成的同步信息，累计之前所有未完成同步信息的表
+     *   2) 未启动的同步信息满足以下条件时启动
+     *     1. 正在应用的线程数小于applyThreads
+     *     2. 其表与之前未完成同步信息的表不相交
+     *     3. 无法确定其表时，之前没有未完成的同步信息
+     *   3) 启动时将其后相邻的同步信息执行group()，合并为一组在一个数据库事务中应用
+     *   4) 遇到无法确定表的同步信息时停止遍历
+     * </pre>
+     * @since 0.0.0
+     */
+    private void schedule() {
+        int limit = Math.max(config.applyThreads(), 1);
+        Set<String> blocked = new HashSet<>();
+        boolean first = true;
+        ListIterator<Task> it = pending.listIterator();
+        while (it.hasNext()) {
+            Task task = it.next();
+            if (task.done) continue;
+            List<Task> group = Collections.singletonList(task);
+            if (!task.running) {
+                if (running >= limit) return;
+                if (task.tables == null ? first : Collections.disjoint(blocked, task.tables)) {
+                    group = group(task, it, blocked, first);
+                    start(group);
+                }
+            }
+            for (Task t : group) {
+                if (t.tables == null) return;
+                blocked.addAll(t.tables);
+            }
+            first = false;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：从一个可以启动的同步信息开始，合并其后相邻的同步信息
+     * 注意事项：
+     *   1. 一组同步信息在一个线程中按id顺序应用，组内的表可以相交
+     * 实现步骤：
+     *   1) 依次读取下一个同步信息，满足以下条件时加入该组
+     *     1. 未启动，id与组内最后一个同步信息连续
+     *     2. 组内同步信息数小于batchEntries，加入后字节数不超过batchBytes
+     *     3. 之前没有未完成的同步信息，或其表可以确定且与之前未完成同步信息的表不相交
+     *   2) 遇到不满足条件的同步信息时回退迭代器，返回该组
+     * </pre>
+     * @param head 可以启动的同步信息
+     * @param it 位于head之后的迭代器
+     * @param blocked 之前所有未完成同步信息的表
+     * @param first 之前是否没有未完成的同步信息
+     * @return 按id顺序排列的一组同步信息
+     * @since 0.0.0
+     */
+    private List<Task> group(Task head, ListIterator<Task> it, Set<String> blocked, boolean first) {
+        List<Task> group = new ArrayList<>();
+        group.add(head);
+        long bytes = size(head.info);
+        int entries = config.batchEntries();
+        while (group.size() < entries && it.hasNext()) {
+            Task next = it.next();
+            Task last = group.get(group.size() - 1);
+            boolean fits = !next.running && !next.done &&
+                    next.info.getId() == last.info.getId() + 1 &&
+                    bytes + size(next.info) <= config.batchBytes() &&
+                    (first || next.tables != null && Collections.disjoint(blocked, next.tables));
+            if (!fits) {
+                it.previous();
+                break;
+            }
+            group.add(next);
+            bytes += size(next.info);
+        }
+        return group;
+    }
+
+    /**
+     * 说明：获取同步信息的字节数
+     * @param info 同步信息
+     * @return sql语句和绑定参数的长度之和
+     * @since 0.0.0
+     */
+    private static long size(SyncInfoEntity info) {
+        return info.getSqlStatement().length() + (info.getParameters() == null ? 0 : info.getParameters().length);
+    }
+
+    /**
+     * 说明：在线程池中以一个数据库事务应用一组同步信息
+     * @param group 一组同步信息
+     * @since 0.0.0
+     */
+    private void start(List<Task> group) {
+        List<SyncInfoEntity> infos = new ArrayList<>(group.size());
+        for (Task task : group) {
+            task.running = true;
+            infos.add(task.info);
+        }
+        running++;
+        ThreadUtils.execute(() -> {
+            syncDao.commitSyncInfo(infos);
+            complete(group);
+        });
+    }
+
+    /**
+     * <pre>
+     * 说明：一组同步信息应用完成
+     * 实现步骤：
+     *   1) 标记组内所有同步信息完成，并推进水位
+     *   2) 启动可以应用的同步信息
+     *   3) 判定水位推进了，在锁外通知所有监听器
+     * </pre>
+     * @param group 应用完成的一组同步信息
+     * @since 0.0.0
+     */
+    private void complete(List<Task> group) {
+        long watermark;
+        synchronized (pending) {
+            for (Task task : group) task.done = true;
+            running--;
+            watermark = drain();
+            schedule();
+        }
+        notifyListeners(watermark);
+    }
+
+    /**
+     * <pre>
+     * 说明：从队首移除所有连续完成的同步信息
+     * 注意事项：
+     *   1. 调用方需持有pending的锁
+     * 实现步骤：
+     *   1) 从队首移除所有连续完成的同步信息
+     *   2) 判定有移除的同步信息
+     *     1. 将提交事务数推进到最后一个移除的同步信息id
+     *     2. 按id顺序将其交给syncSender
+     * </pre>
+     * @return 推进后的水位，没有推进时返回-1
+     * @since 0.0.0
+     */
+    private long drain() {
+        List<SyncInfoEntity> drained = new ArrayList<>();
+        while (!pending.isEmpty() && pending.peek().done) {
+            drained.add(pending.poll().info);
+        }
+        if (drained.isEmpty()) return -1;
+        long watermark = drained.get(drained.size() - 1).getId();
+        txCenter.advance(watermark);
+        for (SyncInfoEntity info : drained) {
+            syncSender.send(info);
+        }
+        return watermark;
+    }
+
+    /**
+     * 说明：判定水位推进了，通知所有监听器，不能持有pending的锁
+     * @param watermark 推进后的水位，没有推进时为-1
+     * @since 0.0.0
+     */
+    private void notifyListeners(long watermark) {
+        if (watermark < 0) return;
+        for (LongConsumer listener : listeners) {
+            listener.accept(watermark);
+        }
+    }
+
+    @Override
+    public void snapshotInstalled() {
+        synchronized (pending) {
+            applied.clear();
+        }
+        try {
+            refreshDependencies();
+        } catch (SQLException e) {
+            ExceptionUtils.printStackTrace(e);
+        }
+    }
+
+    @Override
+    public int pending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void addWatermarkListener(LongConsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 说明：一个需要应用的同步信息
+     */
+    private static class Task {
+        private final SyncInfoEntity info; // 同步信息
+        private Set<String> tables; // 读写的表，null表示无法确定
+        private boolean running; // 是否已经启动
+        private boolean done; // 是否已经应用完成
+
+        private Task(SyncInfoEntity info, Set<String> tables) {
+            this.info = info;
+            this.tables = tables;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.qh.DDBMS.LDBMS.ms_sync.impl;
+
+import com.qh.protocol.net.BaseTransportProtocol;
+import com.qh.protocol.net.TransportProtocol;
+import org.qh.DDBMS.LDBMS.ms_sync.AbstractSync;
+import org.qh.DDBMS.LDBMS.ms_sync.SyncApplier;
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SnapshotDao;
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.ms_sys.MasterSlaveManager;
+import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.input.ServerConfig;
+import org.qh.DDBMS.common.output.DDBMSSender;
+import org.qh.DDBMS.common.protocol.RequestSnapshotProtocol;
+import org.qh.DDBMS.common.protocol.RequestSyncInfoProtocol;
+import org.qh.DDBMS.common.protocol.SnapshotProtocol;
+import org.qh.tools.clz.LauncherUtils;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 在从站点上装载主站点数据库快照的类
+ */
+public class SnapshotDB extends AbstractSync<SnapshotProtocol> {
+
+    /**
+     * <pre>
+     * 说明：用于装载快照
+     * </pre>
+     */
+    @Resource
+    private SnapshotDao snapshotDao;
+
+    /**
+     * <pre>
+     * 说明：局部事务中心，快照装载完成后推进提交事务数
+     * </pre>
+     */
+    @Resource
+    private LTransactionCenter txCenter;
+
+    /**
+     * <pre>
+     * 说明：快照装载完成后丢弃其重启时恢复的状态
+     * </pre>
+     */
+    @Resource
+    private SyncApplier applier;
+
+    /**
+     * <pre>
+     * 说明：快照装载完成后通知应用监听器，使查询缓存等失效
+     * </pre>
+     */
+    @Resource
+    private SyncDao syncDao;
+
+    /**
+     * <pre>
+     * 说明：获取主站点信息
+     * </pre>
+     */
+    @Resource
+    private MasterSlaveManager msManager;
+
+    /**
+     * <pre>
+     * 说明：用于获取当前站点负责的数据库名
+     * </pre>
+     */
+    @Resource
+    private ServerConfig serverConfig;
+
+    /**
+     * <pre>
+     * 说明：用于将协议信息发送给其他站点
+     * </pre>
+     */
+    @Resource
+    private DDBMSSender<String> sender;
+
+    /**
+     * <pre>
+     * 说明：是否正在装载快照
+     * </pre>
+     */
+    private volatile boolean loading;
+
+    /**
+     * <pre>
+     * 说明：提供快照的站点名
+     * </pre>
+     */
+    private volatile String source;
+
+    /**
+     * <pre>
+     * 说明：最后一次收到快照块的时间
+     * </pre>
+     */
+    private volatile long lastReceive;
+
+    /**
+     * <pre>
+     * 说明：当前快照的会话id，每次开启快照时递增
+     * 注意事项：
+     *   1. 超时重新开启快照后，上一次快照迟到的块会话id不一致，直接丢弃
+     * </pre>
+     */
+    private long session;
+
+    /**
+     * <pre>
+     * 说明：当前快照的装载器，整个装载过程关闭外键检查
+     * </pre>
+     */
+    private SnapshotDao.Loader loader;
+
+    /**
+     * <pre>
+     * 说明：当前快照已经装载的表
+     * </pre>
+     */
+    private final Set<String> loaded = new LinkedHashSet<>();
+
+    public SnapshotDB() {
+        super(Constant.ObjectProtocolDataUse.SNAPSHOT_PROTOCOL);
+    }
+
+    @PostConstruct
+    public void start() {
+        ThreadUtils.scheduleWithFixedDelay(this::checkTimeout, Constant.Sync.SNAPSHOT_SESSION_TIMEOUT,
+                Constant.Sync.SNAPSHOT_SESSION_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <pre>
+     * 说明：是否正在装载快照
+     * 规范：
+     *   1) 装载快照期间，从站点不应用同步信息
+     * </pre>
+     * @return true表示正在装载
+     * @since 0.0.0
+     */
+    public boolean loading() {
+        return loading;
+    }
+
+    /**
+     * <pre>
+     * 说明：向主站点请求数据库快照
+     * 注意事项：
+     *   1. 在主站点已经没有当前站点缺失的同步信息时调用
+     * 实现步骤：
+     *   1) 判定正在装载快照，直接返回
+     *   2) 判定当前站点没有主站点，无法补全缺失的事务，打印错误信息，并停止服务
+     *   3) 设置loading，请求新的快照
+     * </pre>
+     * @since 0.0.0
+     */
+    public synchronized void requestSnapshot() {
+        if (loading) return;
+        if (msManager.master() == null) {
+            System.err.println("The site lack too many transactions to continue!");
+            LauncherUtils.destroy();
+            return;
+        }
+        loading = true;
+        restart();
+    }
+
+    /**
+     * <pre>
+     * 说明：开启新的快照
+     * 实现步骤：
+     *   1) 关闭上一次快照的装载器
+     *   2) 清空同步信息表，装载中断后重启的站点会重新请求快照
+     *   3) 开启新的装载器，清空已经装载的表，生成新的会话id
+     *   4) 向主站点发送开启快照的请求
+     * </pre>
+     * @since 0.0.0
+     */
+    private void restart() {
+        closeLoader();
+        try {
+            snapshotDao.clearSyncInfo(serverConfig.dbName());
+            loader = snapshotDao.openLoader();
+        } catch (SQLException e) {
+            ExceptionUtils.printStackTrace(e);
+            LauncherUtils.destroy();
+            return;
+        }
+        loaded.clear();
+        session = Math.max(session + 1, System.currentTimeMillis());
+        source = msManager.master().getName();
+        lastReceive = System.currentTimeMillis();
+        sender.send(source, new RequestSnapshotProtocol(serverConfig.dbName(), serverConfig.siteName(), true,
+                session), null, false);
+    }
+
+    /**
+     * 说明：关闭当前快照的装载器，重新开启外键检查
+     * @since 0.0.0
+     */
+    private void closeLoader() {
+        if (loader == null) return;
+        try {
+            loader.close();
+        } catch (SQLException e) {
+            ExceptionUtils.printStackTrace(e);
+        }
+        loader = null;
+    }
+
+    /**
+     * 说明：长时间没有收到快照块时，重新开启快照
+     * @since 0.0.0
+     */
+    private synchronized void checkTimeout() {
+        if (!loading || System.currentTimeMillis() - lastReceive < Constant.Sync.SNAPSHOT_SESSION_TIMEOUT) return;
+        if (msManager.master() == null) return;
+        restart();
+    }
+
+    /**
+     * <pre>
+     * 说明：用于验证传入参数是否合规
+     * 实现步骤：
+     *   1) 判定协议的dataUse!=当前实例的dataUse，或没有正在装载快照，返回null
+     *   2) 将协议转化为SnapshotProtocol返回
+     * </pre>
+     *
+     * @param protocol 当前协议实例
+     * @return 快照块
+     * @since 0.0.0
+     */
+    @Override
+    public SnapshotProtocol validate(BaseTransportProtocol protocol) {
+        if (protocol.data()[9] != getDataUse() || !loading) return null;
+        return new SnapshotProtocol(protocol.data());
+    }
+
+    /**
+     * <pre>
+     * 说明：装载一块快照
+     * 实现步骤：
+     *   1) 判定块的会话id不是当前会话id，丢弃该块，返回null
+     *   2) 判定不是结束块
+     *     1. 装载该块，记录装载的表
+     *     2. 请求下一块
+     *   3) 判定是结束块
+     *     1. 写入快照中最后一个同步信息，关闭装载器
+     *     2. 通知applier快照已装载，重新读取表之间的依赖关系
+     *     3. 以清空每个装载的表的语句通知应用监听器，使读取这些表的查询缓存失效
+     *     4. 将提交事务数推进到快照的syncId，清除loading
+     *     5. 从syncId之后开始请求同步信息
+     * </pre>
+     *
+     * @param p 快照块
+     * @return null
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized TransportProtocol doSync(SnapshotProtocol p) throws Exception {
+        if (!loading || p.session() != session) return null;
+        lastReceive = System.currentTimeMillis();
+        String dbName = serverConfig.dbName();
+        if (!p.done()) {
+            loader.load(p.table(), p.ddl(), p.columns(), p.rows());
+            if (!p.table().isEmpty()) loaded.add(p.table());
+            sender.send(source, new RequestSnapshotProtocol(dbName, serverConfig.siteName(), false, session),
+                    null, false);
+            return null;
+        }
+        loader.installSyncInfo(dbName, p.columns(), p.rows());
+        closeLoader();
+        applier.snapshotInstalled();
+        if (!loaded.isEmpty()) {
+            StringJoiner sql = new StringJoiner(Constant.Sync.SQL_STATEMENT_SEPARATOR);
+            for (String table : loaded) sql.add("DELETE FROM `" + table + "`;");
+            syncDao.notifyApplied(sql.toString());
+            loaded.clear();
+        }
+        txCenter.advance(p.syncId());
+        loading = false;
+        sender.send(source, new RequestSyncInfoProtocol(dbName, p.syncId(), serverConfig.siteName()), null, false);
+        return null;
+    }
+}
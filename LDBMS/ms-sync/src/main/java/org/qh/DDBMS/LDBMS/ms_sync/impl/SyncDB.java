@@ -4,8 +4,8 @@ import com.qh.protocol.net.BaseTransportProtocol;
 import com.qh.protocol.net.TransportProtocol;
 import lombok.SneakyThrows;
 import org.qh.DDBMS.LDBMS.ms_sync.AbstractSync;
-import org.qh.DDBMS.LDBMS.ms_sync.SyncSender;
-import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.ms_sync.ReplicationMetrics;
+import org.qh.DDBMS.LDBMS.ms_sync.SyncApplier;
 import org.qh.DDBMS.LDBMS.ms_sys.MasterSlaveManager;
 import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
 import org.qh.DDBMS.common.Constant;
@@ -13,9 +13,10 @@ import org.qh.DDBMS.common.config.GDBMSConfig;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
 import org.qh.DDBMS.common.input.ServerConfig;
 import org.qh.DDBMS.common.output.DDBMSSender;
+import org.qh.DDBMS.common.protocol.ACKProtocol;
 import org.qh.DDBMS.common.protocol.RequestSyncInfoProtocol;
 import org.qh.DDBMS.common.protocol.SyncInfoProtocol;
-import org.qh.tools.clz.LauncherUtils;
+import org.qh.tools.exception.ExceptionUtils;
 import org.qh.tools.thread.ThreadUtils;
 
 import javax.annotation.PostConstruct;
@@ -40,14 +41,6 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
     @Resource
     private LTransactionCenter txCenter;
 
-    /**
-     * <pre>
-     * 说明：执行数据库操作
-     * </pre>
-     */
-    @Resource
-    private SyncDao syncDao;
-
 
     /**
      * <pre>
@@ -82,11 +75,19 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
 
     /**
      * <pre>
-     * 说明：将同步信息发送给从站点的发送器
+     * 说明：并发应用同步信息
+     * </pre>
+     */
+    @Resource
+    private SyncApplier applier;
+
+    /**
+     * <pre>
+     * 说明：主站点没有缺失的同步信息时，通过快照补全数据
      * </pre>
      */
     @Resource
-    private SyncSender syncSender;
+    private SnapshotDB snapshotDB;
 
     /**
      * <pre>
@@ -96,6 +97,13 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
     @Resource
     private ServerConfig serverConfig;
 
+    /**
+     * <pre>
+     * 说明：统计复制状态，随提交事务数一起汇报给GDBMS
+     * </pre>
+     */
+    @Resource
+    private ReplicationMetrics metrics;
 
     /**
      * <pre>
@@ -104,29 +112,55 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
      */
     private volatile int lostSyncInfo;
 
+    /**
+     * <pre>
+     * 说明：上一页补全的同步信息之后还有后续的同步信息，提交完当前缓存的同步信息后需要请求下一页
+     * </pre>
+     */
+    private volatile boolean morePages;
+
+    /**
+     * <pre>
+     * 说明：已经交给applier的最大同步信息id
+     * 注意事项：
+     *   1. 在syncInfoQueue上同步访问
+     * </pre>
+     */
+    private long dispatched;
+
     public SyncDB() {
         super(Constant.ObjectProtocolDataUse.SYNC_INFO_PROTOCOL);
     }
 
     @PostConstruct
     public void start() {
+        applier.addWatermarkListener(watermark -> {
+            reportProgress();
+            requestNextPage();
+        });
         ThreadUtils.scheduleWithFixedDelay(() -> doSync0(), 1000, 1000, TimeUnit.MILLISECONDS);
+        ThreadUtils.scheduleWithFixedDelay(() -> {
+            if (!msManager.isMaster()) reportProgress();
+        }, Constant.Sync.PROGRESS_REPORT_INTERVAL,
+                Constant.Sync.PROGRESS_REPORT_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     /**
      * <pre>
      * 说明：用于验证传入参数是否合规
      * 实现步骤：
-     *   1) 判定协议的dataUse!=当前实例的dataUse返回null
+     *   1) 判定协议的dataUse!=当前实例的dataUse，或正在装载快照，返回null
      *   2) 将BaseTransportProtocol转换成SyncInfoProtocol
-     *   3) 判断当前协议的data为null，则表示当前站点缺失的事务太多，无法通过正常途径补全。所以打印出错误信息，
-     *   并停止服务。
+     *   3) 判断当前协议的data为空，则表示当前站点缺失的事务太多，无法通过正常途径补全。所以向主站点请求快照，
+     *   并返回null
      *   4) 获取入参的data，并构建list
      *   5) 遍历data
      *     1. 判定当前data[i]已经被执行过，则忽略
      *     2. 将data[i]加入list
-     *   6) 判定list为空返回null
-     *   7) 返回list
+     *   6) 判定协议标记还有后续的同步信息，则设置morePages
+     *   7) 将收到的最大同步信息id记录到metrics
+     *   8) 判定list为空且没有后续的同步信息返回null
+     *   9) 返回list
      * </pre>
      *
      * @param protocol 当前协议实例
@@ -136,12 +170,12 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
     @SneakyThrows
     @Override
     public List<SyncInfoEntity> validate(BaseTransportProtocol protocol) {
-        if (protocol.data()[9] != getDataUse()) return null;
+        if (protocol.data()[9] != getDataUse() || snapshotDB.loading()) return null;
         SyncInfoProtocol syncInfoProtocol = new SyncInfoProtocol(protocol.data());
         ArrayList<SyncInfoEntity> list = (ArrayList<SyncInfoEntity>) syncInfoProtocol.getData()[0];
         if (list == null || list.isEmpty()) {
-            System.err.println("The site lack too many transactions to continue!");
-            LauncherUtils.destroy();
+            snapshotDB.requestSnapshot();
+            return null;
         }
 
         ArrayList<SyncInfoEntity> res = new ArrayList<>(list.size());
@@ -149,7 +183,9 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
             if (txCenter.transactionCount() >= info.getId()) continue;
             res.add(info);
         }
-        if (res.isEmpty()) return null;
+        if (syncInfoProtocol.hasMore()) morePages = true;
+        metrics.received(list.get(list.size() - 1).getId());
+        if (res.isEmpty() && !morePages) return null;
         return res;
     }
 
@@ -159,6 +195,7 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
      * 注意：同步方法
      * 实现步骤：
      *   1) 将入参全部装入syncInfoQueue
+     *   2) 立即提交缓存的同步信息，不等待定时任务
      * </pre>
      *
      * @param syncInfoEntities 需要同步的信息列表
@@ -168,74 +205,127 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
     @Override
     public TransportProtocol doSync(List<SyncInfoEntity> syncInfoEntities) throws Exception {
         synchronized (syncInfoQueue) {
-            syncInfoEntities.addAll(syncInfoEntities);
+            syncInfoQueue.addAll(syncInfoEntities);
         }
+        ThreadUtils.execute(this::apply);
         return null;
     }
 
     /**
      * <pre>
-     * 说明：将同步信息提交到数据库中
+     * 说明：检查缺失的同步信息
      * 规范：
      *   1) 该方法每秒执行一次
-     *   2) 缺失同步信息3次向主站点请求一次同步性信息
+     *   2) 连续3次缺失同步信息向主站点请求一次同步性信息
+     * 实现步骤：
+     *   1) 执行apply()
+     *   2) 判定apply()没有因为缺失同步信息停止，lostSyncInfo=0，返回
+     *   3) 判定lostSyncInfo<3
+     *     1. lostSyncInfo为0时是新发现的缺失，记录到metrics
+     *     2. lostSyncInfo+=1
+     *   4) 判定lostSyncInfo>=3
+     *     1. lostSyncInfo=0
+     *     2. 向主站点发送请求同步信息协议
+     * </pre>
+     *
+     * @since 0.0.0
+     */
+    public void doSync0()  {
+        synchronized (syncInfoQueue) {
+            if (!apply()) {
+                lostSyncInfo = 0;
+                return;
+            }
+            if (lostSyncInfo == 0) metrics.gapDetected();
+            lostSyncInfo += 1;
+            if (lostSyncInfo >= 3) {
+                lostSyncInfo = 0;
+                requestSyncInfo();
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：将同步信息交给applier提交到数据库中
+     * 规范：
+     *   1) 同步信息到达后立即执行，并由doSync0()每秒执行一次
      * 注意：同步问题
      * 实现步骤：
-     *   1) 当前队列为空，直接返回
-     *   2) 判定队列中第一个同步信息的id>当前数据库提交事务数+1
-     *     1. 判定lostSyncInfo<3
-     *       - lostSyncInfo+=1
-     *     2. 判定lostSyncInfo>=3
-     *       - lostSyncInfo=0
-     *       - 向主站点发送请求同步信息协议
-     *     3. 退出当前执行
-     *   3) 判定队列中第一个同步信息的id<当前数据库提交事务数+1
+     *   1) 判定正在装载快照，返回false
+     *   2) dispatched不小于当前数据库提交事务数
+     *   3) 当前队列为空，跳到8)
+     *   4) 判定队列中第一个同步信息的id>dispatched+1
+     *     1. 保留队列中的同步信息，返回true
+     *   5) 判定队列中第一个同步信息的id<dispatched+1
      *     1. 移除该同步信息
-     *   4) 判定队列中第一个同步信息的id=当前数据库提交事务数+1
-     *     1. 当前数据库提交事务数+1
-     *     2. 将同步信息和事务对数据库的更新均写入数据库
-     *     3. 将该同步信息给到syncSender
-     *     4. 将该同步信息移除
-     *   5) 执行2),3)和4)，直到无法进行下去
+     *   6) 判定队列中第一个同步信息的id=dispatched+1
+     *     1. 将该同步信息交给applier，dispatched=该同步信息id
+     *     2. 将该同步信息移除
+     *   7) 执行4),5)和6)，直到无法进行下去
+     *   8) 判定需要请求下一页同步信息，则请求
      * </pre>
      *
+     * @return 因为缺失同步信息而停止时返回true
      * @since 0.0.0
      */
-    public void doSync0()  {
+    private boolean apply() {
         synchronized (syncInfoQueue) {
+            if (snapshotDB.loading()) return false;
+            dispatched = Math.max(dispatched, txCenter.transactionCount());
             while (!syncInfoQueue.isEmpty()) {
                 SyncInfoEntity peek = syncInfoQueue.peek();
-                long expected = txCenter.transactionCount() + 1;
-                if (peek.getId() > expected) { // 2)
-                    lostSyncInfo += 1;
-                    if (lostSyncInfo >= 3) {
-                        lostSyncInfo = 0;
-                        requestSyncInfo();
-                        return;
-                    }
-                } else if (peek.getId() == expected) { // 4)
-                    commitSyncInfo(peek);
-                    syncSender.send(peek);
+                long expected = dispatched + 1;
+                if (peek.getId() > expected) return true; // 4)
+                if (peek.getId() == expected) { // 6)
+                    applier.submit(peek);
+                    dispatched = peek.getId();
                 }
                 syncInfoQueue.poll();
             }
+            requestNextPage(); // 8)
+            return false;
         }
     }
 
-
     /**
      * <pre>
-     * 说明：提交同步信息
+     * 说明：请求下一页同步信息
+     * 注意事项：
+     *   1. applier中未应用完成的同步信息不足一页时才请求，补全同步信息占用的内存不超过两页
      * 实现步骤：
-     *   1. 将commitSyncInfo0注册到事务中心
-     *   2. 执行事务中心提交事务逻辑
+     *   1) 判定morePages为true、队列已经清空且applier中未应用完成的同步信息数小于SYNC_PAGE_ENTRIES
+     *     1. 请求同步信息
+     * </pre>
+     * @since 0.0.0
+     */
+    private void requestNextPage() {
+        synchronized (syncInfoQueue) {
+            if (morePages && syncInfoQueue.isEmpty() && applier.pending() < Constant.Sync.SYNC_PAGE_ENTRIES) {
+                requestSyncInfo();
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：向GDBMS汇报当前数据库提交事务数和复制状态
+     * 规范：
+     *   1) 水位推进后和每隔PROGRESS_REPORT_INTERVAL执行一次
+     *   2) data[]: dbName, siteName, transactionCount, ReplicationStatus
+     * 注意事项：
+     *   1. GDBMS据此判定读请求能否路由到当前站点，汇报失败只会使读请求暂时路由到主站点
      * </pre>
-     * @param info 同步信息
      * @since 0.0.0
      */
-    private void commitSyncInfo(SyncInfoEntity info) {
-        txCenter.registerCommit(info.getTransaction(), id -> syncDao.commitSyncInfo(info));
-        txCenter.commit(info.getTransaction(), info.getId());
+    private void reportProgress() {
+        try {
+            sender.send(gdbmsConfig.siteName(), new ACKProtocol(Constant.ACKType.SLAVE_PROGRESS,
+                    serverConfig.dbName(), serverConfig.siteName(), txCenter.transactionCount(),
+                    metrics.status()), null, false);
+        } catch (Exception e) {
+            ExceptionUtils.printStackTrace(e);
+        }
     }
 
 
@@ -244,8 +334,9 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
      * 说明：请求缺失的同步信息
      * 实现步骤：
      *   1. 当前站点有主站点则直接向主站点请求同步信息，否则向GDBMS请求同步信息
-     *   2. 构建请求同步信息协议
-     *   3. 将协议内容发送出去
+     *   2. 构建请求同步信息协议，从dispatched之后开始请求
+     *   3. 清除morePages，是否还有后续的同步信息由本次请求的响应决定
+     *   4. 将协议内容发送出去，并记录到metrics
      * </pre>
      * @since 0.0.0
      */
@@ -255,9 +346,11 @@ public class SyncDB extends AbstractSync<List<SyncInfoEntity>> {
         else site = msManager.master().getName();
 
         RequestSyncInfoProtocol protocol = new RequestSyncInfoProtocol(serverConfig.dbName(),
-                txCenter.transactionCount(), serverConfig.siteName());
+                Math.max(dispatched, txCenter.transactionCount()), serverConfig.siteName());
 
+        morePages = false;
         sender.send(site, protocol, null, false);
+        metrics.catchUpRequested();
 
     }
 
@@ -1,14 +1,13 @@
 package org.qh.DDBMS.LDBMS.ms_sync.impl;
 
 import org.qh.DDBMS.LDBMS.ms_sync.SyncSender;
+import org.qh.DDBMS.LDBMS.ms_sync.configuration.SyncSenderConfig;
 import org.qh.DDBMS.LDBMS.ms_sys.MasterSlaveManager;
-import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
 import org.qh.DDBMS.common.output.DDBMSSender;
 import org.qh.DDBMS.common.protocol.SyncInfoProtocol;
 import org.qh.tools.thread.ThreadUtils;
 
-import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -48,12 +47,20 @@ public class SyncSenderImpl implements SyncSender {
     @Resource
     private MasterSlaveManager msManager;
 
-    @PostConstruct
-    public void start() {
-        ThreadUtils.scheduleWithFixedDelay(this::sendSyncInfo,
-                Constant.Sync.DISPATCH_SYNC_INFO_INTERVAL, Constant.Sync.DISPATCH_SYNC_INFO_INTERVAL,
-                TimeUnit.MILLISECONDS);
-    }
+    /**
+     * <pre>
+     * 说明：用于获取合并发送的窗口和批量大小
+     * </pre>
+     */
+    @Resource
+    private SyncSenderConfig config;
+
+    /**
+     * <pre>
+     * 说明：是否已经安排了一次延迟发送
+     * </pre>
+     */
+    private boolean scheduled;
 
     /**
      * <pre>
@@ -61,6 +68,8 @@ public class SyncSenderImpl implements SyncSender {
      * 实现步骤：
      *   1) 判定当前站点有从站点
      *     1. 将收到的同步数据加入从站点同步队列中
+     *     2. 判定队列中同步信息数达到batchSize或batchWindow小于等于0，在当前线程执行sendSyncInfo()
+     *     3. 否则判定未安排延迟发送，在batchWindow毫秒后执行sendSyncInfo()
      * </pre>
      * @param syncInfo 一个事务的同步信息
      * @since 0.0.0
@@ -68,32 +77,44 @@ public class SyncSenderImpl implements SyncSender {
     @Override
     public void send(SyncInfoEntity syncInfo) {
         if (!msManager.hasSlave()) return;
+        boolean sendNow = false;
         synchronized (buffer) {
             buffer.add(syncInfo);
+            if (buffer.size() >= config.batchSize() || config.batchWindow() <= 0) {
+                sendNow = true;
+            } else if (!scheduled) {
+                scheduled = true;
+                ThreadUtils.schedule(this::sendSyncInfo, config.batchWindow(), TimeUnit.MILLISECONDS);
+            }
         }
+        if (sendNow) sendSyncInfo();
     }
 
     /**
      * <pre>
      * 说明：该方法执行将同步信息发送给从站点的业务
-     * 规范：该方法每SEND_SYNC_INFO_INTERVAL执行一次
+     * 规范：该方法在同步信息到达后batchWindow内，或缓存的同步信息达到batchSize时执行
+     * 注意事项：
+     *   1. 在buffer上同步，协议按同步信息id的顺序发送给从站点
      * 实现步骤：
-     *   1) 当前缓存队列为空，返回
-     *   2) 获取所有缓存的entity，并清空缓存队列
-     *   3) 构建一个SyncProtocol实例
-     *   4) 获取所有的从站点的站点名
-     *   5) 将SyncProtocol实例发送到各个站点
+     *   1) 重置延迟发送标记
+     *   2) 当前缓存队列为空，返回
+     *   3) 获取所有缓存的entity，并清空缓存队列
+     *   4) 构建一个SyncProtocol实例
+     *   5) 获取所有的从站点的站点名
+     *   6) 将SyncProtocol实例发送到各个站点
      * </pre>
      * @since 0.0.0
      */
     private void sendSyncInfo() {
         synchronized (buffer) {
+            scheduled = false;
             if (buffer.isEmpty()) return;
             SyncInfoProtocol protocol = new SyncInfoProtocol(new ArrayList<>(buffer));
+            buffer.clear();
             for (String slave : msManager.slaves()) {
                 sender.send(slave, protocol, null, false);
             }
-            buffer.clear();
         }
     }
 }
@@ -0,0 +1,164 @@
+package org.qh.DDBMS.LDBMS.ms_sync.impl;
+
+import com.qh.protocol.exception.ProtocolException;
+import com.qh.protocol.net.BaseTransportProtocol;
+import com.qh.protocol.net.TransportProtocol;
+import org.qh.DDBMS.LDBMS.ms_sync.AbstractSync;
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SnapshotDao;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.input.ServerConfig;
+import org.qh.DDBMS.common.output.DDBMSSender;
+import org.qh.DDBMS.common.protocol.RequestSnapshotProtocol;
+import org.qh.DDBMS.common.protocol.SnapshotProtocol;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 用于执行从站点请求数据库快照的类
+ */
+public class SyncSnapshot extends AbstractSync<Object[]> {
+
+    /**
+     * <pre>
+     * 说明：请求者站点名和其快照游标的映射关系
+     * </pre>
+     */
+    private final Map<String, SnapshotDao.Cursor> cursors = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：用于开启快照
+     * </pre>
+     */
+    @Resource
+    private SnapshotDao snapshotDao;
+
+    /**
+     * <pre>
+     * 说明：用于获取当前站点负责的数据库名
+     * </pre>
+     */
+    @Resource
+    private ServerConfig serverConfig;
+
+    /**
+     * <pre>
+     * 说明：用于将快照发送给到请求者
+     * </pre>
+     */
+    @Resource
+    private DDBMSSender<String> sender;
+
+    public SyncSnapshot() {
+        super(Constant.ObjectProtocolDataUse.REQUEST_SNAPSHOT_PROTOCOL);
+    }
+
+    @PostConstruct
+    public void start() {
+        ThreadUtils.scheduleWithFixedDelay(this::closeIdle, Constant.Sync.SNAPSHOT_SESSION_TIMEOUT,
+                Constant.Sync.SNAPSHOT_SESSION_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <pre>
+     * 说明：用于验证传入参数是否合规。
+     * 实现步骤：
+     *   1) 判定protocol.dataUse!=本类dataUse,则抛出异常
+     *   2) 将传入协议转化为RequestSnapshotProtocol
+     *   3) 判断传入数据库不是当前站点负责的数据库，则返回null
+     *   4) 将协议data值返回
+     * </pre>
+     *
+     * @param protocol 接受到的请求快照协议实例
+     * @return 协议的data
+     * @since 0.0.0
+     */
+    @Override
+    public Object[] validate(BaseTransportProtocol protocol) {
+        if (getDataUse() != protocol.data()[9]) throw new ProtocolException("Bad protocol content!");
+        RequestSnapshotProtocol p = new RequestSnapshotProtocol(protocol.data());
+        if (!serverConfig.dbName().equals(p.getData()[0])) return null;
+        return p.getData();
+    }
+
+    /**
+     * <pre>
+     * 说明：将快照的下一块发送给请求者
+     * 规范：
+     *   1) 请求者每装载完一块再请求下一块，每个请求者同一时刻最多有一个快照
+     * 实现步骤：
+     *   1) 判定请求开启新的快照，关闭请求者原有的快照，并以请求中的会话id开启新的快照
+     *   2) 否则获取请求者的快照，不存在或会话id不一致则返回null，由请求者超时后重新请求
+     *   3) 读取快照的下一块
+     *     1. 判定该块是结束块，关闭快照
+     *     2. 读取失败，关闭快照并抛出异常
+     *   4) 将该块发送给请求者
+     * </pre>
+     *
+     * @param args 请求快照需要的参数
+     * @return null
+     * @since 0.0.0
+     */
+    @Override
+    public TransportProtocol doSync(Object[] args) throws Exception {
+        String site = (String) args[1];
+        long session = (Long) args[3];
+        SnapshotDao.Cursor cursor;
+        if ((Boolean) args[2]) {
+            close(site);
+            cursor = snapshotDao.open((String) args[0], session);
+            cursors.put(site, cursor);
+        } else if ((cursor = cursors.get(site)) == null || cursor.session() != session) return null;
+
+        SnapshotProtocol protocol;
+        try {
+            synchronized (cursor) {
+                protocol = cursor.next();
+            }
+        } catch (Exception e) {
+            close(site);
+            throw e;
+        }
+        if (protocol.done()) close(site);
+        sender.send(site, protocol, null, false);
+        return null;
+    }
+
+    /**
+     * 说明：关闭站点的快照
+     * @param site 请求者站点名
+     * @since 0.0.0
+     */
+    private void close(String site) {
+        SnapshotDao.Cursor cursor = cursors.remove(site);
+        if (cursor == null) return;
+        try {
+            synchronized (cursor) {
+                cursor.close();
+            }
+        } catch (Exception e) {
+            ExceptionUtils.printStackTrace(e);
+        }
+    }
+
+    /**
+     * 说明：关闭空闲超过SNAPSHOT_SESSION_TIMEOUT的快照
+     * @since 0.0.0
+     */
+    private void closeIdle() {
+        long deadline = System.currentTimeMillis() - Constant.Sync.SNAPSHOT_SESSION_TIMEOUT;
+        for (Map.Entry<String, SnapshotDao.Cursor> entry : cursors.entrySet()) {
+            if (entry.getValue().lastAccess() < deadline) close(entry.getKey());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.qh.protocol.net.BaseTransportProtocol;
 import com.qh.protocol.net.TransportProtocol;
 import org.qh.DDBMS.LDBMS.ms_sync.AbstractSync;
 import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.db.DBTransaction;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
@@ -52,6 +53,14 @@ public class SyncTransaction extends AbstractSync<Object[]> {
     @Resource
     private DDBMSSender<String> sender;
 
+    /**
+     * <pre>
+     * 说明：获取当前数据库提交事务数，用于判定是否还有后续的同步信息
+     * </pre>
+     */
+    @Resource
+    private LTransactionCenter txCenter;
+
     public SyncTransaction() {
         super(Constant.ObjectProtocolDataUse.REQUEST_SYNC_INFO_PROTOCOL);
     }
@@ -96,8 +105,12 @@ public class SyncTransaction extends AbstractSync<Object[]> {
      *       - last
      *       - siteName
      * 实现步骤：
-     *   1) 从数据库中查出id值大于args[1]的协议
+     *   1) 从数据库中查出id值大于args[1]的一页同步信息
+     *     1. 没有查到且最小的同步信息id大于args[1]+1，说明请求者缺失的同步信息已经不存在，发送空的SyncInfoProtocol，
+     *     请求者据此改为请求快照
+     *     2. 没有查到且请求者没有落后，返回null
      *   2) 将查询到的同步信息封装为SyncInfoProtocol
+     *     1. 本页最后一个同步信息的id小于当前数据库提交事务数，则标记还有后续的同步信息
      *   3) 将协议信息发送给请求者
      * </pre>
      *
@@ -108,7 +121,15 @@ public class SyncTransaction extends AbstractSync<Object[]> {
     @Override
     public TransportProtocol doSync(Object[] args) throws Exception {
         List<SyncInfoEntity> res = syncDao.selectSyncInfo((String) args[0], (Long) args[1]);
-        sender.send((String) args[2], new SyncInfoProtocol(res), null, false);
+        if (res == null) {
+            if (syncDao.selectMinSyncInfoId((String) args[0]) > (Long) args[1] + 1) {
+                sender.send((String) args[2], new SyncInfoProtocol(new ArrayList<>(), false), null, false);
+            }
+            return null;
+        }
+        boolean hasMore = !res.isEmpty() &&
+                res.get(res.size() - 1).getId() < txCenter.transactionCount();
+        sender.send((String) args[2], new SyncInfoProtocol(res, hasMore), null, false);
         return null;
     }
 }
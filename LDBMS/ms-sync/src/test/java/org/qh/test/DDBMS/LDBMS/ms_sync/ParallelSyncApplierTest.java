@@ -0,0 +1,336 @@
+package org.qh.test.DDBMS.LDBMS.ms_sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.ms_sync.SyncSender;
+import org.qh.DDBMS.LDBMS.ms_sync.configuration.impl.SyncApplierConfigImpl;
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.ms_sync.impl.ParallelSyncApplier;
+import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.entity.SyncInfoEntity;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试ParallelSyncApplier按读写的表调度同步信息
+ *   同步信息提交到数据库时阻塞，直到测试调用finish()，以观察哪些同步信息被同时启动
+ */
+public class ParallelSyncApplierTest {
+
+    /**
+     * 说明：等待应该发生的事件的最长时间，毫秒
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * 说明：确认不应该发生的事件没有发生的等待时间，毫秒
+     */
+    private static final long QUIET = 200;
+
+    private SyncApplierConfigImpl config;
+
+    private ParallelSyncApplier applier;
+
+    /**
+     * 说明：按启动顺序记录的每组同步信息id
+     */
+    private final BlockingQueue<List<Long>> started = new LinkedBlockingQueue<>();
+
+    /**
+     * 说明：以组内第一个同步信息id为键，释放后该组提交完成
+     */
+    private final Map<Long, CountDownLatch> latches = new ConcurrentHashMap<>();
+
+    /**
+     * 说明：推进后的水位
+     */
+    private final BlockingQueue<Long> watermarks = new LinkedBlockingQueue<>();
+
+    /**
+     * 说明：交给syncSender的同步信息id
+     */
+    private final List<Long> sent = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * 说明：重启前已经提交的同步信息id
+     */
+    private final List<Long> committed = new ArrayList<>();
+
+    /**
+     * 说明：外键关系，子表和父表
+     */
+    private final List<String[]> foreignKeys = new ArrayList<>();
+
+    /**
+     * 说明：定义了触发器的表
+     */
+    private final Set<String> triggers = new HashSet<>();
+
+    @Before
+    public void setUp() {
+        config = new SyncApplierConfigImpl();
+        config.setApplyThreads(4);
+        config.setBatchEntries(1);
+        config.setBatchBytes(1024 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        for (CountDownLatch latch : latches.values()) latch.countDown();
+    }
+
+    /**
+     * 说明：读写不同表的同步信息同时应用，读写相同表的同步信息等待之前的完成
+     */
+    @Test
+    public void disjointTablesRunInParallel() throws Exception {
+        init();
+        submit(1, update("t"));
+        submit(2, update("u"));
+        assertStarted(1);
+        assertStarted(2);
+        submit(3, update("t"));
+        assertNothingStarted();
+
+        finish(1);
+        assertStarted(3);
+        awaitWatermark(1);
+        finish(3);
+        assertNothingStarted();
+        assertEquals(2, applier.pending());
+        finish(2);
+        awaitWatermark(3);
+        assertEquals(Arrays.asList(1L, 2L, 3L), sent);
+        assertEquals(0, applier.pending());
+    }
+
+    /**
+     * 说明：后面的同步信息先完成时水位不推进，前面的完成后一起推进
+     */
+    @Test
+    public void watermarkWaitsForGaps() throws Exception {
+        init();
+        submit(1, update("t"));
+        submit(2, update("u"));
+        assertStarted(1);
+        assertStarted(2);
+
+        finish(2);
+        assertNull(watermarks.poll(QUIET, TimeUnit.MILLISECONDS));
+        assertTrue(sent.isEmpty());
+        finish(1);
+        awaitWatermark(2);
+        assertEquals(Arrays.asList(1L, 2L), sent);
+    }
+
+    /**
+     * 说明：DDL语句与所有同步信息冲突，之前的完成后才启动，其后的等待其完成
+     */
+    @Test
+    public void ddlRunsAlone() throws Exception {
+        init();
+        submit(1, update("t"));
+        submit(2, "ALTER TABLE `u` ADD COLUMN `b` INT;");
+        submit(3, update("v"));
+        assertStarted(1);
+        assertNothingStarted();
+
+        finish(1);
+        assertStarted(2);
+        assertNothingStarted();
+        finish(2);
+        assertStarted(3);
+        finish(3);
+        awaitWatermark(3);
+    }
+
+    /**
+     * 说明：通过外键关联的表视为同一张表
+     */
+    @Test
+    public void foreignKeysJoinTables() throws Exception {
+        foreignKeys.add(new String[]{"child", "parent"});
+        foreignKeys.add(new String[]{"grandchild", "child"});
+        init();
+        submit(1, update("grandchild"));
+        submit(2, update("parent"));
+        submit(3, update("u"));
+        assertStarted(1);
+        assertStarted(3);
+        assertNothingStarted();
+
+        finish(1);
+        assertStarted(2);
+    }
+
+    /**
+     * 说明：定义了触发器的表读写的表无法确定，与所有同步信息冲突
+     */
+    @Test
+    public void triggersConflictWithEverything() throws Exception {
+        triggers.add("x");
+        init();
+        submit(1, update("t"));
+        submit(2, update("x"));
+        submit(3, update("u"));
+        assertStarted(1);
+        assertNothingStarted();
+
+        finish(1);
+        assertStarted(2);
+        assertNothingStarted();
+        finish(2);
+        assertStarted(3);
+    }
+
+    /**
+     * 说明：线程用完时等待，之后将相邻的同步信息合并为一组，每组不超过batchEntries
+     */
+    @Test
+    public void adjacentEntriesAreGrouped() throws Exception {
+        config.setApplyThreads(1);
+        config.setBatchEntries(2);
+        init();
+        submit(1, update("t"));
+        assertStarted(1);
+        submit(2, update("u"));
+        submit(3, update("u"));
+        submit(4, update("v"));
+        assertNothingStarted();
+
+        finish(1);
+        assertStarted(2, 3);
+        assertNothingStarted();
+        finish(2);
+        assertStarted(4);
+        finish(4);
+        awaitWatermark(4);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), sent);
+    }
+
+    /**
+     * 说明：重启前已经提交的同步信息不再应用，前面的完成后水位直接越过它
+     */
+    @Test
+    public void committedEntriesAreSkipped() throws Exception {
+        committed.add(2L);
+        init();
+        submit(1, update("t"));
+        submit(2, update("t"));
+        submit(3, update("u"));
+        assertStarted(1);
+        assertStarted(3);
+        assertNothingStarted();
+
+        finish(1);
+        awaitWatermark(2);
+        finish(3);
+        awaitWatermark(3);
+        assertEquals(Arrays.asList(1L, 2L, 3L), sent);
+    }
+
+    private void init() throws Exception {
+        applier = new ParallelSyncApplier();
+        inject(applier, "config", config);
+        inject(applier, "syncDao", new BlockingSyncDao());
+        inject(applier, "txCenter", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{LTransactionCenter.class}, (proxy, method, args) ->
+                        method.getReturnType() == long.class ? 0L : null));
+        inject(applier, "syncSender", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{SyncSender.class}, (proxy, method, args) -> {
+                    if ("send".equals(method.getName())) sent.add(((SyncInfoEntity) args[0]).getId());
+                    return null;
+                }));
+        applier.addWatermarkListener(watermarks::add);
+        applier.init();
+    }
+
+    private void submit(long id, String sql) {
+        SyncInfoEntity info = new SyncInfoEntity(null, new DBTransaction(id, 0, (byte) 0), sql);
+        info.setId(id);
+        applier.submit(info);
+    }
+
+    private static String update(String table) {
+        return "UPDATE `" + table + "` SET `a` = 1 WHERE `id` = 1;";
+    }
+
+    private void finish(long id) {
+        latch(id).countDown();
+    }
+
+    private CountDownLatch latch(long id) {
+        return latches.computeIfAbsent(id, k -> new CountDownLatch(1));
+    }
+
+    private void assertStarted(long... ids) throws InterruptedException {
+        List<Long> expected = new ArrayList<>();
+        for (long id : ids) expected.add(id);
+        assertEquals(expected, started.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    private void assertNothingStarted() throws InterruptedException {
+        assertNull(started.poll(QUIET, TimeUnit.MILLISECONDS));
+    }
+
+    private void awaitWatermark(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            Long watermark = watermarks.poll(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+            assertNotNull(watermark);
+            if (watermark == expected) return;
+            assertTrue(watermark < expected);
+        }
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    /**
+     * 说明：记录每组提交的同步信息，并阻塞到该组被释放
+     */
+    private class BlockingSyncDao extends SyncDao {
+
+        @Override
+        public void commitSyncInfo(List<SyncInfoEntity> infos) {
+            List<Long> ids = new ArrayList<>();
+            for (SyncInfoEntity info : infos) ids.add(info.getId());
+            started.add(ids);
+            try {
+                latch(ids.get(0)).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (SyncInfoEntity info : infos) notifyApplied(info.getSqlStatement());
+        }
+
+        @Override
+        public List<Long> selectSyncInfoIdsGT(long id) {
+            return committed;
+        }
+
+        @Override
+        public List<String[]> selectForeignKeys() {
+            return foreignKeys;
+        }
+
+        @Override
+        public Set<String> selectTriggerTables() {
+            return triggers;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/07
+ * @Version: 0.0.0
+ * @Description: 将一个事务的写语句按模板分组为JDBC批次的接口
+ */
+public interface BatchPlanner {
+
+    /**
+     * <pre>
+     * 说明：将事务的写语句分组为批次
+     * 规范：
+     *   1) 只合并相邻且模板相同的语句，保证语句的执行顺序不变
+     *   2) 不带参数的语句可以先将其中的字面量提取为绑定参数，使相同形状的语句得到相同的模板
+     * </pre>
+     * @param list 事务的写语句
+     * @return 按执行顺序排列的批次
+     * @since 0.0.0
+     */
+    List<SQLBatch> plan(List<SQL> list);
+
+    /**
+     * <pre>
+     * 说明：将单行insert模板改写为一次插入rows行的模板
+     * 规范：
+     *   1) 模板只能是以单个VALUES(...)结尾的INSERT或REPLACE语句
+     *   2) 改写后的模板的参数依次是每一行的参数
+     * </pre>
+     * @param template 单行insert模板
+     * @param rows 行数
+     * @return 多行insert模板，模板不能改写时返回null
+     * @since 0.0.0
+     */
+    String multiRowTemplate(String template, int rows);
+}
@@ -17,5 +17,17 @@ public interface Commit {
      * @since 0.0.0
      */
     void commit(SQL sql) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：批量导入一张表的行数据，并提交其所在的事务
+     * 规范：
+     *   1) 事务已经写入SQLBank的语句先于导入的行执行
+     *   2) 导入期间事务持有该表的表锁
+     * </pre>
+     * @param batch 导入的行数据
+     * @since 0.0.0
+     */
+    void bulkLoad(RowBatch batch) throws Exception;
 }
 
@@ -0,0 +1,49 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import org.qh.DDBMS.common.db.DBResource;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/03
+ * @Version: 0.0.0
+ * @Description: 提前释放锁的事务之间的提交依赖关系管理接口
+ */
+public interface CommitDependency {
+
+    /**
+     * <pre>
+     * 说明：登记一个即将提前释放锁的事务
+     * 注意事项：
+     *   1. 必须在事务持有锁时调用，此时与其资源冲突的待确认事务都是它的前驱
+     * </pre>
+     * @param transaction 即将释放锁的事务
+     * @param resources 该事务持有的资源
+     * @since 0.0.0
+     */
+    void register(DBTransaction transaction, List<DBResource> resources);
+
+    /**
+     * <pre>
+     * 说明：在一个事务的所有前驱都完成后执行onReady，任一前驱撤销则执行onAbort
+     * </pre>
+     * @param transaction 已登记的事务
+     * @param onReady 所有前驱都提交后执行的逻辑
+     * @param onAbort 前驱撤销时执行的逻辑
+     * @since 0.0.0
+     */
+    void whenReady(DBTransaction transaction, Runnable onReady, Runnable onAbort);
+
+    /**
+     * <pre>
+     * 说明：一个已登记的事务完成
+     * </pre>
+     * @param transaction 已登记的事务
+     * @param committed true表示提交，false表示撤销
+     * @since 0.0.0
+     */
+    void complete(DBTransaction transaction, boolean committed);
+}
@@ -0,0 +1,35 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/04
+ * @Version: 0.0.0
+ * @Description: 将相近时间内获得GDBMS确认的事务合并为一次数据库提交的接口
+ */
+public interface GroupCommit {
+
+    /**
+     * <pre>
+     * 说明：提交一个已经获得GDBMS确认的事务
+     * 规范：
+     *   1) work在一个共享的、关闭了自动提交的连接上执行该事务的所有写操作
+     *   2) 合并提交成功后按同步信息id的顺序执行onCommitted
+     * </pre>
+     * @param syncInfoId 事务的同步信息id
+     * @param work 事务的写操作
+     * @param onCommitted 事务提交后执行的逻辑
+     * @since 0.0.0
+     */
+    void submit(long syncInfoId, CommitWork work, Runnable onCommitted);
+
+    /**
+     * 说明：在给定连接上执行一个事务的写操作
+     */
+    interface CommitWork {
+        void execute(Connection connection) throws SQLException;
+    }
+}
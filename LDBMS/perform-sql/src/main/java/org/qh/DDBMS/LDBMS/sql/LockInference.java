@@ -0,0 +1,60 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 根据事务的写语句推断其需要的锁，并登记到DBLock的接口
+ */
+public interface LockInference {
+
+    /**
+     * <pre>
+     * 说明：推断事务需要的锁，并登记到DBLock
+     * 规范：
+     *   1) 只分析WRITE_TYPE语句
+     *   2) 能确定修改的行时登记行锁，否则登记表锁
+     *   3) 无法确定修改的表时登记所有表的表锁，不能不加锁
+     *   4) 必须在DBLock.lock()之前调用
+     * </pre>
+     * @param transaction 事务
+     * @param list 事务的写语句
+     * @return LockInferenceReport 推断结果
+     * @since 0.0.0
+     */
+    default LockInferenceReport register(DBTransaction transaction, List<SQL> list) {
+        return register(transaction, list, Collections.emptyList());
+    }
+
+    /**
+     * <pre>
+     * 说明：推断事务需要的锁，与tables的表锁合并后登记到DBLock
+     * 规范：
+     *   1) 与register(transaction, list)相同
+     *   2) tables中的表登记表锁，该表上推断出的行锁被表锁取代，同一张表不会同时登记表锁和行锁
+     *   3) 未开启推断或事务已经手动登记了资源时，仍然登记tables中尚未登记的表锁
+     * </pre>
+     * @param transaction 事务
+     * @param list 事务的写语句
+     * @param tables 需要登记表锁的tableId，如批量导入的表
+     * @return LockInferenceReport 推断结果
+     * @since 0.0.0
+     */
+    LockInferenceReport register(DBTransaction transaction, List<SQL> list, Collection<Integer> tables);
+
+    /**
+     * <pre>
+     * 说明：获取最近的推断结果，按时间先后排列
+     * </pre>
+     * @return 推断结果
+     * @since 0.0.0
+     */
+    List<LockInferenceReport> reports();
+}
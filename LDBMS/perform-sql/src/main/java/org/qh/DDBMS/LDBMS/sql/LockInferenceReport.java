@@ -0,0 +1,28 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.qh.DDBMS.common.db.DBResource;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 一个事务的锁推断结果，用于审计
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LockInferenceReport {
+    private final DBTransaction transaction; // 推断的事务
+    private final long time; // 推断的时间戳，单位ms
+    private final boolean manual; // 事务是否已经手动登记了资源，此时不进行推断
+    private final List<DBResource> resources; // 推断并登记的资源
+    private final boolean unresolved; // 是否有写语句无法确定修改的表，或者没有进行推断
+    private final List<String> notes; // 每条写语句的推断依据
+}
@@ -0,0 +1,81 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: 以语句和参数为key缓存查询结果，并按表失效的接口
+ */
+public interface QueryCache {
+
+    /**
+     * <pre>
+     * 说明：是否开启查询缓存
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean enabled();
+
+    /**
+     * <pre>
+     * 说明：获取查询的缓存结果
+     * 注意事项：
+     *   1. 返回的列表和其中的行都是缓存的副本，调用方可以修改它们
+     * </pre>
+     * @param sql 查询语句
+     * @param clazz 返回值类型
+     * @return 缓存结果，未命中时返回null
+     * @since 0.0.0
+     */
+    <F> List<F> get(SQL sql, Class<F> clazz);
+
+    /**
+     * <pre>
+     * 说明：获取当前的时间戳，在执行查询前获取并在put()时传入
+     * </pre>
+     * @return 时间戳
+     * @since 0.0.0
+     */
+    long stamp();
+
+    /**
+     * <pre>
+     * 说明：缓存一个查询结果
+     * 规范：
+     *   1) 查询涉及的表在stamp之后失效过，则不缓存该结果
+     *   2) 无法确定查询涉及的表时不缓存
+     *   3) 查询视图，或查询有外键、触发器的表时不缓存，修改其他表可能改变这些查询的结果
+     *   4) 缓存的是rows的副本，调用方之后修改rows不会影响缓存
+     * </pre>
+     * @param sql 查询语句
+     * @param clazz 返回值类型
+     * @param rows 查询结果
+     * @param stamp 执行查询前获取的时间戳
+     * @since 0.0.0
+     */
+    <F> void put(SQL sql, Class<F> clazz, List<F> rows, long stamp);
+
+    /**
+     * <pre>
+     * 说明：写语句提交后，使其修改的表相关的缓存失效
+     * 规范：
+     *   1) statement可以是以SQL_STATEMENT_SEPARATOR连接的多条语句
+     *   2) 无法确定修改的表时使所有缓存失效
+     *   3) DDL语句使所有缓存失效
+     * </pre>
+     * @param statement 已经提交的写语句
+     * @since 0.0.0
+     */
+    void invalidate(String statement);
+
+    /**
+     * 说明：获取缓存的统计信息
+     * @return 统计信息
+     * @since 0.0.0
+     */
+    QueryCacheStats stats();
+}
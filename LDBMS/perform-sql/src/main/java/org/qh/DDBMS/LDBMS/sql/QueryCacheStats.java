@@ -0,0 +1,34 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: 查询缓存的统计信息
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class QueryCacheStats {
+    private final long hits; // 命中次数
+    private final long misses; // 未命中次数
+    private final long evictions; // 因容量淘汰的条目数
+    private final long invalidations; // 因表被修改失效的条目数
+    private final int entries; // 当前条目数
+    private final long estimatedBytes; // 当前条目估算占用的内存字节数
+
+    /**
+     * 说明：获取命中率
+     * @return 命中率，没有访问时为0
+     * @since 0.0.0
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
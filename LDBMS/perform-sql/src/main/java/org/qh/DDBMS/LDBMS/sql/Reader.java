@@ -3,6 +3,8 @@ package org.qh.DDBMS.LDBMS.sql;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -34,4 +36,30 @@ public interface Reader {
      * @since 0.0.0
      */
     <F> List<F> read(SQL sql, Class<F> clazz) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：该方法执行SQL中指定的语句，以流的形式逐行返回数据。
+     * 注意事项：
+     *   1. 流持有一个数据库连接，调用方必须关闭流，读取完所有行时流会自动释放连接
+     *   2. 结果集由驱动分批读取，内存占用与结果的行数无关
+     * </pre>
+     * @param sql 要执行的SQL对象
+     * @param <F> 查询结果的泛型类型
+     * @return 查询结果的流
+     * @since 0.0.0
+     */
+    <F> Stream<F> stream(SQL sql, Class<F> clazz) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：该方法执行SQL中指定的语句，逐行将数据交给consumer处理，处理完成后释放连接。
+     * </pre>
+     * @param sql 要执行的SQL对象
+     * @param clazz 返回值类型
+     * @param consumer 处理每一行数据的逻辑
+     * @param <F> 查询结果的泛型类型
+     * @since 0.0.0
+     */
+    <F> void readEach(SQL sql, Class<F> clazz, Consumer<? super F> consumer) throws Exception;
 }
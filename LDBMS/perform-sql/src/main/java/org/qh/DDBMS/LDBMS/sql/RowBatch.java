@@ -0,0 +1,135 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import com.qh.exception.MethodParameterException;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.tools.str.StringUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 批量导入一张表的行数据，不经过SQLBank缓存，按多行insert执行并以行数据的形式同步
+ */
+public class RowBatch {
+
+    /**
+     * <pre>
+     * 说明：导入数据的事务
+     * </pre>
+     */
+    private final DBTransaction transaction;
+
+    /**
+     * <pre>
+     * 说明：导入的表名
+     * </pre>
+     */
+    private final String table;
+
+    /**
+     * <pre>
+     * 说明：每一行按顺序对应的列名
+     * </pre>
+     */
+    private final String[] columns;
+
+    /**
+     * <pre>
+     * 说明：导入的行，每一行的值与columns一一对应
+     * </pre>
+     */
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * <pre>
+     * 说明：此类全参构造器
+     * 实现步骤：
+     *   1) 判定transaction为null、table为空或columns为空，抛出参数异常
+     *   2) 判定列名包含反引号，抛出参数异常
+     * </pre>
+     * @param transaction 导入数据的事务
+     * @param table 表名
+     * @param columns 列名
+     * @since 0.0.0
+     */
+    public RowBatch(DBTransaction transaction, String table, String... columns) {
+        if (transaction == null) throw new MethodParameterException("The transaction is null.");
+        if (StringUtils.isEmpty(table) || table.indexOf('`') >= 0) {
+            throw new MethodParameterException("The table is " + table + "(invalid).");
+        }
+        if (columns == null || columns.length == 0) throw new MethodParameterException("The columns are empty.");
+        for (String column : columns) {
+            if (StringUtils.isEmpty(column) || column.indexOf('`') >= 0) {
+                throw new MethodParameterException("The column is " + column + "(invalid).");
+            }
+        }
+        this.transaction = transaction;
+        this.table = table;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * <pre>
+     * 说明：追加一行
+     * 实现步骤：
+     *   1) 判定值的个数与列数不同，或存在不可序列化的值，抛出参数异常
+     *   2) 将该行加入rows
+     * </pre>
+     * @param values 该行每一列的值
+     * @return 当前实例
+     * @since 0.0.0
+     */
+    public RowBatch add(Object... values) {
+        if (values == null || values.length != columns.length) {
+            throw new MethodParameterException("The row has " + (values == null ? 0 : values.length) +
+                    " values but " + columns.length + " columns.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && !(values[i] instanceof Serializable)) {
+                throw new MethodParameterException("The value of " + columns[i] + " is not serializable.");
+            }
+        }
+        rows.add(values.clone());
+        return this;
+    }
+
+    /**
+     * 说明：获取插入一行的sql模板
+     * @return 形如INSERT INTO `t` (`a`, `b`) VALUES (?, ?);的模板
+     * @since 0.0.0
+     */
+    public String template() {
+        StringBuilder sb = new StringBuilder("INSERT INTO `").append(table).append("` (");
+        StringBuilder values = new StringBuilder(" VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+                values.append(", ");
+            }
+            sb.append('`').append(columns[i]).append('`');
+            values.append('?');
+        }
+        return sb.append(')').append(values).append(");").toString();
+    }
+
+    public DBTransaction transaction() {
+        return this.transaction;
+    }
+
+    public String table() {
+        return this.table;
+    }
+
+    public List<Object[]> rows() {
+        return this.rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,46 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import org.qh.DDBMS.common.db.DBResource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 在事务提交前读取其修改的行，生成同步给从站点的行修改事件的接口
+ */
+public interface RowChangeCapture {
+
+    /**
+     * <pre>
+     * 说明：读取事务修改的行，生成行修改事件
+     * 规范：
+     *   1) 必须在执行了事务的写语句、提交之前，使用同一个连接调用
+     *   2) resources中存在表锁、表没有单列整数主键、有其他唯一索引、外键、触发器或生成列时返回null
+     *   3) 行仍然存在时生成UPSERT事件，否则生成DELETE事件
+     *   4) 按执行顺序应用返回的事件，得到的行数据与事务提交后相同
+     * </pre>
+     * @param connection 执行了事务写语句的连接
+     * @param resources 事务修改的行，即其推断出的行锁
+     * @return List<RowChangeEvent> 行修改事件，无法生成时返回null
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    List<RowChangeEvent> capture(Connection connection, List<DBResource> resources) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：将行修改事件按模板分组为批次
+     * 规范：
+     *   1) 只合并相邻且模板相同的事件，保证事件的应用顺序不变
+     * </pre>
+     * @param events 行修改事件
+     * @return List<SQLBatch> 按执行顺序排列的批次
+     * @since 0.0.0
+     */
+    List<SQLBatch> plan(List<RowChangeEvent> events);
+}
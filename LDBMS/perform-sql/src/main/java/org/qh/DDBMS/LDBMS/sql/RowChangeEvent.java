@@ -0,0 +1,145 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import com.qh.exception.MethodParameterException;
+import lombok.Getter;
+import org.qh.DDBMS.common.Constant;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 一行数据的修改事件，以规范的参数化语句同步给从站点
+ */
+@Getter
+public class RowChangeEvent {
+
+    /**
+     * <pre>
+     * 说明：修改类型，取值见Constant.RowChange
+     * </pre>
+     */
+    private final byte type;
+
+    /**
+     * <pre>
+     * 说明：修改的表名
+     * </pre>
+     */
+    private final String table;
+
+    /**
+     * <pre>
+     * 说明：表的主键列名
+     * </pre>
+     */
+    private final String keyColumn;
+
+    /**
+     * <pre>
+     * 说明：修改的行的主键值
+     * </pre>
+     */
+    private final Object key;
+
+    /**
+     * <pre>
+     * 说明：UPSERT时该行所有的列名，DELETE时为null
+     * </pre>
+     */
+    private final String[] columns;
+
+    /**
+     * <pre>
+     * 说明：UPSERT时该行修改后的值，与columns一一对应，DELETE时为null
+     * </pre>
+     */
+    private final Object[] values;
+
+    private RowChangeEvent(byte type, String table, String keyColumn, Object key,
+                           String[] columns, Object[] values) {
+        if (table.indexOf('`') >= 0 || keyColumn.indexOf('`') >= 0) {
+            throw new MethodParameterException("The table " + table + " or column " + keyColumn + " is invalid.");
+        }
+        this.type = type;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.key = key;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * 说明：构建一个插入或更新一行的事件
+     * @param table 表名
+     * @param keyColumn 主键列名
+     * @param key 主键值
+     * @param columns 该行所有的列名
+     * @param values 该行修改后的值
+     * @return 修改事件
+     * @since 0.0.0
+     */
+    public static RowChangeEvent upsert(String table, String keyColumn, Object key,
+                                        String[] columns, Object[] values) {
+        if (columns.length != values.length) {
+            throw new MethodParameterException("The row has " + values.length + " values but " +
+                    columns.length + " columns.");
+        }
+        for (String column : columns) {
+            if (column.indexOf('`') >= 0) throw new MethodParameterException("The column " + column + " is invalid.");
+        }
+        return new RowChangeEvent(Constant.RowChange.UPSERT, table, keyColumn, key, columns, values);
+    }
+
+    /**
+     * 说明：构建一个删除一行的事件
+     * @param table 表名
+     * @param keyColumn 主键列名
+     * @param key 主键值
+     * @return 修改事件
+     * @since 0.0.0
+     */
+    public static RowChangeEvent delete(String table, String keyColumn, Object key) {
+        return new RowChangeEvent(Constant.RowChange.DELETE, table, keyColumn, key, null, null);
+    }
+
+    /**
+     * <pre>
+     * 说明：获取应用该事件的sql模板
+     * 注意事项：
+     *   1. UPSERT使用INSERT ... ON DUPLICATE KEY UPDATE而不是REPLACE，避免删除行触发外键的级联删除
+     *   2. 相同表、相同列的事件得到相同的模板，可以合并为一个批次
+     * </pre>
+     * @return UPSERT：INSERT INTO `t` (`a`, `b`) VALUES (?, ?) ON DUPLICATE KEY UPDATE `b` = VALUES(`b`);
+     *         DELETE：DELETE FROM `t` WHERE `a` = ?;
+     * @since 0.0.0
+     */
+    public String template() {
+        if (type == Constant.RowChange.DELETE) {
+            return "DELETE FROM `" + table + "` WHERE `" + keyColumn + "` = ?;";
+        }
+        StringBuilder sb = new StringBuilder("INSERT INTO `").append(table).append("` (");
+        StringBuilder update = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('`').append(columns[i]).append('`');
+            if (columns[i].equalsIgnoreCase(keyColumn)) continue;
+            if (update.length() > 0) update.append(", ");
+            update.append('`').append(columns[i]).append("` = VALUES(`").append(columns[i]).append("`)");
+        }
+        sb.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) sb.append(i > 0 ? ", ?" : "?");
+        sb.append(") ON DUPLICATE KEY UPDATE ");
+        if (update.length() == 0) sb.append('`').append(keyColumn).append("` = `").append(keyColumn).append('`');
+        return sb.append(update).append(';').toString();
+    }
+
+    /**
+     * 说明：获取应用该事件时绑定的参数
+     * @return UPSERT为该行的值，DELETE为主键值
+     * @since 0.0.0
+     */
+    public Object[] parameters() {
+        return type == Constant.RowChange.DELETE ? new Object[]{key} : values.clone();
+    }
+}
@@ -0,0 +1,26 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/08
+ * @Version: 0.0.0
+ * @Description: 将结果集的当前行映射为一个Java实例的接口
+ */
+public interface RowMapper<F> {
+
+    /**
+     * <pre>
+     * 说明：将结果集的当前行映射为一个F实例
+     * 注意事项：
+     *   1. 不移动结果集的游标
+     * </pre>
+     * @param resultSet 查询结果集
+     * @return 当前行对应的实例
+     * @since 0.0.0
+     */
+    F map(ResultSet resultSet) throws SQLException;
+}
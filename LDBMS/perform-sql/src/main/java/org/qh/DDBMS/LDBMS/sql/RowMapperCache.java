@@ -0,0 +1,28 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/08
+ * @Version: 0.0.0
+ * @Description: 以返回值类型和结果集的列布局为key，缓存RowMapper的接口
+ */
+public interface RowMapperCache {
+
+    /**
+     * <pre>
+     * 说明：获取返回值类型和结果集列布局对应的RowMapper，不存在时生成并缓存
+     * 规范：
+     *   1) clazz是Map时，将列标签作为key，列值作为值
+     *   2) clazz是Java Bean时，将列值赋值给@Field注解值与列标签相同的字段
+     * </pre>
+     * @param clazz 返回值类型
+     * @param metaData 结果集的元数据
+     * @return 可以复用的RowMapper
+     * @since 0.0.0
+     */
+    <F> RowMapper<F> mapper(Class<F> clazz, ResultSetMetaData metaData) throws SQLException;
+}
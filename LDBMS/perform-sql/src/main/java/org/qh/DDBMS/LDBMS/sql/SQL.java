@@ -39,5 +39,15 @@ public interface SQL {
      * @since 0.0.0
      */
     String statement();
-}
 
+    /**
+     * <pre>
+     * 说明：该方法返回执行语句中占位符的绑定参数
+     *   1) 参数按占位符出现的顺序排列
+     *   2) 参数必须可以被序列化，以便溢出保存和同步到从站点
+     * </pre>
+     * @return 绑定参数，语句不带占位符时返回null
+     * @since 0.0.0
+     */
+    Object[] parameters();
+}
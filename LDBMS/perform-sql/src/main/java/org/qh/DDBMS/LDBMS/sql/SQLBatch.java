@@ -0,0 +1,58 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/07
+ * @Version: 0.0.0
+ * @Description: 一组连续且模板相同的写语句，作为一个JDBC批次执行
+ */
+public class SQLBatch {
+
+    /**
+     * <pre>
+     * 说明：该批次的sql模板
+     * </pre>
+     */
+    private final String template;
+
+    /**
+     * <pre>
+     * 说明：按执行顺序排列的绑定参数，模板不带占位符时元素为null
+     * </pre>
+     */
+    private final List<Object[]> rows = new ArrayList<>();
+
+    public SQLBatch(String template) {
+        this.template = template;
+    }
+
+    /**
+     * 说明：追加一次执行的绑定参数
+     * @param parameters 绑定参数，可以为null
+     * @since 0.0.0
+     */
+    public void add(Object[] parameters) {
+        rows.add(parameters);
+    }
+
+    public String template() {
+        return this.template;
+    }
+
+    public List<Object[]> rows() {
+        return this.rows;
+    }
+
+    /**
+     * 说明：该批次是否只是一条不带参数的语句
+     * @return true表示是
+     * @since 0.0.0
+     */
+    public boolean isLiteral() {
+        return rows.size() == 1 && rows.get(0) == null;
+    }
+}
@@ -4,6 +4,8 @@ import org.qh.DDBMS.common.db.DBTransaction;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -36,6 +38,28 @@ public interface SQLExecutor {
      */
     <F> List<F> select(SQL sql, Class<F> clazz) throws Exception;
 
+    /**
+     * <pre>
+     * 说明：该方法用于以流的形式逐行读取大量数据，调用方必须关闭返回的流
+     * </pre>
+     * @param sql 要执行的SQL对象
+     * @param <F> 查询结果的泛型类型
+     * @return 查询结果的流
+     * @since 0.0.0
+     */
+    <F> Stream<F> selectStream(SQL sql, Class<F> clazz) throws Exception;
+
+    /**
+     * <pre>
+     * 说明：该方法用于逐行处理大量数据
+     * </pre>
+     * @param sql 要执行的SQL对象
+     * @param consumer 处理每一行数据的逻辑
+     * @param <F> 查询结果的泛型类型
+     * @since 0.0.0
+     */
+    <F> void selectEach(SQL sql, Class<F> clazz, Consumer<? super F> consumer) throws Exception;
+
     /**
      * <pre>
      * 说明：执行更新表的SQL
@@ -56,6 +80,20 @@ public interface SQLExecutor {
      */
     void commit(SQL sql) throws Exception;
 
+    /**
+     * <pre>
+     * 说明：
+     *   1) 批量导入一张表的行数据，并提交其所在的事务
+     *   2) 如果事务已经写入了语句也一并提交，这些语句先于导入的行执行
+     * 规范：
+     *   1) 导入的行不经过SQLBank缓存，同步信息中是一个模板和N组绑定参数
+     *   2) 导入期间事务持有该表的表锁
+     * </pre>
+     * @param batch 导入的行数据
+     * @since 0.0.0
+     */
+    void bulkLoad(RowBatch batch) throws Exception;
+
 
 }
 
@@ -0,0 +1,46 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/05
+ * @Version: 0.0.0
+ * @Description: 保存SQLBank内存放不下的SQL的溢出存储接口
+ */
+public interface SQLSpillStore {
+
+    /**
+     * <pre>
+     * 说明：追加一个事务的SQL
+     * 注意事项：
+     *   1. 同一事务的SQL按追加顺序保存
+     * </pre>
+     * @param sql 要保存的SQL
+     * @since 0.0.0
+     */
+    void append(SQL sql) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：按追加顺序读取一个事务的所有SQL
+     * </pre>
+     * @param transaction 要读取SQL的事务
+     * @return 该事务的SQL列表，不存在时返回空列表
+     * @since 0.0.0
+     */
+    List<SQL> read(DBTransaction transaction) throws SQLException;
+
+    /**
+     * <pre>
+     * 说明：删除一个事务的所有SQL
+     * </pre>
+     * @param transaction 要删除SQL的事务
+     * @since 0.0.0
+     */
+    void delete(DBTransaction transaction) throws SQLException;
+}
@@ -0,0 +1,97 @@
+package org.qh.DDBMS.LDBMS.sql;
+
+import java.util.Collection;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 提供表名到DBResource中tableId和主键映射的接口
+ */
+public interface SchemaRegistry {
+
+    /**
+     * <pre>
+     * 说明：获取表对应的tableId
+     * </pre>
+     * @param table String 小写的表名
+     * @return Integer tableId，表不存在时返回null
+     * @since 0.0.0
+     */
+    Integer tableId(String table);
+
+    /**
+     * <pre>
+     * 说明：获取表的主键列名
+     * 规范：
+     *   1) 只有单列的整数主键才能作为DBResource的rowId，其他情况返回null
+     * </pre>
+     * @param table String 小写的表名
+     * @return String 小写的主键列名或null
+     * @since 0.0.0
+     */
+    String primaryKey(String table);
+
+    /**
+     * <pre>
+     * 说明：获取tableId对应的表名
+     * </pre>
+     * @param tableId int tableId
+     * @return String 数据库中的表名，不存在时返回null
+     * @since 0.0.0
+     */
+    String table(int tableId);
+
+    /**
+     * <pre>
+     * 说明：获取所有表的tableId
+     * </pre>
+     * @return Collection&lt;Integer&gt; 升序排列的tableId
+     * @since 0.0.0
+     */
+    Collection<Integer> tableIds();
+
+    /**
+     * <pre>
+     * 说明：判定表的主键是否是其唯一的唯一索引
+     * 规范：
+     *   1) 没有单列整数主键的表返回false
+     * </pre>
+     * @param table String 小写的表名
+     * @return boolean true表示除主键外没有其他唯一索引
+     * @since 0.0.0
+     */
+    boolean primaryKeyOnlyUnique(String table);
+
+    /**
+     * <pre>
+     * 说明：判定表是否有外键约束或触发器
+     * 规范：
+     *   1) 表引用其他表，或被其他表引用，都视为有外键约束
+     *   2) 表定义了触发器，或被触发器的语句读写，都视为有触发器
+     * </pre>
+     * @param table String 小写的表名
+     * @return boolean true表示修改该表可能级联修改或检查其他行
+     * @since 0.0.0
+     */
+    boolean hasForeignKeysOrTriggers(String table);
+
+    /**
+     * <pre>
+     * 说明：判定表是否有生成列，生成列的值不能写入
+     * </pre>
+     * @param table String 小写的表名
+     * @return boolean true表示有生成列
+     * @since 0.0.0
+     */
+    boolean hasGeneratedColumns(String table);
+
+    /**
+     * <pre>
+     * 说明：重新读取数据库的表结构，用于表结构变化之后
+     * </pre>
+     * @since 0.0.0
+     */
+    void refresh() throws Exception;
+}
@@ -0,0 +1,110 @@
+package org.qh.DDBMS.LDBMS.sql.config;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/02
+ * @Version: 0.0.0
+ * @Description: 用于获取有关Commit配置信息的接口
+ */
+public interface CommitConfig {
+
+    /**
+     * <pre>
+     * 说明：获取事务的提交模式
+     * 规范：
+     *   1) HOLD_CONNECTION_MODE：执行SQL后持有连接等待GDBMS的确认
+     *   2) DEFERRED_EXECUTION_MODE：试执行后归还连接，确认后再执行并提交
+     *   3) 默认为HOLD_CONNECTION_MODE
+     * 注意事项：
+     *   1. DEFERRED_EXECUTION_MODE下GDBMS记录提交后才真正执行SQL，此时执行失败无法撤销事务，只能关闭服务；
+     *      未被DBLock覆盖的冲突写入，以及NOW()、RAND()、自增主键等两次执行结果不同的语句都会导致失败或主从不一致
+     *   2. 只有所有写入都被DBLock覆盖、且语句的结果是确定的应用才应该使用DEFERRED_EXECUTION_MODE
+     * </pre>
+     * @return 提交模式，取值见Constant.Commit
+     * @since 0.0.0
+     */
+    byte commitMode();
+
+    /**
+     * <pre>
+     * 说明：是否开启提前释放锁
+     * 规范：
+     *   1) 开启后事务在投票前释放DBLock，之后获取相同资源的事务依赖于它，
+     *      在它完成前不会投票，它撤销时这些事务被级联撤销
+     *   2) 只能在DEFERRED_EXECUTION_MODE下开启；HOLD_CONNECTION_MODE下连接上的行锁直到确认后才释放，
+     *      后继事务会阻塞在数据库中，提前释放DBLock没有意义，CommitImpl启动时拒绝该组合
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean earlyLockRelease();
+
+    /**
+     * <pre>
+     * 说明：获取合并提交的最大事务数
+     * </pre>
+     * @return 一次数据库提交最多合并的事务数
+     * @since 0.0.0
+     */
+    int groupCommitSize();
+
+    /**
+     * <pre>
+     * 说明：获取合并提交的等待窗口，单位ms
+     * 规范：
+     *   1) 小于等于0时不等待，每个事务单独提交
+     * </pre>
+     * @return 等待窗口
+     * @since 0.0.0
+     */
+    long groupCommitWindow();
+
+    /**
+     * <pre>
+     * 说明：是否将不带参数的写语句中的字面量提取为绑定参数
+     * 规范：
+     *   1) 开启后形状相同的语句得到相同的模板，可以合并为一个批次并复用预编译语句
+     *   2) 默认关闭
+     * 注意事项：
+     *   1. 带有注释、相邻字符串或无法确定能否替换的字面量的语句原样执行
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean parameterizeLiterals();
+
+    /**
+     * <pre>
+     * 说明：获取多行insert一次最多插入的行数
+     * 规范：
+     *   1) 连续的相同insert语句被改写为一条多行insert，行数向下取为2的幂
+     *   2) 小于等于1时不改写；数据库不支持多行insert时也不改写
+     * </pre>
+     * @return 多行insert的最大行数
+     * @since 0.0.0
+     */
+    int multiRowInsertSize();
+
+    /**
+     * <pre>
+     * 说明：是否以行数据的修改事件同步事务，而不是同步事务执行的sql语句
+     * 规范：
+     *   1) 只有能确定修改的所有行的事务才以修改事件同步，其他事务仍同步sql语句
+     *   2) 修改事件使用INSERT ... ON DUPLICATE KEY UPDATE，只支持MySQL和MariaDB
+     *   3) DEFERRED_EXECUTION_MODE下开启提前释放锁时不生效
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean rowEvents();
+
+    /**
+     * <pre>
+     * 说明：获取以修改事件同步的事务最多修改的行数，超过时同步sql语句
+     * </pre>
+     * @return 最大行数
+     * @since 0.0.0
+     */
+    int rowEventMaxRows();
+}
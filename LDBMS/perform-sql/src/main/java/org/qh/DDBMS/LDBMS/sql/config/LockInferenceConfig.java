@@ -0,0 +1,57 @@
+package org.qh.DDBMS.LDBMS.sql.config;
+
+import java.util.Map;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 用于获取有关LockInference配置信息的接口
+ */
+public interface LockInferenceConfig {
+
+    /**
+     * <pre>
+     * 说明：是否根据写语句自动推断并登记事务需要的锁
+     * 规范：
+     *   1) 已经手动登记了资源的事务不进行推断
+     *   2) 默认关闭，开启时必须配置tableIds
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean enabled();
+
+    /**
+     * <pre>
+     * 说明：获取表名和tableId的映射关系
+     * 规范：
+     *   1) 表名为小写
+     *   2) 应与手动登记资源时使用的tableId一致；未配置的表按表名顺序分配更大的tableId
+     * 注意事项：
+     *   1. 未配置的表的tableId会随表的增减而变化，手动登记资源的表必须配置
+     * </pre>
+     * @return 表名和tableId的映射关系
+     * @since 0.0.0
+     */
+    Map<String, Integer> tableIds();
+
+    /**
+     * <pre>
+     * 说明：获取一个事务在一张表上最多登记的行锁数，超过时升级为表锁
+     * </pre>
+     * @return 最大行锁数
+     * @since 0.0.0
+     */
+    int maxRowLocks();
+
+    /**
+     * <pre>
+     * 说明：获取保留的推断报告数
+     * </pre>
+     * @return 推断报告数
+     * @since 0.0.0
+     */
+    int reportSize();
+}
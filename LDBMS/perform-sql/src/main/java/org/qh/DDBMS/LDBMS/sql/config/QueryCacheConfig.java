@@ -0,0 +1,47 @@
+package org.qh.DDBMS.LDBMS.sql.config;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: 用于获取有关QueryCache配置信息的接口
+ */
+public interface QueryCacheConfig {
+
+    /**
+     * <pre>
+     * 说明：是否开启查询缓存
+     * </pre>
+     * @return true表示开启
+     * @since 0.0.0
+     */
+    boolean enabled();
+
+    /**
+     * <pre>
+     * 说明：获取缓存的最大条目数
+     * </pre>
+     * @return 最大条目数
+     * @since 0.0.0
+     */
+    int maxEntries();
+
+    /**
+     * <pre>
+     * 说明：获取缓存可以占用的内存字节数
+     * </pre>
+     * @return 内存字节数
+     * @since 0.0.0
+     */
+    long maxBytes();
+
+    /**
+     * <pre>
+     * 说明：获取可以缓存的查询结果的最大行数，超过的结果不缓存
+     * </pre>
+     * @return 最大行数
+     * @since 0.0.0
+     */
+    int maxRows();
+}
@@ -0,0 +1,23 @@
+package org.qh.DDBMS.LDBMS.sql.config;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/08
+ * @Version: 0.0.0
+ * @Description: 用于获取有关Reader配置信息的接口
+ */
+public interface ReaderConfig {
+
+    /**
+     * <pre>
+     * 说明：获取流式读取时结果集的fetchSize
+     * 规范：
+     *   1) MySQL驱动只有在fetchSize为Integer.MIN_VALUE时逐行读取结果
+     *   2) 其他数据库使用正数，每次从数据库读取fetchSize行
+     * </pre>
+     * @return 流式读取的fetchSize
+     * @since 0.0.0
+     */
+    int fetchSize();
+}
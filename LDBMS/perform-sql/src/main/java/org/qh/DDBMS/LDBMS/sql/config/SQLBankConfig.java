@@ -11,19 +11,57 @@ public interface SQLBankConfig {
 
     /**
      * <pre>
-     * 说明：获取配置的缓存事务个数
+     * 说明：获取缓存SQL可以占用的内存字节数
      * </pre>
-     * @return bufferSize 缓存事务个数
+     * @return 内存预算
      * @since 0.0.0
      */
-    int bufferSize();
+    long memoryBudget();
 
     /**
      * <pre>
-     * 说明：获取最大缓存事务个数
-     * <pre/>
-     * @return 0.0.0
+     * 说明：获取order为1的事务缓存SQL可以占用的内存字节数
+     * </pre>
+     * @return 最大内存预算
+     * @since 0.0.0
+     */
+    long maxMemoryBudget();
+
+    /**
+     * <pre>
+     * 说明：获取单个事务缓存SQL可以占用的内存字节数，超过后该事务的后续SQL溢出
+     * </pre>
+     * @return 单个事务的内存上限
+     * @since 0.0.0
+     */
+    long transactionMemoryCap();
+
+    /**
+     * <pre>
+     * 说明：获取压缩缓存语句的阈值，语句长度超过该值时压缩后缓存
+     * 规范：
+     *   1) 小于等于0表示不压缩
+     * </pre>
+     * @return 压缩阈值
+     * @since 0.0.0
+     */
+    int compressThreshold();
+
+    /**
+     * <pre>
+     * 说明：获取溢出文件所在的目录
+     * </pre>
+     * @return 溢出目录
+     * @since 0.0.0
+     */
+    String spillDirectory();
+
+    /**
+     * <pre>
+     * 说明：获取溢出段文件的大小，单位字节
+     * </pre>
+     * @return 段文件大小
      * @since 0.0.0
      */
-    int maxBufferSize();
+    int spillSegmentSize();
 }
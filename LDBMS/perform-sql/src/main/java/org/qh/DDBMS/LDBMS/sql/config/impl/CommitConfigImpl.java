@@ -0,0 +1,64 @@
+package org.qh.DDBMS.LDBMS.sql.config.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.sql.config.CommitConfig;
+import org.qh.DDBMS.common.Constant;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/02
+ * @Version: 0.0.0
+ * @Description: CommitConfig实现类
+ */
+@Setter
+public class CommitConfigImpl implements CommitConfig {
+    private byte commitMode = Constant.Commit.HOLD_CONNECTION_MODE; // 事务的提交模式
+    private boolean earlyLockRelease = false; // 是否开启提前释放锁
+    private int groupCommitSize = 64; // 合并提交的最大事务数
+    private long groupCommitWindow = 2; // 合并提交的等待窗口，单位ms
+    private boolean parameterizeLiterals = false; // 是否提取写语句中的字面量
+    private int multiRowInsertSize = 128; // 多行insert的最大行数
+    private boolean rowEvents = false; // 是否以行数据的修改事件同步事务
+    private int rowEventMaxRows = 1024; // 以修改事件同步的事务最多修改的行数
+
+    @Override
+    public byte commitMode() {
+        return this.commitMode;
+    }
+
+    @Override
+    public boolean earlyLockRelease() {
+        return this.earlyLockRelease;
+    }
+
+    @Override
+    public int groupCommitSize() {
+        return this.groupCommitSize;
+    }
+
+    @Override
+    public long groupCommitWindow() {
+        return this.groupCommitWindow;
+    }
+
+    @Override
+    public boolean parameterizeLiterals() {
+        return this.parameterizeLiterals;
+    }
+
+    @Override
+    public int multiRowInsertSize() {
+        return this.multiRowInsertSize;
+    }
+
+    @Override
+    public boolean rowEvents() {
+        return this.rowEvents;
+    }
+
+    @Override
+    public int rowEventMaxRows() {
+        return this.rowEventMaxRows;
+    }
+}
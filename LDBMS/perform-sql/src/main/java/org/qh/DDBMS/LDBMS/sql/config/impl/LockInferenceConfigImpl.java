@@ -0,0 +1,42 @@
+package org.qh.DDBMS.LDBMS.sql.config.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.sql.config.LockInferenceConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: LockInferenceConfig实现类
+ */
+@Setter
+public class LockInferenceConfigImpl implements LockInferenceConfig {
+    private boolean enabled = false; // 是否自动推断事务需要的锁
+    private Map<String, Integer> tableIds = new HashMap<>(); // 表名和tableId的映射关系
+    private int maxRowLocks = 256; // 一个事务在一张表上最多登记的行锁数
+    private int reportSize = 1024; // 保留的推断报告数
+
+    @Override
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public Map<String, Integer> tableIds() {
+        return this.tableIds;
+    }
+
+    @Override
+    public int maxRowLocks() {
+        return this.maxRowLocks;
+    }
+
+    @Override
+    public int reportSize() {
+        return this.reportSize;
+    }
+}
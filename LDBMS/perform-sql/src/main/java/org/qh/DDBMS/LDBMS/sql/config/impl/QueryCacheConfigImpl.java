@@ -0,0 +1,39 @@
+package org.qh.DDBMS.LDBMS.sql.config.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.sql.config.QueryCacheConfig;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: QueryCacheConfig实现类
+ */
+@Setter
+public class QueryCacheConfigImpl implements QueryCacheConfig {
+    private boolean enabled = false; // 是否开启查询缓存
+    private int maxEntries = 1024; // 缓存的最大条目数
+    private long maxBytes = 32L * 1024 * 1024; // 缓存可以占用的内存字节数
+    private int maxRows = 1000; // 可以缓存的查询结果的最大行数
+
+    @Override
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public int maxEntries() {
+        return this.maxEntries;
+    }
+
+    @Override
+    public long maxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public int maxRows() {
+        return this.maxRows;
+    }
+}
@@ -0,0 +1,21 @@
+package org.qh.DDBMS.LDBMS.sql.config.impl;
+
+import lombok.Setter;
+import org.qh.DDBMS.LDBMS.sql.config.ReaderConfig;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/08
+ * @Version: 0.0.0
+ * @Description: ReaderConfig实现类
+ */
+@Setter
+public class ReaderConfigImpl implements ReaderConfig {
+    private int fetchSize = Integer.MIN_VALUE; // 流式读取的fetchSize，默认为MySQL的逐行读取
+
+    @Override
+    public int fetchSize() {
+        return this.fetchSize;
+    }
+}
@@ -11,16 +11,40 @@ import org.qh.DDBMS.LDBMS.sql.config.SQLBankConfig;
  */
 
 public class SQLBankConfigImpl implements SQLBankConfig {
-    private int bufferSize = 1024; // 缓存事务个数
-    private int maxBufferSize = 2048; // 最大缓存事务个数
+    private long memoryBudget = 64L * 1024 * 1024; // 缓存SQL可以占用的内存字节数
+    private long maxMemoryBudget = 128L * 1024 * 1024; // order为1的事务缓存SQL可以占用的内存字节数
+    private long transactionMemoryCap = 4L * 1024 * 1024; // 单个事务缓存SQL可以占用的内存字节数
+    private int compressThreshold = 0; // 压缩缓存语句的阈值，0表示不压缩
+    private String spillDirectory = System.getProperty("java.io.tmpdir") + "/sql-bank"; // 溢出文件所在目录
+    private int spillSegmentSize = 64 * 1024 * 1024; // 溢出段文件的大小
 
     @Override
-    public int bufferSize() {
-        return this.bufferSize;
+    public long memoryBudget() {
+        return this.memoryBudget;
     }
 
     @Override
-    public int maxBufferSize() {
-        return this.maxBufferSize;
+    public long maxMemoryBudget() {
+        return this.maxMemoryBudget;
+    }
+
+    @Override
+    public long transactionMemoryCap() {
+        return this.transactionMemoryCap;
+    }
+
+    @Override
+    public int compressThreshold() {
+        return this.compressThreshold;
+    }
+
+    @Override
+    public String spillDirectory() {
+        return this.spillDirectory;
+    }
+
+    @Override
+    public int spillSegmentSize() {
+        return this.spillSegmentSize;
     }
 }
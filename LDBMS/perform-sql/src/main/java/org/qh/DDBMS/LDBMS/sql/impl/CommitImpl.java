@@ -2,14 +2,28 @@ package org.qh.DDBMS.LDBMS.sql.impl;
 
 import org.qh.DDBMS.LDBMS.ms_sync.SyncSender;
 import org.qh.DDBMS.LDBMS.ms_sys.MasterSlaveManager;
+import org.qh.DDBMS.LDBMS.sql.BatchPlanner;
 import org.qh.DDBMS.LDBMS.sql.Commit;
+import org.qh.DDBMS.LDBMS.sql.CommitDependency;
+import org.qh.DDBMS.LDBMS.sql.GroupCommit;
+import org.qh.DDBMS.LDBMS.sql.LockInference;
+import org.qh.DDBMS.LDBMS.sql.LockInferenceReport;
+import org.qh.DDBMS.LDBMS.sql.QueryCache;
+import org.qh.DDBMS.LDBMS.sql.RowBatch;
+import org.qh.DDBMS.LDBMS.sql.RowChangeCapture;
+import org.qh.DDBMS.LDBMS.sql.RowChangeEvent;
 import org.qh.DDBMS.LDBMS.sql.SQL;
 import org.qh.DDBMS.LDBMS.sql.SQLBank;
+import org.qh.DDBMS.LDBMS.sql.SQLBatch;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.CommitConfig;
 import org.qh.DDBMS.LDBMS.tx.DoCommit;
 import org.qh.DDBMS.LDBMS.tx.LTransactionCenter;
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.config.GDBMSConfig;
+import org.qh.DDBMS.common.db.DBResource;
 import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.db.StatementCache;
 import org.qh.DDBMS.common.dblock.DBLock;
 import org.qh.DDBMS.common.entity.SyncInfoEntity;
 import org.qh.DDBMS.common.exception.FailedTransactionException;
@@ -19,14 +33,21 @@ import org.qh.DDBMS.common.protocol.ACKProtocol;
 import org.qh.tools.clz.LauncherUtils;
 import org.qh.tools.exception.ExceptionUtils;
 import org.qh.tools.str.StringUtils;
+import org.qh.tools.thread.ThreadUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -38,6 +59,13 @@ import java.util.List;
  */
 public class CommitImpl implements Commit {
 
+    /**
+     * <pre>
+     * 说明：一条语句最多允许的占位符个数
+     * </pre>
+     */
+    private static final int MAX_PLACEHOLDERS = 65535;
+
     /**
      * <pre>
      * 说明：获取数据库连接的数据源
@@ -112,6 +140,108 @@ public class CommitImpl implements Commit {
     @Resource
     private ServerConfig serverConfig;
 
+    /**
+     * <pre>
+     * 说明：用于获取事务的提交模式
+     * </pre>
+     */
+    @Resource
+    private CommitConfig commitConfig;
+
+    /**
+     * <pre>
+     * 说明：提前释放锁时，管理事务之间的提交依赖
+     * </pre>
+     */
+    @Resource
+    private CommitDependency dependency;
+
+    /**
+     * <pre>
+     * 说明：将相近时间内确认的事务合并为一次数据库提交
+     * </pre>
+     */
+    @Resource
+    private GroupCommit groupCommit;
+
+    /**
+     * <pre>
+     * 说明：按连接缓存带参数sql模板的PreparedStatement
+     * </pre>
+     */
+    @Resource
+    private StatementCache statementCache;
+
+    /**
+     * <pre>
+     * 说明：将事务的写语句按模板分组为JDBC批次
+     * </pre>
+     */
+    @Resource
+    private BatchPlanner planner;
+
+    /**
+     * <pre>
+     * 说明：事务提交后使其修改的表相关的查询缓存失效
+     * </pre>
+     */
+    @Resource
+    private QueryCache queryCache;
+
+    /**
+     * <pre>
+     * 说明：加锁前根据写语句推断并登记事务需要的锁
+     * </pre>
+     */
+    @Resource
+    private LockInference lockInference;
+
+    /**
+     * <pre>
+     * 说明：获取批量导入的表对应的tableId
+     * </pre>
+     */
+    @Resource
+    private SchemaRegistry schemaRegistry;
+
+    /**
+     * <pre>
+     * 说明：将事务修改的行转换为同步给从站点的行修改事件
+     * </pre>
+     */
+    @Resource
+    private RowChangeCapture rowChangeCapture;
+
+    /**
+     * <pre>
+     * 说明：数据库是否支持多行insert，首次执行批次时根据数据库产品确定
+     * </pre>
+     */
+    private volatile Boolean multiRowSupported;
+
+    /**
+     * <pre>
+     * 说明：开启提前释放锁时，仍然持有DBLock直到完成的批量导入事务
+     * </pre>
+     */
+    private final Set<DBTransaction> lockHolders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * <pre>
+     * 说明：检查提交配置
+     * 实现步骤：
+     *   1) 判定开启了提前释放锁但提交模式不是DEFERRED_EXECUTION_MODE，抛出异常
+     *     1. HOLD_CONNECTION_MODE下数据库的行锁在确认前一直被持有，后继事务会阻塞在JDBC中直到锁等待超时
+     * </pre>
+     */
+    @PostConstruct
+    public void init() {
+        if (commitConfig.earlyLockRelease() &&
+                commitConfig.commitMode() != Constant.Commit.DEFERRED_EXECUTION_MODE) {
+            throw new IllegalStateException("The earlyLockRelease requires DEFERRED_EXECUTION_MODE.");
+        }
+    }
+
     /**
      * <pre>
      * 说明：该方法获取一个事务的修改语句
@@ -126,21 +256,30 @@ public class CommitImpl implements Commit {
      * @since 0.0.0
      */
     private List<SQL> statement(SQL sql) throws SQLException {
-        List<SQL> res = null;
-        try {
-            res = bank.get(sql.transaction());
-        } finally {
-            bank.delete(sql.transaction());
-        }
-        if (res == null) res = new ArrayList<SQL>();
-
-
+        List<SQL> res = banked(sql.transaction());
         if (!StringUtils.isEmpty(sql.statement())) {
             res.add(sql);
         }
         return res;
     }
 
+    /**
+     * 说明：获取并删除bank中一个事务的修改语句
+     * @param transaction 事务
+     * @return 事务的修改语句，没有时返回空列表
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private List<SQL> banked(DBTransaction transaction) throws SQLException {
+        List<SQL> res = null;
+        try {
+            res = bank.get(transaction);
+        } finally {
+            bank.delete(transaction);
+        }
+        return res == null ? new ArrayList<SQL>() : res;
+    }
+
     /**
      * <pre>
      * 说明：确认当前事务对数据库的修改是否提交
@@ -150,6 +289,7 @@ public class CommitImpl implements Commit {
      *     - dbName
      *     - transaction
      *     - sqlStatement // 所有语句组成的总的字符串
+     *     - parameters // 序列化后的绑定参数，没有参数时为空数组
      * 实现步骤：
      *   1) 将doCommit注册到事务中心
      *   2) 向全局DB管理系统发送确认信息
@@ -157,13 +297,15 @@ public class CommitImpl implements Commit {
      *
      * @param transaction 当前事务
      * @param sqlStatement 当前事务执行的SQL语句
+     * @param parameters 序列化后的绑定参数
      * @param doCommit 处理全局数据库的确认结果，最终确定是否提交事务
      * @since 0.0.0
      */
-    private void confirm(DBTransaction transaction, String sqlStatement, DoCommit doCommit) {
+    private void confirm(DBTransaction transaction, String sqlStatement, byte[] parameters, DoCommit doCommit) {
         txCenter.registerCommit(transaction, doCommit);
         sender.send(gdbmsConfig.siteName(), new ACKProtocol(Constant.ACKType.COMMIT_TYPE,
-                serverConfig.dbName(), transaction, sqlStatement), null, false);
+                serverConfig.dbName(), transaction, sqlStatement,
+                parameters == null ? new byte[0] : parameters), null, false);
 
     }
 
@@ -174,12 +316,9 @@ public class CommitImpl implements Commit {
      *   1) 判定当前站点不是主站点
      *     1. 抛出异常
      *   2) 执行statement() 获取SQL语句
-     *   3) 通过DBLock对该事务应该持有的锁进行加锁
-     *     1. 加锁失败，则执行撤销事务的操作
-     *   4) 获取连接，执行SQL语句
-     *   5) 将所有执行的sql语句连成一条语句
-     *   6) 将handleCommit() 封装为一个doCommit
-     *   7) 执行confirm()，等待Global确认是否提交更新
+     *   3) 通过lockInference推断并登记该事务需要的锁，再通过DBLock进行加锁
+     *     1. 加锁失败，则执行撤销事务的操作并返回
+     *   4) 将sql语句按模板分组为批次，与推断出的锁一起执行commitBatches()
      * </pre>
      *
      * @param sql 要提交的SQL
@@ -195,57 +334,509 @@ public class CommitImpl implements Commit {
             List<SQL> list = statement(sql); // 2)获取SQL语句
             if (list.isEmpty()) throw new RuntimeException("Nothing to commit!");
 
+            LockInferenceReport report = lockInference.register(transaction, list);
             if (!dbLock.lock(transaction)) { // 3) 对该事务应该持有的锁进行加锁
                 txCenter.cancel(transaction, Constant.TransactionCenter.LOCK_FAILURE);
+                return;
             }
 
-            Connection connection = dataSource.getConnection(); // 4) 获取连接，执行SQL语句
-            executeSQL(connection, list);
+            commitBatches(transaction, planner.plan(list), report); // 4) 将sql语句分组为批次并提交
+        } catch (Exception e) {
+            throw new FailedTransactionException(transaction, e);
+        }
+
+    }
 
-            String sqlStatement = combineSql(list); // 5) 将所有执行的sql语句连成一条语句
+    /**
+     * <pre>
+     * 说明：批量导入一张表的行数据，并提交其所在的事务
+     * 注意事项：
+     *   1. 导入的行不经过SQLBank，直接作为一个insert批次执行，按多行insert分块
+     *   2. 同步信息中导入的行是一个模板和N组绑定参数，而不是N条sql语句
+     *   3. 不论提交模式，都以HOLD_CONNECTION_MODE执行，DEFERRED_EXECUTION_MODE的试执行会使导入的时间加倍
+     * 实现步骤：
+     *   1) 判定当前站点不是主站点，抛出异常
+     *   2) 判定导入的表没有tableId，抛出异常
+     *   3) 获取并删除bank中该事务的语句，通过lockInference推断其需要的锁，与导入的表的表锁合并后一起登记
+     *   4) 通过DBLock进行加锁，加锁失败则执行撤销事务的操作并返回
+     *   5) 将bank中的语句分组为批次，将导入的行作为最后一个批次
+     *   6) 判定开启提前释放锁，将事务记录到lockHolders中，执行holdUntilReady()；否则执行holdAndConfirm()
+     *   7) 执行失败时撤销事务，释放仍然持有的锁，抛出带有原因的异常
+     * </pre>
+     *
+     * @param batch 导入的行数据
+     * @since 0.0.0
+     */
+    @Override
+    public void bulkLoad(RowBatch batch) throws SQLException {
+        if (!msManager.isMaster()) throw new RuntimeException("This site is not a master!");
 
-            // 6) 将handleCommit() 封装为一个doCommit
-            DoCommit doCommit = (id) -> handleCommit(id, connection, transaction, sqlStatement);
+        DBTransaction transaction = batch.transaction();
+        boolean locked = false;
+        try {
+            Integer tableId = schemaRegistry.tableId(batch.table().toLowerCase());
+            if (tableId == null) throw new SQLException("The table " + batch.table() + " does not exist.");
+            List<SQL> list = banked(transaction);
+            if (list.isEmpty() && batch.size() == 0) throw new RuntimeException("Nothing to commit!");
+            lockInference.register(transaction, list, Collections.singletonList(tableId));
 
-            // 7) 执行confirm()，向Global确认是否提交更新
-            confirm(transaction, sqlStatement, doCommit);
+            if (!dbLock.lock(transaction)) {
+                txCenter.cancel(transaction, Constant.TransactionCenter.LOCK_FAILURE);
+                return;
+            }
+            locked = true;
+            if (commitConfig.earlyLockRelease()) lockHolders.add(transaction); // 不提前释放DBLock，由release()释放
+
+            List<SQLBatch> batches = planner.plan(list);
+            if (batch.size() > 0) {
+                SQLBatch rows = new SQLBatch(batch.template());
+                for (Object[] row : batch.rows()) rows.add(row);
+                batches.add(rows);
+            }
+            if (commitConfig.earlyLockRelease()) holdUntilReady(transaction, batches);
+            else holdAndConfirm(transaction, batches);
         } catch (Exception e) {
-            throw new FailedTransactionException(transaction);
+            txCenter.cancel(transaction, Constant.TransactionCenter.FAILURE); // 已经登记的doCommit会回滚并释放锁
+            if (locked && !dbLock.resources(transaction).isEmpty()) release(transaction, false);
+            throw new FailedTransactionException(transaction, e);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：开启提前释放锁时，等待与批量导入冲突的待确认事务都完成后再执行
+     * 注意事项：
+     *   1. 导入以HOLD_CONNECTION_MODE执行，数据库的行锁在确认前一直被持有，因此不提前释放DBLock，
+     *      后继事务阻塞在DBLock中，而不是JDBC中
+     *   2. 前驱在合并提交中才真正执行，先于前驱执行导入可能使前驱的执行失败，因此在前驱完成后才执行
+     * 实现步骤：
+     *   1) 将事务及其资源登记到dependency中，得到该事务的前驱
+     *   2) 前驱都提交后，在其他线程中执行holdAndConfirm()，失败时撤销事务
+     *   3) 任一前驱撤销，释放锁并撤销事务
+     * </pre>
+     * @param transaction 批量导入的事务
+     * @param batches sql批次
+     * @since 0.0.0
+     */
+    private void holdUntilReady(DBTransaction transaction, List<SQLBatch> batches) {
+        dependency.register(transaction, dbLock.resources(transaction));
+        dependency.whenReady(transaction, () -> ThreadUtils.execute(() -> {
+            try {
+                holdAndConfirm(transaction, batches);
+            } catch (Exception e) {
+                ExceptionUtils.printStackTrace(e);
+                txCenter.cancel(transaction, Constant.TransactionCenter.FAILURE);
+                if (!dbLock.resources(transaction).isEmpty()) release(transaction, false);
+            }
+        }), () -> {
+            release(transaction, false);
+            txCenter.cancel(transaction, Constant.TransactionCenter.FAILURE);
+        });
+    }
+
+    /**
+     * <pre>
+     * 说明：在持有的连接上执行批次，并等待GDBMS确认
+     * 实现步骤：
+     *   1) 获取连接，执行SQL语句
+     *     1. 执行失败，回滚并归还连接，抛出异常
+     *   2) 将handleCommit() 封装为一个doCommit，执行confirm()
+     * </pre>
+     * @param transaction 当前事务
+     * @param batches sql批次
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void holdAndConfirm(DBTransaction transaction, List<SQLBatch> batches) throws SQLException {
+        Connection connection = openConnection();
+        String sqlStatement;
+        byte[] parameters;
+        try {
+            executeSQL(connection, batches);
+            sqlStatement = combineSql(batches);
+            parameters = combineParameters(batches);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+            throw e;
+        }
+        confirm(transaction, sqlStatement, parameters,
+                (id, committed) -> handleCommit(id, committed, connection, transaction, sqlStatement, parameters));
+    }
+
+    /**
+     * <pre>
+     * 说明：执行已经加锁的事务的批次，并等待GDBMS确认
+     * 注意事项：
+     *   1. 能生成行修改事件时，同步信息是这些事件而不是原来的sql语句；
+     *      DEFERRED_EXECUTION_MODE下确认后也执行这些事件，使主站点和从站点的结果完全相同
+     * 实现步骤：
+     *   1) 根据提交模式执行SQL，得到同步的批次
+     *     1. DEFERRED_EXECUTION_MODE：试执行SQL并生成行修改事件后回滚并归还连接，
+     *        将handleDeferredCommit() 封装为一个doCommit
+     *     2. HOLD_CONNECTION_MODE：获取连接，执行SQL语句并生成行修改事件，
+     *        将handleCommit() 封装为一个doCommit
+     *   2) 将同步的批次的模板连成一条语句，并序列化其绑定参数
+     *   3) 判定开启提前释放锁，执行releaseEarly()
+     *   4) 否则执行confirm()，等待Global确认是否提交更新
+     * </pre>
+     *
+     * @param transaction 当前事务
+     * @param batches sql批次
+     * @param report 事务的锁推断结果，为null表示不生成行修改事件
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void commitBatches(DBTransaction transaction, List<SQLBatch> batches,
+                               LockInferenceReport report) throws SQLException {
+        List<DBResource> rows = capturedRows(report);
+        List<SQLBatch> replicated;
+        Connection connection = null;
+        if (commitConfig.commitMode() == Constant.Commit.DEFERRED_EXECUTION_MODE) {
+            replicated = trialExecute(batches, rows);
+        } else {
+            connection = openConnection();
+            replicated = executeAndCapture(connection, batches, rows);
+        }
+        String sqlStatement = combineSql(replicated);
+        byte[] parameters = combineParameters(replicated);
+
+        DoCommit doCommit;
+        if (connection == null) {
+            doCommit = (id, committed) ->
+                    handleDeferredCommit(id, committed, replicated, transaction, sqlStatement, parameters);
+        } else {
+            Connection held = connection;
+            doCommit = (id, committed) -> handleCommit(id, committed, held, transaction, sqlStatement, parameters);
+        }
+
+        if (commitConfig.earlyLockRelease()) {
+            releaseEarly(transaction, sqlStatement, parameters, doCommit);
+            return;
         }
+        confirm(transaction, sqlStatement, parameters, doCommit);
+    }
+
+    /**
+     * <pre>
+     * 说明：提前释放事务持有的锁，并在其前驱都完成后再进行投票
+     * 实现步骤：
+     *   1) 将事务及其资源登记到dependency中，此时得到该事务的前驱
+     *   2) 释放事务持有的锁，后续事务可以获取这些资源
+     *   3) 前驱都提交后执行confirm()；任一前驱撤销则执行cascadeAbort()
+     * </pre>
+     * @param transaction 当前事务
+     * @param sqlStatement 当前事务执行的SQL语句
+     * @param parameters 序列化后的绑定参数
+     * @param doCommit 处理全局数据库的确认结果
+     * @since 0.0.0
+     */
+    private void releaseEarly(DBTransaction transaction, String sqlStatement,
+                              byte[] parameters, DoCommit doCommit) {
+        dependency.register(transaction, dbLock.resources(transaction));
+        dbLock.unlock(transaction);
+        dependency.whenReady(transaction,
+                () -> confirm(transaction, sqlStatement, parameters, doCommit),
+                () -> cascadeAbort(transaction, doCommit));
+    }
 
+    /**
+     * <pre>
+     * 说明：前驱事务撤销后，级联撤销当前事务
+     * 实现步骤：
+     *   1) 以null执行doCommit，释放事务持有的资源并级联撤销其后继
+     *   2) 以LOCK_FAILURE撤销该事务，局部事务将被重新启动
+     * </pre>
+     * @param transaction 当前事务
+     * @param doCommit 事务的提交逻辑
+     * @since 0.0.0
+     */
+    private void cascadeAbort(DBTransaction transaction, DoCommit doCommit) {
+        doCommit.commit(null, null);
+        txCenter.cancel(transaction, Constant.TransactionCenter.LOCK_FAILURE);
     }
 
     /**
      * <pre>
-     * 说明：将list中的sql语句联合成一个字符串
+     * 说明：事务完成后释放其持有的锁
+     * 实现步骤：
+     *   1) 判定开启提前释放锁，告知dependency该事务完成
+     *   2) 判定未开启提前释放锁，或事务是仍然持有DBLock的批量导入事务，释放事务持有的锁
      * </pre>
-     * @param list sql集合
-     * @return list中sql语句组成的字符串
+     * @param transaction 完成的事务
+     * @param committed true表示提交，false表示撤销
      * @since 0.0.0
      */
-    private String combineSql(List<SQL> list) {
+    private void release(DBTransaction transaction, boolean committed) {
+        if (commitConfig.earlyLockRelease()) dependency.complete(transaction, committed);
+        if (!commitConfig.earlyLockRelease() || lockHolders.remove(transaction)) dbLock.unlock(transaction);
+    }
+
+    /**
+     * 说明：获取一个关闭了自动提交的数据库连接
+     * @return 数据库连接
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private Connection openConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    /**
+     * <pre>
+     * 说明：试执行事务的SQL语句，用于在投票前发现语句错误
+     * 实现步骤：
+     *   1) 获取连接，执行SQL语句并生成行修改事件
+     *   2) 回滚事务并归还连接
+     * </pre>
+     * @param batches sql批次
+     * @param rows 事务修改的行，为null表示不生成行修改事件
+     * @return 同步的批次
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private List<SQLBatch> trialExecute(List<SQLBatch> batches, List<DBResource> rows) throws SQLException {
+        try (Connection connection = openConnection()) {
+            try {
+                return executeAndCapture(connection, batches, rows);
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：获取可以生成行修改事件的事务修改的行
+     * 实现步骤：
+     *   1) 判定未开启rowEvents、没有推断结果、事务手动登记了资源或有写语句无法确定修改的表，返回null，
+     *      此时推断出的锁没有覆盖所有写语句，行修改事件会遗漏其他语句的修改
+     *   2) 判定DEFERRED_EXECUTION_MODE下开启了提前释放锁，返回null，
+     *      此时试执行可能读到前驱事务提交前的数据
+     *   3) 返回推断出的锁
+     * </pre>
+     * @param report 事务的锁推断结果
+     * @return 事务修改的行或null
+     * @since 0.0.0
+     */
+    private List<DBResource> capturedRows(LockInferenceReport report) {
+        if (!commitConfig.rowEvents() || report == null || report.isManual() ||
+                report.isUnresolved()) return null;
+        if (commitConfig.earlyLockRelease() &&
+                commitConfig.commitMode() == Constant.Commit.DEFERRED_EXECUTION_MODE) return null;
+        return report.getResources();
+    }
+
+    /**
+     * <pre>
+     * 说明：执行sql批次，并将其修改的行转换为行修改事件
+     * 实现步骤：
+     *   1) 执行sql批次
+     *   2) rows为null，或rowChangeCapture无法生成事件，返回原来的批次
+     *   3) 返回行修改事件分组后的批次
+     * </pre>
+     * @param connection 数据库连接
+     * @param batches sql批次
+     * @param rows 事务修改的行，可以为null
+     * @return 同步的批次
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private List<SQLBatch> executeAndCapture(Connection connection, List<SQLBatch> batches,
+                                             List<DBResource> rows) throws SQLException {
+        executeSQL(connection, batches);
+        if (rows == null) return batches;
+        List<RowChangeEvent> events = rowChangeCapture.capture(connection, rows);
+        return events == null || events.isEmpty() ? batches : rowChangeCapture.plan(events);
+    }
+
+    /**
+     * <pre>
+     * 说明：将每个批次的模板联合成一个字符串
+     * </pre>
+     * @param batches sql批次
+     * @return 批次模板组成的字符串
+     * @since 0.0.0
+     */
+    private String combineSql(List<SQLBatch> batches) {
         StringBuilder sb = new StringBuilder();
-        for (SQL sql : list) {
-            sb.append(sql.statement()).append(Constant.Sync.SQL_STATEMENT_SEPARATOR);
+        for (SQLBatch batch : batches) {
+            sb.append(batch.template()).append(Constant.Sync.SQL_STATEMENT_SEPARATOR);
         }
         sb.setLength(sb.length() - Constant.Sync.SQL_STATEMENT_SEPARATOR.length());
         return sb.toString();
     }
 
     /**
-     * 说明：执行sql语句
+     * <pre>
+     * 说明：将每个批次的绑定参数序列化为一个字节数组
+     * 注意事项：
+     *   1. 第i个元素是第i个批次每次执行的参数，只执行一次且不带参数的批次为null
+     * </pre>
+     * @param batches sql批次
+     * @return 序列化后的绑定参数，所有批次都不带参数时返回null
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private byte[] combineParameters(List<SQLBatch> batches) throws SQLException {
+        Object[][][] parameters = new Object[batches.size()][][];
+        for (int i = 0; i < batches.size(); i++) {
+            SQLBatch batch = batches.get(i);
+            if (!batch.isLiteral()) parameters[i] = batch.rows().toArray(new Object[0][]);
+        }
+        try {
+            return SyncInfoEntity.encodeParameters(parameters);
+        } catch (IOException e) {
+            throw new SQLException("Can not serialize the parameters.", e);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：按顺序执行sql批次
+     * 实现步骤：
+     *   1) 只执行一次且不带参数的批次使用同一个Statement执行
+     *   2) 其余批次执行executeBatch()
+     * </pre>
      * @param connection 数据库连接
-     * @param list sql集合
+     * @param batches sql批次
      * @throws SQLException
      * @since 0.0.0
      */
-    private void executeSQL(Connection connection, List<SQL> list) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(list.get(0).statement())) {
-            for (SQL sql : list) {
-                ps.addBatch(sql.statement());
+    private void executeSQL(Connection connection, List<SQLBatch> batches) throws SQLException {
+        Statement statement = null;
+        try {
+            for (SQLBatch batch : batches) {
+                if (!batch.isLiteral()) {
+                    executeBatch(connection, batch);
+                    continue;
+                }
+                if (statement == null) statement = connection.createStatement();
+                statement.executeUpdate(batch.template());
+            }
+        } finally {
+            if (statement != null) statement.close();
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：将一个批次作为参数化的JDBC批次执行
+     * 注意事项：
+     *   1. 多行insert的行数都是2的幂，使每个连接上缓存的模板个数有限
+     * 实现步骤：
+     *   1) 获取该批次可以使用的多行insert的最大行数max
+     *   2) 剩余行数不少于2时，取不超过剩余行数和max的最大的2的幂作为行数
+     *     1. 行数为max时，剩余行中所有完整的max行作为一个多行insert的批次执行
+     *     2. 否则直接执行一条该行数的多行insert，不加入批次，缓存的预编译语句中不会遗留未执行的批次
+     *   3) 剩余的行使用原模板执行，只剩一行时直接执行
+     * </pre>
+     * @param connection 数据库连接
+     * @param batch sql批次
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void executeBatch(Connection connection, SQLBatch batch) throws SQLException {
+        List<Object[]> rows = batch.rows();
+        int max = multiRowSize(connection, batch);
+        int i = 0;
+        int remaining;
+        while (max > 1 && (remaining = rows.size() - i) >= 2) {
+            int size = Math.min(max, Integer.highestOneBit(remaining));
+            int count = size == max ? remaining / max : 1;
+            PreparedStatement ps = statementCache.prepare(connection, planner.multiRowTemplate(batch.template(), size));
+            if (count == 1) {
+                bindRows(ps, rows, i, size);
+                ps.executeUpdate();
+                i += size;
+                continue;
+            }
+            for (int c = 0; c < count; c++, i += size) {
+                bindRows(ps, rows, i, size);
+                ps.addBatch();
             }
             ps.executeBatch();
         }
+        if (i == rows.size()) return;
+
+        PreparedStatement ps = statementCache.prepare(connection, batch.template());
+        if (rows.size() - i == 1) {
+            StatementCache.bind(ps, rows.get(i));
+            ps.executeUpdate();
+            return;
+        }
+        for (; i < rows.size(); i++) {
+            StatementCache.bind(ps, rows.get(i));
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /**
+     * 说明：依次绑定从from开始的size行参数
+     * @param ps 多行insert的预编译语句
+     * @param rows 批次的绑定参数
+     * @param from 开始的行
+     * @param size 行数
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void bindRows(PreparedStatement ps, List<Object[]> rows, int from, int size) throws SQLException {
+        int index = 1;
+        for (int r = from; r < from + size; r++) {
+            for (Object parameter : rows.get(r)) {
+                ps.setObject(index++, parameter);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：获取一个批次可以使用的多行insert的最大行数
+     * 实现步骤：
+     *   1) 判定批次少于2行、未开启多行insert、数据库不支持或模板不能改写，返回1
+     *   2) 以multiRowInsertSize和占位符上限限制行数，并向下取为2的幂
+     * </pre>
+     * @param connection 数据库连接
+     * @param batch sql批次
+     * @return 多行insert的最大行数，为1表示不使用多行insert
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private int multiRowSize(Connection connection, SQLBatch batch) throws SQLException {
+        int configured = commitConfig.multiRowInsertSize();
+        List<Object[]> rows = batch.rows();
+        if (rows.size() < 2 || configured <= 1 || rows.get(0) == null) return 1;
+        if (!multiRowSupported(connection) || planner.multiRowTemplate(batch.template(), 2) == null) return 1;
+        int limit = Math.min(configured, MAX_PLACEHOLDERS / rows.get(0).length);
+        return limit <= 1 ? 1 : Integer.highestOneBit(limit);
+    }
+
+    /**
+     * <pre>
+     * 说明：根据数据库产品判定是否支持多行insert
+     * 注意事项：
+     *   1. Oracle等不支持INSERT ... VALUES (...), (...)的数据库不进行改写
+     * </pre>
+     * @param connection 数据库连接
+     * @return true表示支持
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private boolean multiRowSupported(Connection connection) throws SQLException {
+        Boolean supported = multiRowSupported;
+        if (supported == null) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            supported = product.contains("mysql") || product.contains("mariadb") ||
+                    product.contains("postgresql") || product.contains("h2");
+            multiRowSupported = supported;
+        }
+        return supported;
     }
 
     /**
@@ -253,32 +844,28 @@ public class CommitImpl implements Commit {
      * 说明：处理全局服务器是否确认提交当前事务
      * 实现步骤：
      *   1) 判定id不为Null，则提交该事务：
-     *     1. 将同步信息保存到数据库
-     *     2. 提交事务
-     *     3. 释放锁和其他事务持有的资源
-     *     4. 将同步信息发送给从站点
+     *     1. 执行finishCommit()
      *   2) 判定不提交该事务
      *     1. 释放锁和其他事务持有的资源
      * </pre>
      *
+     * @param id 同步信息id，为null表示不提交
+     * @param committed 事务提交后执行的逻辑
      * @param connection 数据库连接
      * @param transaction 当前事务
      * @param sqlStatement 当前事务执行的SQL语句
+     * @param parameters 序列化后的绑定参数
      * @since 0.0.0
      */
-    private void handleCommit(Long id, Connection connection,
-                              DBTransaction transaction, String sqlStatement) {
+    private void handleCommit(Long id, Runnable committed, Connection connection, DBTransaction transaction,
+                              String sqlStatement, byte[] parameters) {
         try {
             if (id == null) { // 不提交
-                dbLock.unlock(transaction);
                 connection.rollback();
+                release(transaction, false);
                 return;
             }
-            SyncInfoEntity info = new SyncInfoEntity(id, transaction, sqlStatement);
-            insertSyncInfo(info, connection);
-            connection.commit();
-            dbLock.unlock(transaction);
-            syncSender.send(info);
+            finishCommit(id, committed, connection, transaction, sqlStatement, parameters);
         } catch (Exception e) {
             ExceptionUtils.printStackTrace(e);
             LauncherUtils.destroy(); // 销毁程序
@@ -291,6 +878,75 @@ public class CommitImpl implements Commit {
         }
     }
 
+    /**
+     * <pre>
+     * 说明：DEFERRED_EXECUTION_MODE下处理全局服务器是否确认提交当前事务
+     * 注意事项：
+     *   1. 从投票到确认期间该事务的DBLock一直被持有，因此重新执行的结果和试执行一致
+     *   2. 开启提前释放锁时，冲突的后继在该事务完成前不会投票，因此也不会先于它执行
+     * 实现步骤：
+     *   1) 判定id为Null，释放锁和其他事务持有的资源后返回
+     *   2) 将重新执行SQL语句和保存同步信息提交给groupCommit，与其他事务合并提交
+     *   3) 提交后使查询缓存失效，执行committed，释放锁和其他事务持有的资源，将同步信息发送给从站点
+     *     1. committed在合并提交完成后才执行，此前client不会被告知事务成功
+     * </pre>
+     *
+     * @param id 同步信息id，为null表示不提交
+     * @param committed 事务提交后执行的逻辑
+     * @param batches 同步的批次，即sql批次或行修改事件的批次
+     * @param transaction 当前事务
+     * @param sqlStatement 当前事务执行的SQL语句
+     * @param parameters 序列化后的绑定参数
+     * @since 0.0.0
+     */
+    private void handleDeferredCommit(Long id, Runnable committed, List<SQLBatch> batches,
+                                      DBTransaction transaction, String sqlStatement, byte[] parameters) {
+        if (id == null) { // 不提交
+            release(transaction, false);
+            return;
+        }
+        SyncInfoEntity info = new SyncInfoEntity(id, transaction, sqlStatement, parameters);
+        groupCommit.submit(id, connection -> {
+            executeSQL(connection, batches);
+            insertSyncInfo(info, connection);
+        }, () -> {
+            queryCache.invalidate(sqlStatement);
+            committed.run();
+            release(transaction, true);
+            syncSender.send(info);
+        });
+    }
+
+    /**
+     * <pre>
+     * 说明：在已经执行了事务SQL的连接上完成提交
+     * 实现步骤：
+     *   1) 将同步信息保存到数据库
+     *   2) 提交事务，使查询缓存失效，执行committed
+     *   3) 释放锁和其他事务持有的资源
+     *   4) 将同步信息发送给从站点
+     * </pre>
+     *
+     * @param id 同步信息id
+     * @param committed 事务提交后执行的逻辑
+     * @param connection 数据库连接
+     * @param transaction 当前事务
+     * @param sqlStatement 当前事务执行的SQL语句
+     * @param parameters 序列化后的绑定参数
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void finishCommit(Long id, Runnable committed, Connection connection, DBTransaction transaction,
+                              String sqlStatement, byte[] parameters) throws SQLException {
+        SyncInfoEntity info = new SyncInfoEntity(id, transaction, sqlStatement, parameters);
+        insertSyncInfo(info, connection);
+        connection.commit();
+        queryCache.invalidate(sqlStatement);
+        committed.run();
+        release(transaction, true);
+        syncSender.send(info);
+    }
+
     /**
      * <pre>
      * 说明：保存一个事务相关的同步信息
@@ -306,12 +962,13 @@ public class CommitImpl implements Commit {
     private void insertSyncInfo(SyncInfoEntity info, Connection conn) throws SQLException {
         String insertSql = "INSERT INTO `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX +
                 serverConfig.dbName() +
-                "` VALUES(?, ?, ?, ?);";
+                "` VALUES(?, ?, ?, ?, ?);";
         try (PreparedStatement ps = conn.prepareStatement(insertSql)){
             ps.setLong(1, info.getId());
             ps.setLong(2, info.getTransaction().getId());
             ps.setInt(3, info.getTransaction().getType());
             ps.setString(4, info.getSqlStatement());
+            ps.setBytes(5, info.getParameters());
             ps.executeUpdate();
         }
     }
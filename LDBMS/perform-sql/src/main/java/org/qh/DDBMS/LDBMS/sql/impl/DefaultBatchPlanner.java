@@ -0,0 +1,366 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.BatchPlanner;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SQLBatch;
+import org.qh.DDBMS.LDBMS.sql.config.CommitConfig;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/07
+ * @Version: 0.0.0
+ * @Description: BatchPlanner接口的默认实现类
+ */
+public class DefaultBatchPlanner implements BatchPlanner {
+
+    /**
+     * <pre>
+     * 说明：可以提取字面量的语句前缀
+     * </pre>
+     */
+    private static final String[] DML_PREFIXES = {"insert", "replace", "update", "delete"};
+
+    /**
+     * <pre>
+     * 说明：包含这些片段的语句不提取字面量，它们中的数字或字符串不能替换为占位符
+     * </pre>
+     */
+    private static final String[] UNSAFE_FRAGMENTS = {"order by", "group by", "cast(", "convert("};
+
+    /**
+     * <pre>
+     * 说明：后面紧跟的字符串是类型字面量的关键字
+     * </pre>
+     */
+    private static final String[] TYPED_LITERAL_KEYWORDS = {"date", "time", "timestamp"};
+
+    /**
+     * <pre>
+     * 说明：获取是否提取字面量
+     * </pre>
+     */
+    @Resource
+    private CommitConfig config;
+
+    /**
+     * <pre>
+     * 说明：将事务的写语句分组为批次
+     * 实现步骤：
+     *   1) 判定开启了parameterizeLiterals，提取不带参数语句中的字面量
+     *   2) 语句的模板与上一个批次相同，加入上一个批次
+     *   3) 否则创建新的批次
+     * </pre>
+     * @param list 事务的写语句
+     * @return 按执行顺序排列的批次
+     * @since 0.0.0
+     */
+    @Override
+    public List<SQLBatch> plan(List<SQL> list) {
+        List<SQLBatch> batches = new ArrayList<>();
+        SQLBatch last = null;
+        for (SQL sql : list) {
+            SQL shaped = config.parameterizeLiterals() ? parameterize(sql) : sql;
+            if (last == null || !last.template().equals(shaped.statement())) {
+                batches.add(last = new SQLBatch(shaped.statement()));
+            }
+            last.add(shaped.parameters());
+        }
+        return batches;
+    }
+
+    /**
+     * <pre>
+     * 说明：将语句中的数字和字符串字面量提取为绑定参数
+     * 注意事项：
+     *   1. 只处理不带参数的insert、replace、update、delete语句
+     *   2. 无法确定能否替换的字面量原样保留，例如带有转义字符、字符集前缀或类型前缀的字符串
+     *   3. 带有注释或相邻字符串的语句不提取，相邻的字符串会被MySQL连接为一个字符串
+     * 实现步骤：
+     *   1) 判定语句不满足提取条件，返回sql
+     *   2) 逐个字符扫描语句
+     *     1. 反引号、双引号中的内容原样保留
+     *     2. 遇到注释，返回sql
+     *     3. 单引号中的字符串替换为占位符，其后紧跟另一个字符串时返回sql
+     *     4. 不属于标识符的十进制数字替换为占位符
+     *   3) 没有提取到字面量，返回sql
+     *   4) 返回由模板和参数构成的新sql
+     * </pre>
+     * @param sql 写语句
+     * @return 提取字面量后的写语句
+     * @since 0.0.0
+     */
+    private SQL parameterize(SQL sql) {
+        String s = sql.statement();
+        if (sql.parameters() != null || !parameterizable(s)) return sql;
+
+        StringBuilder sb = new StringBuilder(s.length());
+        List<Object> values = new ArrayList<>();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '`' || c == '"') {
+                int end = s.indexOf(c, i + 1);
+                if (end < 0) return sql;
+                sb.append(s, i, end + 1);
+                i = end + 1;
+            } else if (comment(s, i)) {
+                return sql;
+            } else if (c == '\'') {
+                int end = stringEnd(s, i);
+                if (end < 0 || adjacentString(s, end + 1)) return sql;
+                String value = stringValue(s, i, end);
+                if (value == null || prefixed(sb)) {
+                    sb.append(s, i, end + 1);
+                } else {
+                    sb.append('?');
+                    values.add(value);
+                }
+                i = end + 1;
+            } else if (Character.isDigit(c) && (sb.length() == 0 || sb.charAt(sb.length() - 1) != '.')) {
+                int end = numberEnd(s, i);
+                if ((end < n && identifierChar(s.charAt(end))) ||
+                        (c == '0' && end == i + 1 && end < n && (s.charAt(end) == 'x' || s.charAt(end) == 'b'))) {
+                    end = identifierEnd(s, i);
+                    sb.append(s, i, end);
+                } else {
+                    sb.append('?');
+                    values.add(number(s.substring(i, end)));
+                }
+                i = end;
+            } else if (identifierChar(c)) {
+                int end = identifierEnd(s, i);
+                sb.append(s, i, end);
+                i = end;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        if (values.isEmpty()) return sql;
+        return new SQLImpl(sql.transaction(), sql.type(), sb.toString(), values.toArray());
+    }
+
+    /**
+     * <pre>
+     * 说明：判定语句是否可以提取字面量
+     * 注意事项：
+     *   1. 连续的空白字符视为一个空格，括号前的空白忽略，避免ORDER  BY、CAST (等写法绕过检查
+     * </pre>
+     * @param statement sql语句
+     * @return true表示可以
+     * @since 0.0.0
+     */
+    private boolean parameterizable(String statement) {
+        String lower = statement.trim().toLowerCase().replaceAll("\\s+", " ").replace(" (", "(");
+        boolean dml = false;
+        for (String prefix : DML_PREFIXES) {
+            if (lower.startsWith(prefix)) dml = true;
+        }
+        if (!dml) return false;
+        for (String fragment : UNSAFE_FRAGMENTS) {
+            if (lower.contains(fragment)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 说明：查找从start开始的单引号字符串的结束引号
+     * @param s sql语句
+     * @param start 开始引号的位置
+     * @return 结束引号的位置，字符串未结束时返回-1
+     * @since 0.0.0
+     */
+    private int stringEnd(String s, int start) {
+        for (int i = start + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '\'') {
+                if (i + 1 < s.length() && s.charAt(i + 1) == '\'') i++;
+                else return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 说明：判定i处是否是注释的开始，包括--、#和/*
+     * @param s sql语句
+     * @param i 位置
+     * @return true表示是注释
+     * @since 0.0.0
+     */
+    private boolean comment(String s, int i) {
+        char c = s.charAt(i);
+        if (c == '#') return true;
+        if (i + 1 >= s.length()) return false;
+        char next = s.charAt(i + 1);
+        return (c == '-' && next == '-') || (c == '/' && next == '*');
+    }
+
+    /**
+     * 说明：判定从start开始跳过空白后是否紧跟另一个单引号字符串
+     * @param s sql语句
+     * @param start 上一个字符串结束引号之后的位置
+     * @return true表示紧跟另一个字符串
+     * @since 0.0.0
+     */
+    private boolean adjacentString(String s, int start) {
+        int i = start;
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i < s.length() && s.charAt(i) == '\'';
+    }
+
+    /**
+     * 说明：获取单引号字符串的值
+     * @param s sql语句
+     * @param start 开始引号的位置
+     * @param end 结束引号的位置
+     * @return 字符串的值，包含反斜杠转义时返回null
+     * @since 0.0.0
+     */
+    private String stringValue(String s, int start, int end) {
+        String raw = s.substring(start + 1, end);
+        if (raw.indexOf('\\') >= 0) return null;
+        return raw.replace("''", "'");
+    }
+
+    /**
+     * <pre>
+     * 说明：判定即将追加的字符串带有前缀
+     *   1) 紧跟在标识符后面，例如_utf8'a'、X'0F'
+     *   2) 紧跟在类型关键字后面，例如DATE '2024-12-07'
+     * </pre>
+     * @param sb 已经生成的模板
+     * @return true表示带有前缀
+     * @since 0.0.0
+     */
+    private boolean prefixed(StringBuilder sb) {
+        int end = sb.length();
+        if (end > 0 && identifierChar(sb.charAt(end - 1))) return true;
+        while (end > 0 && Character.isWhitespace(sb.charAt(end - 1))) end--;
+        int begin = end;
+        while (begin > 0 && identifierChar(sb.charAt(begin - 1))) begin--;
+        String word = sb.substring(begin, end).toLowerCase();
+        for (String keyword : TYPED_LITERAL_KEYWORDS) {
+            if (keyword.equals(word)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 说明：查找从start开始的十进制数字的结束位置
+     * @param s sql语句
+     * @param start 数字的开始位置
+     * @return 数字之后的第一个位置
+     * @since 0.0.0
+     */
+    private int numberEnd(String s, int start) {
+        int i = digitsEnd(s, start);
+        if (i < s.length() && s.charAt(i) == '.') i = digitsEnd(s, i + 1);
+        if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < s.length() && (s.charAt(j) == '+' || s.charAt(j) == '-')) j++;
+            if (j < s.length() && Character.isDigit(s.charAt(j))) i = digitsEnd(s, j);
+        }
+        return i;
+    }
+
+    private int digitsEnd(String s, int start) {
+        int i = start;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+        return i;
+    }
+
+    private int identifierEnd(String s, int start) {
+        int i = start;
+        while (i < s.length() && identifierChar(s.charAt(i))) i++;
+        return i;
+    }
+
+    private boolean identifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '@';
+    }
+
+    /**
+     * 说明：将数字字面量转换为参数，整数优先转换为Long
+     * @param text 数字字面量
+     * @return 参数值
+     * @since 0.0.0
+     */
+    private Object number(String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0 && text.length() < 19) {
+            return Long.parseLong(text);
+        }
+        return new BigDecimal(text);
+    }
+
+    /**
+     * <pre>
+     * 说明：将单行insert模板改写为一次插入rows行的模板
+     * 实现步骤：
+     *   1) 判定rows小于等于1，返回template
+     *   2) 判定模板不是INSERT或REPLACE，或带有ON DUPLICATE KEY UPDATE，返回null
+     *   3) 找到最后一个VALUES，其后必须是一个带有占位符的完整括号，否则返回null
+     *   4) 将括号重复rows次，以逗号连接
+     * </pre>
+     * @param template 单行insert模板
+     * @param rows 行数
+     * @return 多行insert模板，模板不能改写时返回null
+     * @since 0.0.0
+     */
+    @Override
+    public String multiRowTemplate(String template, int rows) {
+        if (rows <= 1) return template;
+        String lower = template.trim().toLowerCase();
+        if (!lower.startsWith("insert") && !lower.startsWith("replace")) return null;
+        if (lower.contains("on duplicate")) return null;
+
+        lower = template.toLowerCase();
+        int values = lower.lastIndexOf("values");
+        if (values <= 0 || !Character.isWhitespace(lower.charAt(values - 1))) return null;
+        String tuple = template.substring(values + "values".length()).trim();
+        if (tuple.endsWith(";")) tuple = tuple.substring(0, tuple.length() - 1).trim();
+        if (!tuple.startsWith("(") || closingParen(tuple) != tuple.length() - 1) return null;
+        if (tuple.indexOf('?') < 0) return null;
+
+        StringBuilder sb = new StringBuilder(values + (tuple.length() + 1) * rows + 8);
+        sb.append(template, 0, values + "values".length()).append(' ');
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(tuple);
+        }
+        return sb.append(';').toString();
+    }
+
+    /**
+     * 说明：查找与第一个左括号匹配的右括号，跳过引号中的内容
+     * @param s 以左括号开始的字符串
+     * @return 匹配的右括号位置，不存在时返回-1
+     * @since 0.0.0
+     */
+    private int closingParen(String s) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
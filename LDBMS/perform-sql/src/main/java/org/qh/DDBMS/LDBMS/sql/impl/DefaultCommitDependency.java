@@ -0,0 +1,178 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.CommitDependency;
+import org.qh.DDBMS.common.db.DBResource;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/03
+ * @Version: 0.0.0
+ * @Description: CommitDependency接口的默认实现类
+ */
+public class DefaultCommitDependency implements CommitDependency {
+
+    /**
+     * <pre>
+     * 说明：行资源和最后一个持有过该行的待确认事务的映射关系
+     * </pre>
+     */
+    private Map<DBResource, DBTransaction> rowOwner = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：表id和最后一个持有过该表锁的待确认事务的映射关系
+     * </pre>
+     */
+    private Map<Integer, DBTransaction> tableOwner = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：表id和持有过该表中任意资源的待确认事务的映射关系
+     * </pre>
+     */
+    private Map<Integer, Set<DBTransaction>> tableMembers = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：已登记但还未完成的事务
+     * </pre>
+     */
+    private Map<DBTransaction, Node> nodes = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：登记一个即将提前释放锁的事务
+     * 实现步骤：
+     *   1) 根据资源找出冲突的待确认事务作为前驱
+     *     1. 表资源：与该表中任意资源的待确认事务冲突
+     *     2. 行资源：与该行以及该表表锁的待确认事务冲突
+     *   2) 将当前事务加入前驱的后继列表
+     *   3) 将当前事务记录为这些资源的待确认事务
+     * </pre>
+     * @param transaction 即将释放锁的事务
+     * @param resources 该事务持有的资源
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized void register(DBTransaction transaction, List<DBResource> resources) {
+        Node node = new Node(resources);
+        for (DBResource resource : resources) {
+            if (resource.isTable()) {
+                node.predecessors.addAll(tableMembers.getOrDefault(resource.getTableId(), Collections.emptySet()));
+            } else {
+                addIfPresent(node.predecessors, rowOwner.get(resource));
+                addIfPresent(node.predecessors, tableOwner.get(resource.getTableId()));
+            }
+        }
+        node.predecessors.remove(transaction);
+        for (DBTransaction predecessor : node.predecessors) {
+            nodes.get(predecessor).successors.add(transaction);
+        }
+
+        for (DBResource resource : resources) {
+            if (resource.isTable()) tableOwner.put(resource.getTableId(), transaction);
+            else rowOwner.put(resource, transaction);
+            tableMembers.computeIfAbsent(resource.getTableId(), k -> new HashSet<>()).add(transaction);
+        }
+        nodes.put(transaction, node);
+    }
+
+    private void addIfPresent(Set<DBTransaction> set, DBTransaction transaction) {
+        if (transaction != null) set.add(transaction);
+    }
+
+    /**
+     * <pre>
+     * 说明：在一个事务的所有前驱都完成后执行onReady，任一前驱撤销则执行onAbort
+     * 实现步骤：
+     *   1) 判定事务已被级联撤销，执行onAbort
+     *   2) 判定事务不存在前驱，执行onReady
+     *   3) 否则保存onReady和onAbort，等待前驱完成
+     * </pre>
+     * @param transaction 已登记的事务
+     * @param onReady 所有前驱都提交后执行的逻辑
+     * @param onAbort 前驱撤销时执行的逻辑
+     * @since 0.0.0
+     */
+    @Override
+    public void whenReady(DBTransaction transaction, Runnable onReady, Runnable onAbort) {
+        Runnable action;
+        synchronized (this) {
+            Node node = nodes.get(transaction);
+            if (node == null) throw new IllegalArgumentException("The transaction is not registered.");
+            if (node.aborted) action = onAbort;
+            else if (node.predecessors.isEmpty()) action = onReady;
+            else {
+                node.onReady = onReady;
+                node.onAbort = onAbort;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * <pre>
+     * 说明：一个已登记的事务完成
+     * 实现步骤：
+     *   1) 删除事务的登记信息和资源记录
+     *   2) 遍历其后继
+     *     1. 判定提交，从后继的前驱中删除当前事务，前驱清空的后继进入就绪列表
+     *     2. 判定撤销，将后继标记为撤销，已经等待的后继进入撤销列表
+     *   3) 在同步块外执行就绪和撤销逻辑
+     * </pre>
+     * @param transaction 已登记的事务
+     * @param committed true表示提交，false表示撤销
+     * @since 0.0.0
+     */
+    @Override
+    public void complete(DBTransaction transaction, boolean committed) {
+        List<Runnable> actions = new ArrayList<>();
+        synchronized (this) {
+            Node node = nodes.remove(transaction);
+            if (node == null) return;
+            for (DBResource resource : node.resources) {
+                if (resource.isTable()) tableOwner.remove(resource.getTableId(), transaction);
+                else rowOwner.remove(resource, transaction);
+                Set<DBTransaction> members = tableMembers.get(resource.getTableId());
+                if (members != null && members.remove(transaction) && members.isEmpty()) {
+                    tableMembers.remove(resource.getTableId());
+                }
+            }
+            for (DBTransaction successor : node.successors) {
+                Node next = nodes.get(successor);
+                if (next == null || next.aborted) continue;
+                if (committed) {
+                    next.predecessors.remove(transaction);
+                    if (next.predecessors.isEmpty() && next.onReady != null) actions.add(next.onReady);
+                } else {
+                    next.aborted = true;
+                    if (next.onAbort != null) actions.add(next.onAbort);
+                }
+            }
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * 说明：一个已登记事务的依赖信息
+     */
+    private static class Node {
+        private final List<DBResource> resources; // 事务释放的资源
+        private final Set<DBTransaction> predecessors = new HashSet<>(); // 尚未完成的前驱
+        private final List<DBTransaction> successors = new ArrayList<>(); // 依赖当前事务的后继
+        private Runnable onReady; // 前驱都提交后执行的逻辑
+        private Runnable onAbort; // 前驱撤销后执行的逻辑
+        private boolean aborted; // 是否已被级联撤销
+
+        private Node(List<DBResource> resources) {
+            this.resources = new ArrayList<>(resources);
+        }
+    }
+}
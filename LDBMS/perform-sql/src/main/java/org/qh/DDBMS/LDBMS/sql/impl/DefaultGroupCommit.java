@@ -0,0 +1,178 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.GroupCommit;
+import org.qh.DDBMS.LDBMS.sql.config.CommitConfig;
+import org.qh.tools.clz.LauncherUtils;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.thread.ThreadUtils;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/04
+ * @Version: 0.0.0
+ * @Description: GroupCommit接口的默认实现类
+ */
+public class DefaultGroupCommit implements GroupCommit {
+
+    /**
+     * <pre>
+     * 说明：等待合并提交的事务，按同步信息id排序
+     * </pre>
+     */
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(Comparator.comparingLong(t -> t.syncInfoId));
+
+    /**
+     * <pre>
+     * 说明：是否已经安排了一次延迟刷写
+     * </pre>
+     */
+    private boolean scheduled;
+
+    /**
+     * <pre>
+     * 说明：获取数据库连接的数据源
+     * </pre>
+     */
+    @Resource
+    private DataSource dataSource;
+
+    /**
+     * <pre>
+     * 说明：用于获取合并提交的窗口和批量大小
+     * </pre>
+     */
+    @Resource
+    private CommitConfig config;
+
+    /**
+     * <pre>
+     * 说明：提交一个已经获得GDBMS确认的事务
+     * 实现步骤：
+     *   1) 将事务加入queue
+     *   2) 判定queue中事务数达到groupCommitSize，在当前线程执行flush()
+     *   3) 否则判定未安排延迟刷写，在groupCommitWindow毫秒后执行flush()
+     * </pre>
+     * @param syncInfoId 事务的同步信息id
+     * @param work 事务的写操作
+     * @param onCommitted 事务提交后执行的逻辑
+     * @since 0.0.0
+     */
+    @Override
+    public void submit(long syncInfoId, CommitWork work, Runnable onCommitted) {
+        boolean flushNow = false;
+        synchronized (queue) {
+            queue.add(new Task(syncInfoId, work, onCommitted));
+            if (queue.size() >= config.groupCommitSize() || config.groupCommitWindow() <= 0) {
+                flushNow = true;
+            } else if (!scheduled) {
+                scheduled = true;
+                ThreadUtils.schedule(this::flush, config.groupCommitWindow(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) flush();
+    }
+
+    /**
+     * <pre>
+     * 说明：将queue中的事务合并提交
+     * 注意事项：
+     *   1. 该方法为同步方法，同一时刻只有一个批次在提交，批次之间保持id顺序
+     * 实现步骤：
+     *   1) 按id顺序取出最多groupCommitSize个事务
+     *   2) 在一个连接上依次执行这些事务的写操作后提交一次
+     *   3) 合并提交失败，回滚后逐个提交这些事务
+     *   4) 按id顺序执行每个事务的onCommitted
+     * </pre>
+     * @since 0.0.0
+     */
+    private synchronized void flush() {
+        List<Task> batch = drain();
+        if (batch.isEmpty()) return;
+        try {
+            try {
+                commit(batch);
+            } catch (SQLException e) {
+                ExceptionUtils.printStackTrace(e);
+                for (Task task : batch) {
+                    commit(Collections.singletonList(task));
+                }
+            }
+        } catch (Exception e) {
+            ExceptionUtils.printStackTrace(e);
+            LauncherUtils.destroy(); // 已被GDBMS确认的事务无法提交，销毁程序
+            return;
+        }
+        for (Task task : batch) {
+            task.onCommitted.run();
+        }
+    }
+
+    /**
+     * 说明：按id顺序取出最多groupCommitSize个事务，并重置延迟刷写标记
+     * @return 取出的事务
+     * @since 0.0.0
+     */
+    private List<Task> drain() {
+        synchronized (queue) {
+            List<Task> batch = new ArrayList<>();
+            int size = Math.max(config.groupCommitSize(), 1);
+            while (!queue.isEmpty() && batch.size() < size) {
+                batch.add(queue.poll());
+            }
+            scheduled = false;
+            if (!queue.isEmpty()) {
+                scheduled = true;
+                ThreadUtils.execute(this::flush);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * 说明：在一个连接上执行一批事务的写操作并提交
+     * @param batch 一批事务
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private void commit(List<Task> batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Task task : batch) {
+                    task.work.execute(connection);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 说明：一个等待合并提交的事务
+     */
+    private static class Task {
+        private final long syncInfoId; // 事务的同步信息id
+        private final CommitWork work; // 事务的写操作
+        private final Runnable onCommitted; // 提交后执行的逻辑
+
+        private Task(long syncInfoId, CommitWork work, Runnable onCommitted) {
+            this.syncInfoId = syncInfoId;
+            this.work = work;
+            this.onCommitted = onCommitted;
+        }
+    }
+}
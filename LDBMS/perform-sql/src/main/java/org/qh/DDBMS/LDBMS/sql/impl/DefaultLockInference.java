@@ -0,0 +1,735 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.LockInference;
+import org.qh.DDBMS.LDBMS.sql.LockInferenceReport;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.LockInferenceConfig;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBResource;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.db.TableNameResolver;
+import org.qh.DDBMS.common.dblock.DBLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: LockInference接口的默认实现类，通过分析写语句的目标表和主键谓词推断锁
+ */
+public class DefaultLockInference implements LockInference {
+
+    /**
+     * <pre>
+     * 说明：表示需要对整张表加锁的行集合
+     * </pre>
+     */
+    private static final Set<Long> WHOLE_TABLE = Collections.emptySet();
+
+    /**
+     * <pre>
+     * 说明：表名之前可能出现的修饰关键字
+     * </pre>
+     */
+    private static final Set<String> MODIFIERS = new HashSet<>(Arrays.asList(
+            "low_priority", "delayed", "high_priority", "quick", "ignore"));
+
+    /**
+     * <pre>
+     * 说明：结束WHERE条件的关键字
+     * </pre>
+     */
+    private static final Set<String> WHERE_END = new HashSet<>(Arrays.asList("order", "limit", ";"));
+
+    /**
+     * <pre>
+     * 说明：表名之后出现即表示多表语句的单词
+     * </pre>
+     */
+    private static final Set<String> JOINS = new HashSet<>(Arrays.asList(
+            ",", "join", "using", "inner", "left", "right", "outer", "cross", "natural", "straight_join"));
+
+    /**
+     * <pre>
+     * 说明：获取推断的配置
+     * </pre>
+     */
+    @Resource
+    private LockInferenceConfig config;
+
+    /**
+     * <pre>
+     * 说明：获取表的tableId和主键
+     * </pre>
+     */
+    @Resource
+    private SchemaRegistry registry;
+
+    /**
+     * <pre>
+     * 说明：登记推断出的资源
+     * </pre>
+     */
+    @Resource
+    private DBLock dbLock;
+
+    /**
+     * <pre>
+     * 说明：最近的推断结果
+     * </pre>
+     */
+    private final ArrayDeque<LockInferenceReport> reports = new ArrayDeque<>();
+
+    /**
+     * <pre>
+     * 说明：检查推断的配置
+     * 注意事项：
+     *   1. 未配置的表按表名顺序分配tableId，与手动登记资源时使用的tableId不一致，开启推断时必须配置tableIds
+     * </pre>
+     * @since 0.0.0
+     */
+    @PostConstruct
+    public void init() {
+        if (config.enabled() && (config.tableIds() == null || config.tableIds().isEmpty())) {
+            throw new IllegalStateException("The tableIds must be configured when the lock inference is enabled.");
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：推断事务需要的锁，与tables的表锁合并后登记到DBLock
+     * 实现步骤：
+     *   1) 判定未开启推断或事务已经手动登记了资源，登记tables中尚未登记的表锁，记录报告后返回
+     *   2) 分析每条WRITE_TYPE语句，得到表和其需要锁的行
+     *     1. 一张表的行锁超过maxRowLocks时升级为表锁
+     *     2. 任一语句无法确定修改的表时，报告标记为unresolved
+     *   3) 将tables中的表设为表锁
+     *   4) 将表锁和行锁按tableId、rowId排序后登记到dbLock
+     *   5) 记录并返回报告
+     * </pre>
+     *
+     * @param transaction 事务
+     * @param list 事务的写语句
+     * @param tables 需要登记表锁的tableId
+     * @return 推断结果
+     * @since 0.0.0
+     */
+    @Override
+    public LockInferenceReport register(DBTransaction transaction, List<SQL> list, Collection<Integer> tables) {
+        List<String> notes = new ArrayList<>();
+        if (!config.enabled() || manual(transaction)) {
+            List<DBResource> registered = dbLock.resources(transaction);
+            for (Integer id : tables) {
+                DBResource table = new DBResource(id, 0L);
+                if (registered == null || !registered.contains(table)) dbLock.register(transaction, table);
+            }
+            return report(new LockInferenceReport(transaction, System.currentTimeMillis(),
+                    config.enabled(), Collections.emptyList(), true, notes));
+        }
+
+        Map<Integer, Set<Long>> footprint = new TreeMap<>();
+        boolean unresolved = false;
+        for (SQL sql : list) {
+            if (sql.type() != Constant.SQL.WRITE_TYPE) continue;
+            if (!analyze(sql, footprint, notes)) unresolved = true;
+        }
+        for (Integer id : tables) {
+            footprint.put(id, WHOLE_TABLE);
+            notes.add("requested: table " + id);
+        }
+
+        List<DBResource> resources = new ArrayList<>();
+        for (Map.Entry<Integer, Set<Long>> entry : footprint.entrySet()) {
+            Set<Long> rows = entry.getValue();
+            if (rows == WHOLE_TABLE) {
+                resources.add(new DBResource(entry.getKey(), 0L));
+                continue;
+            }
+            for (Long row : rows) resources.add(new DBResource(entry.getKey(), row));
+        }
+        for (DBResource resource : resources) dbLock.register(transaction, resource);
+        return report(new LockInferenceReport(transaction, System.currentTimeMillis(),
+                false, resources, unresolved, notes));
+    }
+
+    @Override
+    public synchronized List<LockInferenceReport> reports() {
+        return new ArrayList<>(reports);
+    }
+
+    /**
+     * 说明：保存一个报告，超过reportSize时丢弃最早的报告
+     * @param report 推断结果
+     * @return report
+     * @since 0.0.0
+     */
+    private synchronized LockInferenceReport report(LockInferenceReport report) {
+        reports.addLast(report);
+        while (reports.size() > Math.max(0, config.reportSize())) reports.pollFirst();
+        return report;
+    }
+
+    /**
+     * 说明：判定事务是否已经手动登记了资源
+     * @param transaction 事务
+     * @return true表示已经登记
+     * @since 0.0.0
+     */
+    private boolean manual(DBTransaction transaction) {
+        List<DBResource> resources = dbLock.resources(transaction);
+        return resources != null && !resources.isEmpty();
+    }
+
+    /**
+     * <pre>
+     * 说明：分析一条写语句，将其需要的锁合并到footprint中
+     * 实现步骤：
+     *   1) INSERT：目标表的主键值都能确定时锁这些行
+     *   2) UPDATE、DELETE：单表语句的WHERE中有主键等值或IN条件时锁这些行
+     *   3) 语句带有SELECT或子查询时，锁语句涉及的所有表，包括只读取的表
+     *   4) 表有主键外的唯一索引、外键或触发器时，行锁升级为表锁
+     *   5) 其他情况锁语句涉及的所有表
+     *   6) 无法解析语句涉及的表，或表不在registry中，锁所有表
+     * </pre>
+     *
+     * @param sql 写语句
+     * @param footprint tableId和需要锁的行的映射关系
+     * @param notes 推断依据
+     * @return false表示无法确定语句修改的表
+     * @since 0.0.0
+     */
+    private boolean analyze(SQL sql, Map<Integer, Set<Long>> footprint, List<String> notes) {
+        List<Token> tokens = tokenize(sql.statement());
+        Object[] params = sql.parameters();
+        String first = tokens.isEmpty() ? "" : tokens.get(0).text;
+        Target target = null;
+        String reason;
+        switch (first) {
+            case "insert":
+                target = insertTarget(tokens, params);
+                reason = "insert";
+                break;
+            case "update":
+            case "delete":
+                target = whereTarget(tokens, params, first);
+                reason = first;
+                break;
+            case "replace":
+                reason = "replace may remove rows through other unique keys";
+                break;
+            default:
+                reason = "not a single-table dml statement";
+        }
+        if (target != null && containsWord(tokens, "select")) {
+            target = null; // 读取的表也需要锁，否则主辅站点读到的数据可能不同
+            reason = reason + " with a select or subquery";
+        }
+
+        if (target != null && target.rows == null) {
+            reason = reason + " without a primary key predicate";
+        } else if (target != null && target.rows.size() > config.maxRowLocks()) {
+            reason = target.rows.size() + " rows exceed maxRowLocks";
+        } else if (target != null && !rowLockable(target.table)) {
+            reason = reason + " on a table with other unique keys, foreign keys or triggers";
+        } else if (target != null) {
+            Integer id = registry.tableId(target.table);
+            if (id != null) {
+                merge(footprint, id, target.rows);
+                notes.add(reason + ": rows " + target.rows + " of " + target.table);
+                return true;
+            }
+        }
+
+        Set<String> tables = target != null ? Collections.singleton(target.table) :
+                TableNameResolver.tables(sql.statement());
+        if (tables.isEmpty()) {
+            lockAll(footprint, notes, "unresolved: " + sql.statement());
+            return false;
+        }
+        for (String table : tables) {
+            Integer id = registry.tableId(table);
+            if (id == null) {
+                lockAll(footprint, notes, "unknown table " + table + ": " + sql.statement());
+                return false;
+            }
+            footprint.put(id, WHOLE_TABLE);
+            notes.add(reason + ": table " + table);
+        }
+        return true;
+    }
+
+    /**
+     * <pre>
+     * 说明：判定表的修改是否只影响主键确定的行
+     * 注意事项：
+     *   1. 其他唯一索引、外键级联和触发器会使主键不同的两行冲突，行锁不能保证组提交时不冲突
+     * </pre>
+     * @param table 表名
+     * @return true表示可以使用行锁
+     * @since 0.0.0
+     */
+    private boolean rowLockable(String table) {
+        return registry.primaryKeyOnlyUnique(table) && !registry.hasForeignKeysOrTriggers(table);
+    }
+
+    /**
+     * <pre>
+     * 说明：无法确定语句修改的表时锁所有表
+     * 注意事项：
+     *   1. 两个这样的事务都锁所有表，彼此互斥；与其他事务在它们修改的表上互斥
+     * </pre>
+     * @param footprint tableId和需要锁的行的映射关系
+     * @param notes 推断依据
+     * @param note 无法确定的原因
+     * @since 0.0.0
+     */
+    private void lockAll(Map<Integer, Set<Long>> footprint, List<String> notes, String note) {
+        for (Integer id : registry.tableIds()) footprint.put(id, WHOLE_TABLE);
+        notes.add(note + ", lock all tables");
+    }
+
+    /**
+     * 说明：将行锁合并到footprint中，已经有表锁的表保持表锁
+     * @param footprint tableId和需要锁的行的映射关系
+     * @param tableId 表的tableId
+     * @param rows 需要锁的行
+     * @since 0.0.0
+     */
+    private void merge(Map<Integer, Set<Long>> footprint, int tableId, Set<Long> rows) {
+        Set<Long> old = footprint.get(tableId);
+        if (old == WHOLE_TABLE) return;
+        if (old == null) footprint.put(tableId, old = new TreeSet<>());
+        old.addAll(rows);
+        if (old.size() > config.maxRowLocks()) footprint.put(tableId, WHOLE_TABLE);
+    }
+
+    /**
+     * <pre>
+     * 说明：分析INSERT语句修改的行
+     * 实现步骤：
+     *   1) 读取INTO之后的表名，表没有整数主键时只返回表
+     *   2) 带有ON DUPLICATE KEY UPDATE时只返回表
+     *   3) INSERT ... SET：读取主键的赋值
+     *   4) INSERT ... (列) VALUES (...), ...：读取每一行主键位置的值
+     *   5) 任一行的主键值无法确定时只返回表
+     * </pre>
+     *
+     * @param tokens 语句的单词
+     * @param params 绑定参数
+     * @return 目标表和行，无法确定目标表时返回null
+     * @since 0.0.0
+     */
+    private Target insertTarget(List<Token> tokens, Object[] params) {
+        int i = 1;
+        while (i < tokens.size() && MODIFIERS.contains(tokens.get(i).text)) i++;
+        if (i < tokens.size() && "into".equals(tokens.get(i).text)) i++;
+        int[] end = new int[1];
+        String table = tableName(tokens, i, end);
+        if (table == null) return null;
+        String pk = registry.primaryKey(table);
+        if (pk == null || containsWord(tokens, "duplicate")) return new Target(table, null);
+        i = end[0];
+
+        if (i < tokens.size() && "set".equals(tokens.get(i).text)) {
+            Long row = assignment(tokens, i + 1, pk, params);
+            return new Target(table, row == null ? null : Collections.singleton(row));
+        }
+        if (i >= tokens.size() || !"(".equals(tokens.get(i).text)) return new Target(table, null);
+
+        int pkIndex = -1;
+        int column = 0;
+        for (i = i + 1; i < tokens.size() && !")".equals(tokens.get(i).text); i++) {
+            Token token = tokens.get(i);
+            if (",".equals(token.text)) column++;
+            else if (pk.equals(token.text) && token.kind == Kind.WORD) pkIndex = column;
+        }
+        i++;
+        if (pkIndex < 0 || i >= tokens.size() ||
+                !("values".equals(tokens.get(i).text) || "value".equals(tokens.get(i).text))) {
+            return new Target(table, null);
+        }
+
+        Set<Long> rows = new TreeSet<>();
+        i++;
+        while (i < tokens.size() && "(".equals(tokens.get(i).text)) {
+            int depth = 0;
+            column = 0;
+            Long row = null;
+            int start = i + 1;
+            for (; i < tokens.size(); i++) {
+                String text = tokens.get(i).text;
+                if ("(".equals(text)) depth++;
+                else if (")".equals(text) && --depth == 0) break;
+                else if (",".equals(text) && depth == 1) {
+                    if (column == pkIndex) row = value(tokens, start, i, params);
+                    column++;
+                    start = i + 1;
+                }
+            }
+            if (column == pkIndex) row = value(tokens, start, i, params);
+            if (row == null) return new Target(table, null);
+            rows.add(row);
+            i++;
+            if (i < tokens.size() && ",".equals(tokens.get(i).text)) i++;
+        }
+        if (i < tokens.size() && !";".equals(tokens.get(i).text)) return new Target(table, null);
+        return new Target(table, rows.isEmpty() ? null : rows);
+    }
+
+    /**
+     * <pre>
+     * 说明：分析UPDATE、DELETE语句修改的行
+     * 实现步骤：
+     *   1) 读取目标表名，跳过别名；SET或WHERE之前出现逗号或任意连接关键字时为多表语句，返回null
+     *   2) UPDATE修改主键时只返回表
+     *   3) 将WHERE条件按顶层的AND拆分，存在顶层OR时只返回表
+     *   4) 返回第一个主键等值或IN条件中的行
+     * </pre>
+     *
+     * @param tokens 语句的单词
+     * @param params 绑定参数
+     * @param kind update或delete
+     * @return 目标表和行，多表语句或无法确定目标表时返回null
+     * @since 0.0.0
+     */
+    private Target whereTarget(List<Token> tokens, Object[] params, String kind) {
+        int i = 1;
+        while (i < tokens.size() && MODIFIERS.contains(tokens.get(i).text)) i++;
+        if ("delete".equals(kind)) {
+            if (i >= tokens.size() || !"from".equals(tokens.get(i).text)) return null;
+            i++;
+        }
+        int[] end = new int[1];
+        String table = tableName(tokens, i, end);
+        if (table == null) return null;
+        i = end[0];
+        if (i < tokens.size() && "as".equals(tokens.get(i).text)) i += 2;
+        else if (i < tokens.size() && tokens.get(i).kind == Kind.WORD &&
+                !"set".equals(tokens.get(i).text) && !"where".equals(tokens.get(i).text)) i++;
+        for (int j = end[0]; j < tokens.size(); j++) {
+            String text = tokens.get(j).text;
+            if ("set".equals(text) || "where".equals(text) || ";".equals(text)) break;
+            if (JOINS.contains(text)) return null;
+        }
+
+        String pk = registry.primaryKey(table);
+        if (pk == null) return new Target(table, null);
+
+        int where = -1;
+        int depth = 0;
+        for (int j = i; j < tokens.size(); j++) {
+            String text = tokens.get(j).text;
+            if ("(".equals(text)) depth++;
+            else if (")".equals(text)) depth--;
+            else if (depth == 0 && "where".equals(text)) {
+                where = j;
+                break;
+            } else if (depth == 0 && "update".equals(kind) &&
+                    tokens.get(j).kind == Kind.WORD && pk.equals(text) && j + 1 < tokens.size() &&
+                    "=".equals(tokens.get(j + 1).text)) {
+                return new Target(table, null); // 修改主键
+            }
+        }
+        if (where < 0) return new Target(table, null);
+
+        List<int[]> conjuncts = new ArrayList<>();
+        int start = where + 1;
+        depth = 0;
+        int j = start;
+        for (; j < tokens.size(); j++) {
+            Token token = tokens.get(j);
+            if ("(".equals(token.text)) depth++;
+            else if (")".equals(token.text)) depth--;
+            if (depth != 0 || token.kind != Kind.WORD && !";".equals(token.text)) continue;
+            if ("or".equals(token.text) || "xor".equals(token.text)) return new Target(table, null);
+            if (WHERE_END.contains(token.text)) break;
+            if ("and".equals(token.text)) {
+                conjuncts.add(new int[]{start, j});
+                start = j + 1;
+            }
+        }
+        conjuncts.add(new int[]{start, j});
+
+        for (int[] c : conjuncts) {
+            Set<Long> rows = keyPredicate(tokens, c[0], c[1], pk, params);
+            if (rows != null) return new Target(table, rows);
+        }
+        return new Target(table, null);
+    }
+
+    /**
+     * <pre>
+     * 说明：解析一个条件是否是主键的等值或IN条件
+     * 规范：
+     *   1) 支持pk = v、v = pk、pk IN (v, ...)，pk可以带有表名或别名前缀
+     * </pre>
+     *
+     * @param tokens 语句的单词
+     * @param from 条件的开始位置
+     * @param to 条件的结束位置(不包含)
+     * @param pk 主键列名
+     * @param params 绑定参数
+     * @return 条件限定的行，不是主键条件或值无法确定时返回null
+     * @since 0.0.0
+     */
+    private Set<Long> keyPredicate(List<Token> tokens, int from, int to, String pk, Object[] params) {
+        int column = columnEnd(tokens, from, to, pk);
+        if (column > 0 && column + 1 < to && "=".equals(tokens.get(column).text)) {
+            Long row = value(tokens, column + 1, to, params);
+            return row == null ? null : Collections.singleton(row);
+        }
+        if (column > 0 && column + 2 < to && "in".equals(tokens.get(column).text) &&
+                "(".equals(tokens.get(column + 1).text) && ")".equals(tokens.get(to - 1).text)) {
+            Set<Long> rows = new TreeSet<>();
+            int start = column + 2;
+            for (int i = start; i < to; i++) {
+                if (!",".equals(tokens.get(i).text) && i != to - 1) continue;
+                Long row = value(tokens, start, i, params);
+                if (row == null) return null;
+                rows.add(row);
+                start = i + 1;
+            }
+            return rows;
+        }
+        if (to - from >= 3 && "=".equals(tokens.get(from + 1).text) && columnEnd(tokens, from + 2, to, pk) == to) {
+            Long row = value(tokens, from, from + 1, params);
+            return row == null ? null : Collections.singleton(row);
+        }
+        return null;
+    }
+
+    /**
+     * 说明：判定from处是主键列引用，返回引用之后的位置
+     * @param tokens 语句的单词
+     * @param from 开始位置
+     * @param to 结束位置(不包含)
+     * @param pk 主键列名
+     * @return 引用之后的位置，不是主键列引用时返回-1
+     * @since 0.0.0
+     */
+    private int columnEnd(List<Token> tokens, int from, int to, String pk) {
+        if (from + 2 < to && tokens.get(from).kind == Kind.WORD && ".".equals(tokens.get(from + 1).text)) from += 2;
+        if (from < to && tokens.get(from).kind == Kind.WORD && pk.equals(tokens.get(from).text)) return from + 1;
+        return -1;
+    }
+
+    /**
+     * 说明：解析INSERT ... SET中主键的赋值
+     * @param tokens 语句的单词
+     * @param from SET之后的位置
+     * @param pk 主键列名
+     * @param params 绑定参数
+     * @return 主键值，无法确定时返回null
+     * @since 0.0.0
+     */
+    private Long assignment(List<Token> tokens, int from, String pk, Object[] params) {
+        int start = from;
+        int depth = 0;
+        for (int i = from; i <= tokens.size(); i++) {
+            String text = i < tokens.size() ? tokens.get(i).text : ";";
+            if ("(".equals(text)) depth++;
+            else if (")".equals(text)) depth--;
+            else if (depth == 0 && (",".equals(text) || ";".equals(text))) {
+                int column = columnEnd(tokens, start, i, pk);
+                if (column > 0 && column < i && "=".equals(tokens.get(column).text)) {
+                    return value(tokens, column + 1, i, params);
+                }
+                if (";".equals(text)) break;
+                start = i + 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <pre>
+     * 说明：将单个值转换为rowId
+     * 规范：
+     *   1) 值只能是一个整数、数字字符串或占位符
+     *   2) rowId必须大于0
+     * </pre>
+     *
+     * @param tokens 语句的单词
+     * @param from 值的开始位置
+     * @param to 值的结束位置(不包含)
+     * @param params 绑定参数
+     * @return rowId，无法确定时返回null
+     * @since 0.0.0
+     */
+    private Long value(List<Token> tokens, int from, int to, Object[] params) {
+        if (to - from != 1) return null;
+        Token token = tokens.get(from);
+        Object value;
+        if (token.kind == Kind.PARAM) {
+            if (params == null || token.param >= params.length) return null;
+            value = params[token.param];
+        } else if (token.kind == Kind.NUMBER || token.kind == Kind.STRING) {
+            value = token.text;
+        } else {
+            return null;
+        }
+        Long row = toLong(value);
+        return row != null && row > 0 ? row : null;
+    }
+
+    private Long toLong(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        try {
+            if (value instanceof BigInteger) return ((BigInteger) value).longValueExact();
+            if (value instanceof BigDecimal) return ((BigDecimal) value).longValueExact();
+            if (value instanceof String && !((String) value).isEmpty() &&
+                    ((String) value).chars().allMatch(Character::isDigit)) {
+                return Long.parseLong((String) value);
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * 说明：读取从i开始的表名，跳过库名前缀
+     * @param tokens 语句的单词
+     * @param i 开始位置
+     * @param end 用于返回表名之后的位置
+     * @return 表名，不是表名时返回null
+     * @since 0.0.0
+     */
+    private String tableName(List<Token> tokens, int i, int[] end) {
+        if (i >= tokens.size() || tokens.get(i).kind != Kind.WORD) return null;
+        String name = tokens.get(i).text;
+        if (i + 2 < tokens.size() && ".".equals(tokens.get(i + 1).text) && tokens.get(i + 2).kind == Kind.WORD) {
+            name = tokens.get(i + 2).text;
+            i += 2;
+        }
+        end[0] = i + 1;
+        return name;
+    }
+
+    private boolean containsWord(List<Token> tokens, String word) {
+        for (Token token : tokens) {
+            if (token.kind == Kind.WORD && word.equals(token.text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * <pre>
+     * 说明：将sql语句拆分为单词
+     * 实现步骤：
+     *   1) 跳过注释
+     *   2) 单引号、双引号中的内容为STRING
+     *   3) 反引号中的内容和标识符为小写的WORD
+     *   4) 数字为NUMBER，问号为PARAM并记录其是第几个占位符
+     *   5) ||、&&分别转换为or、and，其他字符为单个字符的PUNCT
+     * </pre>
+     *
+     * @param s sql语句
+     * @return 单词列表
+     * @since 0.0.0
+     */
+    private List<Token> tokenize(String s) {
+        List<Token> tokens = new ArrayList<>();
+        int n = s.length();
+        int param = 0;
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && s.charAt(i + 1) == '-') {
+                while (i < n && s.charAt(i) != '\n') i++;
+            } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                int end = s.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '\'' || c == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (i < n) {
+                    char d = s.charAt(i);
+                    if (d == '\\' && i + 1 < n) {
+                        sb.append(s.charAt(i + 1));
+                        i += 2;
+                    } else if (d == c && i + 1 < n && s.charAt(i + 1) == c) {
+                        sb.append(c);
+                        i += 2;
+                    } else if (d == c) {
+                        i++;
+                        break;
+                    } else {
+                        sb.append(d);
+                        i++;
+                    }
+                }
+                tokens.add(new Token(Kind.STRING, sb.toString(), -1));
+            } else if (c == '`') {
+                int end = s.indexOf('`', i + 1);
+                if (end < 0) end = n;
+                tokens.add(new Token(Kind.WORD, s.substring(i + 1, end).toLowerCase(), -1));
+                i = end + 1;
+            } else if (c == '?') {
+                tokens.add(new Token(Kind.PARAM, "?", param++));
+                i++;
+            } else if (Character.isDigit(c)) {
+                int end = i;
+                while (end < n && (Character.isLetterOrDigit(s.charAt(end)) || s.charAt(end) == '.')) end++;
+                tokens.add(new Token(Kind.NUMBER, s.substring(i, end).toLowerCase(), -1));
+                i = end;
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                int end = i;
+                while (end < n && (Character.isLetterOrDigit(s.charAt(end)) ||
+                        s.charAt(end) == '_' || s.charAt(end) == '$')) end++;
+                tokens.add(new Token(Kind.WORD, s.substring(i, end).toLowerCase(), -1));
+                i = end;
+            } else if ((c == '|' || c == '&') && i + 1 < n && s.charAt(i + 1) == c) {
+                tokens.add(new Token(Kind.WORD, c == '|' ? "or" : "and", -1));
+                i += 2;
+            } else {
+                tokens.add(new Token(Kind.PUNCT, String.valueOf(c), -1));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private enum Kind {
+        WORD, STRING, NUMBER, PARAM, PUNCT
+    }
+
+    /**
+     * 说明：sql语句中的一个单词
+     */
+    private static class Token {
+        private final Kind kind; // 单词类型
+        private final String text; // 单词内容，WORD为小写
+        private final int param; // PARAM是第几个占位符
+
+        private Token(Kind kind, String text, int param) {
+            this.kind = kind;
+            this.text = text;
+            this.param = param;
+        }
+    }
+
+    /**
+     * 说明：一条语句修改的表和行
+     */
+    private static class Target {
+        private final String table; // 目标表名
+        private final Set<Long> rows; // 修改的行，null表示无法确定
+
+        private Target(String table, Set<Long> rows) {
+            this.table = table;
+            this.rows = rows;
+        }
+    }
+}
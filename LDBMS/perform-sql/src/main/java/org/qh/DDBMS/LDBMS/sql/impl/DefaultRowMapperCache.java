@@ -0,0 +1,262 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.RowMapper;
+import org.qh.DDBMS.LDBMS.sql.RowMapperCache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/08
+ * @Version: 0.0.0
+ * @Description: RowMapperCache接口的默认实现类，使用MethodHandle生成RowMapper
+ */
+public class DefaultRowMapperCache implements RowMapperCache {
+
+    /**
+     * <pre>
+     * 说明：按类型读取列值的方法，key为字段类型
+     * </pre>
+     */
+    private static final Map<Class<?>, ColumnReader> READERS = new HashMap<>();
+
+    static {
+        READERS.put(String.class, ResultSet::getString);
+        READERS.put(int.class, ResultSet::getInt);
+        READERS.put(Integer.class, (rs, i) -> nullable(rs, rs.getInt(i)));
+        READERS.put(long.class, ResultSet::getLong);
+        READERS.put(Long.class, (rs, i) -> nullable(rs, rs.getLong(i)));
+        READERS.put(short.class, ResultSet::getShort);
+        READERS.put(Short.class, (rs, i) -> nullable(rs, rs.getShort(i)));
+        READERS.put(byte.class, ResultSet::getByte);
+        READERS.put(Byte.class, (rs, i) -> nullable(rs, rs.getByte(i)));
+        READERS.put(double.class, ResultSet::getDouble);
+        READERS.put(Double.class, (rs, i) -> nullable(rs, rs.getDouble(i)));
+        READERS.put(float.class, ResultSet::getFloat);
+        READERS.put(Float.class, (rs, i) -> nullable(rs, rs.getFloat(i)));
+        READERS.put(boolean.class, ResultSet::getBoolean);
+        READERS.put(Boolean.class, (rs, i) -> nullable(rs, rs.getBoolean(i)));
+        READERS.put(BigDecimal.class, ResultSet::getBigDecimal);
+        READERS.put(byte[].class, ResultSet::getBytes);
+        READERS.put(Timestamp.class, ResultSet::getTimestamp);
+        READERS.put(Date.class, ResultSet::getTimestamp);
+        READERS.put(java.sql.Date.class, ResultSet::getDate);
+        READERS.put(java.sql.Time.class, ResultSet::getTime);
+    }
+
+    /**
+     * <pre>
+     * 说明：(返回值类型, 列布局)和其RowMapper的映射关系
+     * </pre>
+     */
+    private final Map<Key, RowMapper<?>> mappers = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：Java Bean类型和其表字段到实例字段映射关系的缓存
+     * </pre>
+     */
+    private final Map<Class<?>, Map<String, Field>> fieldMaps = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * 说明：获取返回值类型和结果集列布局对应的RowMapper
+     * 实现步骤：
+     *   1) 通过metaData获取所有列标签，与clazz组成key
+     *   2) 缓存中存在key对应的RowMapper则返回
+     *   3) 否则生成RowMapper，放入缓存后返回
+     * </pre>
+     * @param clazz 返回值类型
+     * @param metaData 结果集的元数据
+     * @return 可以复用的RowMapper
+     * @since 0.0.0
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <F> RowMapper<F> mapper(Class<F> clazz, ResultSetMetaData metaData) throws SQLException {
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        Key key = new Key(clazz, labels);
+        RowMapper<?> mapper = mappers.get(key);
+        if (mapper == null) {
+            mapper = Map.class.isAssignableFrom(clazz) ? mapMapper(labels) : beanMapper(clazz, labels);
+            mappers.putIfAbsent(key, mapper);
+        }
+        return (RowMapper<F>) mapper;
+    }
+
+    /**
+     * <pre>
+     * 说明：生成将一行数据封装为map的RowMapper
+     * </pre>
+     * @param labels 列标签
+     * @return RowMapper
+     * @since 0.0.0
+     */
+    private RowMapper<Object> mapMapper(String[] labels) {
+        int capacity = (int) (labels.length / 0.75f) + 1;
+        return resultSet -> {
+            HashMap<String, Object> result = new HashMap<>(capacity);
+            for (int i = 0; i < labels.length; i++) {
+                result.put(labels[i], resultSet.getObject(i + 1));
+            }
+            return result;
+        };
+    }
+
+    /**
+     * <pre>
+     * 说明：生成将一行数据封装为Java Bean的RowMapper
+     * 实现步骤：
+     *   1) 获取clazz无参构造器的MethodHandle
+     *   2) 遍历列标签
+     *     1. 获取标签对应的字段，不存在则忽略该列
+     *     2. 获取该字段setter的MethodHandle，和按字段类型读取列值的ColumnReader
+     *   3) 返回RowMapper：构建实例，按列的下标读取列值并赋值
+     *     1. 值为null的基本类型字段保持默认值
+     * </pre>
+     * @param clazz Java Bean类型
+     * @param labels 列标签
+     * @return RowMapper
+     * @since 0.0.0
+     */
+    private RowMapper<Object> beanMapper(Class<?> clazz, String[] labels) throws SQLException {
+        Map<String, Field> fieldMap = fieldMaps.computeIfAbsent(clazz, DefaultRowMapperCache::fieldMap);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+
+        MethodHandle constructor;
+        List<Integer> indexes = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        List<ColumnReader> readers = new ArrayList<>();
+        List<Boolean> primitives = new ArrayList<>();
+        try {
+            Constructor<?> declared = clazz.getDeclaredConstructor();
+            declared.setAccessible(true);
+            constructor = lookup.unreflectConstructor(declared).asType(MethodType.methodType(Object.class));
+            for (int i = 0; i < labels.length; i++) {
+                Field field = fieldMap.get(labels[i]);
+                if (field == null) continue;
+                indexes.add(i + 1);
+                setters.add(lookup.unreflectSetter(field).asType(setterType));
+                readers.add(READERS.getOrDefault(field.getType(), ResultSet::getObject));
+                primitives.add(field.getType().isPrimitive());
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new SQLException("Can not map rows to " + clazz.getName(), e);
+        }
+
+        int count = indexes.size();
+        int[] index = new int[count];
+        boolean[] primitive = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            index[i] = indexes.get(i);
+            primitive[i] = primitives.get(i);
+        }
+        MethodHandle[] setter = setters.toArray(new MethodHandle[0]);
+        ColumnReader[] reader = readers.toArray(new ColumnReader[0]);
+
+        return resultSet -> {
+            try {
+                Object instance = (Object) constructor.invokeExact();
+                for (int i = 0; i < count; i++) {
+                    Object value = reader[i].read(resultSet, index[i]);
+                    if (primitive[i] && resultSet.wasNull()) continue;
+                    setter[i].invokeExact(instance, value);
+                }
+                return instance;
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException("Can not map a row to " + clazz.getName(), e);
+            }
+        };
+    }
+
+    /**
+     * <pre>
+     * 说明：获取cls中表字段和实例字段的映射关系
+     * 实现步骤：
+     *   1. 遍历cls所有的字段
+     *     1.1. 该字段没有field注解修饰，或是static、final字段，则忽略
+     *     1.2. 将该字段注解值作为key，字段作为值放入结果，注解值为空时使用字段名
+     *   2. 返回结果
+     * </pre>
+     * @param cls Java Bean类型
+     * @return cls中表字段和实例字段的映射关系
+     * @since 0.0.0
+     */
+    private static Map<String, Field> fieldMap(Class<?> cls) {
+        Map<String, Field> res = new HashMap<>();
+        for (Field field : cls.getDeclaredFields()) {
+            org.qh.DDBMS.LDBMS.sql.annotation.Field annotation =
+                    field.getAnnotation(org.qh.DDBMS.LDBMS.sql.annotation.Field.class);
+            if (annotation == null) continue;
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) continue;
+            field.setAccessible(true);
+            res.put(annotation.value().isEmpty() ? field.getName() : annotation.value(), field);
+        }
+        return res;
+    }
+
+    /**
+     * 说明：值为SQL NULL时返回null
+     * @param resultSet 查询结果集
+     * @param value 读取的值
+     * @return value或null
+     * @since 0.0.0
+     */
+    private static Object nullable(ResultSet resultSet, Object value) throws SQLException {
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * 说明：按下标读取一列的值
+     */
+    private interface ColumnReader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    /**
+     * 说明：RowMapper缓存的key，由返回值类型和列标签组成
+     */
+    private static class Key {
+        private final Class<?> clazz;
+        private final String[] labels;
+        private final int hash;
+
+        private Key(Class<?> clazz, String[] labels) {
+            this.clazz = clazz;
+            this.labels = labels;
+            this.hash = 31 * clazz.hashCode() + Arrays.hashCode(labels);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return clazz == key.clazz && Arrays.equals(labels, key.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
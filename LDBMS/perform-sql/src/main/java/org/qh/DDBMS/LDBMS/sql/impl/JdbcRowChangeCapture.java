@@ -0,0 +1,201 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.RowChangeCapture;
+import org.qh.DDBMS.LDBMS.sql.RowChangeEvent;
+import org.qh.DDBMS.LDBMS.sql.SQLBatch;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.CommitConfig;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBResource;
+
+import javax.annotation.Resource;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/11
+ * @Version: 0.0.0
+ * @Description: 通过主键查询事务修改后的行数据，生成行修改事件的RowChangeCapture实现类
+ */
+public class JdbcRowChangeCapture implements RowChangeCapture {
+
+    /**
+     * <pre>
+     * 说明：获取tableId对应的表名和主键
+     * </pre>
+     */
+    @Resource
+    private SchemaRegistry schemaRegistry;
+
+    /**
+     * <pre>
+     * 说明：获取以修改事件同步的事务最多修改的行数
+     * </pre>
+     */
+    @Resource
+    private CommitConfig commitConfig;
+
+    /**
+     * <pre>
+     * 说明：数据库是否支持INSERT ... ON DUPLICATE KEY UPDATE，首次生成事件时根据数据库产品确定
+     * </pre>
+     */
+    private volatile Boolean upsertSupported;
+
+    /**
+     * <pre>
+     * 说明：读取事务修改的行，生成行修改事件
+     * 实现步骤：
+     *   1) 判定数据库不支持、没有行或行数超过rowEventMaxRows，返回null
+     *   2) 将行按tableId分组，存在表锁时返回null
+     *   3) 对每张表
+     *     1. 获取表名和主键，表没有整数主键或有其他唯一索引时返回null
+     *     2. 表有外键、触发器或生成列时返回null，事务保留sql语句同步
+     *     3. 按主键分块查询修改后的行，存在不可序列化的值时返回null
+     *   4) 先生成所有DELETE事件，再生成所有UPSERT事件，都按tableId、主键排序
+     * 注意事项：
+     *   1. 外键使DELETE和UPSERT必须按父子表的顺序执行，触发器会因UPSERT执行INSERT触发器，生成列不能写入，
+     *     这些表都不生成事件；剩余的表之间没有外键，事件的顺序不影响从站点的约束检查
+     * </pre>
+     *
+     * @param connection 执行了事务写语句的连接
+     * @param resources 事务修改的行
+     * @return 行修改事件或null
+     * @throws SQLException
+     */
+    @Override
+    public List<RowChangeEvent> capture(Connection connection, List<DBResource> resources) throws SQLException {
+        if (resources == null || resources.isEmpty() || resources.size() > commitConfig.rowEventMaxRows()) return null;
+        if (!upsertSupported(connection)) return null;
+
+        Map<Integer, TreeSet<Long>> rows = new TreeMap<>();
+        for (DBResource resource : resources) {
+            if (!resource.isRow()) return null;
+            rows.computeIfAbsent(resource.getTableId(), k -> new TreeSet<>()).add(resource.getRowId());
+        }
+
+        List<RowChangeEvent> deletes = new ArrayList<>();
+        List<RowChangeEvent> upserts = new ArrayList<>();
+        for (Map.Entry<Integer, TreeSet<Long>> entry : rows.entrySet()) {
+            String table = schemaRegistry.table(entry.getKey());
+            if (table == null) return null;
+            String key = schemaRegistry.primaryKey(table.toLowerCase());
+            if (key == null || !schemaRegistry.primaryKeyOnlyUnique(table.toLowerCase())) return null;
+            if (schemaRegistry.hasForeignKeysOrTriggers(table.toLowerCase()) ||
+                    schemaRegistry.hasGeneratedColumns(table.toLowerCase())) return null;
+
+            Map<Long, RowChangeEvent> found = new TreeMap<>();
+            if (!select(connection, table, key, new ArrayList<>(entry.getValue()), found)) return null;
+            for (Long id : entry.getValue()) {
+                RowChangeEvent event = found.get(id);
+                if (event == null) deletes.add(RowChangeEvent.delete(table, key, id));
+                else upserts.add(event);
+            }
+        }
+        deletes.addAll(upserts);
+        return deletes;
+    }
+
+    /**
+     * <pre>
+     * 说明：按主键分块查询一张表的行，将每一行作为UPSERT事件放入found
+     * 实现步骤：
+     *   1) 每次查询最多SELECT_CHUNK_KEYS个主键
+     *   2) 读取列名，找到主键列
+     *   3) 读取每一行的值，存在不可序列化的值时返回false
+     * </pre>
+     * @param connection 数据库连接
+     * @param table 表名
+     * @param key 主键列名
+     * @param ids 主键值
+     * @param found 主键值和该行UPSERT事件的映射关系
+     * @return false表示存在不能同步的值
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private boolean select(Connection connection, String table, String key, List<Long> ids,
+                           Map<Long, RowChangeEvent> found) throws SQLException {
+        for (int from = 0; from < ids.size(); from += Constant.RowChange.SELECT_CHUNK_KEYS) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + Constant.RowChange.SELECT_CHUNK_KEYS));
+            StringBuilder sb = new StringBuilder("SELECT * FROM `").append(table)
+                    .append("` WHERE `").append(key).append("` IN (");
+            for (int i = 0; i < chunk.size(); i++) sb.append(i > 0 ? ", ?" : "?");
+            sb.append(");");
+
+            try (PreparedStatement ps = connection.prepareStatement(sb.toString())) {
+                for (int i = 0; i < chunk.size(); i++) ps.setLong(i + 1, chunk.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    String[] columns = new String[metaData.getColumnCount()];
+                    int keyIndex = -1;
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i] = metaData.getColumnName(i + 1);
+                        if (columns[i].equalsIgnoreCase(key)) keyIndex = i;
+                    }
+                    if (keyIndex < 0) return false;
+
+                    while (rs.next()) {
+                        Object[] values = new Object[columns.length];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = rs.getObject(i + 1);
+                            if (values[i] != null && !(values[i] instanceof Serializable)) return false;
+                        }
+                        if (!(values[keyIndex] instanceof Number)) return false;
+                        long id = ((Number) values[keyIndex]).longValue();
+                        found.put(id, RowChangeEvent.upsert(table, key, id, columns, values));
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <pre>
+     * 说明：将行修改事件按模板分组为批次
+     * 实现步骤：
+     *   1) 依次遍历事件，模板与上一个批次相同时加入该批次，否则新建批次
+     * </pre>
+     *
+     * @param events 行修改事件
+     * @return 批次
+     */
+    @Override
+    public List<SQLBatch> plan(List<RowChangeEvent> events) {
+        List<SQLBatch> res = new ArrayList<>();
+        SQLBatch last = null;
+        for (RowChangeEvent event : events) {
+            String template = event.template();
+            if (last == null || !last.template().equals(template)) {
+                last = new SQLBatch(template);
+                res.add(last);
+            }
+            last.add(event.parameters());
+        }
+        return res;
+    }
+
+    /**
+     * 说明：根据数据库产品判定是否支持INSERT ... ON DUPLICATE KEY UPDATE
+     * @param connection 数据库连接
+     * @return true表示支持
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private boolean upsertSupported(Connection connection) throws SQLException {
+        Boolean supported = upsertSupported;
+        if (supported == null) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            supported = product.contains("mysql") || product.contains("mariadb");
+            upsertSupported = supported;
+        }
+        return supported;
+    }
+}
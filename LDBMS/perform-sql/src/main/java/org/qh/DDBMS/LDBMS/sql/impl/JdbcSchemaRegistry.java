@@ -0,0 +1,244 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.LockInferenceConfig;
+import org.qh.DDBMS.common.db.TableNameResolver;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/10
+ * @Version: 0.0.0
+ * @Description: 通过JDBC元数据读取表结构的SchemaRegistry实现类
+ */
+public class JdbcSchemaRegistry implements SchemaRegistry {
+
+    /**
+     * <pre>
+     * 说明：可以作为rowId的主键列类型
+     * </pre>
+     */
+    private static final Set<Integer> INTEGER_TYPES = new HashSet<>(Arrays.asList(
+            Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT));
+
+    /**
+     * <pre>
+     * 说明：表名和tableId的映射关系
+     * </pre>
+     */
+    private volatile Map<String, Integer> tableIds = Collections.emptyMap();
+
+    /**
+     * <pre>
+     * 说明：表名和其主键列名的映射关系
+     * </pre>
+     */
+    private volatile Map<String, String> primaryKeys = Collections.emptyMap();
+
+    /**
+     * <pre>
+     * 说明：tableId和数据库中表名的映射关系
+     * </pre>
+     */
+    private volatile Map<Integer, String> tableNames = Collections.emptyMap();
+
+    /**
+     * <pre>
+     * 说明：除主键外没有其他唯一索引的表
+     * </pre>
+     */
+    private volatile Set<String> keyOnlyUnique = Collections.emptySet();
+
+    /**
+     * <pre>
+     * 说明：有外键约束(引用或被引用)或触发器的表
+     * </pre>
+     */
+    private volatile Set<String> dependent = Collections.emptySet();
+
+    /**
+     * <pre>
+     * 说明：有生成列的表
+     * </pre>
+     */
+    private volatile Set<String> generated = Collections.emptySet();
+
+    /**
+     * <pre>
+     * 说明：获取数据库连接的数据源
+     * </pre>
+     */
+    @Resource
+    private DataSource dataSource;
+
+    /**
+     * <pre>
+     * 说明：获取配置的tableId
+     * </pre>
+     */
+    @Resource
+    private LockInferenceConfig config;
+
+    @PostConstruct
+    public void init() throws Exception {
+        refresh();
+    }
+
+    @Override
+    public Integer tableId(String table) {
+        return tableIds.get(table);
+    }
+
+    @Override
+    public String primaryKey(String table) {
+        return primaryKeys.get(table);
+    }
+
+    @Override
+    public String table(int tableId) {
+        return tableNames.get(tableId);
+    }
+
+    @Override
+    public Collection<Integer> tableIds() {
+        return new TreeSet<>(tableNames.keySet());
+    }
+
+    @Override
+    public boolean primaryKeyOnlyUnique(String table) {
+        return keyOnlyUnique.contains(table);
+    }
+
+    @Override
+    public boolean hasForeignKeysOrTriggers(String table) {
+        return dependent.contains(table);
+    }
+
+    @Override
+    public boolean hasGeneratedColumns(String table) {
+        return generated.contains(table);
+    }
+
+    /**
+     * <pre>
+     * 说明：重新读取数据库的表结构
+     * 实现步骤：
+     *   1) 读取当前库所有的表名，转换为小写并排序
+     *   2) 配置了tableId的表使用配置的值，其他表按表名顺序分配大于所有配置值的tableId
+     *   3) 读取每张表的主键，只保留单列整数主键
+     *   4) 读取有整数主键的表的唯一索引，记录只有主键一个唯一索引的表
+     *   5) 读取每张表的外键，记录引用和被引用的表；读取有触发器的表和触发器语句读写的表
+     *   6) 读取有生成列的表
+     *   7) 替换映射关系
+     * </pre>
+     *
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized void refresh() throws SQLException {
+        Map<String, Integer> ids = new HashMap<>(config.tableIds());
+        Map<String, String> keys = new HashMap<>();
+        Map<Integer, String> names = new HashMap<>();
+        Set<String> keyOnly = new HashSet<>();
+        Set<String> dep = new HashSet<>();
+        Set<String> gen = new HashSet<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String catalog = connection.getCatalog();
+            TreeSet<String> tables = new TreeSet<>();
+            try (ResultSet rs = metaData.getTables(catalog, null, "%", new String[]{"TABLE"})) {
+                while (rs.next()) tables.add(rs.getString("TABLE_NAME"));
+            }
+
+            int next = 0;
+            for (int id : ids.values()) next = Math.max(next, id);
+            for (String table : tables) {
+                String name = table.toLowerCase();
+                if (!ids.containsKey(name)) ids.put(name, ++next);
+                names.put(ids.get(name), table);
+                String key = integerPrimaryKey(metaData, catalog, table);
+                if (key == null) continue;
+                keys.put(name, key);
+                if (uniqueIndexes(metaData, catalog, table) == 1) keyOnly.add(name);
+            }
+            for (String table : tables) {
+                try (ResultSet rs = metaData.getImportedKeys(catalog, null, table)) {
+                    while (rs.next()) {
+                        dep.add(table.toLowerCase());
+                        dep.add(rs.getString("PKTABLE_NAME").toLowerCase());
+                    }
+                }
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select lower(`EVENT_OBJECT_TABLE`), `ACTION_STATEMENT` " +
+                         "from information_schema.`TRIGGERS` where `TRIGGER_SCHEMA` = database();")) {
+                while (rs.next()) {
+                    dep.add(rs.getString(1));
+                    dep.addAll(TableNameResolver.tables(rs.getString(2)));
+                }
+            }
+            try (ResultSet rs = metaData.getColumns(catalog, null, "%", "%")) {
+                while (rs.next()) {
+                    if (!"YES".equals(rs.getString("IS_GENERATEDCOLUMN"))) continue;
+                    gen.add(rs.getString("TABLE_NAME").toLowerCase());
+                }
+            }
+        }
+        this.tableIds = ids;
+        this.primaryKeys = keys;
+        this.tableNames = names;
+        this.keyOnlyUnique = keyOnly;
+        this.dependent = dep;
+        this.generated = gen;
+    }
+
+    /**
+     * 说明：获取表的单列整数主键
+     * @param metaData 数据库元数据
+     * @param catalog 当前库
+     * @param table 表名
+     * @return 小写的主键列名，主键不是单列整数时返回null
+     * @since 0.0.0
+     */
+    private String integerPrimaryKey(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(catalog, null, table)) {
+            while (rs.next()) columns.add(rs.getString("COLUMN_NAME"));
+        }
+        if (columns.size() != 1) return null;
+        try (ResultSet rs = metaData.getColumns(catalog, null, table, columns.get(0))) {
+            if (rs.next() && INTEGER_TYPES.contains(rs.getInt("DATA_TYPE"))) return columns.get(0).toLowerCase();
+        }
+        return null;
+    }
+
+    /**
+     * 说明：统计表的唯一索引个数，包括主键
+     * @param metaData 数据库元数据
+     * @param catalog 当前库
+     * @param table 表名
+     * @return 唯一索引个数
+     * @since 0.0.0
+     */
+    private int uniqueIndexes(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (ResultSet rs = metaData.getIndexInfo(catalog, null, table, true, true)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                if (index != null && !rs.getBoolean("NON_UNIQUE")) indexes.add(index);
+            }
+        }
+        return indexes.size();
+    }
+}
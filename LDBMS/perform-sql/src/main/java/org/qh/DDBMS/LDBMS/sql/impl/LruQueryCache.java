@@ -0,0 +1,503 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.ms_sync.dao.SyncDao;
+import org.qh.DDBMS.LDBMS.sql.QueryCache;
+import org.qh.DDBMS.LDBMS.sql.QueryCacheStats;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.QueryCacheConfig;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.TableNameResolver;
+import org.qh.tools.exception.ExceptionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/09
+ * @Version: 0.0.0
+ * @Description: 按最近最少使用淘汰条目的QueryCache实现类
+ */
+public class LruQueryCache implements QueryCache {
+
+    /**
+     * <pre>
+     * 说明：一个缓存条目除查询结果外的估算内存开销，单位字节
+     * </pre>
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * <pre>
+     * 说明：按访问顺序排列的缓存条目
+     * </pre>
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * <pre>
+     * 说明：表名和读取该表的缓存条目的映射关系
+     * </pre>
+     */
+    private final Map<String, Set<Key>> tableIndex = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：表名和其最近一次失效时的时间戳
+     * </pre>
+     */
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：最近一次所有缓存失效时的时间戳
+     * </pre>
+     */
+    private long allInvalidatedAt;
+
+    /**
+     * <pre>
+     * 说明：每次失效时递增的时间戳
+     * </pre>
+     */
+    private volatile long clock;
+
+    /**
+     * <pre>
+     * 说明：Java Bean类型和其实例字段的缓存，用于估算内存和复制查询结果
+     * </pre>
+     */
+    private final Map<Class<?>, Field[]> beanFields = new ConcurrentHashMap<>();
+
+    // 统计信息
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long bytes;
+
+    /**
+     * <pre>
+     * 说明：获取缓存的容量配置
+     * </pre>
+     */
+    @Resource
+    private QueryCacheConfig config;
+
+    /**
+     * <pre>
+     * 说明：从站点应用同步信息后通知缓存失效
+     * </pre>
+     */
+    @Resource
+    private SyncDao syncDao;
+
+    /**
+     * <pre>
+     * 说明：判定表是否是基本表，以及是否有外键或触发器
+     * </pre>
+     */
+    @Resource
+    private SchemaRegistry registry;
+
+    /**
+     * 说明：注册从站点应用同步信息的监听器
+     * @since 0.0.0
+     */
+    @PostConstruct
+    public void init() {
+        syncDao.addApplyListener(this::invalidate);
+    }
+
+    @Override
+    public boolean enabled() {
+        return config.enabled();
+    }
+
+    /**
+     * <pre>
+     * 说明：获取查询的缓存结果
+     * 实现步骤：
+     *   1) 判定未开启缓存，返回null
+     *   2) 命中则增加hits并返回结果的副本，每一行都复制一份
+     *   3) 否则增加misses并返回null
+     * </pre>
+     * @param sql 查询语句
+     * @param clazz 返回值类型
+     * @return 缓存结果，未命中时返回null
+     * @since 0.0.0
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <F> List<F> get(SQL sql, Class<F> clazz) {
+        if (!config.enabled()) return null;
+        Key key = new Key(sql, clazz);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        try {
+            return (List<F>) copy(entry.rows);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e); // put()时已经验证过可以复制
+        }
+    }
+
+    @Override
+    public long stamp() {
+        return clock;
+    }
+
+    /**
+     * <pre>
+     * 说明：缓存一个查询结果
+     * 实现步骤：
+     *   1) 判定未开启缓存、结果超过maxRows或无法解析查询的表，返回
+     *     1. 任一表不在registry中（如视图），或有外键、触发器，返回，修改其他表会改变其结果而不会使其失效
+     *   2) 复制结果，调用者之后修改结果不会影响缓存，无法复制时返回
+     *   3) 估算结果占用的内存
+     *   4) 判定查询的任一表在stamp之后失效过，返回
+     *   5) 放入条目并登记到其读取的表
+     *   6) 条目数或内存超过上限时淘汰最久未使用的条目
+     * </pre>
+     * @param sql 查询语句
+     * @param clazz 返回值类型
+     * @param rows 查询结果
+     * @param stamp 执行查询前获取的时间戳
+     * @since 0.0.0
+     */
+    @Override
+    public <F> void put(SQL sql, Class<F> clazz, List<F> rows, long stamp) {
+        if (!config.enabled() || rows.size() > config.maxRows()) return;
+        Set<String> tables = TableNameResolver.tables(sql.statement());
+        if (tables.isEmpty()) return;
+        for (String table : tables) {
+            if (registry.tableId(table) == null || registry.hasForeignKeysOrTriggers(table)) return;
+        }
+        List<?> copied;
+        try {
+            copied = copy(rows);
+        } catch (ReflectiveOperationException e) {
+            return;
+        }
+        Entry entry = new Entry(tables, copied, estimate(sql, rows));
+
+        synchronized (this) {
+            if (allInvalidatedAt > stamp) return;
+            for (String table : tables) {
+                if (invalidatedAt.getOrDefault(table, 0L) > stamp) return;
+            }
+            Key key = new Key(sql, clazz);
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.bytes;
+            for (String table : tables) {
+                tableIndex.computeIfAbsent(table, k -> new HashSet<>()).add(key);
+            }
+            evict();
+        }
+    }
+
+    /**
+     * 说明：淘汰最久未使用的条目，直到条目数和内存不超过上限
+     * @since 0.0.0
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > config.maxEntries() || bytes > config.maxBytes()) && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            it.remove();
+            unindex(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：写语句提交后，使其修改的表相关的缓存失效
+     * 实现步骤：
+     *   1) 按SQL_STATEMENT_SEPARATOR拆分语句，解析所有语句修改的表
+     *     1. 判定是DDL语句，重新读取registry，视为无法解析出表
+     *   2) 递增时间戳
+     *   3) 判定任一语句无法解析出表，清空缓存并记录时间戳
+     *   4) 否则记录每个表的失效时间戳，删除读取这些表的条目
+     * </pre>
+     * @param statement 已经提交的写语句
+     * @since 0.0.0
+     */
+    @Override
+    public void invalidate(String statement) {
+        if (!config.enabled()) return;
+        Set<String> tables = new HashSet<>();
+        boolean all = false;
+        for (String s : statement.split(Constant.Sync.SQL_STATEMENT_SEPARATOR)) {
+            if (ddl(s)) {
+                refreshRegistry();
+                all = true;
+                continue;
+            }
+            Set<String> resolved = TableNameResolver.tables(s);
+            if (resolved.isEmpty()) all = true;
+            tables.addAll(resolved);
+        }
+
+        synchronized (this) {
+            long now = ++clock;
+            if (all) {
+                allInvalidatedAt = now;
+                invalidations += entries.size();
+                entries.clear();
+                tableIndex.clear();
+                bytes = 0;
+                return;
+            }
+            for (String table : tables) {
+                invalidatedAt.put(table, now);
+                Set<Key> keys = tableIndex.remove(table);
+                if (keys == null) continue;
+                for (Key key : keys) {
+                    if (remove(key)) invalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 说明：判定语句是否是修改表结构的DDL语句
+     * @param statement sql语句
+     * @return true表示是DDL语句
+     * @since 0.0.0
+     */
+    private static boolean ddl(String statement) {
+        String s = statement.trim().toLowerCase();
+        return s.startsWith("create") || s.startsWith("alter") || s.startsWith("drop") || s.startsWith("rename");
+    }
+
+    /**
+     * 说明：重新读取表结构，读取失败时打印异常，之后仍按旧的表结构判定
+     * @since 0.0.0
+     */
+    private void refreshRegistry() {
+        try {
+            registry.refresh();
+        } catch (Exception e) {
+            ExceptionUtils.printStackTrace(e);
+        }
+    }
+
+    @Override
+    public synchronized QueryCacheStats stats() {
+        return new QueryCacheStats(hits, misses, evictions, invalidations, entries.size(), bytes);
+    }
+
+    /**
+     * 说明：删除一个条目，并从其读取的表中注销
+     * @param key 条目的key
+     * @return true表示条目存在
+     * @since 0.0.0
+     */
+    private boolean remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return false;
+        unindex(key, entry);
+        return true;
+    }
+
+    /**
+     * 说明：将条目从其读取的表中注销，并归还其占用的内存
+     * @param key 条目的key
+     * @param entry 条目
+     * @since 0.0.0
+     */
+    private void unindex(Key key, Entry entry) {
+        if (entry == null) return;
+        bytes -= entry.bytes;
+        for (String table : entry.tables) {
+            Set<Key> keys = tableIndex.get(table);
+            if (keys == null) continue;
+            keys.remove(key);
+            if (keys.isEmpty()) tableIndex.remove(table);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：估算一个查询结果占用的内存
+     * 实现步骤：
+     *   1) 条目开销加上语句和参数的大小
+     *   2) Map行累加每个key和value的大小
+     *   3) Java Bean行累加每个实例字段的大小
+     * </pre>
+     * @param sql 查询语句
+     * @param rows 查询结果
+     * @return 估算的字节数
+     * @since 0.0.0
+     */
+    private long estimate(SQL sql, List<?> rows) {
+        long size = ENTRY_OVERHEAD + valueSize(sql.statement()) + rows.size() * 8L;
+        if (sql.parameters() != null) {
+            for (Object parameter : sql.parameters()) size += 8 + valueSize(parameter);
+        }
+        for (Object row : rows) {
+            if (row instanceof Map) {
+                size += 48;
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) row).entrySet()) {
+                    size += 32 + valueSize(e.getKey()) + valueSize(e.getValue());
+                }
+                continue;
+            }
+            size += 16;
+            for (Field field : beanFields.computeIfAbsent(row.getClass(), LruQueryCache::instanceFields)) {
+                try {
+                    size += 8 + (field.getType().isPrimitive() ? 0 : valueSize(field.get(row)));
+                } catch (IllegalAccessException e) {
+                    size += 16;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * <pre>
+     * 说明：复制查询结果，缓存和每个命中者持有各自的行
+     * 实现步骤：
+     *   1) 不可变的行原样保留
+     *   2) Map行复制到同类型的新Map，无法创建同类型实例时复制到LinkedHashMap
+     *   3) Java Bean行通过无参构造器创建新实例，并复制每个实例字段
+     * 注意事项：
+     *   1. 字段值中的byte[]和Date会复制，其他值按引用复制
+     * </pre>
+     * @param rows 查询结果
+     * @return 查询结果的副本
+     * @throws ReflectiveOperationException Java Bean没有可访问的无参构造器
+     * @since 0.0.0
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> copy(List<?> rows) throws ReflectiveOperationException {
+        List<Object> copied = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            if (row == null || immutable(row)) {
+                copied.add(row);
+            } else if (row instanceof Map) {
+                Map<Object, Object> map;
+                try {
+                    map = (Map<Object, Object>) row.getClass().getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    map = new LinkedHashMap<>();
+                }
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) row).entrySet()) map.put(e.getKey(), copyValue(e.getValue()));
+                copied.add(map);
+            } else {
+                Constructor<?> constructor = row.getClass().getDeclaredConstructor();
+                constructor.setAccessible(true);
+                Object bean = constructor.newInstance();
+                for (Field field : beanFields.computeIfAbsent(row.getClass(), LruQueryCache::instanceFields)) {
+                    field.set(bean, copyValue(field.get(row)));
+                }
+                copied.add(bean);
+            }
+        }
+        return copied;
+    }
+
+    private static boolean immutable(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean ||
+                value instanceof Character || value instanceof Enum;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof byte[]) return ((byte[]) value).clone();
+        if (value instanceof Date) return ((Date) value).clone();
+        return value;
+    }
+
+    /**
+     * 说明：估算一个值占用的内存
+     * @param value 值
+     * @return 估算的字节数
+     * @since 0.0.0
+     */
+    private static long valueSize(Object value) {
+        if (value == null) return 0;
+        if (value instanceof CharSequence) return 40 + ((CharSequence) value).length() * 2L;
+        if (value instanceof byte[]) return 16 + ((byte[]) value).length;
+        return 24;
+    }
+
+    /**
+     * 说明：获取一个类型的所有实例字段，包括父类中的字段
+     * @param cls 类型
+     * @return 实例字段
+     * @since 0.0.0
+     */
+    private static Field[] instanceFields(Class<?> cls) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    /**
+     * 说明：一个缓存的查询结果
+     */
+    private static class Entry {
+        private final Set<String> tables; // 查询读取的表
+        private final List<?> rows; // 查询结果
+        private final long bytes; // 估算的内存占用
+
+        private Entry(Set<String> tables, List<?> rows, long bytes) {
+            this.tables = tables;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 说明：缓存条目的key，由语句、参数和返回值类型组成
+     */
+    private static class Key {
+        private final String statement;
+        private final Object[] parameters;
+        private final Class<?> clazz;
+        private final int hash;
+
+        private Key(SQL sql, Class<?> clazz) {
+            this.statement = sql.statement();
+            this.parameters = sql.parameters() == null ? null : sql.parameters().clone(); // 调用者之后修改参数不会改变key
+            this.clazz = clazz;
+            this.hash = 31 * (31 * statement.hashCode() + Arrays.deepHashCode(parameters)) + clazz.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return clazz == key.clazz && statement.equals(key.statement) &&
+                    Arrays.deepEquals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SQLSpillStore;
+import org.qh.DDBMS.LDBMS.sql.config.SQLBankConfig;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.tools.exception.ExceptionUtils;
+import org.qh.tools.parse.ObjectByteParseUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/05
+ * @Version: 0.0.0
+ * @Description: 将溢出的SQL追加到本地分段内存映射文件中的SQLSpillStore实现类
+ */
+public class MappedSQLSpillStore implements SQLSpillStore {
+
+    /**
+     * <pre>
+     * 说明：段文件的后缀
+     * </pre>
+     */
+    private static final String SEGMENT_SUFFIX = ".spill";
+
+    /**
+     * <pre>
+     * 说明：最多保留的空闲段个数，多出的空闲段文件将被删除
+     * </pre>
+     */
+    private static final int MAX_FREE_SEGMENTS = 2;
+
+    /**
+     * <pre>
+     * 说明：每条记录的头部长度：sql类型(1) + 语句长度(4) + 参数长度(4)
+     * </pre>
+     */
+    private static final int RECORD_HEADER_LENGTH = 9;
+
+    /**
+     * <pre>
+     * 说明：事务和其SQL记录位置的映射关系
+     * </pre>
+     */
+    private Map<DBTransaction, List<Location>> index = new HashMap<>();
+
+    /**
+     * <pre>
+     * 说明：当前追加记录的段
+     * </pre>
+     */
+    private Segment active;
+
+    /**
+     * <pre>
+     * 说明：记录已经全部删除、可以复用的段
+     * </pre>
+     */
+    private Deque<Segment> freeSegments = new ArrayDeque<>();
+
+    /**
+     * <pre>
+     * 说明：下一个段文件的编号
+     * </pre>
+     */
+    private long nextSegmentId;
+
+    /**
+     * <pre>
+     * 说明：溢出文件所在目录
+     * </pre>
+     */
+    private File directory;
+
+    /**
+     * <pre>
+     * 说明：获取溢出目录和段大小
+     * </pre>
+     */
+    @Resource
+    private SQLBankConfig config;
+
+    /**
+     * <pre>
+     * 说明：初始化溢出目录
+     * 实现步骤：
+     *   1) 创建溢出目录
+     *   2) 删除上次运行遗留的段文件，SQLBank中的数据不会跨越重启
+     * </pre>
+     * @since 0.0.0
+     */
+    @PostConstruct
+    public void init() {
+        directory = new File(config.spillDirectory());
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new RuntimeException("Can not create spill directory " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.delete()) throw new RuntimeException("Can not delete spill segment " + file);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：追加一个事务的SQL
+     * 实现步骤：
+     *   1) 将SQL的语句和绑定参数编码为字节
+     *   2) 获取剩余空间足够的段
+     *   3) 将记录写入段，并记录位置
+     * </pre>
+     * @param sql 要保存的SQL
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized void append(SQL sql) throws SQLException {
+        byte[] statement = sql.statement().getBytes(StandardCharsets.UTF_8);
+        byte[] parameters = encodeParameters(sql.parameters());
+        int length = RECORD_HEADER_LENGTH + statement.length + parameters.length;
+        Segment segment = segmentFor(length);
+        int offset = segment.position;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset);
+        buffer.put(sql.type());
+        buffer.putInt(statement.length);
+        buffer.put(statement);
+        buffer.putInt(parameters.length);
+        buffer.put(parameters);
+        segment.position += length;
+        segment.live++;
+        index.computeIfAbsent(sql.transaction(), k -> new ArrayList<>()).add(new Location(segment, offset));
+    }
+
+    /**
+     * 说明：序列化绑定参数
+     * @param parameters 绑定参数
+     * @return 序列化后的字节，没有参数时返回空数组
+     * @since 0.0.0
+     */
+    private byte[] encodeParameters(Object[] parameters) throws SQLException {
+        if (parameters == null) return new byte[0];
+        try {
+            return ObjectByteParseUtils.parseObjectToByte(parameters);
+        } catch (IOException e) {
+            throw new SQLException("Can not serialize the parameters.", e);
+        }
+    }
+
+    /**
+     * 说明：反序列化绑定参数
+     * @param parameters 序列化后的字节
+     * @return 绑定参数，没有参数时返回null
+     * @since 0.0.0
+     */
+    private Object[] decodeParameters(byte[] parameters) throws SQLException {
+        if (parameters.length == 0) return null;
+        try {
+            return (Object[]) ObjectByteParseUtils.parseByteToObject(parameters);
+        } catch (IOException e) {
+            throw new SQLException("Can not deserialize the parameters.", e);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：获取能够写入length字节记录的段
+     * 实现步骤：
+     *   1) 判定active剩余空间足够，返回active
+     *   2) 判定active中已无存活记录，将其重置后返回
+     *   3) 从空闲段中取出足够大的段，或者创建新段，作为新的active
+     *   4) 旧的active已无存活记录时将其回收
+     * </pre>
+     * @param length 记录长度
+     * @return 可以写入记录的段
+     * @since 0.0.0
+     */
+    private Segment segmentFor(int length) throws SQLException {
+        if (active != null && active.remaining() >= length) return active;
+        if (active != null && active.live == 0 && active.capacity() >= length) {
+            active.position = 0;
+            return active;
+        }
+        Segment segment = null;
+        for (Iterator<Segment> it = freeSegments.iterator(); it.hasNext(); ) {
+            Segment free = it.next();
+            if (free.capacity() >= length) {
+                it.remove();
+                segment = free;
+                break;
+            }
+        }
+        if (segment == null) segment = createSegment(Math.max(config.spillSegmentSize(), length));
+        if (active != null && active.live == 0) reclaim(active);
+        active = segment;
+        return segment;
+    }
+
+    /**
+     * 说明：创建一个新的段文件并映射到内存
+     * @param size 段大小
+     * @return 新的段
+     * @since 0.0.0
+     */
+    private Segment createSegment(int size) throws SQLException {
+        File file = new File(directory, (nextSegmentId++) + SEGMENT_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new SQLException("Can not create spill segment " + file, e);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：按追加顺序读取一个事务的所有SQL
+     * 实现步骤：
+     *   1) 获取事务的记录位置
+     *   2) 依次从段中读出记录，构建SQL实例
+     * </pre>
+     * @param transaction 要读取SQL的事务
+     * @return 该事务的SQL列表
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized List<SQL> read(DBTransaction transaction) throws SQLException {
+        List<Location> locations = index.get(transaction);
+        if (locations == null) return new ArrayList<>();
+        List<SQL> list = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            ByteBuffer buffer = location.segment.buffer.duplicate();
+            buffer.position(location.offset);
+            byte type = buffer.get();
+            byte[] statement = new byte[buffer.getInt()];
+            buffer.get(statement);
+            byte[] parameters = new byte[buffer.getInt()];
+            buffer.get(parameters);
+            list.add(new SQLImpl(transaction, type, new String(statement, StandardCharsets.UTF_8),
+                    decodeParameters(parameters)));
+        }
+        return list;
+    }
+
+    /**
+     * <pre>
+     * 说明：删除一个事务的所有SQL
+     * 实现步骤：
+     *   1) 删除事务的记录位置
+     *   2) 减少每个相关段的存活记录数
+     *   3) 存活记录数为0且不是active的段被回收
+     * </pre>
+     * @param transaction 要删除SQL的事务
+     * @since 0.0.0
+     */
+    @Override
+    public synchronized void delete(DBTransaction transaction) {
+        List<Location> locations = index.remove(transaction);
+        if (locations == null) return;
+        for (Location location : locations) {
+            Segment segment = location.segment;
+            if (--segment.live == 0 && segment != active) reclaim(segment);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：回收一个已无存活记录的段
+     * 实现步骤：
+     *   1) 判定空闲段个数未达到上限，重置后放入空闲段
+     *   2) 否则删除该段文件
+     * </pre>
+     * @param segment 要回收的段
+     * @since 0.0.0
+     */
+    private void reclaim(Segment segment) {
+        if (freeSegments.size() < MAX_FREE_SEGMENTS) {
+            segment.position = 0;
+            freeSegments.add(segment);
+            return;
+        }
+        if (!segment.file.delete()) {
+            ExceptionUtils.printStackTrace(new IOException("Can not delete spill segment " + segment.file));
+        }
+    }
+
+    /**
+     * 说明：关闭时删除所有段文件
+     * @since 0.0.0
+     */
+    @PreDestroy
+    public synchronized void destroy() {
+        index.clear();
+        freeSegments.clear();
+        active = null;
+        init();
+    }
+
+    /**
+     * 说明：一个内存映射的段文件
+     */
+    private static class Segment {
+        private final File file; // 段文件
+        private final MappedByteBuffer buffer; // 段文件的内存映射
+        private int position; // 下一条记录的写入位置
+        private int live; // 存活的记录数
+
+        private Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+
+        private int remaining() {
+            return buffer.capacity() - position;
+        }
+    }
+
+    /**
+     * 说明：一条记录在段中的位置
+     */
+    private static class Location {
+        private final Segment segment; // 记录所在的段
+        private final int offset; // 记录在段中的偏移量
+
+        private Location(Segment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
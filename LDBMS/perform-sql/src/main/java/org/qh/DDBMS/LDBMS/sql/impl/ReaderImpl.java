@@ -1,19 +1,25 @@
 package org.qh.DDBMS.LDBMS.sql.impl;
 
 import com.qh.exception.MethodParameterException;
-import jdk.nashorn.internal.objects.NativeUint8Array;
+import org.qh.DDBMS.LDBMS.sql.QueryCache;
 import org.qh.DDBMS.LDBMS.sql.Reader;
+import org.qh.DDBMS.LDBMS.sql.RowMapper;
+import org.qh.DDBMS.LDBMS.sql.RowMapperCache;
 import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.config.ReaderConfig;
 import org.qh.DDBMS.common.Constant;
 import org.qh.DDBMS.common.Validator;
+import org.qh.DDBMS.common.db.StatementCache;
+import org.qh.tools.exception.ExceptionUtils;
 
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  *
@@ -32,6 +38,38 @@ public class ReaderImpl implements Reader, Validator<SQL, SQL> {
     @Resource
     private DataSource dataSource;
 
+    /**
+     * <pre>
+     * 说明：按连接缓存查询语句的PreparedStatement
+     * </pre>
+     */
+    @Resource
+    private StatementCache statementCache;
+
+    /**
+     * <pre>
+     * 说明：缓存将结果集映射为Java实例的RowMapper
+     * </pre>
+     */
+    @Resource
+    private RowMapperCache mapperCache;
+
+    /**
+     * <pre>
+     * 说明：获取流式读取的fetchSize
+     * </pre>
+     */
+    @Resource
+    private ReaderConfig config;
+
+    /**
+     * <pre>
+     * 说明：缓存查询结果，写语句提交后按表失效
+     * </pre>
+     */
+    @Resource
+    private QueryCache queryCache;
+
     /**
      * <pre>
      * 说明：该方法检查传入的SQL是否合规
@@ -71,16 +109,9 @@ public class ReaderImpl implements Reader, Validator<SQL, SQL> {
      * <pre>
      * 说明：根据查询结果和返回值类型，返回Java bean形式的数据
      * 实现步骤：
-     *   1) 遍历resultSet
-     *      1. 构建F的实例
-     *      2. F是一个Map
-     *         - 取出一行数据
-     *         - 将列名作为Key，将当前行该列值作为值，存入Map中
-     *      3. F是一个Java Bean
-     *         - 遍历F的属性
-     *           > 判定该属性有被@Field注解，则为该属性赋值
-     *      4. 将F实例放入list中
-     *   2) 返回list
+     *   1) 从mapperCache中获取返回值类型和结果集列布局对应的RowMapper
+     *   2) 遍历resultSet，使用RowMapper将每一行映射为F实例并放入list中
+     *   3) 返回list
      * </pre>
      *
      * @param resultSet 查询结果集
@@ -89,172 +120,186 @@ public class ReaderImpl implements Reader, Validator<SQL, SQL> {
      * @since 0.0.0
      */
     private <F> List<F> toBean(ResultSet resultSet, Class<F> clazz) throws SQLException {
+        RowMapper<F> mapper = mapperCache.mapper(clazz, resultSet.getMetaData());
         List<F> list = new ArrayList<>();
-        F instance = null;
-        Map<String, String> fieldMap = null;
-        if (!Map.class.isAssignableFrom(clazz)) fieldMap = getFieldMap(clazz);
-        try {
-            while (resultSet.next()) {
-                instance = null;
-                if (Map.class.isAssignableFrom(clazz)) {
-                    instance = clazz.cast(resultSetToMap(resultSet));
-                } else instance = resultSetToBean(resultSet, clazz, fieldMap);
-                list.add(instance);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (resultSet != null) resultSet.close();
+        while (resultSet.next()) {
+            list.add(mapper.map(resultSet));
         }
         return list;
     }
 
     /**
      * <pre>
-     * 说明：根据class类型获取该实例字段和数据表字段的映射关系
+     * 说明：该方法执行SQL中指定的语句，从数据库中读取多行数据并返回。
      * 实现步骤：
-     *   1. 构建一个Map， res
-     *   2. 遍历cls所有的字段
-     *     2.1. 该字段没有field注解修饰，则忽略
-     *     2.2. 将该字段注解值作为key，字段名作为值传入res
-     *   3. 返回res
+     *   1) 执行validate()，返回Null则抛出异常
+     *   2) 判定开启了查询缓存且命中，返回缓存结果
+     *   3) 获取数据库连接
+     *   4) 从statementCache中获取PrepareStatement实例，并绑定参数
+     *   5) 执行doQuery(),如有异常则抛出
+     *   6) 执行toBean()，开启了查询缓存则缓存结果
+     *   7) 返回结果
+     *   8) finally，
+     *      1. 关闭ResultType
+     *      2. 关闭连接，PrepareStatement由statementCache管理不关闭
      * </pre>
-     * @param cls javaBean实例类型
-     * @return cls中字段和数据库表字段的映射关系
-     * @throws SQLException
+     *
+     * @param sql 要执行的SQL实例
+     * @param clazz 返回值类型
+     * @return 多行数据的Java bean列表
      * @since 0.0.0
      */
-    private Map<String, String> getFieldMap(Class<?> cls) throws SQLException {
-        Map<String, String> res = new HashMap<>();
-        Field[] fields = cls.getDeclaredFields();
-        for (Field field : fields) {
-            if (!field.isAnnotationPresent(org.qh.DDBMS.LDBMS.sql.annotation.Field.class)) continue;
-            String fieldV = field.getAnnotation(org.qh.DDBMS.LDBMS.sql.annotation.Field.class).value();
-            res.put(fieldV, field.getName());
+    public <F> List<F> read(SQL sql, Class<F> clazz) {
+        if (validate(sql) == null) {
+            throw new MethodParameterException("The sql's type is " + sql.type() + " (invalid)");
         }
-        return res;
-    }
 
-    /**
-     * <pre>
-     * 说明：将一行数据封装为一个map
-     * 实现步骤：
-     *   1. 构建结果map
-     *   2. 通过metaData获取当前结果集有多少个字段
-     *   3. 循环取出各个字段
-     *     3.1. 通过metaData得到字段名
-     *     3.2. 通过resultSet得到字段值
-     *     3.3. 将字段名和字段值装入map中
-     *   4. 返回map实例
-     * </pre>
-     * @param resultSet 查询语句得到的结果集
-     * @return 一行数据
-     * @throws SQLException
-     * @since 0.0.0
-     */
-    private HashMap<String, Object> resultSetToMap(ResultSet resultSet) throws SQLException {
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        HashMap<String, Object> result = new HashMap<>();
-        int columnCount = metaData.getColumnCount();
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = metaData.getColumnName(i);
-            Object value = resultSet.getObject(columnName);
-            result.put(columnName, value);
+        boolean cached = queryCache.enabled();
+        long stamp = 0;
+        if (cached) {
+            List<F> hit = queryCache.get(sql, clazz);
+            if (hit != null) return hit;
+            stamp = queryCache.stamp();
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement preparedStatement = statementCache.prepare(connection, sql.statement());
+            StatementCache.bind(preparedStatement, sql.parameters());
+            try (ResultSet resultSet = doQuery(preparedStatement, sql)) {
+                List<F> list = toBean(resultSet, clazz);
+                if (cached) queryCache.put(sql, clazz, list, stamp);
+                return list;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("数据库查询失败", e);
         }
-        return result;
     }
 
     /**
      * <pre>
-     * 说明：将一行数据封装为一个JavaBean
+     * 说明：该方法执行SQL中指定的语句，从数据库中读取一行数据并返回。
      * 实现步骤：
-     *   1. 构建bean实例
-     *   2. 通过metaData获取当前行有多少个字段
-     *   3. 循环地将所有字段封装入bean中
-     *     3.1. 通过metaData获取表字段名
-     *     3.2. 通过resultSet获取字段值
-     *     3.3. 将字段值赋值给bean的属性实例
-     *   4. 返回bean实例
+     *   1) 执行read()，得到list
+     *   2) 判定list中存在一个以上元素，则抛出异常
+     *   3) 判定list中没有元素，则返回null
+     *   4) 返回list中的一个元素
      * </pre>
-     * @param resultSet 查询语句返回的结果集
-     * @param clazz     JavaBean实例类型
-     * @param fieldMap  表字段和JavaBean字段的映射关系
-     * @return 一个clazz实例
-     * @throws Exception
+     *
+     * @param sql 要执行的SQL实例
+     * @param clazz 返回值类型
+     * @return 一行数据的Java bean实例或null
      * @since 0.0.0
      */
-    private <F> F resultSetToBean(ResultSet resultSet, Class<F> clazz,
-                                  Map<String, String> fieldMap) throws SQLException, NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException, NoSuchFieldException {
-        F f = clazz.getDeclaredConstructor().newInstance();
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        int columnCount = metaData.getColumnCount();
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = metaData.getColumnName(i);
-            Object value = resultSet.getObject(columnName);
-
-            Field field = clazz.getDeclaredField(fieldMap.get(columnName));
-            field.setAccessible(true);
-            field.set(f, value);
+    public <F> F readOne(SQL sql, Class<F> clazz) {
+        List<F> list = read(sql, clazz);
+        if (list.size() > 1) {
+            throw new IllegalStateException("The rows is " + list.size() + " but only one is returned");
         }
-        return f;
+        return list.isEmpty() ? null : list.get(0);
     }
 
     /**
      * <pre>
-     * 说明：该方法执行SQL中指定的语句，从数据库中读取多行数据并返回。
+     * 说明：该方法执行SQL中指定的语句，以流的形式逐行返回数据。
+     * 注意事项：
+     *   1. 流式读取独占语句和连接，因此不使用statementCache
      * 实现步骤：
      *   1) 执行validate()，返回Null则抛出异常
-     *   2) 获取数据库连接
-     *   3) 获取PrepareStatement实例
-     *   4) 执行doQuery(),如有异常则抛出
-     *   5) 执行toBean()
-     *   6) 返回结果
-     *   7) finally，
-     *      1. 关闭ResultType
-     *      2. 关闭PrepareStatement
-     *      3. 关闭连接
+     *   2) 获取数据库连接，构建只读、只向前的PrepareStatement，设置fetchSize并绑定参数
+     *   3) 执行doQuery()，获取结果集对应的RowMapper
+     *   4) 构建按需读取下一行的流，流关闭或读取完所有行时关闭结果集、语句和连接
+     *   5) 发生异常时关闭已经打开的资源并抛出异常
      * </pre>
      *
      * @param sql 要执行的SQL实例
      * @param clazz 返回值类型
-     * @return 多行数据的Java bean列表
+     * @return 查询结果的流
      * @since 0.0.0
      */
-    public <F> List<F> read(SQL sql, Class<F> clazz) {
+    @Override
+    public <F> Stream<F> stream(SQL sql, Class<F> clazz) {
         if (validate(sql) == null) {
             throw new MethodParameterException("The sql's type is " + sql.type() + " (invalid)");
         }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql.statement());
-             ResultSet resultSet = doQuery(preparedStatement, sql);) {
+        Cursor cursor = new Cursor();
+        try {
+            cursor.connection = dataSource.getConnection();
+            cursor.statement = cursor.connection.prepareStatement(sql.statement(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.statement.setFetchSize(config.fetchSize());
+            StatementCache.bind(cursor.statement, sql.parameters());
+            cursor.resultSet = doQuery(cursor.statement, sql);
+            RowMapper<F> mapper = mapperCache.mapper(clazz, cursor.resultSet.getMetaData());
 
-            return toBean(resultSet, clazz);
+            Spliterator<F> spliterator = new Spliterators.AbstractSpliterator<F>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super F> action) {
+                    try {
+                        if (cursor.closed || !cursor.resultSet.next()) {
+                            cursor.close();
+                            return false;
+                        }
+                        action.accept(mapper.map(cursor.resultSet));
+                        return true;
+                    } catch (SQLException e) {
+                        cursor.close();
+                        throw new RuntimeException("数据库查询失败", e);
+                    }
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(cursor::close);
         } catch (SQLException e) {
+            cursor.close();
             throw new RuntimeException("数据库查询失败", e);
         }
     }
 
     /**
      * <pre>
-     * 说明：该方法执行SQL中指定的语句，从数据库中读取一行数据并返回。
+     * 说明：该方法执行SQL中指定的语句，逐行将数据交给consumer处理
      * 实现步骤：
-     *   1) 执行read()，得到list
-     *   2) 判定list中存在一个以上元素，则抛出异常
-     *   3) 判定list中没有元素，则返回null
-     *   4) 返回list中的一个元素
+     *   1) 执行stream()得到流
+     *   2) 将每一行交给consumer，结束后关闭流
      * </pre>
      *
      * @param sql 要执行的SQL实例
      * @param clazz 返回值类型
-     * @return 一行数据的Java bean实例或null
+     * @param consumer 处理每一行数据的逻辑
      * @since 0.0.0
      */
-    public <F> F readOne(SQL sql, Class<F> clazz) {
-        List<F> list = read(sql, clazz);
-        if (list.size() > 1) {
-            throw new IllegalStateException("The rows is " + list.size() + " but only one is returned");
+    @Override
+    public <F> void readEach(SQL sql, Class<F> clazz, Consumer<? super F> consumer) {
+        try (Stream<F> stream = stream(sql, clazz)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    /**
+     * 说明：流式读取持有的数据库资源
+     */
+    private static class Cursor {
+        private Connection connection; // 数据库连接
+        private PreparedStatement statement; // 查询语句
+        private ResultSet resultSet; // 结果集
+        private boolean closed; // 是否已经关闭
+
+        /**
+         * 说明：依次关闭结果集、语句和连接，可以重复调用
+         * @since 0.0.0
+         */
+        private void close() {
+            if (closed) return;
+            closed = true;
+            for (AutoCloseable resource : new AutoCloseable[]{resultSet, statement, connection}) {
+                if (resource == null) continue;
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    ExceptionUtils.printStackTrace(e);
+                }
+            }
         }
-        return list.isEmpty() ? null : list.get(0);
     }
 }
@@ -2,17 +2,20 @@ package org.qh.DDBMS.LDBMS.sql.impl;
 
 import org.qh.DDBMS.LDBMS.sql.SQL;
 import org.qh.DDBMS.LDBMS.sql.SQLBank;
+import org.qh.DDBMS.LDBMS.sql.SQLSpillStore;
 import org.qh.DDBMS.LDBMS.sql.config.SQLBankConfig;
 import org.qh.DDBMS.common.db.DBTransaction;
 
 import javax.annotation.Resource;
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  *
@@ -23,41 +26,49 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SQLBankImpl implements SQLBank {
 
+    /**
+     * <pre>
+     * 说明：一条缓存SQL除语句内容外的估算内存开销，单位字节
+     * </pre>
+     */
+    private static final int ENTRY_OVERHEAD = 64;
 
     /**
      * <pre>
-     * 说明：SQL被存入DB事务将被保存到该属性中
+     * 说明：保存事务和其缓存的map
      * </pre>
      */
-    private Set<DBTransaction> inDB;
+    private Map<DBTransaction, Buffer> sqlMap;
 
     /**
      * <pre>
-     * 说明：保存事务和SQL关系的map
+     * 说明：sqlMap中所有缓存SQL占用的内存字节数
      * </pre>
      */
-    private Map<DBTransaction, List<SQL>> sqlMap;
+    private AtomicLong usedBytes;
 
     /**
      * <pre>
      * 说明：获取配置的信息
-     *   1) bufferSize：正常情况下sqlMap中缓存事务个数
-     *   2) maxSize：最大情况下，sqlMap中缓存事务个数
+     *   1) memoryBudget：正常情况下缓存SQL可以占用的内存字节数
+     *   2) maxMemoryBudget：order为1的事务缓存SQL可以占用的内存字节数
+     *   3) transactionMemoryCap：单个事务缓存SQL可以占用的内存字节数
+     *   4) compressThreshold：语句超过该长度时压缩缓存
      * </pre>
      */
     @Resource
     private SQLBankConfig config;
     /**
      * <pre>
-     * 说明：获取数据库连接的数据源
+     * 说明：保存内存放不下的SQL
      * </pre>
      */
     @Resource
-    private DataSource dataSource;
+    private SQLSpillStore spillStore;
 
     public SQLBankImpl() {
-        inDB = Collections.synchronizedSet(new HashSet<>());
         sqlMap = new ConcurrentHashMap<>();
+        usedBytes = new AtomicLong();
     }
 
     /**
@@ -65,12 +76,13 @@ public class SQLBankImpl implements SQLBank {
      * 说明：存入一个sql
      * 注意事项：
      *   1. 不允许同一个事务并发的存入sql
+     *   2. 事务一旦开始溢出，其后续的sql都写入spillStore，以保证sql的顺序
      * 实现步骤：
-     *   1) 获取sql对应的事务在sqlMap的list
-     *   2) 判定list不为null将sql加入list
-     *   3) 判定list为null
-     *     1. 将当前sql的信息写入db
-     *     2. 将事务加入inDB中
+     *   1) 获取sql对应事务的缓存buffer
+     *   2) 将sql编码为缓存条目，并估算其内存占用
+     *   3) 判定buffer未溢出，且未超过事务上限并能够从全局预算中分配到内存
+     *     1. 将条目加入buffer
+     *   4) 否则将buffer标记为溢出，将sql写入spillStore
      * </pre>
      *
      * @param sql 要存入的SQL实例
@@ -79,45 +91,42 @@ public class SQLBankImpl implements SQLBank {
     @Override
     public void put(SQL sql) throws SQLException {
         DBTransaction transaction = sql.transaction();
-        List<SQL> list = sqlList(transaction);
+        Buffer buffer = sqlMap.computeIfAbsent(transaction, k -> new Buffer());
 
-        if (list != null) list.add(sql);
-        else {
-            writeToDB(transaction, sql);
-            inDB.add(transaction);
+        if (!buffer.spilling) {
+            Entry entry = encode(sql);
+            if (buffer.bytes + entry.size <= config.transactionMemoryCap() &&
+                    reserve(transaction, entry.size)) {
+                buffer.entries.add(entry);
+                buffer.bytes += entry.size;
+                return;
+            }
+            buffer.spilling = true;
         }
+        spillStore.append(sql);
     }
 
     /**
      * <pre>
-     * 说明：获取一个事务对应sqlList
+     * 说明：从全局预算中为一个事务分配内存
      * 实现步骤：
-     *   1. 从sqlMap中获取，存在直接返回
-     *   2. 判定当前sql已经存在于db中返回null
-     *   3. 判定sqlMap中元素个数小于bufferSize
-     *     2.1. 构建一个list装入sqlMap
-     *     2.2. 返回该list
-     *   4. 判定事务的order为1且sqlMap中元素个数小于maxBufferSize
-     *     2.1. 构建一个list装入sqlMap
-     *     2.2. 返回该list
-     *   4. 返回null
+     *   1) 事务的order为1时预算为maxMemoryBudget，否则为memoryBudget
+     *   2) 判定分配后超过预算，返回false
+     *   3) 通过CAS增加usedBytes，返回true
      * </pre>
-     * @param transaction 要存入sql的事务
-     * @return transaction对应的sqlList
+     * @param transaction 需要分配内存的事务
+     * @param size 需要分配的字节数
+     * @return true表示分配成功
      * @since 0.0.0
      */
-    private List<SQL> sqlList(DBTransaction transaction) {
-        List<SQL> sqlList = sqlMap.get(transaction);
-        if (sqlList != null) return sqlList;
-        if (inDB.contains(transaction)) return null;
-        int size = sqlMap.size();
-        if (!(size < config.bufferSize() ||
-                (transaction.getOrder() == 1 && size < config.maxBufferSize()))) {
-            return null;
-        }
-        ArrayList<SQL> list = new ArrayList<>();
-        sqlMap.put(transaction, list);
-        return list;
+    private boolean reserve(DBTransaction transaction, long size) {
+        long budget = transaction.getOrder() == 1 ? config.maxMemoryBudget() : config.memoryBudget();
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + size > budget) return false;
+        } while (!usedBytes.compareAndSet(used, used + size));
+        return true;
     }
 
     @Override
@@ -131,9 +140,9 @@ public class SQLBankImpl implements SQLBank {
      * <pre>
      * 说明：获取一个事务存入的所有sql
      * 实现步骤：
-     *   1) 获取事务在sqlMap中对应的list
-     *   2) list不等于null，则返回list
-     *   3) 判定当前事务的sql被保存到数据库中，则从数据库中读出对应的sql数据
+     *   1) 获取事务在sqlMap中对应的buffer，不存在返回null
+     *   2) 将buffer中的条目解码为sql
+     *   3) 判定buffer已经溢出，则追加spillStore中保存的sql
      *   4) 返回list
      * </pre>
      *
@@ -143,20 +152,22 @@ public class SQLBankImpl implements SQLBank {
      */
     @Override
     public List<SQL> get(DBTransaction transaction) throws SQLException {
-        List<SQL> list = sqlMap.get(transaction);
-        if (list != null) return list;
-        if (inDB.contains(transaction)) {
-            list = readFromDB(transaction);
+        Buffer buffer = sqlMap.get(transaction);
+        if (buffer == null) return null;
+        List<SQL> list = new ArrayList<>(buffer.entries.size());
+        for (Entry entry : buffer.entries) {
+            list.add(decode(transaction, entry));
         }
+        if (buffer.spilling) list.addAll(spillStore.read(transaction));
         return list;
     }
 
     /**
      * <pre>
-     * 说明：删除一个事务存入的所有SQL，并返回
+     * 说明：删除一个事务存入的所有SQL
      * 实现步骤：
-     *   1) 判定该事务对应的sql存入DB，则从数据库中删除对应的元组
-     *   2) 判定该事务对应的sql在sqlMap中，则将sqlMap中的该事务删除
+     *   1) 将该事务从sqlMap中删除，并归还其占用的内存预算
+     *   2) 判定该事务已经溢出，则从spillStore中删除
      * </pre>
      *
      * @param transaction 要删除SQL的事务
@@ -164,157 +175,147 @@ public class SQLBankImpl implements SQLBank {
      */
     @Override
     public void delete(DBTransaction transaction) throws SQLException {
-        if (inDB.contains(transaction)) {
-            deleteFromDB(transaction);
-            inDB.remove(transaction);
-        }
-        sqlMap.remove(transaction);
+        Buffer buffer = sqlMap.remove(transaction);
+        if (buffer == null) return;
+        usedBytes.addAndGet(-buffer.bytes);
+        if (buffer.spilling) spillStore.delete(transaction);
     }
 
     /**
      * <pre>
-     * 说明：将当前SQL写入数据库
+     * 说明：将sql编码为缓存条目
      * 实现步骤：
-     *   1. 获取数据库连接
-     *   2. 获取sql语句
-     *   3. 执行sql语句
-     *   4. 关闭数据库连接
+     *   1) 判定compressThreshold大于0且语句长度超过它，压缩语句
+     *     1. 压缩后更小则保存压缩后的字节
+     *   2) 否则直接保存语句
+     *   3) 估算条目占用的内存，包括绑定参数
      * </pre>
-     *
-     * @param transaction 要存入SQL的事务
-     * @param sql 要写入的SQL
+     * @param sql 要缓存的sql
+     * @return 缓存条目
      * @since 0.0.0
      */
-    private void writeToDB(DBTransaction transaction, SQL sql) throws SQLException {
-
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement ps = connection.
-                     prepareStatement(SQLBankTable.INSERT_SQL_TEMPLATE)) {
-            ps.setLong(1, transaction.getId());
-            ps.setInt(2, transaction.getType());
-            ps.setByte(3, sql.type());
-            ps.setString(4, sql.statement());
-            ps.execute();
+    private Entry encode(SQL sql) {
+        String statement = sql.statement();
+        long parameterSize = parameterSize(sql.parameters());
+        int threshold = config.compressThreshold();
+        if (threshold > 0 && statement.length() > threshold) {
+            byte[] raw = statement.getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = compress(raw);
+            if (compressed.length < statement.length() * 2) {
+                return new Entry(sql.type(), null, compressed, raw.length, sql.parameters(),
+                        ENTRY_OVERHEAD + compressed.length + parameterSize);
+            }
         }
+        return new Entry(sql.type(), statement, null, 0, sql.parameters(),
+                ENTRY_OVERHEAD + statement.length() * 2L + parameterSize);
     }
 
-
     /**
-     * <pre>
-     * 说明：从数据库读取对应事务的SQL数据
-     * 实现步骤：
-     *   1. 获取select语句
-     *   2. 获取数据库连接
-     *   3. 执行sql语句
-     *   4. 将查询结果封装为SQLList
-     *   5. 返回查询结果
-     * </pre>
-     *
-     * @param transaction 要读取SQL的事务
-     * @return 读取到的SQL列表
+     * 说明：估算绑定参数占用的内存
+     * @param parameters 绑定参数
+     * @return 估算的字节数
      * @since 0.0.0
      */
-    private List<SQL> readFromDB(DBTransaction transaction) throws SQLException {
-        String statement = selectSqlStatement(transaction);
-        List<SQL> sqlList = null;
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement ps = connection.prepareStatement(statement);
-             ResultSet resultSet = ps.executeQuery()) {
-
-            sqlList = resultSetToSQLList(resultSet, transaction);
+    private long parameterSize(Object[] parameters) {
+        if (parameters == null) return 0;
+        long size = 16L + parameters.length * 8L;
+        for (Object parameter : parameters) {
+            if (parameter instanceof CharSequence) size += 40 + ((CharSequence) parameter).length() * 2L;
+            else if (parameter instanceof byte[]) size += 16 + ((byte[]) parameter).length;
+            else if (parameter != null) size += 24;
         }
-        return sqlList;
+        return size;
     }
 
     /**
-     * <pre>
-     * 说明：将从数据库中查询到resultSet转化为List<SQL>
-     * 实现步骤：
-     *   1. 构建list实例
-     *   2. 循环地取出一行数据封装为SQL实例
-     *     2.1. 从resultSet中取出SQL_TYPE
-     *     2.2. 从resultSet中取出SQL
-     *     2.3. 构建SQL实例并加入到list
-     *   3. 返回list
-     * </pre>
-     * @param resultSet 执行查询语句得到的结果集
-     * @param transaction 需要查询SQL的事务
-     * @return 查询到的SQL实例集合
-     * @throws SQLException
+     * 说明：将缓存条目解码为sql
+     * @param transaction sql所属的事务
+     * @param entry 缓存条目
+     * @return sql实例
      * @since 0.0.0
      */
-    private List<SQL> resultSetToSQLList(ResultSet resultSet, DBTransaction transaction) throws SQLException {
-        ArrayList<SQL> list = new ArrayList<>();
-        Byte sqlType = null;
-        String statement = null;
-        while (resultSet.next()) {
-            sqlType = resultSet.getByte(SQLBankTable.SQL_TYPE);
-            statement = resultSet.getString(SQLBankTable.STATEMENT);
-            list.add(new SQLImpl(transaction, sqlType, statement));
+    private SQL decode(DBTransaction transaction, Entry entry) throws SQLException {
+        String statement = entry.statement;
+        if (statement == null) {
+            statement = new String(decompress(entry.compressed, entry.rawLength), StandardCharsets.UTF_8);
         }
-        return list;
+        return new SQLImpl(transaction, entry.type, statement, entry.parameters);
     }
 
     /**
-     * 说明：根据transaction获取查询sql实例的语句
-     * @param transaction 进行查询的事务
-     * @return select语句
+     * 说明：使用Deflate压缩字节数组
+     * @param raw 原始字节
+     * @return 压缩后的字节
      * @since 0.0.0
      */
-    private String selectSqlStatement(DBTransaction transaction) {
-        return String.format(SQLBankTable.SELECT_SQL_TEMPLATE, transaction.getId(), transaction.getType());
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
     }
 
     /**
-     * <pre>
-     * 说明：从数据库删除对应事务的SQL数据
-     * 实现步骤：
-     *   1. 得到删除语句
-     *   2. 得到数据库连接
-     *   3. 执行删除
-     *   4. 释放连接
-     * </pre>
-     *
-     * @param transaction 要删除SQL的事务
+     * 说明：解压使用compress()压缩的字节数组
+     * @param compressed 压缩后的字节
+     * @param rawLength 原始字节数
+     * @return 原始字节
      * @since 0.0.0
      */
-    private void deleteFromDB(DBTransaction transaction) throws SQLException {
-        String statement = deleteSqlStatement(transaction);
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement ps = connection.prepareStatement(statement)) {
-            ps.execute();
+    private byte[] decompress(byte[] compressed, int rawLength) throws SQLException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                offset += inflater.inflate(raw, offset, rawLength - offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new SQLException("Can not decompress a buffered statement.", e);
+        } finally {
+            inflater.end();
         }
     }
 
     /**
-     * 说明：得到删除sql的delete语句
-     * @param transaction 要删除sql的事务
-     * @return delete语句
-     * @since 0.0.0
+     * 说明：一个事务在内存中的缓存
      */
-    private String deleteSqlStatement(DBTransaction transaction) {
-        return String.format(SQLBankTable.DELETE_SQL_TEMPLATE, transaction.getId(), transaction.getType());
+    private static class Buffer {
+        private final List<Entry> entries = new ArrayList<>(); // 缓存的sql条目
+        private long bytes; // 缓存条目占用的内存字节数
+        private boolean spilling; // 是否已经开始溢出到spillStore
     }
 
     /**
-     * 说明：该接口描述了数据库中sql_bank具有的字段信息
+     * 说明：一条缓存的sql
      */
-    private static interface SQLBankTable {
-        String TABLE_NAME = "sql_bank";
-        String ID = "id";
-        String TRANSACTION_ID = "transaction_id";
-        String TRANSACTION_TYPE = "transaction_type";
-        String SQL_TYPE = "sql_type";
-        String STATEMENT = "statement";
+    private static class Entry {
+        private final byte type; // sql类型
+        private final String statement; // 未压缩的语句
+        private final byte[] compressed; // 压缩后的语句
+        private final int rawLength; // 压缩前语句的字节数
+        private final Object[] parameters; // 绑定参数
+        private final long size; // 估算的内存占用
 
-        // sql templates
-        String INSERT_SQL_TEMPLATE = "insert into `" + TABLE_NAME + "` values(null, ?, ?, ?, ?);";
-        String SELECT_SQL_TEMPLATE = "select `" + SQL_TYPE + "`, `" + STATEMENT + "` from `" + TABLE_NAME + "` " +
-                "where `" + TRANSACTION_ID +"` = %d and `" + TRANSACTION_TYPE +"` = %d " +
-                "order by `" + ID + "` asc;";
-
-        String DELETE_SQL_TEMPLATE = "delete from `" + TABLE_NAME + "` " +
-                "where `" + TRANSACTION_ID +"` = %d and `" + TRANSACTION_TYPE +"` = %d;";
+        private Entry(byte type, String statement, byte[] compressed, int rawLength,
+                      Object[] parameters, long size) {
+            this.type = type;
+            this.statement = statement;
+            this.compressed = compressed;
+            this.rawLength = rawLength;
+            this.parameters = parameters;
+            this.size = size;
+        }
     }
 }
-
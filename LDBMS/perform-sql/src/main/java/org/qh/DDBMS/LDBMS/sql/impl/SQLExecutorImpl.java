@@ -2,6 +2,7 @@ package org.qh.DDBMS.LDBMS.sql.impl;
 
 import org.qh.DDBMS.LDBMS.sql.Commit;
 import org.qh.DDBMS.LDBMS.sql.Reader;
+import org.qh.DDBMS.LDBMS.sql.RowBatch;
 import org.qh.DDBMS.LDBMS.sql.Writer;
 import org.qh.DDBMS.LDBMS.sql.SQL;
 import org.qh.DDBMS.LDBMS.sql.SQLExecutor;
@@ -9,6 +10,8 @@ import org.qh.DDBMS.LDBMS.sql.SQLExecutor;
 import javax.annotation.Resource;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 /**
@@ -75,6 +78,38 @@ public class SQLExecutorImpl implements SQLExecutor {
         return reader.read(sql, clazz);
     }
 
+    /**
+     * <pre>
+     * 说明：该方法用于以流的形式逐行读取大量数据
+     * 实现步骤：调用reader的stream()
+     * </pre>
+     *
+     * @param sql 要执行的SQL
+     * @param clazz 返回数据的类型
+     * @return 查询结果的流
+     * @since 0.0.0
+     */
+    @Override
+    public <F> Stream<F> selectStream(SQL sql, Class<F> clazz) throws Exception {
+        return reader.stream(sql, clazz);
+    }
+
+    /**
+     * <pre>
+     * 说明：该方法用于逐行处理大量数据
+     * 实现步骤：调用reader的readEach()
+     * </pre>
+     *
+     * @param sql 要执行的SQL
+     * @param clazz 返回数据的类型
+     * @param consumer 处理每一行数据的逻辑
+     * @since 0.0.0
+     */
+    @Override
+    public <F> void selectEach(SQL sql, Class<F> clazz, Consumer<? super F> consumer) throws Exception {
+        reader.readEach(sql, clazz, consumer);
+    }
+
     /**
      * <pre>
      * 说明：执行更新表的SQL
@@ -104,5 +139,21 @@ public class SQLExecutorImpl implements SQLExecutor {
     public void commit(SQL sql) throws Exception {
         commit.commit(sql);
     }
+
+    /**
+     * <pre>
+     * 说明：
+     *   1) 批量导入一张表的行数据，不经过SQLBank缓存
+     *   2) 导入的行与事务已经写入的语句一起提交
+     * 实现步骤：调用commit的bulkLoad方法
+     * </pre>
+     *
+     * @param batch 导入的行数据
+     * @since 0.0.0
+     */
+    @Override
+    public void bulkLoad(RowBatch batch) throws Exception {
+        commit.bulkLoad(batch);
+    }
 }
 
@@ -7,6 +7,8 @@ import org.qh.DDBMS.common.Validator;
 import org.qh.DDBMS.common.db.DBTransaction;
 import org.qh.tools.str.StringUtils;
 
+import java.io.Serializable;
+
 /**
  *
  * @Author: qihe
@@ -34,11 +36,18 @@ public class SQLImpl implements SQL, Validator<SQLImpl, String> {
      * <pre>
      * 说明：
      *   1) 具体的sql语句
-     *   2) sql中不应当存在占位符
+     *   2) sql中的占位符'?'与parameters一一对应
      * </pre>
      */
     private String statement;
 
+    /**
+     * <pre>
+     * 说明：statement中占位符的绑定参数，没有占位符时为null
+     * </pre>
+     */
+    private Object[] parameters;
+
     /**
      * <pre>
      * 说明：该类的全参构造器
@@ -51,12 +60,14 @@ public class SQLImpl implements SQL, Validator<SQLImpl, String> {
      * @param transaction 数据库事务对象
      * @param type 当前事务类型
      * @param statement 具体的SQL语句
+     * @param parameters 占位符的绑定参数
      * @since 0.0.0
      */
-    public SQLImpl(DBTransaction transaction, byte type, String statement) {
+    public SQLImpl(DBTransaction transaction, byte type, String statement, Object... parameters) {
         this.transaction = transaction;
         this.type = type;
         this.statement = statement;
+        this.parameters = parameters == null || parameters.length == 0 ? null : parameters;
 
         String validationError = validate(this);
         if (validationError != null) {
@@ -73,6 +84,10 @@ public class SQLImpl implements SQL, Validator<SQLImpl, String> {
      *   3) 判定statement存在且最后一个字符不是";",则返回"The statement field is not complete."
      *   4) 判定statement中存在SQL_STATEMENT_SEPARATOR则返回
      *   "The statement field contains SQL_STATEMENT_SEPARATOR."
+     *   5) 判定占位符个数与参数个数不一致则返回
+     *   "The statement field has n placeholders but m parameters."
+     *   6) 判定存在不可序列化的参数则返回
+     *   "The parameter i is not serializable."
      * </pre>
      *
      * @param sqlImpl 要检验的SQLImpl实例
@@ -87,16 +102,59 @@ public class SQLImpl implements SQL, Validator<SQLImpl, String> {
         if (sqlImpl.type != Constant.SQL.READ_TYPE && sqlImpl.type != Constant.SQL.WRITE_TYPE) {
             return "The type field is " + sqlImpl.type + "(invalid).";
         }
-        if (StringUtils.isEmpty(sqlImpl.statement)) return null;
+        if (StringUtils.isEmpty(sqlImpl.statement)) {
+            return sqlImpl.parameters == null ? null : "The statement field is empty but has parameters.";
+        }
         if (sqlImpl.statement.charAt(sqlImpl.statement.length() - 1) != ';') {
             return "The statement field is not complete.";
         }
         if (sqlImpl.statement.contains(Constant.Sync.SQL_STATEMENT_SEPARATOR)) {
             return "The statement field contains SQL_STATEMENT_SEPARATOR.";
         }
+        int parameterCount = sqlImpl.parameters == null ? 0 : sqlImpl.parameters.length;
+        int placeholderCount = placeholderCount(sqlImpl.statement);
+        if (placeholderCount != parameterCount) {
+            return "The statement field has " + placeholderCount + " placeholders but " +
+                    parameterCount + " parameters.";
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            Object parameter = sqlImpl.parameters[i];
+            if (parameter != null && !(parameter instanceof Serializable)) {
+                return "The parameter " + i + " is not serializable.";
+            }
+        }
         return null;
     }
 
+    /**
+     * <pre>
+     * 说明：统计语句中占位符的个数
+     * 实现步骤：
+     *   1) 逐个字符扫描语句
+     *   2) 跳过引号和反引号中的内容
+     *   3) 统计其余位置的'?'
+     * </pre>
+     * @param statement sql语句
+     * @return 占位符的个数
+     * @since 0.0.0
+     */
+    private static int placeholderCount(String statement) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override
     public DBTransaction transaction() {
         return this.transaction;
@@ -111,5 +169,10 @@ public class SQLImpl implements SQL, Validator<SQLImpl, String> {
     public String statement() {
         return this.statement;
     }
+
+    @Override
+    public Object[] parameters() {
+        return this.parameters;
+    }
 }
 
@@ -0,0 +1,221 @@
+package org.qh.DDBMS.LDBMS.sql.impl;
+
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SQLSpillStore;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.db.SchemaMigration;
+
+import org.qh.tools.parse.ObjectByteParseUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/05
+ * @Version: 0.0.0
+ * @Description: 将溢出的SQL保存到数据库sql_bank表中的SQLSpillStore实现类
+ */
+public class TableSQLSpillStore implements SQLSpillStore {
+
+    /**
+     * <pre>
+     * 说明：获取数据库连接的数据源
+     * </pre>
+     */
+    @Resource
+    private DataSource dataSource;
+
+    /**
+     * <pre>
+     * 说明：为缺少绑定参数列的sql_bank添加该列
+     * </pre>
+     */
+    @PostConstruct
+    public void init() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            SchemaMigration.addParametersColumn(connection, SQLBankTable.TABLE_NAME);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：将当前SQL写入数据库
+     * 实现步骤：
+     *   1. 获取数据库连接
+     *   2. 获取sql语句
+     *   3. 执行sql语句
+     *   4. 关闭数据库连接
+     * </pre>
+     *
+     * @param sql 要写入的SQL
+     * @since 0.0.0
+     */
+    @Override
+    public void append(SQL sql) throws SQLException {
+        DBTransaction transaction = sql.transaction();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.
+                     prepareStatement(SQLBankTable.INSERT_SQL_TEMPLATE)) {
+            ps.setLong(1, transaction.getId());
+            ps.setInt(2, transaction.getType());
+            ps.setByte(3, sql.type());
+            ps.setString(4, sql.statement());
+            ps.setBytes(5, encodeParameters(sql.parameters()));
+            ps.execute();
+        }
+    }
+
+    /**
+     * 说明：序列化绑定参数
+     * @param parameters 绑定参数
+     * @return 序列化后的字节，没有参数时返回null
+     * @since 0.0.0
+     */
+    private byte[] encodeParameters(Object[] parameters) throws SQLException {
+        if (parameters == null) return null;
+        try {
+            return ObjectByteParseUtils.parseObjectToByte(parameters);
+        } catch (IOException e) {
+            throw new SQLException("Can not serialize the parameters.", e);
+        }
+    }
+
+    /**
+     * <pre>
+     * 说明：从数据库读取对应事务的SQL数据
+     * 实现步骤：
+     *   1. 获取select语句
+     *   2. 获取数据库连接
+     *   3. 执行sql语句
+     *   4. 将查询结果封装为SQLList
+     *   5. 返回查询结果
+     * </pre>
+     *
+     * @param transaction 要读取SQL的事务
+     * @return 读取到的SQL列表
+     * @since 0.0.0
+     */
+    @Override
+    public List<SQL> read(DBTransaction transaction) throws SQLException {
+        String statement = selectSqlStatement(transaction);
+        List<SQL> sqlList = null;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(statement);
+             ResultSet resultSet = ps.executeQuery()) {
+
+            sqlList = resultSetToSQLList(resultSet, transaction);
+        }
+        return sqlList;
+    }
+
+    /**
+     * <pre>
+     * 说明：将从数据库中查询到resultSet转化为List<SQL>
+     * 实现步骤：
+     *   1. 构建list实例
+     *   2. 循环地取出一行数据封装为SQL实例
+     *     2.1. 从resultSet中取出SQL_TYPE
+     *     2.2. 从resultSet中取出SQL和绑定参数
+     *     2.3. 构建SQL实例并加入到list
+     *   3. 返回list
+     * </pre>
+     * @param resultSet 执行查询语句得到的结果集
+     * @param transaction 需要查询SQL的事务
+     * @return 查询到的SQL实例集合
+     * @throws SQLException
+     * @since 0.0.0
+     */
+    private List<SQL> resultSetToSQLList(ResultSet resultSet, DBTransaction transaction) throws SQLException {
+        ArrayList<SQL> list = new ArrayList<>();
+        Byte sqlType = null;
+        String statement = null;
+        byte[] parameters = null;
+        while (resultSet.next()) {
+            sqlType = resultSet.getByte(SQLBankTable.SQL_TYPE);
+            statement = resultSet.getString(SQLBankTable.STATEMENT);
+            parameters = resultSet.getBytes(SQLBankTable.PARAMETERS);
+            try {
+                list.add(new SQLImpl(transaction, sqlType, statement, parameters == null ? null :
+                        (Object[]) ObjectByteParseUtils.parseByteToObject(parameters)));
+            } catch (IOException e) {
+                throw new SQLException("Can not deserialize the parameters.", e);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 说明：根据transaction获取查询sql实例的语句
+     * @param transaction 进行查询的事务
+     * @return select语句
+     * @since 0.0.0
+     */
+    private String selectSqlStatement(DBTransaction transaction) {
+        return String.format(SQLBankTable.SELECT_SQL_TEMPLATE, transaction.getId(), transaction.getType());
+    }
+
+    /**
+     * <pre>
+     * 说明：从数据库删除对应事务的SQL数据
+     * 实现步骤：
+     *   1. 得到删除语句
+     *   2. 得到数据库连接
+     *   3. 执行删除
+     *   4. 释放连接
+     * </pre>
+     *
+     * @param transaction 要删除SQL的事务
+     * @since 0.0.0
+     */
+    @Override
+    public void delete(DBTransaction transaction) throws SQLException {
+        String statement = deleteSqlStatement(transaction);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(statement)) {
+            ps.execute();
+        }
+    }
+
+    /**
+     * 说明：得到删除sql的delete语句
+     * @param transaction 要删除sql的事务
+     * @return delete语句
+     * @since 0.0.0
+     */
+    private String deleteSqlStatement(DBTransaction transaction) {
+        return String.format(SQLBankTable.DELETE_SQL_TEMPLATE, transaction.getId(), transaction.getType());
+    }
+
+    /**
+     * 说明：该接口描述了数据库中sql_bank具有的字段信息
+     */
+    private static interface SQLBankTable {
+        String TABLE_NAME = "sql_bank";
+        String ID = "id";
+        String TRANSACTION_ID = "transaction_id";
+        String TRANSACTION_TYPE = "transaction_type";
+        String SQL_TYPE = "sql_type";
+        String STATEMENT = "statement";
+        String PARAMETERS = "parameters";
+
+        // sql templates
+        String INSERT_SQL_TEMPLATE = "insert into `" + TABLE_NAME + "` values(null, ?, ?, ?, ?, ?);";
+        String SELECT_SQL_TEMPLATE = "select `" + SQL_TYPE + "`, `" + STATEMENT + "`, `" + PARAMETERS + "` " +
+                "from `" + TABLE_NAME + "` " +
+                "where `" + TRANSACTION_ID +"` = %d and `" + TRANSACTION_TYPE +"` = %d " +
+                "order by `" + ID + "` asc;";
+
+        String DELETE_SQL_TEMPLATE = "delete from `" + TABLE_NAME + "` " +
+                "where `" + TRANSACTION_ID +"` = %d and `" + TRANSACTION_TYPE +"` = %d;";
+    }
+}
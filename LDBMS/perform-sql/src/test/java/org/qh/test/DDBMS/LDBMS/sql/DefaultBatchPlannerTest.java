@@ -0,0 +1,154 @@
+package org.qh.test.DDBMS.LDBMS.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SQLBatch;
+import org.qh.DDBMS.LDBMS.sql.config.impl.CommitConfigImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.DefaultBatchPlanner;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLImpl;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试DefaultBatchPlanner提取字面量、分组批次和改写多行insert
+ */
+public class DefaultBatchPlannerTest {
+
+    private CommitConfigImpl config;
+
+    private DefaultBatchPlanner planner;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new CommitConfigImpl();
+        config.setParameterizeLiterals(true);
+        planner = new DefaultBatchPlanner();
+        Field f = DefaultBatchPlanner.class.getDeclaredField("config");
+        f.setAccessible(true);
+        f.set(planner, config);
+    }
+
+    @Test
+    public void numbersAndStringsAreExtracted() {
+        assertPlanned("update t set a = 'x', b = 1.5 where id = 7;",
+                "update t set a = ?, b = ? where id = ?;", "x", new BigDecimal("1.5"), 7L);
+        assertPlanned("insert into t2 (id, a) values (1, 2e3);",
+                "insert into t2 (id, a) values (?, ?);", 1L, new BigDecimal("2e3"));
+    }
+
+    /**
+     * 说明：负号保留在模板中，只提取其后的数字
+     */
+    @Test
+    public void negativeNumbers() {
+        assertPlanned("update t set a = -5, b = a-1 where id = 2;",
+                "update t set a = -?, b = a-? where id = ?;", 5L, 1L, 2L);
+    }
+
+    /**
+     * 说明：引号内的内容作为一个字符串提取，''转换为一个单引号，反斜杠转义的字符串原样保留
+     */
+    @Test
+    public void quotedStrings() {
+        assertPlanned("update t set a = 'it''s -- 1' where id = 3;",
+                "update t set a = ? where id = ?;", "it's -- 1", 3L);
+        assertPlanned("update t set a = 'a\\'b' where id = 3;", "update t set a = 'a\\'b' where id = ?;", 3L);
+        assertPlanned("update `t1` set \"c2\" = 1;", "update `t1` set \"c2\" = ?;", 1L);
+        assertNotParameterized("update t set a = 'x' 'y' where id = 1;");
+    }
+
+    @Test
+    public void prefixedAndTypedLiteralsAreKept() {
+        assertPlanned("update t set a = _utf8'x', d = DATE '2024-12-07' where id = 1;",
+                "update t set a = _utf8'x', d = DATE '2024-12-07' where id = ?;", 1L);
+        assertPlanned("update t set a = 0x1F, b = c1 where id = 1;",
+                "update t set a = 0x1F, b = c1 where id = ?;", 1L);
+    }
+
+    @Test
+    public void commentsAreNotParameterized() {
+        assertNotParameterized("update t set a = 1 /* b = 2 */ where id = 1;");
+        assertNotParameterized("update t set a = 1 -- note\n where id = 1;");
+        assertNotParameterized("update t set a = 1 # note\n where id = 1;");
+    }
+
+    @Test
+    public void unsafeStatementsAreNotParameterized() {
+        assertNotParameterized("select * from t where id = 1;");
+        assertNotParameterized("update t set a = 1 order  by id limit 1;");
+        assertNotParameterized("update t set a = cast ('1' as signed) where id = 1;");
+    }
+
+    /**
+     * 说明：只有相邻且模板相同的语句分为一个批次
+     */
+    @Test
+    public void adjacentTemplatesAreGrouped() {
+        List<SQLBatch> batches = planner.plan(Arrays.asList(
+                write("insert into t (id) values (1);"),
+                write("insert into t (id) values (2);"),
+                write("update t set a = 1 where id = 1;"),
+                write("insert into t (id) values (3);"),
+                write("insert into t (id) values (?);", 4L),
+                write("insert into t (id) values (5);")));
+        List<String> templates = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (SQLBatch batch : batches) {
+            templates.add(batch.template());
+            sizes.add(batch.rows().size());
+        }
+        assertEquals(Arrays.asList("insert into t (id) values (?);", "update t set a = ? where id = ?;",
+                "insert into t (id) values (?);"), templates);
+        assertEquals(Arrays.asList(2, 1, 3), sizes);
+        assertArrayEquals(new Object[]{4L}, batches.get(2).rows().get(1));
+    }
+
+    @Test
+    public void disabledKeepsStatements() {
+        config.setParameterizeLiterals(false);
+        List<SQLBatch> batches = planner.plan(Arrays.asList(
+                write("insert into t (id) values (1);"), write("insert into t (id) values (2);")));
+        assertEquals(2, batches.size());
+        assertEquals("insert into t (id) values (1);", batches.get(0).template());
+    }
+
+    @Test
+    public void multiRowTemplate() {
+        assertEquals("insert into t (id, a) values (?, '(x)'),(?, '(x)');",
+                planner.multiRowTemplate("insert into t (id, a) values (?, '(x)');", 2));
+        assertEquals("insert into t values (?);", planner.multiRowTemplate("insert into t values (?);", 1));
+        assertNull(planner.multiRowTemplate("insert into t (id) values (?) on duplicate key update a = 1;", 2));
+        assertNull(planner.multiRowTemplate("insert into t (id) select id from u where id = ?;", 2));
+        assertNull(planner.multiRowTemplate("update t set a = ? where id = ?;", 2));
+    }
+
+    private void assertPlanned(String statement, String template, Object... parameters) {
+        List<SQLBatch> batches = planner.plan(Arrays.asList(write(statement)));
+        assertEquals(1, batches.size());
+        assertEquals(template, batches.get(0).template());
+        assertArrayEquals(parameters, batches.get(0).rows().get(0));
+    }
+
+    private void assertNotParameterized(String statement) {
+        List<SQLBatch> batches = planner.plan(Arrays.asList(write(statement)));
+        assertEquals(statement, batches.get(0).template());
+        assertNull(batches.get(0).rows().get(0));
+    }
+
+    private static SQL write(String statement, Object... parameters) {
+        return new SQLImpl(new DBTransaction(), (byte) Constant.SQL.WRITE_TYPE, statement, parameters);
+    }
+}
@@ -0,0 +1,289 @@
+package org.qh.test.DDBMS.LDBMS.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.sql.LockInferenceReport;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.impl.LockInferenceConfigImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.DefaultLockInference;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLImpl;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBResource;
+import org.qh.DDBMS.common.db.DBTransaction;
+import org.qh.DDBMS.common.dblock.DBLock;
+import org.qh.DDBMS.common.dblock.DefaultDBLock;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试DefaultLockInference对写语句的锁推断
+ *   表t的tableId为1，表u的tableId为2，主键都是id，maxRowLocks为4
+ */
+public class DefaultLockInferenceTest {
+
+    private LockInferenceConfigImpl config;
+
+    private DefaultLockInference inference;
+
+    /**
+     * 说明：dbLock中登记的资源
+     */
+    private final List<DBResource> registered = new ArrayList<>();
+
+    /**
+     * 说明：有主键外唯一索引的表
+     */
+    private final Set<String> otherUnique = new HashSet<>();
+
+    /**
+     * 说明：有外键或触发器的表
+     */
+    private final Set<String> dependent = new HashSet<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, Integer> tableIds = new HashMap<>();
+        tableIds.put("t", 1);
+        tableIds.put("u", 2);
+        config = new LockInferenceConfigImpl();
+        config.setEnabled(true);
+        config.setTableIds(tableIds);
+        config.setMaxRowLocks(4);
+        config.setReportSize(16);
+
+        inference = new DefaultLockInference();
+        inject(inference, "config", config);
+        inject(inference, "registry", new SchemaRegistry() {
+            @Override
+            public Integer tableId(String table) {
+                return tableIds.get(table);
+            }
+
+            @Override
+            public String primaryKey(String table) {
+                return tableIds.containsKey(table) ? "id" : null;
+            }
+
+            @Override
+            public String table(int tableId) {
+                return null;
+            }
+
+            @Override
+            public Collection<Integer> tableIds() {
+                return new TreeSet<>(tableIds.values());
+            }
+
+            @Override
+            public boolean primaryKeyOnlyUnique(String table) {
+                return !otherUnique.contains(table);
+            }
+
+            @Override
+            public boolean hasForeignKeysOrTriggers(String table) {
+                return dependent.contains(table);
+            }
+
+            @Override
+            public boolean hasGeneratedColumns(String table) {
+                return false;
+            }
+
+            @Override
+            public void refresh() {
+            }
+        });
+        inject(inference, "dbLock", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DBLock.class}, (proxy, method, args) -> {
+                    if ("register".equals(method.getName())) registered.add((DBResource) args[1]);
+                    return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                }));
+        inference.init();
+    }
+
+    @Test
+    public void equalityLocksRow() {
+        assertResources(register("update t set a = 1 where id = 5"), row(1, 5));
+        assertResources(register("delete from t where 7 = id"), row(1, 7));
+        assertResources(register("update t as x set a = 1 where x.id = ? and a > 0", 9), row(1, 9));
+    }
+
+    @Test
+    public void inListLocksRows() {
+        assertResources(register("delete from t where id in (1, 2, ?)", 3L), row(1, 1), row(1, 2), row(1, 3));
+    }
+
+    @Test
+    public void orLocksTable() {
+        assertResources(register("update t set a = 1 where id = 1 or id = 2"), table(1));
+        assertResources(register("update t set a = 1 where id = 1 || id = 2"), table(1));
+    }
+
+    @Test
+    public void updatingPrimaryKeyLocksTable() {
+        assertResources(register("update t set id = 6 where id = 5"), table(1));
+    }
+
+    @Test
+    public void insertLocksRows() {
+        assertResources(register("insert into t (id, a) values (3, 4), (5, 6)"), row(1, 3), row(1, 5));
+        assertResources(register("insert into `t` set a = 1, id = ?", 8), row(1, 8));
+        assertResources(register("insert into t (id, a) values (3, 4) on duplicate key update a = 5"), table(1));
+    }
+
+    @Test
+    public void commentsAndStringsAreSkipped() {
+        assertResources(register("update t /* where id = 1 or */ set a = 'or id = 2' -- or\n where id = 3"),
+                row(1, 3));
+    }
+
+    @Test
+    public void replaceLocksTable() {
+        assertResources(register("replace into t (id, a) values (1, 2)"), table(1));
+    }
+
+    @Test
+    public void tooManyRowsLockTable() {
+        assertResources(register("delete from t where id in (1, 2, 3, 4, 5)"), table(1));
+    }
+
+    @Test
+    public void selectLocksReadTables() {
+        assertResources(register("insert into t (id, a) select id, a from u where id = 1"), table(1), table(2));
+        assertResources(register("delete from t where id = 5 and a in (select a from u)"), table(1), table(2));
+    }
+
+    @Test
+    public void joinsAreMultiTable() {
+        assertResources(register("update t a cross join u b set a.a = b.a where a.id = 5"), table(1), table(2));
+        assertResources(register("update t straight_join u set t.a = u.a where t.id = 5"), table(1), table(2));
+        assertResources(register("update t natural join u set a = 1 where id = 5"), table(1), table(2));
+    }
+
+    @Test
+    public void uniqueKeysForeignKeysAndTriggersLockTable() {
+        otherUnique.add("t");
+        assertResources(register("insert into t (id, a) values (3, 4)"), table(1));
+        dependent.add("u");
+        assertResources(register("delete from u where id = 2"), table(2));
+    }
+
+    /**
+     * 说明：批量导入的表锁与推断的锁合并，同一张表不同时登记表锁和行锁
+     */
+    @Test
+    public void requestedTablesReplaceRowLocks() {
+        registered.clear();
+        List<SQL> list = Arrays.asList(
+                write("update t set a = 1 where id = 5"),
+                write("update u set a = 1 where id = 6"));
+        LockInferenceReport report = inference.register(new DBTransaction(), list, Collections.singletonList(1));
+        assertResources(report, table(1), row(2, 6));
+
+        registered.clear();
+        config.setEnabled(false);
+        inference.register(new DBTransaction(), list, Collections.singletonList(2));
+        assertEquals(Arrays.asList(table(2)), registered);
+    }
+
+    @Test
+    public void unresolvedLocksAllTables() {
+        LockInferenceReport report = register("update x set a = 1 where id = 1");
+        assertResources(report, table(1), table(2));
+        assertTrue(report.isUnresolved());
+
+        report = register("call proc()");
+        assertResources(report, table(1), table(2));
+        assertTrue(report.isUnresolved());
+    }
+
+    @Test
+    public void resolvedReportIsNotUnresolved() {
+        LockInferenceReport report = register("update u set a = 1 where id = 2");
+        assertResources(report, row(2, 2));
+        assertFalse(report.isUnresolved());
+        assertEquals(1, report.getNotes().size());
+    }
+
+    /**
+     * 说明：推断出的行锁和表锁可以在DefaultDBLock上加锁，年轻事务不能获取冲突的资源
+     */
+    @Test
+    public void inferredLocksWorkWithDefaultDBLock() throws Exception {
+        DefaultDBLock dbLock = new DefaultDBLock();
+        dbLock.init();
+        inject(inference, "dbLock", dbLock);
+        DBTransaction older = new DBTransaction(1L, 0, (byte) 0);
+        DBTransaction younger = new DBTransaction(2L, 0, (byte) 0);
+
+        register(older, "update t set a = 1 where id = 5", "insert into t (id, a) values (6, 1)");
+        assertTrue(dbLock.lock(older));
+        register(younger, "delete from t where id = 5");
+        assertFalse(dbLock.lock(younger));
+        register(younger, "delete from t where id = 7");
+        assertTrue(dbLock.lock(younger));
+        assertEquals(Arrays.asList(row(1, 7)), dbLock.unlock(younger));
+        assertEquals(Arrays.asList(row(1, 5), row(1, 6)), dbLock.unlock(older));
+
+        register(older, "update t set a = 1 where a = 2");
+        assertTrue(dbLock.lock(older));
+        register(younger, "update t set a = 1 where id = 5");
+        assertFalse(dbLock.lock(younger));
+        register(younger, "update u set a = 1 where id = 5");
+        assertTrue(dbLock.lock(younger));
+        dbLock.unlock(younger);
+        assertEquals(Arrays.asList(table(1)), dbLock.unlock(older));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void enabledWithoutTableIdsFails() {
+        config.setTableIds(new HashMap<>());
+        inference.init();
+    }
+
+    private LockInferenceReport register(String statement, Object... parameters) {
+        registered.clear();
+        List<SQL> list = Collections.singletonList(write(statement, parameters));
+        return inference.register(new DBTransaction(), list);
+    }
+
+    private void register(DBTransaction transaction, String... statements) {
+        List<SQL> list = new ArrayList<>();
+        for (String statement : statements) {
+            list.add(write(statement));
+        }
+        inference.register(transaction, list);
+    }
+
+    private static SQL write(String statement, Object... parameters) {
+        return new SQLImpl(new DBTransaction(), (byte) Constant.SQL.WRITE_TYPE, statement + ";", parameters);
+    }
+
+    private void assertResources(LockInferenceReport report, DBResource... expected) {
+        assertEquals(Arrays.asList(expected), report.getResources());
+        assertEquals(Arrays.asList(expected), registered);
+    }
+
+    private static DBResource row(int tableId, long rowId) {
+        return new DBResource(tableId, rowId);
+    }
+
+    private static DBResource table(int tableId) {
+        return new DBResource(tableId, 0L);
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -0,0 +1,231 @@
+package org.qh.test.DDBMS.LDBMS.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SchemaRegistry;
+import org.qh.DDBMS.LDBMS.sql.config.impl.QueryCacheConfigImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.LruQueryCache;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLImpl;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试LruQueryCache的命中、失效和淘汰
+ *   表t的tableId为1，表u的tableId为2，表a有触发器，v是视图，不在registry中
+ */
+public class LruQueryCacheTest {
+
+    private QueryCacheConfigImpl config;
+
+    private LruQueryCache cache;
+
+    /**
+     * 说明：registry重新读取表结构的次数
+     */
+    private int refreshes;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, Integer> tableIds = new HashMap<>();
+        tableIds.put("t", 1);
+        tableIds.put("u", 2);
+        tableIds.put("a", 3);
+        config = new QueryCacheConfigImpl();
+        config.setEnabled(true);
+        config.setMaxEntries(2);
+        config.setMaxRows(10);
+
+        cache = new LruQueryCache();
+        inject(cache, "config", config);
+        inject(cache, "registry", new SchemaRegistry() {
+            @Override
+            public Integer tableId(String table) {
+                return tableIds.get(table);
+            }
+
+            @Override
+            public String primaryKey(String table) {
+                return "id";
+            }
+
+            @Override
+            public String table(int tableId) {
+                return null;
+            }
+
+            @Override
+            public Collection<Integer> tableIds() {
+                return new TreeSet<>(tableIds.values());
+            }
+
+            @Override
+            public boolean primaryKeyOnlyUnique(String table) {
+                return true;
+            }
+
+            @Override
+            public boolean hasForeignKeysOrTriggers(String table) {
+                return "a".equals(table);
+            }
+
+            @Override
+            public boolean hasGeneratedColumns(String table) {
+                return false;
+            }
+
+            @Override
+            public void refresh() {
+                refreshes++;
+            }
+        });
+    }
+
+    /**
+     * 说明：命中时返回缓存的副本，调用方修改结果不影响缓存
+     */
+    @Test
+    public void hitReturnsCopy() {
+        SQL sql = read("select * from t where id = ?", 1);
+        put(sql, row(1, "x"));
+        List<Map> rows = cache.get(read("select * from t where id = ?", 1), Map.class);
+        assertEquals(Collections.singletonList(row(1, "x")), rows);
+        rows.get(0).put("name", "y");
+        assertEquals(Collections.singletonList(row(1, "x")), cache.get(sql, Map.class));
+        assertNull(cache.get(read("select * from t where id = ?", 2), Map.class));
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    /**
+     * 说明：写语句只使读取其修改的表的条目失效，包括表名紧跟注释的查询
+     */
+    @Test
+    public void writeInvalidatesReadingTables() {
+        SQL t = read("select * from/*x*/t");
+        SQL u = read("select * from u");
+        put(t, row(1, "x"));
+        put(u, row(2, "y"));
+        assertNotNull(cache.get(t, Map.class));
+        cache.invalidate("update t set name = 'z' where id = 1");
+        assertNull(cache.get(t, Map.class));
+        assertNotNull(cache.get(u, Map.class));
+
+        put(t, row(1, "z"));
+        cache.invalidate("insert into u (id) values (3)" + Constant.Sync.SQL_STATEMENT_SEPARATOR +
+                "delete from t where id = 1");
+        assertNull(cache.get(t, Map.class));
+        assertNull(cache.get(u, Map.class));
+    }
+
+    /**
+     * 说明：查询执行期间表被修改，其结果不缓存
+     */
+    @Test
+    public void staleResultIsNotCached() {
+        SQL sql = read("select * from t");
+        long stamp = cache.stamp();
+        cache.invalidate("delete from t where id = 1");
+        cache.put(sql, Map.class, rows(row(1, "x")), stamp);
+        assertNull(cache.get(sql, Map.class));
+    }
+
+    /**
+     * 说明：无法解析修改的表或DDL语句使所有条目失效，DDL语句会重新读取表结构
+     */
+    @Test
+    public void unresolvedAndDdlInvalidateAll() {
+        SQL t = read("select * from t");
+        put(t, row(1, "x"));
+        cache.invalidate("call proc()");
+        assertNull(cache.get(t, Map.class));
+
+        put(t, row(1, "x"));
+        cache.invalidate("create trigger tr after insert on u for each row update t set name = 'z'");
+        assertNull(cache.get(t, Map.class));
+        assertEquals(1, refreshes);
+    }
+
+    /**
+     * 说明：查询视图、不在registry中的表或有外键、触发器的表时不缓存
+     */
+    @Test
+    public void viewsAndDependentTablesAreNotCached() {
+        SQL view = read("select * from v");
+        SQL triggered = read("select * from t join a on t.id = a.id");
+        put(view, row(1, "x"));
+        put(triggered, row(1, "x"));
+        assertNull(cache.get(view, Map.class));
+        assertNull(cache.get(triggered, Map.class));
+        assertNull(cache.get(read("select 1"), Map.class));
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    /**
+     * 说明：条目数超过上限时淘汰最久未使用的条目，结果超过maxRows时不缓存
+     */
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        SQL first = read("select * from t where id = 1");
+        SQL second = read("select * from t where id = 2");
+        SQL third = read("select * from u where id = 3");
+        put(first, row(1, "x"));
+        put(second, row(2, "y"));
+        assertNotNull(cache.get(first, Map.class));
+        put(third, row(3, "z"));
+        assertNotNull(cache.get(first, Map.class));
+        assertNull(cache.get(second, Map.class));
+        assertNotNull(cache.get(third, Map.class));
+        assertEquals(1, cache.stats().getEvictions());
+
+        List<Map<String, Object>> many = new ArrayList<>();
+        for (int i = 0; i < 11; i++) many.add(row(i, "n"));
+        SQL big = read("select * from u");
+        cache.put(big, Map.class, new ArrayList<>(many), cache.stamp());
+        assertNull(cache.get(big, Map.class));
+    }
+
+    @Test
+    public void disabledCacheDoesNothing() {
+        config.setEnabled(false);
+        SQL sql = read("select * from t");
+        put(sql, row(1, "x"));
+        assertNull(cache.get(sql, Map.class));
+        assertEquals(0, cache.stats().getMisses());
+    }
+
+    private void put(SQL sql, Map<String, Object> row) {
+        cache.put(sql, Map.class, rows(row), cache.stamp());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Map> rows(Map<String, Object> row) {
+        return new ArrayList<>(Collections.singletonList((Map) row));
+    }
+
+    private static SQL read(String statement, Object... parameters) {
+        return new SQLImpl(new DBTransaction(), (byte) Constant.SQL.READ_TYPE, statement + ";", parameters);
+    }
+
+    private static Map<String, Object> row(int id, String name) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("name", name);
+        return row;
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -0,0 +1,167 @@
+package org.qh.test.DDBMS.LDBMS.sql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.config.impl.SQLBankConfigImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.MappedSQLSpillStore;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLImpl;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试MappedSQLSpillStore的读写、删除和段文件的复用
+ *   段大小为128字节
+ */
+public class MappedSQLSpillStoreTest {
+
+    private File root;
+
+    private MappedSQLSpillStore store;
+
+    private final DBTransaction tx1 = new DBTransaction(1L, 0, (byte) 0);
+
+    private final DBTransaction tx2 = new DBTransaction(2L, 0, (byte) 0);
+
+    @Before
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("sql_spill").toFile();
+        SQLBankConfigImpl config = new SQLBankConfigImpl();
+        inject(config, "spillDirectory", root.getPath());
+        inject(config, "spillSegmentSize", 128);
+        store = new MappedSQLSpillStore();
+        inject(store, "config", config);
+        store.init();
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+        delete(root);
+    }
+
+    /**
+     * 说明：每个事务按追加顺序读回自己的SQL，包括类型和绑定参数
+     */
+    @Test
+    public void readReturnsAppendOrder() throws Exception {
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "update t set a = ? where id = ?;", "x", 1L));
+        store.append(sql(tx2, Constant.SQL.WRITE_TYPE, "delete from t;"));
+        store.append(sql(tx1, Constant.SQL.READ_TYPE, "select * from t where a = ?;", (Object) null));
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "insert into t values (1);"));
+
+        List<SQL> list = store.read(tx1);
+        assertEquals(3, list.size());
+        assertSQL(list.get(0), Constant.SQL.WRITE_TYPE, "update t set a = ? where id = ?;", "x", 1L);
+        assertSQL(list.get(1), Constant.SQL.READ_TYPE, "select * from t where a = ?;", (Object) null);
+        assertSQL(list.get(2), Constant.SQL.WRITE_TYPE, "insert into t values (1);");
+        assertSame(tx1, list.get(0).transaction());
+        assertEquals(1, store.read(tx2).size());
+        assertTrue(store.read(new DBTransaction(3L, 0, (byte) 0)).isEmpty());
+    }
+
+    @Test
+    public void deleteRemovesOnlyThatTransaction() throws Exception {
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "delete from t;"));
+        store.append(sql(tx2, Constant.SQL.WRITE_TYPE, "delete from u;"));
+        store.delete(tx1);
+        store.delete(tx1);
+        assertTrue(store.read(tx1).isEmpty());
+        assertSQL(store.read(tx2).get(0), Constant.SQL.WRITE_TYPE, "delete from u;");
+    }
+
+    /**
+     * 说明：写满的段切换到新段，删除后最多保留2个空闲段，之后的写入复用它们
+     */
+    @Test
+    public void segmentsRollOverAndAreReused() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "insert into t values (" + i + ");"));
+        }
+        assertTrue(segments() > 3);
+        List<SQL> list = store.read(tx1);
+        assertEquals(20, list.size());
+        assertEquals("insert into t values (19);", list.get(19).statement());
+
+        store.delete(tx1);
+        store.append(sql(tx2, Constant.SQL.WRITE_TYPE, "delete from t;"));
+        int left = segments();
+        assertTrue(left <= 3);
+        for (int i = 0; i < 4; i++) {
+            store.append(sql(tx2, Constant.SQL.WRITE_TYPE, "insert into t values (" + i + ");"));
+        }
+        assertEquals(left, segments());
+        assertEquals(5, store.read(tx2).size());
+    }
+
+    @Test
+    public void oversizedRecordGetsItsOwnSegment() throws Exception {
+        char[] chars = new char[500];
+        Arrays.fill(chars, 'a');
+        String statement = "insert into t values ('" + new String(chars) + "');";
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "delete from t;"));
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, statement));
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "delete from u;"));
+        List<SQL> list = store.read(tx1);
+        assertEquals(statement, list.get(1).statement());
+        assertEquals("delete from u;", list.get(2).statement());
+    }
+
+    /**
+     * 说明：初始化时删除上次运行遗留的段文件，不删除其他文件
+     */
+    @Test
+    public void initRemovesLeftoverSegments() throws Exception {
+        store.append(sql(tx1, Constant.SQL.WRITE_TYPE, "delete from t;"));
+        File other = new File(root, "other.txt");
+        assertTrue(other.createNewFile());
+        assertEquals(1, segments());
+        store.destroy();
+        assertEquals(0, segments());
+        assertTrue(other.exists());
+        assertTrue(store.read(tx1).isEmpty());
+    }
+
+    private int segments() {
+        File[] files = root.listFiles((dir, name) -> name.endsWith(".spill"));
+        assertNotNull(files);
+        return files.length;
+    }
+
+    private static SQL sql(DBTransaction transaction, byte type, String statement, Object... parameters) {
+        return new SQLImpl(transaction, type, statement, parameters);
+    }
+
+    private static void assertSQL(SQL sql, byte type, String statement, Object... parameters) {
+        assertEquals(type, sql.type());
+        assertEquals(statement, sql.statement());
+        assertArrayEquals(parameters.length == 0 ? null : parameters, sql.parameters());
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,165 @@
+package org.qh.test.DDBMS.LDBMS.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qh.DDBMS.LDBMS.sql.SQL;
+import org.qh.DDBMS.LDBMS.sql.SQLSpillStore;
+import org.qh.DDBMS.LDBMS.sql.config.impl.SQLBankConfigImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLBankImpl;
+import org.qh.DDBMS.LDBMS.sql.impl.SQLImpl;
+import org.qh.DDBMS.common.Constant;
+import org.qh.DDBMS.common.db.DBTransaction;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @Author: qihe
+ * @Date: 2024/12/12
+ * @Version: 0.0.0
+ * @Description: 测试SQLBankImpl的内存预算、溢出和压缩
+ *   一条不带参数的语句估算占用64 + 2 * 语句长度字节
+ */
+public class SQLBankImplTest {
+
+    /**
+     * 说明：长度为26的语句，估算占用116字节
+     */
+    private static final String STATEMENT = "insert into t values (10);";
+
+    private static final long SIZE = 64 + 2 * STATEMENT.length();
+
+    private SQLBankConfigImpl config;
+
+    private SQLBankImpl bank;
+
+    /**
+     * 说明：溢出到spillStore的SQL
+     */
+    private final Map<DBTransaction, List<SQL>> spilled = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        config = new SQLBankConfigImpl();
+        inject(config, "memoryBudget", 2 * SIZE);
+        inject(config, "maxMemoryBudget", 4 * SIZE);
+        inject(config, "transactionMemoryCap", 3 * SIZE);
+        bank = new SQLBankImpl();
+        inject(bank, "config", config);
+        inject(bank, "spillStore", new SQLSpillStore() {
+            @Override
+            public void append(SQL sql) {
+                spilled.computeIfAbsent(sql.transaction(), k -> new ArrayList<>()).add(sql);
+            }
+
+            @Override
+            public List<SQL> read(DBTransaction transaction) {
+                return new ArrayList<>(spilled.getOrDefault(transaction, Collections.emptyList()));
+            }
+
+            @Override
+            public void delete(DBTransaction transaction) {
+                spilled.remove(transaction);
+            }
+        });
+    }
+
+    @Test
+    public void withinBudgetStaysInMemory() throws Exception {
+        inject(config, "memoryBudget", 100 * SIZE);
+        DBTransaction tx = tx(1, 0);
+        bank.put(sql(tx, STATEMENT));
+        bank.put(new SQLImpl(tx, (byte) Constant.SQL.WRITE_TYPE, "update t set a = ? where id = ?;", "x", 1L));
+        List<SQL> list = bank.get(tx);
+        assertEquals(2, list.size());
+        assertEquals(STATEMENT, list.get(0).statement());
+        assertArrayEquals(new Object[]{"x", 1L}, list.get(1).parameters());
+        assertTrue(spilled.isEmpty());
+        assertNull(bank.get(tx(9, 0)));
+    }
+
+    /**
+     * 说明：全局预算用完后溢出，order为1的事务使用maxMemoryBudget，删除事务后归还预算
+     */
+    @Test
+    public void globalBudgetSpills() throws Exception {
+        DBTransaction first = tx(1, 0);
+        bank.putAll(Arrays.asList(sql(first, STATEMENT), sql(first, STATEMENT)));
+        DBTransaction second = tx(2, 0);
+        bank.put(sql(second, STATEMENT));
+        assertEquals(1, spilled.get(second).size());
+
+        DBTransaction urgent = tx(3, 1);
+        bank.putAll(Arrays.asList(sql(urgent, STATEMENT), sql(urgent, STATEMENT)));
+        assertNull(spilled.get(urgent));
+        bank.put(sql(urgent, STATEMENT));
+        assertEquals(1, spilled.get(urgent).size());
+
+        bank.delete(first);
+        bank.delete(urgent);
+        assertNull(spilled.get(urgent));
+        DBTransaction third = tx(4, 0);
+        bank.putAll(Arrays.asList(sql(third, STATEMENT), sql(third, STATEMENT)));
+        assertNull(spilled.get(third));
+    }
+
+    /**
+     * 说明：超过事务上限后溢出，之后的SQL即使放得下也溢出，读取时保持存入顺序
+     */
+    @Test
+    public void transactionCapSpillsAndKeepsOrder() throws Exception {
+        inject(config, "memoryBudget", 100 * SIZE);
+        DBTransaction tx = tx(1, 0);
+        List<String> statements = new ArrayList<>();
+        for (int i = 10; i < 15; i++) statements.add("insert into t values (" + i + ");");
+        statements.add("delete from t;");
+        for (String statement : statements) bank.put(sql(tx, statement));
+
+        assertEquals(3, spilled.get(tx).size());
+        List<String> read = new ArrayList<>();
+        for (SQL sql : bank.get(tx)) read.add(sql.statement());
+        assertEquals(statements, read);
+
+        bank.delete(tx);
+        assertNull(bank.get(tx));
+        assertNull(spilled.get(tx));
+    }
+
+    /**
+     * 说明：超过压缩阈值的语句压缩后计入预算，读取时还原
+     */
+    @Test
+    public void longStatementsAreCompressed() throws Exception {
+        char[] chars = new char[4000];
+        Arrays.fill(chars, 'a');
+        String statement = "insert into t values ('" + new String(chars) + "');";
+        inject(config, "transactionMemoryCap", 1024L);
+        inject(config, "compressThreshold", 64);
+        DBTransaction tx = tx(1, 0);
+        bank.put(sql(tx, statement));
+        assertFalse(spilled.containsKey(tx));
+
+        inject(config, "compressThreshold", 0);
+        DBTransaction raw = tx(2, 0);
+        bank.put(sql(raw, statement));
+        assertEquals(1, spilled.get(raw).size());
+        assertEquals(statement, bank.get(tx).get(0).statement());
+    }
+
+    private static DBTransaction tx(long id, int order) {
+        return new DBTransaction(id, 0, (byte) order);
+    }
+
+    private static SQL sql(DBTransaction transaction, String statement) {
+        return new SQLImpl(transaction, (byte) Constant.SQL.WRITE_TYPE, statement);
+    }
+
+    private static void inject(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -13,10 +13,15 @@ public interface DoCommit {
     /**
      * <pre>
      * 说明：提交事务
+     * 规范：
+     *   1) syncInfoId为null表示撤销事务，此时committed为null
+     *   2) 事务的修改和同步信息在数据库中提交后才执行committed，提交可以是异步的
+     *   3) 提交失败时不执行committed
      * </pre>
      * @param syncInfoId Long 同步信息id
+     * @param committed Runnable 事务提交后执行的逻辑
      * @since 0.0.0
      */
-    void commit(Long syncInfoId);
+    void commit(Long syncInfoId, Runnable committed);
 }
 
@@ -51,6 +51,8 @@ public interface LTransactionCenter {
     /**
      * <pre>
      * 说明：该方法由GDBMS进行调用，真正地提交事务
+     * 规范：
+     *   1) 事务在数据库中提交后才增加提交事务数并通知client事务执行成功
      * </pre>
      * @param transaction DBTransaction 需要提交的事务
      * @param syncInfoId Long 事务对应同步信息id
@@ -58,6 +60,17 @@ public interface LTransactionCenter {
      */
     void commit(DBTransaction transaction, Long syncInfoId);
 
+    /**
+     * <pre>
+     * 说明：辅站点应用同步信息后，将本站点提交事务数推进到syncInfoId
+     * 规范：
+     *   1) 提交事务数只增不减，较小的值被忽略
+     *   2) 调用方应保证不大于syncInfoId的同步信息都已经提交
+     * </pre>
+     * @param syncInfoId long 连续提交的最大同步信息id
+     * @since 0.0.0
+     */
+    void advance(long syncInfoId);
 
     /**
      * <pre>
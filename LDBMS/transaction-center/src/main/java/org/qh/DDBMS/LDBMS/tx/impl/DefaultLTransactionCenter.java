@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -123,12 +124,23 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
     }
 
     /**
+     * <pre>
      * 说明：初始化当前数据库提交事务数
+     * 实现步骤：
+     *   1) 查询同步信息表中第一个后继id不存在的同步信息id，表为空时为0
+     * 注意事项：
+     *   1. 辅站点并发应用同步信息时，较大id的同步信息可能先于较小id的同步信息提交，
+     *      宕机后同步信息表中可能存在空缺，提交事务数只能恢复到第一个空缺之前，
+     *      否则空缺处的同步信息永远不会被应用
+     *   2. 空缺之后已经提交的同步信息由SyncApplier跳过
+     * </pre>
      * @throws SQLException
      * @since 0.0.0
      */
     private void initTransactionCount() throws SQLException {
-        String sql = "select ifnull(max(`id`), 0) from `" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + serverConfig.dbName() + "`;";
+        String table = "`" + Constant.Sync.SYNC_INFO_TABLE_PREFIX + serverConfig.dbName() + "`";
+        String sql = "select ifnull(min(a.`id`), 0) from " + table + " a left join " + table +
+                " b on b.`id` = a.`id` + 1 where b.`id` is null;";
         try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(sql)) {
@@ -152,6 +164,11 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
         return transactionCount.get();
     }
 
+    @Override
+    public void advance(long syncInfoId) {
+        transactionCount.accumulateAndGet(syncInfoId, Math::max);
+    }
+
     /**
      * <pre>
      * 说明: 该方法用于创建一个事务
@@ -218,7 +235,7 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
     public void cancel(DBTransaction transaction, int reason) {
         DoCommit commit = waitConfirmation.remove(transaction);
         ACKProtocol p = null;
-        if (commit != null) commit.commit(null);
+        if (commit != null) commit.commit(null, null);
         boolean localTransaction = isLocalTransaction(transaction);
         if (reason != Constant.TransactionCenter.CANCEL_FAILURE && !localTransaction) {
             p = new ACKProtocol(Constant.ACKType.CANCEL_DBTRANSACTION,
@@ -251,8 +268,12 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
      * 说明：该方法由GDBMS进行调用，真正地提交事务
      * 实现步骤：
      *   1) 获取事务对应的doCommit接口实例
-     *   2) 提交事务数加1
-     *   3) 执行该实例
+     *   2) 执行该实例，事务在数据库中提交后：
+     *     1. 提交事务数加1
+     *     2. 通知client事务执行成功
+     * 注意事项：
+     *   1. DEFERRED_EXECUTION_MODE下事务在合并提交中异步提交，提交前不能告知client成功，
+     *      否则client在主站点上可能读不到自己的修改
      * </pre>
      *
      * @param transaction 需要提交的事务
@@ -263,9 +284,10 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
         if (commitId == null) throw new NullPointerException("A CommitId is null");
         DoCommit commit = waitConfirmation.remove(transaction);
         if (commit == null) throw new NullPointerException("A DoCommit is null");
-        transactionCount.incrementAndGet();
-        commit.commit(commitId);
-        success(transaction);
+        commit.commit(commitId, () -> {
+            transactionCount.incrementAndGet();
+            success(transaction, commitId);
+        });
 
     }
 
@@ -297,25 +319,32 @@ public class DefaultLTransactionCenter implements LTransactionCenter {
     /**
      * <pre>
      * 说明：通知client事务执行成功
+     * 注意事项：
+     *   1. 辅站点应用同步信息时也会提交事务，此时事务没有对应的client
      * 实现步骤：
      *   1) 判定事务不是局部事务直接返回
-     *   2) 从client中获取站点信息
-     *   3) 构建事务执行成功的协议
-     *   4) 将协议发送给client
-     *   5) 删除事务缓存信息
+     *   2) 从client中获取站点信息，并删除事务缓存信息
+     *   3) 判定没有对应的client直接返回
+     *   4) 构建事务执行成功的协议，附带{数据库名: 同步信息id}作为一致性令牌
+     *   5) 将协议发送给client
      * </pre>
      *
-     * @param transaction 执行失败的事务
+     * @param transaction 执行成功的事务
+     * @param commitId 事务对应同步信息id
      * @since 0.0.0
      */
-    private void success(DBTransaction transaction) {
-        if (isLocalTransaction(transaction)) {
+    private void success(DBTransaction transaction, Long commitId) {
+        if (!isLocalTransaction(transaction)) {
             return;
         }
         if (waitConfirmation.containsKey(transaction)) throw new RuntimeException("Unexpected execution!");
-        sender.send(client.remove(transaction),
-                new ACKProtocol(Constant.ACKType.DBTRANSACTION_SUCCESS, transaction),
-                null, false);
+        String clientSite = client.remove(transaction);
         executor.remove(transaction);
+        if (clientSite == null) return;
+        HashMap<String, Long> token = new HashMap<>();
+        token.put(serverConfig.dbName(), commitId);
+        sender.send(clientSite,
+                new ACKProtocol(Constant.ACKType.DBTRANSACTION_SUCCESS, transaction, token),
+                null, false);
     }
 }